@@ -5,6 +5,8 @@ import org.fastfed4j.profile.KnownProfiles;
 import org.fastfed4j.profile.Profile;
 import org.fastfed4j.profile.ProfileRegistry;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.Set;
 
@@ -61,12 +63,20 @@ public class FastFedConfiguration {
     // Implementors Note: If this is changed, also update the public javadocs below.
     public static final int SCIM_DEFAULT_VALUE_OF_MAX_GROUP_MEMBERSHIP_CHANGES = 100;
 
+    /**
+     * Default tolerance for differences between the clocks of the providers, when checking the expiration of a Jwt.
+     * Value=1 minute.
+     */
+    // Implementors Note: If this is changed, also update the public javadocs below.
+    public static final Duration DEFAULT_CLOCK_SKEW = Duration.ofMinutes(1);
 
     private final ProfileRegistry profileRegistry;
     private final SchemaGrammar preferredSchemaGrammar;
     private final boolean scimCanSupportNestedGroups;
     private final int scimMaxGroupMembershipChanges;
     private final Set<String> supportedLicenses;
+    private final Clock clock;
+    private final Duration clockSkew;
 
     /**
      * Instance of FastFedConfiguration containing the default values for all settings.
@@ -94,6 +104,8 @@ public class FastFedConfiguration {
         this.scimCanSupportNestedGroups = builder.scimCanSupportNestedGroups;
         this.scimMaxGroupMembershipChanges = builder.scimMaxGroupMembershipChanges;
         this.supportedLicenses = builder.supportedLicenses;
+        this.clock = builder.clock;
+        this.clockSkew = builder.clockSkew;
     }
 
     /**
@@ -141,6 +153,24 @@ public class FastFedConfiguration {
         return scimMaxGroupMembershipChanges;
     }
 
+    /**
+     * Gets the clock used to determine if a Jwt has expired. Default value is the system clock.
+     * When a Jwt is checked for replay, the clock of the ReplayCache is used instead, so that both checks agree.
+     * @return Clock
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Gets the tolerance for differences between the clocks of the providers. A Jwt is accepted until its
+     * expiration plus the clock skew, and a ReplayCache remembers it for as long. Default value is 1 minute.
+     * @return clock skew
+     */
+    public Duration getClockSkew() {
+        return clockSkew;
+    }
+
     /**
      * Builder for FastFedConfiguration
      */
@@ -150,6 +180,8 @@ public class FastFedConfiguration {
         private boolean scimCanSupportNestedGroups = SCIM_DEFAULT_VALUE_OF_NESTED_GROUP_SUPPORT;
         private int scimMaxGroupMembershipChanges = SCIM_DEFAULT_VALUE_OF_MAX_GROUP_MEMBERSHIP_CHANGES;
         private Set<String> supportedLicenses = DEFAULT_SUPPORTED_LICENSES;
+        private Clock clock = Clock.systemUTC();
+        private Duration clockSkew = DEFAULT_CLOCK_SKEW;
 
         /**
          * Construct a new Builder with default values for all settings
@@ -165,6 +197,8 @@ public class FastFedConfiguration {
             this.preferredSchemaGrammar = initialConfig.preferredSchemaGrammar;
             this.scimCanSupportNestedGroups = initialConfig.scimCanSupportNestedGroups;
             this.scimMaxGroupMembershipChanges = initialConfig.scimMaxGroupMembershipChanges;
+            this.clock = initialConfig.clock;
+            this.clockSkew = initialConfig.clockSkew;
         }
 
         /**
@@ -199,6 +233,32 @@ public class FastFedConfiguration {
             return this;
         }
 
+        /**
+         * Sets the clock used to determine if a Jwt has expired. Default value is the system clock.
+         * @param clock clock
+         * @return Builder
+         */
+        public Builder setClock(Clock clock) {
+            Objects.requireNonNull(clock, "clock must not be null");
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Sets the tolerance for differences between the clocks of the providers, when checking the expiration
+         * of a Jwt. Default value is 1 minute.
+         * @param clockSkew tolerance
+         * @return Builder
+         */
+        public Builder setClockSkew(Duration clockSkew) {
+            Objects.requireNonNull(clockSkew, "clockSkew must not be null");
+            if (clockSkew.isNegative()) {
+                throw new IllegalArgumentException("clockSkew must not be negative");
+            }
+            this.clockSkew = clockSkew;
+            return this;
+        }
+
         /**
          * Sets the allowed FastFed Licenses for image sharing, as referenced in Section 3.3.2 of
          * the FastFed Core specification. Default value is "https://openid.net/intellectual-property/licenses/fastfed/1.0/"
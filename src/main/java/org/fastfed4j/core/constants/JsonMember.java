@@ -28,7 +28,10 @@ public class JsonMember {
     public static final String JWKS_URI = "jwks_uri";
     public static final String JWT_AUDIENCE = "aud";
     public static final String JWT_EXPIRATION = "exp";
+    public static final String JWT_ID = "jti";
+    public static final String JWT_ISSUED_AT = "iat";
     public static final String JWT_ISSUER = "iss";
+    public static final String JWT_SUBJECT = "sub";
     public static final String LICENSE = "license";
     public static final String LOGO_URI = "logo_uri";
     public static final String OAUTH2_SCOPE = "scope";
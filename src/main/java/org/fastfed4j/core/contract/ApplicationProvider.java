@@ -7,11 +7,16 @@ import org.fastfed4j.core.constants.ProviderAuthenticationProtocol;
 import org.fastfed4j.core.constants.ProvisioningProfile;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.core.metadata.*;
+import org.fastfed4j.core.util.ReflectionUtils;
 import org.fastfed4j.profile.Profile;
 import org.fastfed4j.profile.saml.enterprise.EnterpriseSAML;
 import org.fastfed4j.profile.scim.enterprise.EnterpriseSCIM;
 
+import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -42,7 +47,7 @@ public class ApplicationProvider extends Provider {
         super(metadata);
         this.handshakeRegisterUri = metadata.getHandshakeRegisterUri();
         for (Map.Entry<String, Metadata> entry : metadata.getAllMetadataExtensions().entrySet()) {
-            this.addApplicationProviderMetadataExtension(entry.getKey(), entry.getValue());
+            this.addApplicationProviderMetadataExtension(entry.getKey(), ReflectionUtils.copy(entry.getValue()));
         }
     }
 
@@ -71,6 +76,7 @@ public class ApplicationProvider extends Provider {
      * @param handshakeRegisterUri uri
      */
     public void setHandshakeRegisterUri(String handshakeRegisterUri) {
+        markModified();
         this.handshakeRegisterUri = handshakeRegisterUri;
     }
 
@@ -95,6 +101,7 @@ public class ApplicationProvider extends Provider {
      * @param handshakeFinalizeUri uri
      */
     public void setHandshakeFinalizeUri(String handshakeFinalizeUri) {
+        markModified();
         this.handshakeFinalizeUri = handshakeFinalizeUri;
     }
 
@@ -263,6 +270,7 @@ public class ApplicationProvider extends Provider {
      * @param metadata contents of the metadata extension defined by the profile
      */
     public void addApplicationProviderMetadataExtension(String profileUrn, Metadata metadata) {
+        markModified();
         applicationProviderMetadataExtensions.put(profileUrn, metadata);
     }
 
@@ -284,7 +292,23 @@ public class ApplicationProvider extends Provider {
      * @return table of extended metadata for all profiles, keyed by profile URNs
      */
     public Map<String,Metadata> getAllApplicationProviderMetadataExtensions() {
-        return applicationProviderMetadataExtensions;
+        return exposeCollection(applicationProviderMetadataExtensions);
+    }
+
+    /**
+     * Read-only view of the Application Provider metadata extensions, for use by ContractChange. Unlike
+     * getAllApplicationProviderMetadataExtensions(), this does not treat the contract as modified.
+     */
+    Map<String,Metadata> viewApplicationProviderMetadataExtensions() {
+        return Collections.unmodifiableMap(applicationProviderMetadataExtensions);
+    }
+
+    /**
+     * Gets the latest modification stamp of the Application Provider metadata extensions, from which the
+     * Contract consolidates its Desired Attributes. Changes to the remainder of the provider are not included.
+     */
+    long getApplicationProviderMetadataExtensionsModificationStamp() {
+        return latestModificationStamp(getLocalModificationStamp(), applicationProviderMetadataExtensions);
     }
 
     /**
@@ -295,6 +319,7 @@ public class ApplicationProvider extends Provider {
      * @param metadata contents of the metadata extension defined by the profile
      */
     public void addRegistrationResponseExtension(String profileUrn, Metadata metadata) {
+        markModified();
         registrationResponseExtensions.put(profileUrn, metadata);
     }
 
@@ -337,7 +362,35 @@ public class ApplicationProvider extends Provider {
      * @return table of extended metadata for all profiles, keyed by profile URNs
      */
     public Map<String,Metadata> getAllRegistrationResponseExtensions() {
-        return registrationResponseExtensions;
+        return exposeCollection(registrationResponseExtensions);
+    }
+
+    @Override
+    public ApplicationProvider snapshot() {
+        return (ApplicationProvider) super.snapshot();
+    }
+
+    @Override
+    public ApplicationProvider withProviderContactInformation(ProviderContactInformation providerContactInformation) {
+        return (ApplicationProvider) super.withProviderContactInformation(providerContactInformation);
+    }
+
+    @Override
+    public ApplicationProvider withDisplaySettings(DisplaySettings displaySettings) {
+        return (ApplicationProvider) super.withDisplaySettings(displaySettings);
+    }
+
+    @Override
+    public void freeze() {
+        freezeAll(applicationProviderMetadataExtensions);
+        freezeAll(registrationResponseExtensions);
+        super.freeze();
+    }
+
+    @Override
+    protected long getModificationStamp() {
+        long stamp = latestModificationStamp(super.getModificationStamp(), applicationProviderMetadataExtensions);
+        return latestModificationStamp(stamp, registrationResponseExtensions);
     }
 
     @Override
@@ -366,6 +419,31 @@ public class ApplicationProvider extends Provider {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(JsonMember.APPLICATION_PROVIDER);
+        super.writeJsonMembers(writer);
+        writer.member(JsonMember.FASTFED_HANDSHAKE_REGISTER_URI, handshakeRegisterUri);
+        writer.member(JsonMember.FASTFED_HANDSHAKE_FINALIZE_URI, handshakeFinalizeUri);
+
+        if (hasApplicationProviderMetadataExtensions()) {
+            writer.beginObject(JsonMember.APPLICATION_PROVIDER_METADATA_EXTENSIONS);
+            for (Metadata extension : applicationProviderMetadataExtensions.values()) {
+                writeChildJsonMembers(writer, extension);
+            }
+            writer.endObject();
+        }
+
+        if (hasRegistrationResponseExtensions()) {
+            writer.beginObject(JsonMember.REGISTRATION_RESPONSE_EXTENSIONS);
+            for (Metadata extension : registrationResponseExtensions.values()) {
+                writeChildJsonMembers(writer, extension);
+            }
+            writer.endObject();
+        }
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -391,6 +469,35 @@ public class ApplicationProvider extends Provider {
         setHandshakeFinalizeUri( json.getString(JsonMember.FASTFED_HANDSHAKE_FINALIZE_URI));
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, JsonMember.APPLICATION_PROVIDER);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.APPLICATION_PROVIDER_METADATA_EXTENSIONS:
+                if (reader.nextIsObject(memberName)) {
+                    hydrateExtensions(reader, applicationProviderMetadataExtensions, Profile.ExtensionType.ApplicationProviderMetadata);
+                }
+                return true;
+            case JsonMember.REGISTRATION_RESPONSE_EXTENSIONS:
+                if (reader.nextIsObject(memberName)) {
+                    hydrateExtensions(reader, registrationResponseExtensions, Profile.ExtensionType.RegistrationResponse);
+                }
+                return true;
+            case JsonMember.FASTFED_HANDSHAKE_REGISTER_URI:
+                setHandshakeRegisterUri( reader.nextString(memberName));
+                return true;
+            case JsonMember.FASTFED_HANDSHAKE_FINALIZE_URI:
+                setHandshakeFinalizeUri( reader.nextString(memberName));
+                return true;
+            default:
+                return super.hydrateMember(memberName, reader);
+        }
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         super.validate(errorAccumulator);
@@ -419,6 +526,8 @@ public class ApplicationProvider extends Provider {
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
+        Boolean equalsByFingerprint = equalsByCachedFingerprint((Metadata) o);
+        if (equalsByFingerprint != null) return equalsByFingerprint;
         if (!super.equals(o)) return false;
         ApplicationProvider that = (ApplicationProvider) o;
         return Objects.equals(handshakeRegisterUri, that.handshakeRegisterUri) &&
@@ -9,9 +9,18 @@ import org.fastfed4j.core.exception.FastFedSecurityException;
 import org.fastfed4j.core.exception.IncompatibleProvidersException;
 import org.fastfed4j.core.exception.InvalidMetadataException;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
+import org.fastfed4j.core.jws.JwksCache;
+import org.fastfed4j.core.jws.JwsVerifier;
+import org.fastfed4j.core.jws.ReplayCache;
 import org.fastfed4j.core.metadata.*;
 import org.fastfed4j.core.util.CompatibilityUtils;
+import org.fastfed4j.core.util.UrnSet;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
@@ -26,6 +35,17 @@ public class Contract extends Metadata {
     private ApplicationProvider applicationProvider;
     private EnabledProfiles enabledProfiles;
     private Set<String> signingAlgorithms;
+    private volatile CachedDesiredAttributes cachedConsolidatedDesiredAttributes;
+
+    private static final class CachedDesiredAttributes {
+        private final DesiredAttributes desiredAttributes;
+        private final long modificationStamp;
+
+        private CachedDesiredAttributes(DesiredAttributes desiredAttributes, long modificationStamp) {
+            this.desiredAttributes = desiredAttributes;
+            this.modificationStamp = modificationStamp;
+        }
+    }
 
     /**
      * Constructs an empty contract
@@ -53,7 +73,7 @@ public class Contract extends Metadata {
         this.identityProvider = new IdentityProvider(idpMetadata);
         this.applicationProvider = new ApplicationProvider(appMetadata);
         this.enabledProfiles = new EnabledProfiles(sharedCapabilities);
-        this.signingAlgorithms = sharedCapabilities.getSigningAlgorithms();
+        this.signingAlgorithms = new HashSet<>(sharedCapabilities.getSigningAlgorithms());
     }
 
     /**
@@ -85,6 +105,7 @@ public class Contract extends Metadata {
      * @param identityProvider
      */
     public void setIdentityProvider(IdentityProvider identityProvider) {
+        markModified();
         this.identityProvider = identityProvider;
     }
 
@@ -101,6 +122,7 @@ public class Contract extends Metadata {
      * @param applicationProvider
      */
     public void setApplicationProvider(ApplicationProvider applicationProvider) {
+        markModified();
         this.applicationProvider = applicationProvider;
     }
 
@@ -117,6 +139,7 @@ public class Contract extends Metadata {
      * @param enabledProfiles
      */
     public void setEnabledProfiles(EnabledProfiles enabledProfiles) {
+        markModified();
         this.enabledProfiles = enabledProfiles;
     }
 
@@ -125,15 +148,77 @@ public class Contract extends Metadata {
      * @return collection of mutually supported signing algorithms
      */
     public Set<String> getSigningAlgorithms() {
-        return signingAlgorithms;
+        return exposeCollection(signingAlgorithms);
     }
 
     /**
      * Set the signing algorithms that are mutually supported by both Providers.
-     * @param signingAlgorithms collection of mutually supported signing algorithms
+     * @param signingAlgorithms collection of mutually supported signing algorithms, which is copied
      */
     public void setSigningAlgorithms(Set<String> signingAlgorithms) {
-        this.signingAlgorithms = signingAlgorithms;
+        markModified();
+        this.signingAlgorithms = (signingAlgorithms == null) ? null : new HashSet<>(signingAlgorithms);
+    }
+
+    /**
+     * Gets an immutable snapshot of the contract. See Metadata.freeze().
+     * @return frozen Contract
+     */
+    @Override
+    public Contract snapshot() {
+        return (Contract) super.snapshot();
+    }
+
+    /**
+     * Derives a snapshot of the contract with a different Identity Provider. The new snapshot shares all other
+     * contents with this one, and this contract is left unchanged.
+     * @param identityProvider Identity Provider, which is frozen (or copied, if mutable) into the snapshot
+     * @return frozen Contract
+     */
+    public Contract withIdentityProvider(IdentityProvider identityProvider) {
+        Contract copy = (Contract) snapshot().shallowCopy();
+        copy.identityProvider = snapshotOf(identityProvider);
+        copy.freeze();
+        return copy;
+    }
+
+    /**
+     * Derives a snapshot of the contract with a different Application Provider. The new snapshot shares all other
+     * contents with this one, and this contract is left unchanged.
+     * @param applicationProvider Application Provider, which is frozen (or copied, if mutable) into the snapshot
+     * @return frozen Contract
+     */
+    public Contract withApplicationProvider(ApplicationProvider applicationProvider) {
+        Contract copy = (Contract) snapshot().shallowCopy();
+        copy.applicationProvider = snapshotOf(applicationProvider);
+        copy.freeze();
+        return copy;
+    }
+
+    /**
+     * Derives a snapshot of the contract with different EnabledProfiles. The new snapshot shares all other
+     * contents with this one, and this contract is left unchanged.
+     * @param enabledProfiles EnabledProfiles, which are frozen (or copied, if mutable) into the snapshot
+     * @return frozen Contract
+     */
+    public Contract withEnabledProfiles(EnabledProfiles enabledProfiles) {
+        Contract copy = (Contract) snapshot().shallowCopy();
+        copy.enabledProfiles = snapshotOf(enabledProfiles);
+        copy.freeze();
+        return copy;
+    }
+
+    /**
+     * Derives a snapshot of the contract with different signing algorithms. The new snapshot shares all other
+     * contents with this one, and this contract is left unchanged.
+     * @param signingAlgorithms collection of mutually supported signing algorithms, which is copied
+     * @return frozen Contract
+     */
+    public Contract withSigningAlgorithms(Set<String> signingAlgorithms) {
+        Contract copy = (Contract) snapshot().shallowCopy();
+        copy.signingAlgorithms = (signingAlgorithms == null) ? null : new HashSet<>(signingAlgorithms);
+        copy.freeze();
+        return copy;
     }
 
     /**
@@ -145,10 +230,35 @@ public class Contract extends Metadata {
      * to be transmitted. This method generates a consolidated view by iterating across all
      * profiles in use and merging the DesiredAttributes specified by each into a single view.
      * </p>
+     * <p>
+     * The consolidated view is computed once and cached on the Contract. The cached value is discarded only when
+     * the EnabledProfiles or the Application Provider metadata extensions are modified. The returned object is
+     * frozen, so that it can be shared between callers; use the copy constructor to obtain a mutable copy.
+     * </p>
      * @return consolidated set of Desired Attributes
      */
     public DesiredAttributes getConsolidatedDesiredAttributes() {
-        return getConsolidatedDesiredAttributes(enabledProfiles.getAllProfiles());
+        long stamp = getConsolidatedDesiredAttributesModificationStamp();
+        CachedDesiredAttributes cached = cachedConsolidatedDesiredAttributes;
+        if (cached != null && cached.modificationStamp == stamp) {
+            return cached.desiredAttributes;
+        }
+        DesiredAttributes consolidatedAttributes = getConsolidatedDesiredAttributes(enabledProfiles.getAllProfiles());
+        consolidatedAttributes.freeze();
+        cachedConsolidatedDesiredAttributes = new CachedDesiredAttributes(consolidatedAttributes, stamp);
+        return consolidatedAttributes;
+    }
+
+    /**
+     * Gets the latest modification stamp of the parts of the Contract from which the Desired Attributes are
+     * consolidated. The Contract's own stamp is included, since it changes when either part is replaced.
+     */
+    private long getConsolidatedDesiredAttributesModificationStamp() {
+        long stamp = latestModificationStamp(getLocalModificationStamp(), enabledProfiles);
+        if (applicationProvider != null) {
+            stamp = Math.max(stamp, applicationProvider.getApplicationProviderMetadataExtensionsModificationStamp());
+        }
+        return stamp;
     }
 
     /**
@@ -180,14 +290,75 @@ public class Contract extends Metadata {
     /**
      * Validates a Registration Request Jwt which an Identity Provider sends to an Application Provider
      * during the FastFed Handshake. If valid, amends the contract based upon the contents of the message.
+     * The signature is verified with the keys published at the jwks_uri of the Identity Provider, as held by
+     * the process-wide JwksCache.getDefault(), and the Jwt is recorded in the process-wide ReplayCache.getDefault().
+     * Blocks while the keys are retrieved, if they are not already cached.
      * @param jwt RegistrationRequest in Jwt compact serialization format
-     * @throws InvalidMetadataException if Jwt is invalid
+     * @throws InvalidMetadataException if Jwt is invalid, or the Identity Provider has no jwks_uri
      * @throws FastFedSecurityException if contents of the RegistrationRequest violate the security assertions defined by the FastFed specification
+     * @throws java.io.UncheckedIOException if the keys of the Identity Provider cannot be retrieved
+     * @deprecated Relies on shared state and blocks on a network request. Use
+     * validateAndOverlayRegistrationRequest(jwt, jwksCache, replayCache) or
+     * validateAndOverlayRegistrationRequest(jwt, verifier, replayCache) instead.
      */
+    @Deprecated
     public void validateAndOverlayRegistrationRequest(String jwt)
             throws InvalidMetadataException, FastFedSecurityException
     {
-        RegistrationRequest regRequest = RegistrationRequest.fromJwt(getFastFedConfiguration(), jwt);
+        validateAndOverlayRegistrationRequest(jwt, JwksCache.getDefault(), ReplayCache.getDefault());
+    }
+
+    /**
+     * Validates a Registration Request Jwt which an Identity Provider sends to an Application Provider
+     * during the FastFed Handshake. If valid, amends the contract based upon the contents of the message.
+     * The signature is verified with the keys published at the jwks_uri of the Identity Provider, as held by
+     * a JwksCache, and must use one of the signing algorithms of the contract. Blocks while the keys are
+     * retrieved, if they are not already cached.
+     * @param jwt RegistrationRequest in Jwt compact serialization format
+     * @param jwksCache cache of the keys of the Identity Provider
+     * @param replayCache cache of the Registration Requests which have already been accepted
+     * @throws InvalidMetadataException if Jwt is invalid, or the Identity Provider has no jwks_uri
+     * @throws FastFedSecurityException if contents of the RegistrationRequest violate the security assertions defined by the FastFed specification
+     * @throws java.io.UncheckedIOException if the keys of the Identity Provider cannot be retrieved
+     */
+    public void validateAndOverlayRegistrationRequest(String jwt, JwksCache jwksCache, ReplayCache replayCache)
+            throws InvalidMetadataException, FastFedSecurityException
+    {
+        Objects.requireNonNull(jwksCache, "jwksCache must not be null");
+        if (identityProvider.getJwksUri() == null) {
+            ErrorAccumulator errorAccumulator = new ErrorAccumulator();
+            errorAccumulator.add("Missing value for \"" + JsonMember.IDENTITY_PROVIDER + "." + JsonMember.JWKS_URI + "\"");
+            throw new InvalidMetadataException(errorAccumulator);
+        }
+        validateAndOverlayRegistrationRequest(
+                jwt, jwksCache.getVerifier(identityProvider.getJwksUri(), getSigningAlgorithms()), replayCache);
+    }
+
+    /**
+     * Validates a Registration Request Jwt which an Identity Provider sends to an Application Provider
+     * during the FastFed Handshake. If valid, amends the contract based upon the contents of the message.
+     * The Jwt must be issued by the entity_id of the Identity Provider, for the entity_id of the Application Provider.
+     * @param jwt RegistrationRequest in Jwt compact serialization format
+     * @param verifier verifier holding the keys of the Identity Provider
+     * @param replayCache cache of the Registration Requests which have already been accepted
+     * @throws InvalidMetadataException if Jwt is invalid, or the contract is missing an entity_id
+     * @throws FastFedSecurityException if contents of the RegistrationRequest violate the security assertions defined by the FastFed specification
+     */
+    public void validateAndOverlayRegistrationRequest(String jwt, JwsVerifier verifier, ReplayCache replayCache)
+            throws InvalidMetadataException, FastFedSecurityException
+    {
+        ErrorAccumulator errorAccumulator = new ErrorAccumulator();
+        if (identityProvider.getEntityId() == null) {
+            errorAccumulator.add("Missing value for \"" + JsonMember.IDENTITY_PROVIDER + "." + JsonMember.ENTITY_ID + "\"");
+        }
+        if (applicationProvider.getEntityId() == null) {
+            errorAccumulator.add("Missing value for \"" + JsonMember.APPLICATION_PROVIDER + "." + JsonMember.ENTITY_ID + "\"");
+        }
+        if (errorAccumulator.hasErrors()) {
+            throw new InvalidMetadataException(errorAccumulator);
+        }
+        RegistrationRequest regRequest = RegistrationRequest.fromJwt(getFastFedConfiguration(), jwt, verifier,
+                identityProvider.getEntityId(), applicationProvider.getEntityId(), replayCache);
         overlayRegistrationRequest(regRequest);
     }
 
@@ -279,11 +450,18 @@ public class Contract extends Metadata {
      * @return true if invalid
      */
     private boolean invalidScopeDown(Set<String> requested, Set<String> allowed) {
-        for (String value : requested) {
-            if (! allowed.contains(value))
-                return true;
-        }
-        return false;
+        return !UrnSet.of(allowed).containsAll(UrnSet.of(requested));
+    }
+
+    @Override
+    public void freeze() {
+        freezeAll(identityProvider, applicationProvider, enabledProfiles);
+        super.freeze();
+    }
+
+    @Override
+    protected long getModificationStamp() {
+        return latestModificationStamp(super.getModificationStamp(), identityProvider, applicationProvider, enabledProfiles);
     }
 
     @Override
@@ -297,6 +475,17 @@ public class Contract extends Metadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(JsonMember.CONTRACT);
+        super.writeJsonMembers(writer);
+        writeChildJsonMembers(writer, identityProvider);
+        writeChildJsonMembers(writer, applicationProvider);
+        writeChildJsonMembers(writer, enabledProfiles);
+        writer.member(JsonMember.SIGNING_ALGORITHMS, signingAlgorithms);
+        writer.endObject();
+    }
+
     /**
      * Constructs a Contract from a JSON-serialized representation
      * @param configuration FastFed Configuration that controls the behavior of parsing and validation
@@ -311,6 +500,63 @@ public class Contract extends Metadata {
         return contract;
     }
 
+    /**
+     * Constructs a Contract from a UTF-8 encoded JSON representation
+     * @param configuration FastFed Configuration that controls the behavior of parsing and validation
+     * @param json JSON-serialized representation of the Contract
+     * @return Contract
+     */
+    public static Contract fromJson(FastFedConfiguration configuration, byte[] json) {
+        Objects.requireNonNull(configuration, "configuration must not be null");
+        Objects.requireNonNull(json, "json must not be null");
+        Contract contract = new Contract(configuration);
+        contract.hydrateAndValidate(json);
+        return contract;
+    }
+
+    /**
+     * Constructs a Contract from a UTF-8 encoded JSON representation, consisting of the bytes between the
+     * position and limit of the buffer
+     * @param configuration FastFed Configuration that controls the behavior of parsing and validation
+     * @param json JSON-serialized representation of the Contract
+     * @return Contract
+     */
+    public static Contract fromJson(FastFedConfiguration configuration, ByteBuffer json) {
+        Objects.requireNonNull(configuration, "configuration must not be null");
+        Objects.requireNonNull(json, "json must not be null");
+        Contract contract = new Contract(configuration);
+        contract.hydrateAndValidate(json);
+        return contract;
+    }
+
+    /**
+     * Constructs a Contract from a UTF-8 encoded JSON stream. The stream is read to the end, but is not closed.
+     * @param configuration FastFed Configuration that controls the behavior of parsing and validation
+     * @param json JSON-serialized representation of the Contract
+     * @return Contract
+     */
+    public static Contract fromJson(FastFedConfiguration configuration, InputStream json) {
+        Objects.requireNonNull(configuration, "configuration must not be null");
+        Objects.requireNonNull(json, "json must not be null");
+        Contract contract = new Contract(configuration);
+        contract.hydrateAndValidate(json);
+        return contract;
+    }
+
+    /**
+     * Constructs a Contract from the compact binary form produced by toBinary()
+     * @param configuration FastFed Configuration that controls the behavior of parsing and validation
+     * @param data binary representation of the Contract
+     * @return Contract
+     */
+    public static Contract fromBinary(FastFedConfiguration configuration, byte[] data) {
+        Objects.requireNonNull(configuration, "configuration must not be null");
+        Objects.requireNonNull(data, "data must not be null");
+        Contract contract = new Contract(configuration);
+        contract.hydrateAndValidateBinary(data);
+        return contract;
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -340,6 +586,43 @@ public class Contract extends Metadata {
         }
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, JsonMember.CONTRACT);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.SIGNING_ALGORITHMS:
+                setSigningAlgorithms( reader.nextStringSet(memberName));
+                return true;
+            case JsonMember.IDENTITY_PROVIDER:
+                if (reader.nextIsObject(memberName)) {
+                    IdentityProvider identityProvider = new IdentityProvider(getFastFedConfiguration());
+                    identityProvider.hydrateFromJson(reader);
+                    setIdentityProvider(identityProvider);
+                }
+                return true;
+            case JsonMember.APPLICATION_PROVIDER:
+                if (reader.nextIsObject(memberName)) {
+                    ApplicationProvider applicationProvider = new ApplicationProvider(getFastFedConfiguration());
+                    applicationProvider.hydrateFromJson(reader);
+                    setApplicationProvider(applicationProvider);
+                }
+                return true;
+            case JsonMember.ENABLED_PROFILES:
+                if (reader.nextIsObject(memberName)) {
+                    EnabledProfiles enabledProfiles = new EnabledProfiles(getFastFedConfiguration());
+                    enabledProfiles.hydrateFromJson(reader);
+                    setEnabledProfiles(enabledProfiles);
+                }
+                return true;
+            default:
+                return super.hydrateMember(memberName, reader);
+        }
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         // Validate that required objects are defined
@@ -366,6 +649,8 @@ public class Contract extends Metadata {
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
+        Boolean equalsByFingerprint = equalsByCachedFingerprint((Metadata) o);
+        if (equalsByFingerprint != null) return equalsByFingerprint;
         Contract contract = (Contract) o;
         return identityProvider.equals(contract.identityProvider) &&
                 applicationProvider.equals(contract.applicationProvider) &&
@@ -51,23 +51,6 @@ public class ContractChange {
         Objects.requireNonNull(idpMetadata, "idpMetadata must not be null");
         Objects.requireNonNull(appMetadata, "appMetadata must not be null");
 
-        // Clone the current contract
-        Contract newContract = new Contract(currentContract);
-
-        // Only a subset of attributes can be mutated by a recurring background refresh.
-        // See Section 4.1.5 of the FastFed Core specification.
-        newContract.getIdentityProvider().getProviderContactInformation().setEmail( idpMetadata.getProviderContactInformation().getEmail());
-        newContract.getIdentityProvider().getProviderContactInformation().setPhone( idpMetadata.getProviderContactInformation().getPhone());
-        newContract.getIdentityProvider().getProviderContactInformation().setOrganization( idpMetadata.getProviderContactInformation().getOrganization());
-        newContract.getIdentityProvider().getDisplaySettings().setLogoUri( idpMetadata.getDisplaySettings().getLogoUri());
-        newContract.getIdentityProvider().getDisplaySettings().setIconUri( idpMetadata.getDisplaySettings().getIconUri());
-
-        newContract.getApplicationProvider().getProviderContactInformation().setEmail( appMetadata.getProviderContactInformation().getEmail());
-        newContract.getApplicationProvider().getProviderContactInformation().setPhone( appMetadata.getProviderContactInformation().getPhone());
-        newContract.getApplicationProvider().getProviderContactInformation().setOrganization( appMetadata.getProviderContactInformation().getOrganization());
-        newContract.getApplicationProvider().getDisplaySettings().setLogoUri( appMetadata.getDisplaySettings().getLogoUri());
-        newContract.getApplicationProvider().getDisplaySettings().setIconUri( appMetadata.getDisplaySettings().getIconUri());
-
         // Amongst the Capabilities, only the signing algorithms can be mutated by a recurring background refresh.
         Capabilities sharedCapabilities =
                 compatibilityUtils.getSharedCapabilities(idpMetadata.getCapabilities(), appMetadata.getCapabilities());
@@ -87,7 +70,38 @@ public class ContractChange {
         // overlays any new algorithms that are mutually compatible across both providers.
         Set<String> newSigningAlgorithms = new HashSet<>(currentContract.getSigningAlgorithms());
         newSigningAlgorithms.addAll(compatibleSigningAlgorithms);
-        newContract.setSigningAlgorithms( newSigningAlgorithms);
+
+        // Only a subset of attributes can be mutated by a recurring background refresh.
+        // See Section 4.1.5 of the FastFed Core specification.
+        IdentityProvider currentIdp = currentContract.getIdentityProvider();
+        ApplicationProvider currentApp = currentContract.getApplicationProvider();
+        ProviderContactInformation idpContactInformation =
+                refreshContactInformation(currentIdp.getProviderContactInformation(), idpMetadata);
+        DisplaySettings idpDisplaySettings = refreshDisplaySettings(currentIdp.getDisplaySettings(), idpMetadata);
+        ProviderContactInformation appContactInformation =
+                refreshContactInformation(currentApp.getProviderContactInformation(), appMetadata);
+        DisplaySettings appDisplaySettings = refreshDisplaySettings(currentApp.getDisplaySettings(), appMetadata);
+
+        Contract newContract;
+        if (currentContract.isFrozen()) {
+            // Derive a new snapshot that copies only the providers along the path to the changes, and shares
+            // everything else with the current contract.
+            newContract = currentContract
+                    .withIdentityProvider(currentIdp
+                            .withProviderContactInformation(idpContactInformation)
+                            .withDisplaySettings(idpDisplaySettings))
+                    .withApplicationProvider(currentApp
+                            .withProviderContactInformation(appContactInformation)
+                            .withDisplaySettings(appDisplaySettings))
+                    .withSigningAlgorithms(newSigningAlgorithms);
+        } else {
+            newContract = new Contract(currentContract);
+            newContract.getIdentityProvider().setProviderContactInformation(idpContactInformation);
+            newContract.getIdentityProvider().setDisplaySettings(idpDisplaySettings);
+            newContract.getApplicationProvider().setProviderContactInformation(appContactInformation);
+            newContract.getApplicationProvider().setDisplaySettings(appDisplaySettings);
+            newContract.setSigningAlgorithms(newSigningAlgorithms);
+        }
 
         ContractChange contractChange = new ContractChange(currentContract, newContract);
 
@@ -107,6 +121,31 @@ public class ContractChange {
         return contractChange;
     }
 
+    /**
+     * Copies the current contact information of a provider, overlaying the values that may be refreshed from
+     * its metadata.
+     */
+    private static ProviderContactInformation refreshContactInformation(ProviderContactInformation current,
+                                                                        CommonProviderMetadata metadata)
+    {
+        ProviderContactInformation refreshed = new ProviderContactInformation(current);
+        refreshed.setEmail( metadata.getProviderContactInformation().getEmail());
+        refreshed.setPhone( metadata.getProviderContactInformation().getPhone());
+        refreshed.setOrganization( metadata.getProviderContactInformation().getOrganization());
+        return refreshed;
+    }
+
+    /**
+     * Copies the current display settings of a provider, overlaying the values that may be refreshed from
+     * its metadata.
+     */
+    private static DisplaySettings refreshDisplaySettings(DisplaySettings current, CommonProviderMetadata metadata) {
+        DisplaySettings refreshed = new DisplaySettings(current);
+        refreshed.setLogoUri( metadata.getDisplaySettings().getLogoUri());
+        refreshed.setIconUri( metadata.getDisplaySettings().getIconUri());
+        return refreshed;
+    }
+
     /**
      * Construct a ContractChange by comparing prior and new versions of the contract.
      * @param newContract new version of the contract
@@ -264,11 +303,28 @@ public class ContractChange {
      */
     private void populateChangeDetails() {
 
-        boolean hasChange = !newContract.equals(oldContract);
+        // Fingerprints are cached, so an unchanged contract is detected without comparing the full contents
+        boolean hasChange = (oldContract == null || !newContract.getFingerprint().equals(oldContract.getFingerprint()));
+        if (!hasChange) {
+            changeType = ContractChangeType.None;
+            return;
+        }
+
+        // Fingerprints form a Merkle tree, so only the subtrees whose fingerprints differ need to be compared.
+        // The desired attributes are consolidated from the enabled profiles and the Application Provider's
+        // metadata extensions, and are left untouched when neither has changed.
+        boolean enabledProfilesChanged = (oldContract == null
+                || hasDifferentFingerprint(oldContract.getEnabledProfiles(), newContract.getEnabledProfiles()));
 
-        boolean hasProfilesAddedOrRemoved = setChangeDetailsForAuthAndProvisioningProfiles();
+        boolean appExtensionsChanged = (oldContract == null
+                || !hasSameFingerprints(oldContract.getApplicationProvider().viewApplicationProviderMetadataExtensions(),
+                                        newContract.getApplicationProvider().viewApplicationProviderMetadataExtensions()));
 
-        boolean exposesNewAttributesToApplication = setChangeDetailsForDesiredAttributes();
+        boolean hasProfilesAddedOrRemoved = enabledProfilesChanged && setChangeDetailsForAuthAndProvisioningProfiles();
+
+        if (enabledProfilesChanged || appExtensionsChanged) {
+            setChangeDetailsForDesiredAttributes();
+        }
 
         boolean hasOtherProfileChange = determineIfProfilesChanged();
 
@@ -303,12 +359,44 @@ public class ContractChange {
     }
 
     private boolean determineIfProfilesChanged() {
-        Map<String, Metadata> oldAppProfiles = oldContract == null ? null : oldContract.getApplicationProvider().getAllApplicationProviderMetadataExtensions();
-        Map<String, Metadata> newAppProfiles = newContract.getApplicationProvider().getAllApplicationProviderMetadataExtensions();
-        Map<String, Metadata> oldIdpProfiles = oldContract == null ? null : oldContract.getIdentityProvider().getAllIdentityProviderMetadataExtensions();
-        Map<String, Metadata> newIdpProfiles = newContract.getIdentityProvider().getAllIdentityProviderMetadataExtensions();
+        if (oldContract == null) {
+            return true;
+        }
+        return !hasSameFingerprints(oldContract.getApplicationProvider().viewApplicationProviderMetadataExtensions(),
+                                    newContract.getApplicationProvider().viewApplicationProviderMetadataExtensions())
+            || !hasSameFingerprints(oldContract.getIdentityProvider().viewIdentityProviderMetadataExtensions(),
+                                    newContract.getIdentityProvider().viewIdentityProviderMetadataExtensions());
+    }
+
+    /**
+     * Compares two metadata objects by their cached fingerprints.
+     * @param oldValue old value, which may be null
+     * @param newValue new value, which may be null
+     * @return true if the values differ
+     */
+    private static boolean hasDifferentFingerprint(Metadata oldValue, Metadata newValue) {
+        if (oldValue == null || newValue == null) {
+            return oldValue != newValue;
+        }
+        return !oldValue.getFingerprint().equals(newValue.getFingerprint());
+    }
 
-        return (!newAppProfiles.equals(oldAppProfiles) || !newIdpProfiles.equals(oldIdpProfiles));
+    /**
+     * Compares two tables of metadata extensions by their cached fingerprints.
+     * @param oldExtensions old extensions, keyed by profile URN
+     * @param newExtensions new extensions, keyed by profile URN
+     * @return true if both tables contain the same profiles with equivalent contents
+     */
+    private static boolean hasSameFingerprints(Map<String, Metadata> oldExtensions, Map<String, Metadata> newExtensions) {
+        if (!oldExtensions.keySet().equals(newExtensions.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, Metadata> entry : newExtensions.entrySet()) {
+            if (hasDifferentFingerprint(oldExtensions.get(entry.getKey()), entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private boolean setChangeDetailsForAuthAndProvisioningProfiles() {
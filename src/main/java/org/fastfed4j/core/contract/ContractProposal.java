@@ -4,8 +4,11 @@ import org.fastfed4j.core.configuration.FastFedConfiguration;
 import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.core.metadata.Metadata;
 
+import java.io.IOException;
 import java.util.Date;
 import java.util.Objects;
 
@@ -71,22 +74,27 @@ public class ContractProposal extends Metadata {
     }
 
     public void setContract(Contract contract) {
+        markModified();
         this.contract = contract;
     }
 
     public Date getExpirationDate() {
-        return expirationDate;
+        // Date is mutable, so a frozen proposal returns a copy
+        return (isFrozen() && expirationDate != null) ? new Date(expirationDate.getTime()) : expirationDate;
     }
 
     public void setExpirationDate(Date expirationDate) {
+        markModified();
         this.expirationDate = expirationDate;
     }
 
     public Date getClosureDate() {
-        return closureDate;
+        // Date is mutable, so a frozen proposal returns a copy
+        return (isFrozen() && closureDate != null) ? new Date(closureDate.getTime()) : closureDate;
     }
 
     public void setClosureDate(Date closureDate) {
+        markModified();
         this.closureDate = closureDate;
     }
 
@@ -95,6 +103,7 @@ public class ContractProposal extends Metadata {
     }
 
     public void setStatus(ContractProposalStatus status) {
+        markModified();
         this.status = status;
     }
 
@@ -126,6 +135,26 @@ public class ContractProposal extends Metadata {
             throw new RuntimeException("Contract Proposal is already closed. (Current status = " + status.toString() + ")");
     }
 
+    /**
+     * Gets an immutable snapshot of the proposal. See Metadata.freeze().
+     * @return frozen ContractProposal
+     */
+    @Override
+    public ContractProposal snapshot() {
+        return (ContractProposal) super.snapshot();
+    }
+
+    @Override
+    public void freeze() {
+        freezeAll(contract);
+        super.freeze();
+    }
+
+    @Override
+    protected long getModificationStamp() {
+        return latestModificationStamp(super.getModificationStamp(), contract);
+    }
+
     @Override
     public JsonObject toJson() {
         JsonObject.Builder builder = new JsonObject.Builder(JsonMember.CONTRACT_PROPOSAL);
@@ -137,6 +166,17 @@ public class ContractProposal extends Metadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(JsonMember.CONTRACT_PROPOSAL);
+        super.writeJsonMembers(writer);
+        writeChildJsonMembers(writer, contract);
+        writer.member(JsonMember.CONTRACT_PROPOSAL_STATUS, status.toString());
+        writer.member(JsonMember.CONTRACT_PROPOSAL_EXPIRATION_DATE, expirationDate);
+        writer.member(JsonMember.CONTRACT_PROPOSAL_CLOSURE_DATE, closureDate);
+        writer.endObject();
+    }
+
     /**
      * Constructs a Contract Proposal from a JSON-serialized representation.
      * @param configuration FastFed Configuration that controls the behavior of parsing and validation
@@ -151,6 +191,20 @@ public class ContractProposal extends Metadata {
         return contractProposal;
     }
 
+    /**
+     * Constructs a ContractProposal from the compact binary form produced by toBinary()
+     * @param configuration FastFed Configuration that controls the behavior of parsing and validation
+     * @param data binary representation of the ContractProposal
+     * @return ContractProposal
+     */
+    public static ContractProposal fromBinary(FastFedConfiguration configuration, byte[] data) {
+        Objects.requireNonNull(configuration, "configuration must not be null");
+        Objects.requireNonNull(data, "data must not be null");
+        ContractProposal contractProposal = new ContractProposal(configuration);
+        contractProposal.hydrateAndValidateBinary(data);
+        return contractProposal;
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -181,6 +235,46 @@ public class ContractProposal extends Metadata {
         }
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, JsonMember.CONTRACT_PROPOSAL);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.CONTRACT_PROPOSAL_EXPIRATION_DATE:
+                setExpirationDate( reader.nextDate(memberName));
+                return true;
+            case JsonMember.CONTRACT_PROPOSAL_CLOSURE_DATE:
+                setClosureDate( reader.nextDate(memberName));
+                return true;
+            case JsonMember.CONTRACT_PROPOSAL_STATUS:
+                String status = reader.nextString(memberName);
+                if (status != null) {
+                    try {
+                        setStatus( ContractProposalStatus.valueOf(status));
+                    }
+                    catch (IllegalArgumentException e) {
+                        reader.getErrorAccumulator().add(
+                                "Invalid value for \"" + getFullyQualifiedName(JsonMember.CONTRACT_PROPOSAL_STATUS) +
+                                "\" (received: \"" + status + "\")"
+                        );
+                    }
+                }
+                return true;
+            case JsonMember.CONTRACT:
+                if (reader.nextIsObject(memberName)) {
+                    Contract contract = new Contract(getFastFedConfiguration());
+                    contract.hydrateFromJson(reader);
+                    setContract(contract);
+                }
+                return true;
+            default:
+                return super.hydrateMember(memberName, reader);
+        }
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         validateRequiredObject(errorAccumulator, JsonMember.CONTRACT_PROPOSAL_STATUS, status);
@@ -4,9 +4,12 @@ import org.fastfed4j.core.configuration.FastFedConfiguration;
 import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.core.metadata.Capabilities;
 import org.fastfed4j.core.metadata.Metadata;
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -31,8 +34,8 @@ public class EnabledProfiles extends Metadata {
      */
     public EnabledProfiles(Capabilities sharedCapabilities) {
         super(sharedCapabilities.getFastFedConfiguration());
-        this.authenticationProfiles = sharedCapabilities.getAuthenticationProfiles();
-        this.provisioningProfiles = sharedCapabilities.getProvisioningProfiles();
+        this.authenticationProfiles = new HashSet<>(sharedCapabilities.getAuthenticationProfiles());
+        this.provisioningProfiles = new HashSet<>(sharedCapabilities.getProvisioningProfiles());
     }
 
     /**
@@ -52,16 +55,17 @@ public class EnabledProfiles extends Metadata {
      * @return authentication profile URNs
      */
     public Set<String> getAuthenticationProfiles() {
-        return authenticationProfiles;
+        return exposeCollection(authenticationProfiles);
     }
 
     /**
      * Sets the collection of authentication profiles that should be enabled for end-users.
-     * @param authenticationProfiles authentication profile URNs
+     * @param authenticationProfiles authentication profile URNs, which are copied
      */
     public void setAuthenticationProfiles(Set<String> authenticationProfiles) {
+        markModified();
         Objects.requireNonNull(authenticationProfiles, "authenticationProfiles must not be null");
-        this.authenticationProfiles = authenticationProfiles;
+        this.authenticationProfiles = new HashSet<>(authenticationProfiles);
     }
 
     /**
@@ -69,16 +73,17 @@ public class EnabledProfiles extends Metadata {
      * @return provisioning profile URNs
      */
     public Set<String> getProvisioningProfiles() {
-        return provisioningProfiles;
+        return exposeCollection(provisioningProfiles);
     }
 
     /**
      * Sets the collection of provisioning profiles that should be enabled for end-users.
-     * @param provisioningProfiles provisioning profile URNs
+     * @param provisioningProfiles provisioning profile URNs, which are copied
      */
     public void setProvisioningProfiles(Set<String> provisioningProfiles) {
+        markModified();
         Objects.requireNonNull(provisioningProfiles, "provisioningProfiles must not be null");
-        this.provisioningProfiles = provisioningProfiles;
+        this.provisioningProfiles = new HashSet<>(provisioningProfiles);
     }
 
     /**
@@ -106,6 +111,15 @@ public class EnabledProfiles extends Metadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(JsonMember.ENABLED_PROFILES);
+        super.writeJsonMembers(writer);
+        writer.member(JsonMember.AUTHENTICATION_PROFILES, authenticationProfiles);
+        writer.member(JsonMember.PROVISIONING_PROFILES, provisioningProfiles);
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -115,6 +129,25 @@ public class EnabledProfiles extends Metadata {
         setProvisioningProfiles( json.getNonNullableStringSet(JsonMember.PROVISIONING_PROFILES));
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, JsonMember.ENABLED_PROFILES);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.AUTHENTICATION_PROFILES:
+                setAuthenticationProfiles( reader.nextNonNullableStringSet(memberName));
+                return true;
+            case JsonMember.PROVISIONING_PROFILES:
+                setProvisioningProfiles( reader.nextNonNullableStringSet(memberName));
+                return true;
+            default:
+                return super.hydrateMember(memberName, reader);
+        }
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         validateOptionalStringCollection(errorAccumulator, JsonMember.AUTHENTICATION_PROFILES, authenticationProfiles);
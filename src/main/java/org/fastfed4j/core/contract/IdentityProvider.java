@@ -6,12 +6,17 @@ import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.constants.ProvisioningProfile;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.core.metadata.*;
+import org.fastfed4j.core.util.ReflectionUtils;
 import org.fastfed4j.profile.Profile;
 import org.fastfed4j.profile.scim.enterprise.ProviderAuthenticationMethods;
 import org.fastfed4j.profile.saml.enterprise.EnterpriseSAML;
 import org.fastfed4j.profile.scim.enterprise.EnterpriseSCIM;
 
+import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -43,7 +48,7 @@ public class IdentityProvider extends Provider {
         this.jwksUri = metadata.getJwksUri();
         this.handshakeStartUri = metadata.getHandshakeStartUri();
         for (Map.Entry<String, Metadata> entry : metadata.getAllMetadataExtensions().entrySet()) {
-            this.addIdentityProviderMetadataExtension(entry.getKey(), entry.getValue());
+            this.addIdentityProviderMetadataExtension(entry.getKey(), ReflectionUtils.copy(entry.getValue()));
         }
     }
 
@@ -74,6 +79,7 @@ public class IdentityProvider extends Provider {
      * @param jwks_uri uri
      */
     public void setJwksUri(String jwks_uri) {
+        markModified();
         this.jwksUri = jwks_uri;
     }
 
@@ -90,6 +96,7 @@ public class IdentityProvider extends Provider {
      * @param handshakeStartUri uri
      */
     public void setHandshakeStartUri(String handshakeStartUri) {
+        markModified();
         this.handshakeStartUri = handshakeStartUri;
     }
 
@@ -197,6 +204,7 @@ public class IdentityProvider extends Provider {
      * @param metadata contents of the metadata extension defined by the profile
      */
     public void addIdentityProviderMetadataExtension(String profileUrn, Metadata metadata) {
+        markModified();
         identityProviderMetadataExtensions.put(profileUrn, metadata);
     }
 
@@ -218,7 +226,15 @@ public class IdentityProvider extends Provider {
      * @return table of extended metadata for all profiles, keyed by profile URNs
      */
     public Map<String,Metadata> getAllIdentityProviderMetadataExtensions() {
-        return identityProviderMetadataExtensions;
+        return exposeCollection(identityProviderMetadataExtensions);
+    }
+
+    /**
+     * Read-only view of the Identity Provider metadata extensions, for use by ContractChange. Unlike
+     * getAllIdentityProviderMetadataExtensions(), this does not treat the contract as modified.
+     */
+    Map<String,Metadata> viewIdentityProviderMetadataExtensions() {
+        return Collections.unmodifiableMap(identityProviderMetadataExtensions);
     }
 
     /**
@@ -229,6 +245,7 @@ public class IdentityProvider extends Provider {
      * @param metadata contents of the metadata extension defined by the profile
      */
     public void addRegistrationRequestExtension(String profileUrn, Metadata metadata) {
+        markModified();
         registrationRequestExtensions.put(profileUrn, metadata);
     }
 
@@ -271,7 +288,35 @@ public class IdentityProvider extends Provider {
      * @return table of extended metadata for all profiles, keyed by profile URNs
      */
     public Map<String,Metadata> getAllRegistrationRequestExtensions() {
-        return registrationRequestExtensions;
+        return exposeCollection(registrationRequestExtensions);
+    }
+
+    @Override
+    public IdentityProvider snapshot() {
+        return (IdentityProvider) super.snapshot();
+    }
+
+    @Override
+    public IdentityProvider withProviderContactInformation(ProviderContactInformation providerContactInformation) {
+        return (IdentityProvider) super.withProviderContactInformation(providerContactInformation);
+    }
+
+    @Override
+    public IdentityProvider withDisplaySettings(DisplaySettings displaySettings) {
+        return (IdentityProvider) super.withDisplaySettings(displaySettings);
+    }
+
+    @Override
+    public void freeze() {
+        freezeAll(identityProviderMetadataExtensions);
+        freezeAll(registrationRequestExtensions);
+        super.freeze();
+    }
+
+    @Override
+    protected long getModificationStamp() {
+        long stamp = latestModificationStamp(super.getModificationStamp(), identityProviderMetadataExtensions);
+        return latestModificationStamp(stamp, registrationRequestExtensions);
     }
 
     @Override
@@ -300,6 +345,31 @@ public class IdentityProvider extends Provider {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(JsonMember.IDENTITY_PROVIDER);
+        super.writeJsonMembers(writer);
+        writer.member(JsonMember.JWKS_URI, jwksUri);
+        writer.member(JsonMember.FASTFED_HANDSHAKE_START_URI, handshakeStartUri);
+
+        if (hasIdentityProviderMetadataExtensions()) {
+            writer.beginObject(JsonMember.IDENTITY_PROVIDER_METADATA_EXTENSIONS);
+            for (Metadata obj : identityProviderMetadataExtensions.values()) {
+                writeChildJsonMembers(writer, obj);
+            }
+            writer.endObject();
+        }
+
+        if (hasRegistrationRequestExtensions()) {
+            writer.beginObject(JsonMember.REGISTRATION_REQUEST_EXTENSIONS);
+            for (Metadata obj : registrationRequestExtensions.values()) {
+                writeChildJsonMembers(writer, obj);
+            }
+            writer.endObject();
+        }
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -324,6 +394,30 @@ public class IdentityProvider extends Provider {
         setHandshakeStartUri( json.getString(JsonMember.FASTFED_HANDSHAKE_START_URI));
     }
 
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.IDENTITY_PROVIDER_METADATA_EXTENSIONS:
+                if (reader.nextIsObject(memberName)) {
+                    hydrateExtensions(reader, identityProviderMetadataExtensions, Profile.ExtensionType.IdentityProviderMetadata);
+                }
+                return true;
+            case JsonMember.REGISTRATION_REQUEST_EXTENSIONS:
+                if (reader.nextIsObject(memberName)) {
+                    hydrateExtensions(reader, registrationRequestExtensions, Profile.ExtensionType.RegistrationRequest);
+                }
+                return true;
+            case JsonMember.JWKS_URI:
+                setJwksUri( reader.nextString(memberName));
+                return true;
+            case JsonMember.FASTFED_HANDSHAKE_START_URI:
+                setHandshakeStartUri( reader.nextString(memberName));
+                return true;
+            default:
+                return super.hydrateMember(memberName, reader);
+        }
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         super.validate(errorAccumulator);
@@ -352,15 +446,19 @@ public class IdentityProvider extends Provider {
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
+        Boolean equalsByFingerprint = equalsByCachedFingerprint((Metadata) o);
+        if (equalsByFingerprint != null) return equalsByFingerprint;
         if (!super.equals(o)) return false;
         IdentityProvider that = (IdentityProvider) o;
         return jwksUri.equals(that.jwksUri) &&
-                handshakeStartUri.equals(that.handshakeStartUri);
+                handshakeStartUri.equals(that.handshakeStartUri) &&
+                Objects.equals(identityProviderMetadataExtensions, that.identityProviderMetadataExtensions) &&
+                Objects.equals(registrationRequestExtensions, that.registrationRequestExtensions);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), jwksUri, handshakeStartUri);
+        return Objects.hash(super.hashCode(), jwksUri, handshakeStartUri, identityProviderMetadataExtensions, registrationRequestExtensions);
     }
 
     // The following methods for handling extended metadata are defined in the base Metadata class.
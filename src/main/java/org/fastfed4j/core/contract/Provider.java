@@ -4,11 +4,14 @@ import org.fastfed4j.core.configuration.FastFedConfiguration;
 import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.core.metadata.CommonProviderMetadata;
 import org.fastfed4j.core.metadata.DisplaySettings;
 import org.fastfed4j.core.metadata.Metadata;
 import org.fastfed4j.core.metadata.ProviderContactInformation;
 
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -38,8 +41,10 @@ public class Provider extends Metadata {
         this(metadata.getFastFedConfiguration());
         this.entityId = metadata.getEntityId();
         this.providerDomain = metadata.getProviderDomain();
-        this.providerContactInformation = metadata.getProviderContactInformation();
-        this.displaySettings = metadata.getDisplaySettings();
+        if (metadata.getProviderContactInformation() != null)
+            this.providerContactInformation = new ProviderContactInformation(metadata.getProviderContactInformation());
+        if (metadata.getDisplaySettings() != null)
+            this.displaySettings = new DisplaySettings(metadata.getDisplaySettings());
     }
 
     /**
@@ -69,6 +74,7 @@ public class Provider extends Metadata {
      * @param entityId
      */
     public void setEntityId(String entityId) {
+        markModified();
         this.entityId = entityId;
     }
 
@@ -85,6 +91,7 @@ public class Provider extends Metadata {
      * @param providerDomain
      */
     public void setProviderDomain(String providerDomain) {
+        markModified();
         this.providerDomain = providerDomain;
     }
 
@@ -101,6 +108,7 @@ public class Provider extends Metadata {
      * @param providerContactInformation
      */
     public void setProviderContactInformation(ProviderContactInformation providerContactInformation) {
+        markModified();
         this.providerContactInformation = providerContactInformation;
     }
 
@@ -117,9 +125,52 @@ public class Provider extends Metadata {
      * @param displaySettings
      */
     public void setDisplaySettings(DisplaySettings displaySettings) {
+        markModified();
         this.displaySettings = displaySettings;
     }
 
+    @Override
+    public Provider snapshot() {
+        return (Provider) super.snapshot();
+    }
+
+    /**
+     * Derives a snapshot of the provider with different contact information. The new snapshot shares all other
+     * contents with this one, and this provider is left unchanged.
+     * @param providerContactInformation contact information, which is frozen (or copied, if mutable) into the snapshot
+     * @return frozen Provider, of the same class as this one
+     */
+    public Provider withProviderContactInformation(ProviderContactInformation providerContactInformation) {
+        Provider copy = (Provider) snapshot().shallowCopy();
+        copy.providerContactInformation = snapshotOf(providerContactInformation);
+        copy.freeze();
+        return copy;
+    }
+
+    /**
+     * Derives a snapshot of the provider with different display settings. The new snapshot shares all other
+     * contents with this one, and this provider is left unchanged.
+     * @param displaySettings display settings, which are frozen (or copied, if mutable) into the snapshot
+     * @return frozen Provider, of the same class as this one
+     */
+    public Provider withDisplaySettings(DisplaySettings displaySettings) {
+        Provider copy = (Provider) snapshot().shallowCopy();
+        copy.displaySettings = snapshotOf(displaySettings);
+        copy.freeze();
+        return copy;
+    }
+
+    @Override
+    public void freeze() {
+        freezeAll(providerContactInformation, displaySettings);
+        super.freeze();
+    }
+
+    @Override
+    protected long getModificationStamp() {
+        return latestModificationStamp(super.getModificationStamp(), providerContactInformation, displaySettings);
+    }
+
     @Override
     public JsonObject toJson() {
         JsonObject.Builder builder = new JsonObject.Builder();
@@ -133,6 +184,17 @@ public class Provider extends Metadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        super.writeJsonMembers(writer);
+        writer.member(JsonMember.ENTITY_ID, entityId);
+        writer.member(JsonMember.PROVIDER_DOMAIN, providerDomain);
+        if (providerContactInformation != null)
+            writeChildJsonMembers(writer, providerContactInformation);
+        if (displaySettings != null)
+            writeChildJsonMembers(writer, displaySettings);
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -155,6 +217,39 @@ public class Provider extends Metadata {
         }
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, null);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.ENTITY_ID:
+                setEntityId( reader.nextString(memberName));
+                return true;
+            case JsonMember.PROVIDER_DOMAIN:
+                setProviderDomain( reader.nextString(memberName));
+                return true;
+            case JsonMember.PROVIDER_CONTACT_INFORMATION:
+                if (reader.nextIsObject(memberName)) {
+                    ProviderContactInformation providerContactInformation = new ProviderContactInformation(getFastFedConfiguration());
+                    providerContactInformation.hydrateFromJson(reader);
+                    setProviderContactInformation(providerContactInformation);
+                }
+                return true;
+            case JsonMember.DISPLAY_SETTINGS:
+                if (reader.nextIsObject(memberName)) {
+                    DisplaySettings displaySettings = new DisplaySettings(getFastFedConfiguration());
+                    displaySettings.hydrateFromJson(reader);
+                    setDisplaySettings(displaySettings);
+                }
+                return true;
+            default:
+                return super.hydrateMember(memberName, reader);
+        }
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         validateRequiredString(errorAccumulator, JsonMember.ENTITY_ID, entityId);
@@ -0,0 +1,151 @@
+package org.fastfed4j.core.http;
+
+import java.time.Clock;
+
+/**
+ * Circuit breaker guarding the requests that MetadataFetcher sends to a single host.
+ *
+ * <p>While CLOSED, requests are sent normally. After a number of consecutive failures, the breaker OPENs, and
+ * requests fail immediately without being sent, so that callers don't wait on an endpoint which is known to be
+ * unhealthy. Once the open duration has elapsed, the breaker becomes HALF_OPEN and lets a single trial request
+ * through. If the trial succeeds the breaker CLOSEs, else it OPENs again.</p>
+ *
+ * <p>Only failures that indicate an unhealthy endpoint, such as connection failures, timeouts and 5xx responses,
+ * are counted. A response such as 404 (Not Found) shows that the endpoint is reachable, and counts as a success.</p>
+ */
+public class CircuitBreaker {
+
+    /**
+     * The states of a circuit breaker.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * Receives the state transitions of circuit breakers.
+     */
+    public interface Listener {
+        /**
+         * Invoked after a circuit breaker changes state.
+         * @param host host guarded by the circuit breaker
+         * @param from previous state
+         * @param to new state
+         */
+        void onStateChange(String host, State from, State to);
+    }
+
+    private final String host;
+    private final int failureThreshold;
+    private final long openDurationMillis;
+    private final Clock clock;
+    private final Listener listener;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInProgress;
+
+    CircuitBreaker(String host, int failureThreshold, long openDurationMillis, Clock clock, Listener listener) {
+        this.host = host;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.clock = clock;
+        this.listener = listener;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Requests permission to send a request. Every permitted request must be followed by exactly one call to
+     * onSuccess(), onFailure() or onAbandoned().
+     * @return true if the request may be sent
+     */
+    boolean tryAcquire() {
+        State previous;
+        synchronized (this) {
+            previous = state;
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (clock.millis() - openedAt < openDurationMillis) {
+                        return false;
+                    }
+                    state = State.HALF_OPEN;
+                    trialInProgress = true;
+                    break;
+                case HALF_OPEN:
+                    if (trialInProgress) {
+                        return false;
+                    }
+                    trialInProgress = true;
+                    return true;
+                default:
+                    throw new RuntimeException("No handler for state " + state);
+            }
+        }
+        notifyListener(previous, State.HALF_OPEN);
+        return true;
+    }
+
+    /**
+     * Records that the endpoint responded.
+     */
+    void onSuccess() {
+        State previous;
+        synchronized (this) {
+            previous = state;
+            consecutiveFailures = 0;
+            trialInProgress = false;
+            state = State.CLOSED;
+        }
+        notifyListener(previous, State.CLOSED);
+    }
+
+    /**
+     * Records that the endpoint failed to respond, or responded with an error indicating that it is unhealthy.
+     */
+    void onFailure() {
+        State previous;
+        State next;
+        synchronized (this) {
+            previous = state;
+            consecutiveFailures++;
+            trialInProgress = false;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                state = State.OPEN;
+                openedAt = clock.millis();
+            }
+            next = state;
+        }
+        notifyListener(previous, next);
+    }
+
+    /**
+     * Records that a permitted request was never sent, such as when its deadline expired while it was queued.
+     */
+    void onAbandoned() {
+        synchronized (this) {
+            trialInProgress = false;
+        }
+    }
+
+    private void notifyListener(State from, State to) {
+        if (from != to) {
+            listener.onStateChange(host, from, to);
+        }
+    }
+}
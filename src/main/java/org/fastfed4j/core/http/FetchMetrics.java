@@ -0,0 +1,87 @@
+package org.fastfed4j.core.http;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters describing the requests made by a MetadataFetcher, including the retries, rejections and circuit
+ * breaker state transitions. The counters are cumulative over the lifetime of the fetcher.
+ */
+public class FetchMetrics {
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder retryCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final Map<FetchRejectedException.Reason, LongAdder> rejectionCounts =
+            new EnumMap<>(FetchRejectedException.Reason.class);
+    private final Map<CircuitBreaker.State, LongAdder> transitionCounts = new EnumMap<>(CircuitBreaker.State.class);
+
+    FetchMetrics() {
+        for (FetchRejectedException.Reason reason : FetchRejectedException.Reason.values()) {
+            rejectionCounts.put(reason, new LongAdder());
+        }
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            transitionCounts.put(state, new LongAdder());
+        }
+    }
+
+    /**
+     * Gets the number of HTTP requests sent, including retries.
+     */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * Gets the number of requests which were retried after a transient failure.
+     */
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    /**
+     * Gets the number of fetches which failed after exhausting their retries, or with a permanent error.
+     * Rejections are counted separately.
+     */
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    /**
+     * Gets the number of fetches which were rejected for a reason.
+     * @param reason reason for the rejection
+     * @return count
+     */
+    public long getRejectionCount(FetchRejectedException.Reason reason) {
+        return rejectionCounts.get(reason).sum();
+    }
+
+    /**
+     * Gets the number of times that any circuit breaker transitioned into a state.
+     * @param state new state
+     * @return count
+     */
+    public long getTransitionCount(CircuitBreaker.State state) {
+        return transitionCounts.get(state).sum();
+    }
+
+    void recordRequest() {
+        requestCount.increment();
+    }
+
+    void recordRetry() {
+        retryCount.increment();
+    }
+
+    void recordFailure() {
+        failureCount.increment();
+    }
+
+    void recordRejection(FetchRejectedException.Reason reason) {
+        rejectionCounts.get(reason).increment();
+    }
+
+    void recordTransition(CircuitBreaker.State state) {
+        transitionCounts.get(state).increment();
+    }
+}
@@ -0,0 +1,42 @@
+package org.fastfed4j.core.http;
+
+import java.io.IOException;
+
+/**
+ * Indicates that MetadataFetcher did not complete a request in order to protect itself, or the remote endpoint,
+ * from overload.
+ */
+public class FetchRejectedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The reason for the rejection.
+     */
+    public enum Reason {
+        /**
+         * The circuit breaker of the host is open, following repeated failures.
+         */
+        CIRCUIT_OPEN,
+
+        /**
+         * Too many requests to the host are already waiting to be sent.
+         */
+        BULKHEAD_FULL,
+
+        /**
+         * The request, including any retries, did not complete before its deadline.
+         */
+        DEADLINE_EXCEEDED
+    }
+
+    private final Reason reason;
+
+    public FetchRejectedException(Reason reason, String url) {
+        super("Request to \"" + url + "\" was rejected (" + reason + ")");
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,109 @@
+package org.fastfed4j.core.http;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * The outcome of a request made by MetadataFetcher, consisting of the response body and the HTTP caching headers
+ * which accompanied it.
+ */
+public final class FetchResult {
+    private final String url;
+    private final byte[] body;
+    private final String eTag;
+    private final String lastModified;
+    private final String cacheControl;
+
+    FetchResult(String url, byte[] body, String eTag, String lastModified, String cacheControl) {
+        this.url = url;
+        this.body = body;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.cacheControl = cacheControl;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Determine if the server responded with 304 (Not Modified) to a conditional request.
+     * @return true if the contents are unchanged since the previous retrieval
+     */
+    public boolean isNotModified() {
+        return body == null;
+    }
+
+    /**
+     * Gets the (decompressed) response body.
+     * @return body, or null if the contents were not modified
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Gets the value of the ETag header.
+     * @return ETag, or null if absent
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * Gets the value of the Last-Modified header.
+     * @return HTTP date, or null if absent
+     */
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Gets the value of the Cache-Control header.
+     * @return Cache-Control directives, or null if absent
+     */
+    public String getCacheControl() {
+        return cacheControl;
+    }
+
+    /**
+     * Tests if the Cache-Control header contains a directive, such as no-store or no-cache.
+     * @param directive directive name, in lower case
+     * @return true if the directive is present
+     */
+    public boolean hasCacheDirective(String directive) {
+        if (cacheControl == null) {
+            return false;
+        }
+        for (String token : cacheControl.split(",")) {
+            if (token.trim().toLowerCase(Locale.ROOT).equals(directive)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the value of the max-age directive of the Cache-Control header.
+     * @return max-age, or null if absent or malformed
+     */
+    public Duration getMaxAge() {
+        if (cacheControl == null) {
+            return null;
+        }
+        for (String token : cacheControl.split(",")) {
+            String directive = token.trim().toLowerCase(Locale.ROOT);
+            if (directive.startsWith("max-age=")) {
+                String value = directive.substring("max-age=".length()).replace("\"", "");
+                try {
+                    // Capped so that the value can be converted to milliseconds without overflowing
+                    return Duration.ofSeconds(Math.min(Math.max(0, Long.parseLong(value)), Long.MAX_VALUE / 1000));
+                }
+                catch (NumberFormatException e) {
+                    // Malformed directives are ignored, as per RFC 7234
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,415 @@
+package org.fastfed4j.core.http;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Base class for the caches of documents retrieved from remote endpoints, such as MetadataCache and JwksCache.
+ * Subclasses parse the retrieved documents, while the caching rules are applied here.
+ *
+ * <p>The cache follows the HTTP caching headers of the responses:</p>
+ *  <ul>
+ *      <li>The lifetime of an entry is given by the max-age directive of the Cache-Control header, or the default
+ *      time-to-live when absent. Responses marked no-cache are revalidated on every use, and responses marked
+ *      no-store are not cached.</li>
+ *      <li>Stale entries are revalidated with a conditional request, using the ETag and Last-Modified headers of
+ *      the previous response. If the server responds with 304 (Not Modified), or returns a body identical to the
+ *      previous one, the previous value is reused without the document being parsed again.</li>
+ *      <li>Entries which are close to expiry are refreshed in the background, so that frequently used documents
+ *      are always served from the cache.</li>
+ *  </ul>
+ *
+ * <p>Concurrent lookups of the same URL share a single request. Instances are thread-safe, provided that the
+ * cached values are safe to share between threads.</p>
+ * @param <V> type of the parsed documents
+ */
+public abstract class HttpCache<V> {
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    /**
+     * Default lifetime of entries whose response doesn't specify a max-age.
+     */
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofHours(1);
+
+    /**
+     * Default upper limit on the lifetime of an entry, regardless of the max-age of the response.
+     */
+    public static final Duration DEFAULT_MAXIMUM_TIME_TO_LIVE = Duration.ofHours(24);
+
+    /**
+     * Default fraction of the lifetime of an entry after which it is refreshed in the background.
+     */
+    public static final double DEFAULT_REFRESH_AHEAD_FACTOR = 0.8;
+
+    private final MetadataFetcher fetcher;
+    private final Clock clock;
+    private final long defaultTimeToLiveMillis;
+    private final long maximumTimeToLiveMillis;
+    private final double refreshAheadFactor;
+
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder notModifiedCount = new LongAdder();
+    private final LongAdder unchangedCount = new LongAdder();
+
+    private static final class Entry<V> {
+        private final V value;
+        private final byte[] digest;
+        private final String eTag;
+        private final String lastModified;
+        private final long fetchedAt;
+        private final long refreshAt;
+        private final long expiresAt;
+
+        private Entry(V value, byte[] digest, String eTag, String lastModified, long fetchedAt, long refreshAt,
+                      long expiresAt) {
+            this.value = value;
+            this.digest = digest;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.fetchedAt = fetchedAt;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    protected HttpCache(Builder<?> builder) {
+        this.fetcher = (builder.fetcher == null ? MetadataFetcher.getDefault() : builder.fetcher);
+        this.clock = builder.clock;
+        this.defaultTimeToLiveMillis = builder.defaultTimeToLive.toMillis();
+        this.maximumTimeToLiveMillis = builder.maximumTimeToLive.toMillis();
+        this.refreshAheadFactor = builder.refreshAheadFactor;
+    }
+
+    /**
+     * Parses a retrieved document. Only invoked when the body differs from the one of the cached entry.
+     * @param url the endpoint which hosts the document
+     * @param body body of the response
+     * @param previous value of the cached entry, or null if there is none
+     * @return parsed document
+     */
+    protected abstract V load(String url, byte[] body, V previous);
+
+    /**
+     * Invoked after a changed document has been parsed and cached. Does nothing by default.
+     * @param url the endpoint which hosts the document
+     * @param result response from which the document was parsed
+     * @param value parsed document
+     */
+    protected void onChanged(String url, FetchResult result, V value) {}
+
+    /**
+     * Invoked when a response is marked no-store, after the entry of the URL has been discarded. Does nothing by
+     * default.
+     * @param url the endpoint which hosts the document
+     */
+    protected void onNotStored(String url) {}
+
+    /**
+     * Gets the document hosted at a URL endpoint, retrieving it if the cached copy is missing or stale. Blocks
+     * until the document is available.
+     * @param url the endpoint which hosts the document
+     * @return parsed document
+     * @throws UncheckedIOException if the document cannot be retrieved
+     */
+    public V get(String url) {
+        return MetadataFetcher.join(getAsync(url));
+    }
+
+    /**
+     * Gets the document hosted at a URL endpoint, as per get(), without waiting for it to be retrieved.
+     * @param url the endpoint which hosts the document
+     * @return future containing the parsed document
+     */
+    public CompletableFuture<V> getAsync(String url) {
+        Objects.requireNonNull(url, "url must not be null");
+        Entry<V> entry = entries.get(url);
+        long now = clock.millis();
+        if (entry != null && now < entry.expiresAt) {
+            hitCount.increment();
+            if (now >= entry.refreshAt) {
+                // Failures are ignored, since the entry remains usable until it expires
+                refresh(url, entry);
+            }
+            return CompletableFuture.completedFuture(entry.value);
+        }
+        missCount.increment();
+        return refresh(url, entry).copy();
+    }
+
+    /**
+     * Discards the cached entry of a URL endpoint.
+     * @param url the endpoint which hosts the document
+     */
+    public void invalidate(String url) {
+        entries.remove(url);
+    }
+
+    /**
+     * Discards all the cached entries. The counts are retained.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of lookups that were answered from the cache.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Gets the number of lookups that had to wait for the document to be retrieved.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Gets the number of revalidations to which the server responded with 304 (Not Modified).
+     */
+    public long getNotModifiedCount() {
+        return notModifiedCount.sum();
+    }
+
+    /**
+     * Gets the number of retrievals which returned the same content as the cached copy.
+     */
+    public long getUnchangedCount() {
+        return unchangedCount.sum();
+    }
+
+    protected final Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Determines if a URL has an entry in the cache, whether or not it is stale.
+     */
+    protected final boolean containsEntry(String url) {
+        return entries.containsKey(url);
+    }
+
+    /**
+     * Gets the time at which the cached entry of a URL was stored, in milliseconds of the clock.
+     * @return time, or null if the URL isn't cached
+     */
+    protected final Long getStoredAt(String url) {
+        Entry<V> entry = entries.get(url);
+        return (entry == null) ? null : entry.fetchedAt;
+    }
+
+    /**
+     * Caches a document which was obtained other than from the endpoint, such as from a local copy, unless the URL
+     * has been cached in the meantime. The entry is due for an immediate refresh, and is served for at most the
+     * default time-to-live if the endpoint cannot be reached in the meantime.
+     * @return true if the entry was added
+     */
+    protected final boolean putIfAbsent(String url, V value, byte[] body, String eTag, String lastModified) {
+        long now = clock.millis();
+        Entry<V> entry = new Entry<>(value, digest(body), eTag, lastModified, now, now, now + defaultTimeToLiveMillis);
+        return entries.putIfAbsent(url, entry) == null;
+    }
+
+    /**
+     * Gets the retrieval of a URL which is in progress.
+     * @return future containing the parsed document, or null if no retrieval is in progress
+     */
+    protected final CompletableFuture<V> getRefreshInProgress(String url) {
+        return inFlight.get(url);
+    }
+
+    /**
+     * Retrieves the document again, revalidating the cached entry if there is one.
+     * @return future containing the parsed document
+     */
+    protected final CompletableFuture<V> refresh(String url) {
+        return refresh(url, entries.get(url));
+    }
+
+    /**
+     * Retrieves the document, unless a retrieval of the same URL is already in progress, in which case the
+     * in-progress retrieval is shared.
+     */
+    private CompletableFuture<V> refresh(String url, Entry<V> previous) {
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(url, promise);
+        if (existing != null) {
+            return existing;
+        }
+        fetcher.fetch(url,
+                      (previous == null ? null : previous.eTag),
+                      (previous == null ? null : previous.lastModified))
+                .thenApply(result -> update(url, previous, result))
+                .whenComplete((value, error) -> {
+                    inFlight.remove(url, promise);
+                    if (error != null) {
+                        promise.completeExceptionally(MetadataFetcher.unwrap(error));
+                    } else {
+                        promise.complete(value);
+                    }
+                });
+        return promise;
+    }
+
+    private V update(String url, Entry<V> previous, FetchResult result) {
+        V value;
+        byte[] digest;
+        boolean changed = false;
+        if (result.isNotModified()) {
+            if (previous == null) {
+                throw new UncheckedIOException(new IOException(
+                        "Unexpected HTTP status 304 from \"" + url + "\" for an unconditional request"));
+            }
+            notModifiedCount.increment();
+            value = previous.value;
+            digest = previous.digest;
+        } else {
+            digest = digest(result.getBody());
+            if (previous != null && Arrays.equals(previous.digest, digest)) {
+                unchangedCount.increment();
+                value = previous.value;
+            } else {
+                value = load(url, result.getBody(), (previous == null ? null : previous.value));
+                changed = true;
+            }
+        }
+
+        if (result.hasCacheDirective("no-store")) {
+            entries.remove(url);
+            onNotStored(url);
+            return value;
+        }
+        long timeToLive = result.hasCacheDirective("no-cache") ? 0 : maxAgeMillis(result);
+        timeToLive = Math.min(timeToLive, maximumTimeToLiveMillis);
+        long now = clock.millis();
+        entries.put(url, new Entry<>(
+                value,
+                digest,
+                (result.getETag() != null || previous == null) ? result.getETag() : previous.eTag,
+                (result.getLastModified() != null || previous == null) ? result.getLastModified() : previous.lastModified,
+                now,
+                now + (long) (timeToLive * refreshAheadFactor),
+                now + timeToLive));
+        if (changed) {
+            onChanged(url, result, value);
+        }
+        return value;
+    }
+
+    private long maxAgeMillis(FetchResult result) {
+        Duration maxAge = result.getMaxAge();
+        return (maxAge == null) ? defaultTimeToLiveMillis : maxAge.toMillis();
+    }
+
+    private static byte[] digest(byte[] body) {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM).digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Settings shared by the Builders of the HttpCache subclasses
+     * @param <B> type of the subclass Builder
+     */
+    public abstract static class Builder<B extends Builder<B>> {
+        private MetadataFetcher fetcher;
+        private Clock clock = Clock.systemUTC();
+        private Duration defaultTimeToLive = DEFAULT_TIME_TO_LIVE;
+        private Duration maximumTimeToLive = DEFAULT_MAXIMUM_TIME_TO_LIVE;
+        private double refreshAheadFactor = DEFAULT_REFRESH_AHEAD_FACTOR;
+
+        protected Builder() {}
+
+        @SuppressWarnings("unchecked")
+        private B self() {
+            return (B) this;
+        }
+
+        /**
+         * Sets the fetcher used to retrieve the documents. By default, MetadataFetcher.getDefault() is used.
+         * @param fetcher fetcher
+         * @return Builder
+         */
+        public B setFetcher(MetadataFetcher fetcher) {
+            Objects.requireNonNull(fetcher, "fetcher must not be null");
+            this.fetcher = fetcher;
+            return self();
+        }
+
+        /**
+         * Sets the clock used to determine the age of the entries. Default value is the system clock.
+         * @param clock clock
+         * @return Builder
+         */
+        public B setClock(Clock clock) {
+            Objects.requireNonNull(clock, "clock must not be null");
+            this.clock = clock;
+            return self();
+        }
+
+        /**
+         * Sets the lifetime of entries whose response doesn't specify a max-age. Default value is 1 hour.
+         * @param defaultTimeToLive lifetime
+         * @return Builder
+         */
+        public B setDefaultTimeToLive(Duration defaultTimeToLive) {
+            Objects.requireNonNull(defaultTimeToLive, "defaultTimeToLive must not be null");
+            if (defaultTimeToLive.isNegative()) {
+                throw new IllegalArgumentException("defaultTimeToLive must not be negative");
+            }
+            this.defaultTimeToLive = defaultTimeToLive;
+            return self();
+        }
+
+        /**
+         * Sets the upper limit on the lifetime of an entry, regardless of the max-age of the response.
+         * Default value is 24 hours.
+         * @param maximumTimeToLive lifetime
+         * @return Builder
+         */
+        public B setMaximumTimeToLive(Duration maximumTimeToLive) {
+            Objects.requireNonNull(maximumTimeToLive, "maximumTimeToLive must not be null");
+            if (maximumTimeToLive.isNegative()) {
+                throw new IllegalArgumentException("maximumTimeToLive must not be negative");
+            }
+            this.maximumTimeToLive = maximumTimeToLive;
+            return self();
+        }
+
+        /**
+         * Sets the fraction of the lifetime of an entry after which it is refreshed in the background. A value of
+         * 1 disables refresh-ahead. Default value is 0.8.
+         * @param refreshAheadFactor fraction between 0 and 1
+         * @return Builder
+         */
+        public B setRefreshAheadFactor(double refreshAheadFactor) {
+            if (!(refreshAheadFactor >= 0 && refreshAheadFactor <= 1)) {
+                throw new IllegalArgumentException(
+                        "refreshAheadFactor must be between 0 and 1 (received: " + refreshAheadFactor + ")");
+            }
+            this.refreshAheadFactor = refreshAheadFactor;
+            return self();
+        }
+    }
+}
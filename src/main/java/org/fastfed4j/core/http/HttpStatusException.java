@@ -0,0 +1,30 @@
+package org.fastfed4j.core.http;
+
+import java.io.IOException;
+
+/**
+ * Indicates that a remote endpoint responded with an unexpected HTTP status.
+ */
+public class HttpStatusException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    public HttpStatusException(int statusCode, String url) {
+        super("Unexpected HTTP status " + statusCode + " from \"" + url + "\"");
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Determine if the status indicates a transient condition of the server, such as 503 (Service Unavailable)
+     * or 429 (Too Many Requests), after which the request may be retried.
+     * @return true if the request may be retried
+     */
+    public boolean isTransient() {
+        return statusCode >= 500 || statusCode == 429;
+    }
+}
@@ -0,0 +1,208 @@
+package org.fastfed4j.core.http;
+
+import org.fastfed4j.core.configuration.FastFedConfiguration;
+import org.fastfed4j.core.metadata.ApplicationProviderMetadata;
+import org.fastfed4j.core.metadata.CommonProviderMetadata;
+import org.fastfed4j.core.metadata.IdentityProviderMetadata;
+import org.fastfed4j.core.util.ValidationUtils;
+
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Caches the metadata retrieved from remote endpoints, as an alternative to calling fromRemoteEndpoint() on every
+ * use. Many tenants typically share the metadata of the same few providers, and each URL is only retrieved when
+ * its cached copy becomes stale. The cache follows the HTTP caching headers of the responses, as described in
+ * HttpCache; metadata which is revalidated or retrieved unchanged is reused without being parsed and validated again.
+ *
+ * <p>Optionally, retrieved documents are persisted in a MetadataMirror, from which the cache is repopulated after a
+ * restart. See Builder.setMirror().</p>
+ *
+ * <p>Concurrent lookups of the same URL share a single request. The cached metadata is frozen, so that it can be
+ * safely shared between threads; use the copy constructor to obtain a mutable copy.</p>
+ * @param <T> type of provider metadata
+ */
+public class MetadataCache<T extends CommonProviderMetadata> extends HttpCache<T> {
+    private static final ValidationUtils validationUtils = new ValidationUtils();
+
+    private final FastFedConfiguration configuration;
+    private final BiFunction<FastFedConfiguration, byte[], T> hydrator;
+    private final MetadataMirror mirror;
+    private final LongAdder mirrorLoadCount = new LongAdder();
+
+    private MetadataCache(Builder builder,
+                          FastFedConfiguration configuration,
+                          BiFunction<FastFedConfiguration, byte[], T> hydrator)
+    {
+        super(builder);
+        this.configuration = Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
+        this.hydrator = hydrator;
+        this.mirror = builder.mirror;
+    }
+
+    /**
+     * Constructs a cache of Identity Provider Metadata with the default settings.
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @return MetadataCache
+     */
+    public static MetadataCache<IdentityProviderMetadata> forIdentityProviders(FastFedConfiguration configuration) {
+        return new Builder().buildForIdentityProviders(configuration);
+    }
+
+    /**
+     * Constructs a cache of Application Provider Metadata with the default settings.
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @return MetadataCache
+     */
+    public static MetadataCache<ApplicationProviderMetadata> forApplicationProviders(FastFedConfiguration configuration) {
+        return new Builder().buildForApplicationProviders(configuration);
+    }
+
+    /**
+     * Gets the metadata hosted at a URL endpoint, retrieving it if the cached copy is missing or stale. Blocks
+     * until the metadata is available.
+     * @param url the endpoint which hosts the metadata
+     * @return frozen metadata
+     * @throws org.fastfed4j.core.exception.InvalidMetadataException if the metadata is malformed
+     * @throws org.fastfed4j.core.exception.FastFedSecurityException if the metadata content violates the FastFed security requirements
+     * @throws UncheckedIOException if the metadata cannot be retrieved
+     */
+    @Override
+    public T get(String url) {
+        return super.get(url);
+    }
+
+    /**
+     * Gets the metadata hosted at a URL endpoint, as per get(), without waiting for it to be retrieved. When the
+     * URL isn't cached and there is a mirror, the mirrored document is read on the calling thread.
+     * @param url the endpoint which hosts the metadata
+     * @return future containing the frozen metadata
+     */
+    @Override
+    public CompletableFuture<T> getAsync(String url) {
+        Objects.requireNonNull(url, "url must not be null");
+        if (mirror != null && !containsEntry(url)) {
+            // The document is read and hydrated outside of the map, so that lookups of other URLs aren't held up
+            loadFromMirror(url);
+        }
+        return super.getAsync(url);
+    }
+
+    /**
+     * Gets the number of entries which were loaded from the mirror.
+     */
+    public long getMirrorLoadCount() {
+        return mirrorLoadCount.sum();
+    }
+
+    @Override
+    protected T load(String url, byte[] body, T previous) {
+        return hydrate(url, body);
+    }
+
+    @Override
+    protected void onChanged(String url, FetchResult result, T metadata) {
+        if (mirror != null) {
+            updateMirror(() -> mirror.store(
+                    url, result.getBody(), result.getETag(), result.getLastModified(), metadata.getFingerprint().toString()));
+        }
+    }
+
+    @Override
+    protected void onNotStored(String url) {
+        if (mirror != null) {
+            updateMirror(() -> mirror.remove(url));
+        }
+    }
+
+    private T hydrate(String url, byte[] json) {
+        T metadata = hydrator.apply(configuration, json);
+        validationUtils.assertProviderDomainIsValid(url, metadata.getProviderDomain());
+        metadata.freeze();
+        return metadata;
+    }
+
+    /**
+     * Loads a document from the mirror into the cache, unless the mirror doesn't hold a valid document for the URL.
+     */
+    private void loadFromMirror(String url) {
+        MetadataMirror.Document document = mirror.read(url);
+        if (document == null) {
+            return;
+        }
+        T metadata;
+        try {
+            metadata = hydrate(url, document.getJson());
+        }
+        catch (RuntimeException e) {
+            metadata = null;
+        }
+        if (metadata == null || !metadata.getFingerprint().toString().equals(document.getFingerprint())) {
+            // Discard documents which are corrupt, or which no longer pass validation
+            updateMirror(() -> mirror.remove(url));
+            return;
+        }
+        if (putIfAbsent(url, metadata, document.getJson(), document.getETag(), document.getLastModified())) {
+            mirrorLoadCount.increment();
+        }
+    }
+
+    /**
+     * Applies a change to the mirror. The mirror is only an optimization for cold starts, so failures to write it
+     * don't fail the lookup.
+     */
+    private static void updateMirror(Runnable change) {
+        try {
+            change.run();
+        }
+        catch (UncheckedIOException e) {
+            // The entry is retrieved from the endpoint again after the next restart
+        }
+    }
+
+    /**
+     * Builder for MetadataCache
+     */
+    public static class Builder extends HttpCache.Builder<Builder> {
+        private MetadataMirror mirror;
+
+        /**
+         * Construct a new Builder with default values for all settings
+         */
+        public Builder() {}
+
+        /**
+         * Generates a cache of Identity Provider Metadata from the Builder settings.
+         * @param configuration FastFed Configuration that controls the SDK behavior
+         * @return MetadataCache
+         */
+        public MetadataCache<IdentityProviderMetadata> buildForIdentityProviders(FastFedConfiguration configuration) {
+            return new MetadataCache<>(this, configuration, IdentityProviderMetadata::fromJson);
+        }
+
+        /**
+         * Generates a cache of Application Provider Metadata from the Builder settings.
+         * @param configuration FastFed Configuration that controls the SDK behavior
+         * @return MetadataCache
+         */
+        public MetadataCache<ApplicationProviderMetadata> buildForApplicationProviders(FastFedConfiguration configuration) {
+            return new MetadataCache<>(this, configuration, ApplicationProviderMetadata::fromJson);
+        }
+
+        /**
+         * Sets the on-disk mirror in which retrieved documents are persisted. When a URL isn't in the cache, such
+         * as after a restart, its document is served from the mirror while it is revalidated in the background.
+         * By default, there is no mirror.
+         * @param mirror mirror
+         * @return Builder
+         */
+        public Builder setMirror(MetadataMirror mirror) {
+            Objects.requireNonNull(mirror, "mirror must not be null");
+            this.mirror = mirror;
+            return this;
+        }
+    }
+}
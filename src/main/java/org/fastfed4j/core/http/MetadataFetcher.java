@@ -0,0 +1,908 @@
+package org.fastfed4j.core.http;
+
+import org.fastfed4j.core.exception.FastFedSecurityException;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.ProtocolException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Retrieves documents, such as FastFed Metadata, from remote HTTPS endpoints.
+ *
+ * <p>All requests made by a fetcher share a single HttpClient, which negotiates HTTP/2 where the server supports
+ * it and reuses connections across requests. Requests are asynchronous, so the metadata of many partners can be
+ * retrieved in parallel. To avoid overwhelming any single provider, the number of concurrent requests to each
+ * host is limited, and any additional requests are queued until a slot is free.</p>
+ *
+ * <p>Transient failures, such as connection failures, timeouts and 5xx responses, are retried with a jittered
+ * exponential backoff, within an overall deadline for each fetch. Each host is guarded by a CircuitBreaker, so
+ * that when an endpoint degrades, requests to it fail immediately rather than tying up the callers, and the number
+ * of requests waiting for a host is bounded (a bulkhead), so that a single slow host cannot accumulate an
+ * unbounded backlog. The host of the URL is used as the key, since the provider_domain is only known once the
+ * metadata has been retrieved, and must suffix-match the host. The outcomes are counted in the FetchMetrics.</p>
+ *
+ * <p>Responses may be gzip-compressed, and are rejected if they exceed the maximum response size, either before
+ * or after decompression. Redirects are not followed, since the provider domain of the metadata is validated
+ * against the URL that was requested.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public class MetadataFetcher {
+
+    /**
+     * Default maximum size of a response, in bytes.
+     */
+    public static final int DEFAULT_MAX_RESPONSE_SIZE = 1024 * 1024;
+
+    /**
+     * Default maximum number of concurrent requests to a single host.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS_PER_HOST = 4;
+
+    /**
+     * Default time allowed to establish a connection.
+     */
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * Default time allowed for a request to complete, once it has been sent.
+     */
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Default maximum number of requests to a single host waiting for a free slot.
+     */
+    public static final int DEFAULT_MAX_QUEUED_REQUESTS_PER_HOST = 100;
+
+    /**
+     * Default maximum number of attempts for each fetch, including the first.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    /**
+     * Default delay before the first retry. Subsequent retries double the delay, up to the maximum delay.
+     */
+    public static final Duration DEFAULT_RETRY_BASE_DELAY = Duration.ofMillis(200);
+
+    /**
+     * Default maximum delay between retries.
+     */
+    public static final Duration DEFAULT_RETRY_MAX_DELAY = Duration.ofSeconds(5);
+
+    /**
+     * Default time allowed for a fetch to complete, including any queueing and retries.
+     */
+    public static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(60);
+
+    /**
+     * Default number of consecutive failures after which the circuit breaker of a host opens.
+     */
+    public static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+
+    /**
+     * Default time for which an open circuit breaker rejects requests, before allowing a trial request.
+     */
+    public static final Duration DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION = Duration.ofSeconds(30);
+
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final int maxResponseSize;
+    private final int maxConcurrentRequestsPerHost;
+    private final int maxQueuedRequestsPerHost;
+    private final int maxAttempts;
+    private final long retryBaseDelayMillis;
+    private final long retryMaxDelayMillis;
+    private final long deadlineMillis;
+    private final int circuitBreakerFailureThreshold;
+    private final long circuitBreakerOpenDurationMillis;
+    private final Clock clock;
+    private final CircuitBreaker.Listener circuitBreakerListener;
+    private final FetchMetrics metrics = new FetchMetrics();
+    private final Map<String, HostQueue> hostQueues = new HashMap<>();
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    /**
+     * Construct from a Builder
+     */
+    public MetadataFetcher(Builder builder) {
+        HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(builder.connectTimeout);
+        if (builder.sslContext != null) {
+            clientBuilder.sslContext(builder.sslContext);
+        }
+        if (builder.executor != null) {
+            clientBuilder.executor(builder.executor);
+        }
+        this.httpClient = clientBuilder.build();
+        this.requestTimeout = builder.requestTimeout;
+        this.maxResponseSize = builder.maxResponseSize;
+        this.maxConcurrentRequestsPerHost = builder.maxConcurrentRequestsPerHost;
+        this.maxQueuedRequestsPerHost = builder.maxQueuedRequestsPerHost;
+        this.maxAttempts = builder.maxAttempts;
+        this.retryBaseDelayMillis = builder.retryBaseDelay.toMillis();
+        this.retryMaxDelayMillis = builder.retryMaxDelay.toMillis();
+        this.deadlineMillis = builder.deadline.toMillis();
+        this.circuitBreakerFailureThreshold = builder.circuitBreakerFailureThreshold;
+        this.circuitBreakerOpenDurationMillis = builder.circuitBreakerOpenDuration.toMillis();
+        this.clock = builder.clock;
+        CircuitBreaker.Listener userListener = builder.circuitBreakerListener;
+        this.circuitBreakerListener = (host, from, to) -> {
+            metrics.recordTransition(to);
+            if (userListener != null) {
+                userListener.onStateChange(host, from, to);
+            }
+        };
+    }
+
+    /**
+     * Gets the fetcher used when no other fetcher is specified. It is created on first use, with the default
+     * values for all settings.
+     * @return MetadataFetcher
+     */
+    public static MetadataFetcher getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private static class DefaultHolder {
+        private static final MetadataFetcher INSTANCE = new MetadataFetcher(new Builder());
+    }
+
+    public int getMaxResponseSize() {
+        return maxResponseSize;
+    }
+
+    public int getMaxConcurrentRequestsPerHost() {
+        return maxConcurrentRequestsPerHost;
+    }
+
+    public FetchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the circuit breaker which guards the requests to a host.
+     * @param host host name
+     * @return CircuitBreaker
+     */
+    public CircuitBreaker getCircuitBreaker(String host) {
+        Objects.requireNonNull(host, "host must not be null");
+        return circuitBreakers.computeIfAbsent(host.toLowerCase(Locale.ROOT), h -> new CircuitBreaker(
+                h, circuitBreakerFailureThreshold, circuitBreakerOpenDurationMillis, clock, circuitBreakerListener));
+    }
+
+    /**
+     * Retrieves the contents of an HTTPS endpoint.
+     *
+     * <p>The returned future completes exceptionally with a FastFedSecurityException if the URL is not HTTPS, in
+     * which case no request is sent, or with an UncheckedIOException if the request fails, the response status is
+     * not 200 (OK), or the response exceeds the maximum size. The cause of the UncheckedIOException is an
+     * HttpStatusException for unexpected statuses, and a FetchRejectedException if the request was rejected by
+     * the circuit breaker or bulkhead, or exceeded its deadline.</p>
+     * @param url the endpoint to query
+     * @return future containing the (decompressed) response body
+     */
+    public CompletableFuture<byte[]> fetch(String url) {
+        return fetch(url, null, null).thenApply(FetchResult::getBody);
+    }
+
+    /**
+     * Retrieves the contents of an HTTPS endpoint, unless they are unchanged since a previous retrieval. The
+     * validators of the previous response are sent as the If-None-Match and If-Modified-Since headers, and if the
+     * server responds with 304 (Not Modified), the result contains no body.
+     *
+     * <p>The returned future completes exceptionally as per fetch(String).</p>
+     * @param url the endpoint to query
+     * @param eTag ETag of the previous response, or null
+     * @param lastModified Last-Modified date of the previous response, or null
+     * @return future containing the result
+     */
+    public CompletableFuture<FetchResult> fetch(String url, String eTag, String lastModified) {
+        Objects.requireNonNull(url, "url must not be null");
+        URI uri;
+        try {
+            uri = toHttpsUri(url, "FastFed Metadata Endpoint");
+        }
+        catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .GET();
+        if (eTag != null) {
+            requestBuilder.header("If-None-Match", eTag);
+        }
+        if (lastModified != null) {
+            requestBuilder.header("If-Modified-Since", lastModified);
+        }
+        HttpRequest request = requestBuilder.build();
+        return new Call(url, uri.getHost().toLowerCase(Locale.ROOT), () -> request, maxAttempts).start();
+    }
+
+    /**
+     * Posts a request to an HTTPS endpoint and retrieves the response. The request is subject to the same limits
+     * and circuit breaker as fetch(), but is made only once: the endpoint may have acted upon a request which
+     * appears to have failed, such as one which timed out, so resending the same body is not safe in general.
+     *
+     * <p>The returned future completes exceptionally as per fetch(String).</p>
+     * @param url the endpoint to query
+     * @param contentType media type of the request body, such as application/x-www-form-urlencoded
+     * @param body request body
+     * @return future containing the (decompressed) response body
+     */
+    public CompletableFuture<byte[]> post(String url, String contentType, byte[] body) {
+        Objects.requireNonNull(body, "body must not be null");
+        return post(url, contentType, () -> body, 1);
+    }
+
+    /**
+     * Posts a request to an HTTPS endpoint, such as an OAuth2 token request, and retrieves the response. The
+     * request is subject to the same limits, retries and circuit breaker as fetch(). The body is obtained afresh
+     * for each attempt, so that a retry can carry a body which the endpoint accepts even if it processed an
+     * earlier attempt, such as a client assertion with a new "jti".
+     *
+     * <p>The returned future completes exceptionally as per fetch(String), or with any exception thrown by the
+     * supplier.</p>
+     * @param url the endpoint to query
+     * @param contentType media type of the request body, such as application/x-www-form-urlencoded
+     * @param body supplier of the request body, which is invoked once per attempt
+     * @return future containing the (decompressed) response body
+     */
+    public CompletableFuture<byte[]> post(String url, String contentType, Supplier<byte[]> body) {
+        Objects.requireNonNull(body, "body must not be null");
+        return post(url, contentType, body, maxAttempts);
+    }
+
+    private CompletableFuture<byte[]> post(String url, String contentType, Supplier<byte[]> body, int attemptLimit) {
+        Objects.requireNonNull(url, "url must not be null");
+        Objects.requireNonNull(contentType, "contentType must not be null");
+        URI uri;
+        try {
+            uri = toHttpsUri(url, "remote endpoint");
+        }
+        catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .header("Content-Type", contentType);
+        Supplier<HttpRequest> requestFactory = () -> requestBuilder.copy()
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.get()))
+                .build();
+        return new Call(url, uri.getHost().toLowerCase(Locale.ROOT), requestFactory, attemptLimit)
+                .start().thenApply(FetchResult::getBody);
+    }
+
+    /**
+     * Parses a URL, which must use HTTPS.
+     * @throws FastFedSecurityException if the URL is not HTTPS
+     * @throws IllegalArgumentException if the URL is malformed
+     */
+    private static URI toHttpsUri(String url, String endpointName) {
+        URI uri;
+        try {
+            uri = new URI(url);
+        }
+        catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Malformed url", e);
+        }
+        if (!"https".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null) {
+            throw new FastFedSecurityException(
+                    "Protocol of the " + endpointName + " is not HTTPS (\"" + url + "\")");
+        }
+        return uri;
+    }
+
+    /**
+     * A single fetch, consisting of one or more attempts. The request is obtained from the factory for each attempt.
+     */
+    private final class Call {
+        private final String url;
+        private final String host;
+        private final Supplier<HttpRequest> requestFactory;
+        private final int attemptLimit;
+        private final CircuitBreaker circuitBreaker;
+        private final long deadline;
+        private final CompletableFuture<FetchResult> result = new CompletableFuture<>();
+        private volatile CompletableFuture<?> inFlightRequest;
+        private int attempts;
+
+        Call(String url, String host, Supplier<HttpRequest> requestFactory, int attemptLimit) {
+            this.url = url;
+            this.host = host;
+            this.requestFactory = requestFactory;
+            this.attemptLimit = attemptLimit;
+            this.circuitBreaker = getCircuitBreaker(host);
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        }
+
+        CompletableFuture<FetchResult> start() {
+            CompletableFuture<FetchResult> output = new CompletableFuture<>();
+            result.orTimeout(deadlineMillis, TimeUnit.MILLISECONDS).whenComplete((value, error) -> {
+                if (error == null) {
+                    output.complete(value);
+                    return;
+                }
+                Throwable cause = unwrap(error);
+                if (cause instanceof TimeoutException) {
+                    CompletableFuture<?> request = inFlightRequest;
+                    if (request != null) {
+                        request.cancel(true);
+                    }
+                    metrics.recordRejection(FetchRejectedException.Reason.DEADLINE_EXCEEDED);
+                    cause = new UncheckedIOException(
+                            new FetchRejectedException(FetchRejectedException.Reason.DEADLINE_EXCEEDED, url));
+                }
+                output.completeExceptionally(cause);
+            });
+            attempt();
+            return output;
+        }
+
+        private void attempt() {
+            if (result.isDone()) {
+                return;
+            }
+            if (!circuitBreaker.tryAcquire()) {
+                metrics.recordRejection(FetchRejectedException.Reason.CIRCUIT_OPEN);
+                result.completeExceptionally(new UncheckedIOException(
+                        new FetchRejectedException(FetchRejectedException.Reason.CIRCUIT_OPEN, url)));
+                return;
+            }
+            attempts++;
+            submit(host, this::send).whenComplete(this::onAttemptComplete);
+        }
+
+        private CompletableFuture<FetchResult> send() {
+            if (result.isDone()) {
+                // The deadline expired while the request was queued
+                return CompletableFuture.failedFuture(
+                        new FetchRejectedException(FetchRejectedException.Reason.DEADLINE_EXCEEDED, url));
+            }
+            HttpRequest request = requestFactory.get();
+            metrics.recordRequest();
+            CompletableFuture<HttpResponse<byte[]>> response = httpClient.sendAsync(request, MetadataFetcher.this::handleResponse);
+            inFlightRequest = response;
+            return response.thenApply(r -> toResult(url, r));
+        }
+
+        private void onAttemptComplete(FetchResult value, Throwable error) {
+            if (error == null) {
+                circuitBreaker.onSuccess();
+                result.complete(value);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            IOException ioCause = (cause instanceof UncheckedIOException ? ((UncheckedIOException) cause).getCause() : null);
+            if (result.isDone()) {
+                // The deadline expired, and has already been reported
+                circuitBreaker.onAbandoned();
+                return;
+            }
+            if (ioCause instanceof FetchRejectedException || ioCause == null) {
+                // No verdict on the health of the endpoint
+                circuitBreaker.onAbandoned();
+                if (ioCause instanceof FetchRejectedException) {
+                    metrics.recordRejection(((FetchRejectedException) ioCause).getReason());
+                } else {
+                    metrics.recordFailure();
+                }
+                result.completeExceptionally(cause);
+                return;
+            }
+            if (!isTransient(ioCause)) {
+                // The endpoint responded, so it is healthy even though the response is unusable
+                circuitBreaker.onSuccess();
+                metrics.recordFailure();
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            circuitBreaker.onFailure();
+            if (attempts < attemptLimit) {
+                long delay = retryDelayMillis(attempts);
+                if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay) < deadline) {
+                    metrics.recordRetry();
+                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(this::attempt);
+                    return;
+                }
+            }
+            metrics.recordFailure();
+            result.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Determine if a failure may be resolved by retrying the request.
+     */
+    private static boolean isTransient(IOException cause) {
+        if (cause instanceof HttpStatusException) {
+            return ((HttpStatusException) cause).isTransient();
+        }
+        // Protocol violations by the server, such as an oversized response, recur on every attempt
+        return !(cause instanceof ProtocolException);
+    }
+
+    /**
+     * Calculates the delay before a retry as an exponential backoff, with random jitter so that callers which
+     * failed at the same time don't retry at the same time.
+     * @param attempts number of attempts made so far
+     * @return delay in milliseconds
+     */
+    private long retryDelayMillis(int attempts) {
+        long backoff = retryBaseDelayMillis << Math.min(attempts - 1, 30);
+        backoff = Math.min(Math.max(backoff, 0), retryMaxDelayMillis);
+        long half = backoff / 2;
+        return half + ThreadLocalRandom.current().nextLong(backoff - half + 1);
+    }
+
+    /**
+     * Waits for a future to complete, and rethrows any failure as the original unchecked exception, rather than
+     * as a CompletionException.
+     * @param future future
+     * @param <T> type of the result
+     * @return result of the future
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        }
+        catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs a request once the host has a free slot.
+     */
+    private <T> CompletableFuture<T> submit(String host, Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable task = () -> {
+            CompletableFuture<T> future;
+            try {
+                future = request.get();
+            }
+            catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((value, error) -> {
+                release(host);
+                if (error != null) {
+                    result.completeExceptionally(unwrap(error));
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+
+        boolean runNow;
+        synchronized (hostQueues) {
+            HostQueue queue = hostQueues.computeIfAbsent(host, h -> new HostQueue());
+            runNow = (queue.active < maxConcurrentRequestsPerHost);
+            if (runNow) {
+                queue.active++;
+            } else if (queue.waiting.size() < maxQueuedRequestsPerHost) {
+                queue.waiting.add(task);
+            } else {
+                return CompletableFuture.failedFuture(new UncheckedIOException(
+                        new FetchRejectedException(FetchRejectedException.Reason.BULKHEAD_FULL, host)));
+            }
+        }
+        if (runNow) {
+            task.run();
+        }
+        return result;
+    }
+
+    /**
+     * Frees the slot held by a completed request, and hands it to the next queued request for the host.
+     */
+    private void release(String host) {
+        Runnable next;
+        synchronized (hostQueues) {
+            HostQueue queue = hostQueues.get(host);
+            next = queue.waiting.poll();
+            if (next == null) {
+                queue.active--;
+                if (queue.active == 0) {
+                    hostQueues.remove(host);
+                }
+            }
+        }
+        if (next != null) {
+            next.run();
+        }
+    }
+
+    private static class HostQueue {
+        private int active;
+        private final Deque<Runnable> waiting = new ArrayDeque<>();
+    }
+
+    /**
+     * Gets the underlying cause of a failed future, converting any checked IOException into an UncheckedIOException.
+     * @param error failure of a future
+     * @return underlying cause
+     */
+    public static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof IOException) {
+            return new UncheckedIOException((IOException) error);
+        }
+        return error;
+    }
+
+    /**
+     * Rejects responses which are unsuccessful or too large before the body is read.
+     */
+    private HttpResponse.BodySubscriber<byte[]> handleResponse(HttpResponse.ResponseInfo info) {
+        if (info.statusCode() != HTTP_OK) {
+            return HttpResponse.BodySubscribers.replacing(null);
+        }
+        long contentLength = info.headers().firstValueAsLong("Content-Length").orElse(-1L);
+        if (contentLength > maxResponseSize) {
+            return new LimitedBodySubscriber(-1);
+        }
+        return new LimitedBodySubscriber(maxResponseSize);
+    }
+
+    private FetchResult toResult(String url, HttpResponse<byte[]> response) {
+        int status = response.statusCode();
+        if (status != HTTP_OK && status != HTTP_NOT_MODIFIED) {
+            throw new UncheckedIOException(new HttpStatusException(status, url));
+        }
+        HttpHeaders headers = response.headers();
+        return new FetchResult(
+                url,
+                (status == HTTP_NOT_MODIFIED ? null : decode(url, response)),
+                headers.firstValue("ETag").orElse(null),
+                headers.firstValue("Last-Modified").orElse(null),
+                headers.firstValue("Cache-Control").orElse(null));
+    }
+
+    private byte[] decode(String url, HttpResponse<byte[]> response) {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("identity");
+        if (encoding.equalsIgnoreCase("identity")) {
+            return response.body();
+        }
+        if (!encoding.equalsIgnoreCase("gzip")) {
+            throw new UncheckedIOException(new ProtocolException(
+                    "Unsupported Content-Encoding \"" + encoding + "\" from \"" + url + "\""));
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                if (out.size() + count > maxResponseSize) {
+                    throw new ProtocolException(responseTooLarge());
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String responseTooLarge() {
+        return "Response exceeds the maximum size of " + maxResponseSize + " bytes";
+    }
+
+    /**
+     * Accumulates the response body, and aborts the response as soon as it exceeds the size limit.
+     */
+    private class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+        private final int limit;
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private Flow.Subscription subscription;
+
+        /**
+         * @param limit maximum number of bytes, or -1 if the response is already known to be too large
+         */
+        LimitedBodySubscriber(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (limit < 0) {
+                subscription.cancel();
+                body.completeExceptionally(new ProtocolException(responseTooLarge()));
+            } else {
+                subscription.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (body.isDone()) {
+                return;
+            }
+            for (ByteBuffer item : items) {
+                if (buffer.size() + item.remaining() > limit) {
+                    subscription.cancel();
+                    body.completeExceptionally(new ProtocolException(responseTooLarge()));
+                    return;
+                }
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                buffer.write(bytes, 0, bytes.length);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            body.complete(buffer.toByteArray());
+        }
+    }
+
+    /**
+     * Builder for MetadataFetcher
+     */
+    public static class Builder {
+        private SSLContext sslContext;
+        private Executor executor;
+        private Duration connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+        private Duration requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+        private int maxResponseSize = DEFAULT_MAX_RESPONSE_SIZE;
+        private int maxConcurrentRequestsPerHost = DEFAULT_MAX_CONCURRENT_REQUESTS_PER_HOST;
+        private int maxQueuedRequestsPerHost = DEFAULT_MAX_QUEUED_REQUESTS_PER_HOST;
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        private Duration retryBaseDelay = DEFAULT_RETRY_BASE_DELAY;
+        private Duration retryMaxDelay = DEFAULT_RETRY_MAX_DELAY;
+        private Duration deadline = DEFAULT_DEADLINE;
+        private int circuitBreakerFailureThreshold = DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+        private Duration circuitBreakerOpenDuration = DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION;
+        private Clock clock = Clock.systemUTC();
+        private CircuitBreaker.Listener circuitBreakerListener;
+
+        /**
+         * Construct a new Builder with default values for all settings
+         */
+        public Builder() {}
+
+        /**
+         * Generates an instance of MetadataFetcher from the Builder settings.
+         * @return MetadataFetcher
+         */
+        public MetadataFetcher build() {
+            return new MetadataFetcher(this);
+        }
+
+        /**
+         * Sets the SSLContext used to establish HTTPS connections. By default, the default SSLContext of the JVM
+         * is used.
+         * @param sslContext SSLContext
+         * @return Builder
+         */
+        public Builder setSslContext(SSLContext sslContext) {
+            Objects.requireNonNull(sslContext, "sslContext must not be null");
+            this.sslContext = sslContext;
+            return this;
+        }
+
+        /**
+         * Sets the executor used for asynchronous tasks. By default, the HttpClient uses its own thread pool.
+         * @param executor executor
+         * @return Builder
+         */
+        public Builder setExecutor(Executor executor) {
+            Objects.requireNonNull(executor, "executor must not be null");
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Sets the time allowed to establish a connection. Default value is 10 seconds.
+         * @param connectTimeout timeout
+         * @return Builder
+         */
+        public Builder setConnectTimeout(Duration connectTimeout) {
+            Objects.requireNonNull(connectTimeout, "connectTimeout must not be null");
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the time allowed for a request to complete, once it has been sent. Default value is 30 seconds.
+         * @param requestTimeout timeout
+         * @return Builder
+         */
+        public Builder setRequestTimeout(Duration requestTimeout) {
+            Objects.requireNonNull(requestTimeout, "requestTimeout must not be null");
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of a response, in bytes, both before and after decompression.
+         * Default value is 1 MiB.
+         * @param maxResponseSize max size
+         * @return Builder
+         */
+        public Builder setMaxResponseSize(int maxResponseSize) {
+            if (maxResponseSize <= 0) {
+                throw new IllegalArgumentException("maxResponseSize must be positive (received: " + maxResponseSize + ")");
+            }
+            this.maxResponseSize = maxResponseSize;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of concurrent requests to a single host. Default value is 4.
+         * @param maxConcurrentRequestsPerHost max number
+         * @return Builder
+         */
+        public Builder setMaxConcurrentRequestsPerHost(int maxConcurrentRequestsPerHost) {
+            if (maxConcurrentRequestsPerHost <= 0) {
+                throw new IllegalArgumentException(
+                        "maxConcurrentRequestsPerHost must be positive (received: " + maxConcurrentRequestsPerHost + ")");
+            }
+            this.maxConcurrentRequestsPerHost = maxConcurrentRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of requests to a single host that may wait for a free slot. Further requests
+         * are rejected. Default value is 100.
+         * @param maxQueuedRequestsPerHost max number
+         * @return Builder
+         */
+        public Builder setMaxQueuedRequestsPerHost(int maxQueuedRequestsPerHost) {
+            if (maxQueuedRequestsPerHost < 0) {
+                throw new IllegalArgumentException(
+                        "maxQueuedRequestsPerHost must not be negative (received: " + maxQueuedRequestsPerHost + ")");
+            }
+            this.maxQueuedRequestsPerHost = maxQueuedRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of attempts for each fetch, including the first. A value of 1 disables retries.
+         * Default value is 3.
+         * @param maxAttempts max number
+         * @return Builder
+         */
+        public Builder setMaxAttempts(int maxAttempts) {
+            if (maxAttempts <= 0) {
+                throw new IllegalArgumentException("maxAttempts must be positive (received: " + maxAttempts + ")");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets the delay before the first retry, and the maximum delay between retries. The delay doubles after
+         * each attempt, and is randomized by up to half. Default values are 200 milliseconds and 5 seconds.
+         * @param baseDelay delay before the first retry
+         * @param maxDelay maximum delay
+         * @return Builder
+         */
+        public Builder setRetryDelay(Duration baseDelay, Duration maxDelay) {
+            Objects.requireNonNull(baseDelay, "baseDelay must not be null");
+            Objects.requireNonNull(maxDelay, "maxDelay must not be null");
+            if (baseDelay.isNegative() || maxDelay.compareTo(baseDelay) < 0) {
+                throw new IllegalArgumentException("Retry delays must satisfy 0 <= baseDelay <= maxDelay");
+            }
+            this.retryBaseDelay = baseDelay;
+            this.retryMaxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * Sets the time allowed for a fetch to complete, including any queueing and retries. Default value is
+         * 60 seconds.
+         * @param deadline timeout
+         * @return Builder
+         */
+        public Builder setDeadline(Duration deadline) {
+            Objects.requireNonNull(deadline, "deadline must not be null");
+            this.deadline = deadline;
+            return this;
+        }
+
+        /**
+         * Sets the number of consecutive failures after which the circuit breaker of a host opens, and the time
+         * for which it then rejects requests before allowing a trial request. Default values are 5 failures and
+         * 30 seconds.
+         * @param failureThreshold number of consecutive failures
+         * @param openDuration time for which the circuit breaker remains open
+         * @return Builder
+         */
+        public Builder setCircuitBreaker(int failureThreshold, Duration openDuration) {
+            Objects.requireNonNull(openDuration, "openDuration must not be null");
+            if (failureThreshold <= 0) {
+                throw new IllegalArgumentException("failureThreshold must be positive (received: " + failureThreshold + ")");
+            }
+            this.circuitBreakerFailureThreshold = failureThreshold;
+            this.circuitBreakerOpenDuration = openDuration;
+            return this;
+        }
+
+        /**
+         * Sets a listener which receives the state transitions of the circuit breakers.
+         * @param listener listener
+         * @return Builder
+         */
+        public Builder setCircuitBreakerListener(CircuitBreaker.Listener listener) {
+            Objects.requireNonNull(listener, "listener must not be null");
+            this.circuitBreakerListener = listener;
+            return this;
+        }
+
+        /**
+         * Sets the clock used by the circuit breakers. Default value is the system clock.
+         * @param clock clock
+         * @return Builder
+         */
+        public Builder setClock(Clock clock) {
+            Objects.requireNonNull(clock, "clock must not be null");
+            this.clock = clock;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.fastfed4j.core.http;
+
+import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * Persistent, on-disk copy of the metadata documents retrieved by a MetadataCache, which allows the cache to serve
+ * metadata immediately after a restart, rather than waiting for every provider to be queried again.
+ *
+ * <p>Each URL is stored as a separate file in the mirror directory, containing the document as received, the
+ * validators (ETag and Last-Modified) used to revalidate it, and the fingerprint of the metadata. Documents are
+ * only stored after they have been validated, and the fingerprint is verified when a document is read back, so a
+ * corrupted (e.g. truncated) file is discarded rather than served. Files are written to a temporary file and then
+ * atomically moved into place, so a crash never leaves a partially written file behind.</p>
+ *
+ * <p>The fingerprint is stored in the same file as the document, so it only detects accidental corruption; anyone
+ * who can write to the mirror directory can replace a document along with its fingerprint. The directory must
+ * therefore be writable only by the application.</p>
+ *
+ * <p>Instances are thread-safe, and may be shared by several caches.</p>
+ */
+public class MetadataMirror {
+    private static final String FILE_SUFFIX = ".json";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final String URL = "url";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "last_modified";
+    private static final String FINGERPRINT = "fingerprint";
+    private static final String DOCUMENT = "document";
+
+    private final Path directory;
+
+    /**
+     * A document read from the mirror.
+     */
+    static final class Document {
+        private final byte[] json;
+        private final String eTag;
+        private final String lastModified;
+        private final String fingerprint;
+
+        private Document(byte[] json, String eTag, String lastModified, String fingerprint) {
+            this.json = json;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.fingerprint = fingerprint;
+        }
+
+        byte[] getJson() {
+            return json;
+        }
+
+        String getETag() {
+            return eTag;
+        }
+
+        String getLastModified() {
+            return lastModified;
+        }
+
+        String getFingerprint() {
+            return fingerprint;
+        }
+    }
+
+    /**
+     * Constructs a mirror backed by a directory, which is created if it doesn't exist. Any temporary files left
+     * behind by an interrupted write are removed.
+     * @param directory mirror directory
+     * @throws UncheckedIOException if the directory cannot be created
+     */
+    public MetadataMirror(Path directory) {
+        Objects.requireNonNull(directory, "directory must not be null");
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + TEMP_FILE_SUFFIX)) {
+                for (Path tempFile : stream) {
+                    Files.deleteIfExists(tempFile);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Tests if the mirror holds a document for a URL.
+     * @param url the endpoint which hosts the metadata
+     * @return true if a document exists
+     */
+    public boolean contains(String url) {
+        return Files.exists(pathOf(url));
+    }
+
+    /**
+     * Removes the document of a URL from the mirror.
+     * @param url the endpoint which hosts the metadata
+     * @throws UncheckedIOException if the file cannot be deleted
+     */
+    public void remove(String url) {
+        try {
+            Files.deleteIfExists(pathOf(url));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stores a validated document, replacing any previous document for the URL.
+     * @param url the endpoint which hosts the metadata
+     * @param json document, as received from the endpoint
+     * @param eTag ETag of the response, or null
+     * @param lastModified Last-Modified date of the response, or null
+     * @param fingerprint fingerprint of the metadata hydrated from the document
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    void store(String url, byte[] json, String eTag, String lastModified, String fingerprint) {
+        JsonObject.Builder builder = new JsonObject.Builder();
+        builder.put(URL, url);
+        builder.put(ETAG, eTag);
+        builder.put(LAST_MODIFIED, lastModified);
+        builder.put(FINGERPRINT, fingerprint);
+        builder.put(DOCUMENT, new String(json, StandardCharsets.UTF_8));
+        byte[] contents = builder.build().toString().getBytes(StandardCharsets.UTF_8);
+
+        Path target = pathOf(url);
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(directory, target.getFileName().toString(), TEMP_FILE_SUFFIX);
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(contents);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tempFile = null;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                }
+                catch (IOException e) {
+                    // Removed when the mirror is next opened
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the document of a URL. A file which cannot be parsed, or which belongs to a different URL, is treated
+     * as absent. The caller is responsible for validating the document and verifying its fingerprint.
+     * @param url the endpoint which hosts the metadata
+     * @return document, or null if absent
+     */
+    Document read(String url) {
+        byte[] contents;
+        try {
+            contents = Files.readAllBytes(pathOf(url));
+        }
+        catch (IOException e) {
+            // Includes NoSuchFileException, when the URL has never been stored
+            return null;
+        }
+
+        ErrorAccumulator errorAccumulator = new ErrorAccumulator();
+        JsonObject json = JsonParser.parse(contents, errorAccumulator);
+        if (errorAccumulator.hasErrors() || json == null) {
+            return null;
+        }
+        String document = json.getString(DOCUMENT);
+        String fingerprint = json.getString(FINGERPRINT);
+        if (errorAccumulator.hasErrors() || !url.equals(json.getString(URL)) || document == null || fingerprint == null) {
+            return null;
+        }
+        return new Document(
+                document.getBytes(StandardCharsets.UTF_8),
+                json.getString(ETAG),
+                json.getString(LAST_MODIFIED),
+                fingerprint);
+    }
+
+    /**
+     * Gets the file which holds the document of a URL, named after the SHA-256 digest of the URL.
+     */
+    private Path pathOf(String url) {
+        Objects.requireNonNull(url, "url must not be null");
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xF];
+        }
+        return directory.resolve(new String(hex) + FILE_SUFFIX);
+    }
+}
@@ -0,0 +1,421 @@
+package org.fastfed4j.core.json;
+
+import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.exception.InvalidMetadataException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compact binary encoding of a JSON object, intended for storing Metadata such as a Contract or ContractProposal.
+ *
+ * <p>The encoding represents exactly the same values as JSON, so a document survives a round trip through the
+ * binary form unchanged. It is smaller than the JSON form because the member names and URNs that appear in
+ * almost every FastFed document are written as an index into a fixed dictionary, and because any other string
+ * that appears more than once in a document is written in full only the first time.</p>
+ *
+ * <p>Layout of an encoded document:</p>
+ * <pre>
+ *   document := 'F' 'F' 'B' version value
+ *   value    := NULL | FALSE | TRUE
+ *             | INTEGER zigzag-varint
+ *             | DOUBLE 8-byte-big-endian-IEEE-754
+ *             | STRING varint-length utf8-bytes
+ *             | DICTIONARY_STRING varint-dictionary-index
+ *             | STRING_REFERENCE varint-index-of-an-earlier-STRING-in-the-document
+ *             | OBJECT varint-count (string value)*
+ *             | ARRAY varint-count value*
+ * </pre>
+ *
+ * <p>Entries may be appended to the dictionary, but existing entries must never be changed or reordered, since
+ * that would alter the meaning of documents that were encoded earlier. A document encoded with a newer dictionary
+ * than the decoder knows is rejected as malformed.</p>
+ */
+public class BinaryJson {
+
+    private static final byte[] MAGIC = {'F', 'F', 'B'};
+    private static final byte VERSION = 1;
+    private static final int MAX_DEPTH = 256;
+
+    // Tags that identify the type of each value
+    private static final int NULL = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+    private static final int INTEGER = 3;
+    private static final int DOUBLE = 4;
+    private static final int STRING = 5;
+    private static final int DICTIONARY_STRING = 6;
+    private static final int STRING_REFERENCE = 7;
+    private static final int OBJECT = 8;
+    private static final int ARRAY = 9;
+
+    /**
+     * Append-only. Literal values are used, rather than the constants in JsonMember and the profile enumerations,
+     * so that a change to those constants cannot silently change the meaning of stored documents.
+     */
+    private static final List<String> DICTIONARY = List.of(
+            // Member names
+            "application_provider",
+            "application_provider_metadata_extensions",
+            "authentication_profiles",
+            "capabilities",
+            "contract",
+            "contract_proposal",
+            "closure_date",
+            "expiration_date",
+            "status",
+            "desired_attributes",
+            "display_name",
+            "display_settings",
+            "email",
+            "enabled_profiles",
+            "entity_id",
+            "fastfed_handshake_finalize_uri",
+            "fastfed_handshake_register_uri",
+            "fastfed_handshake_start_uri",
+            "icon_uri",
+            "identity_provider",
+            "identity_provider_metadata_extensions",
+            "jwks_uri",
+            "aud",
+            "exp",
+            "iss",
+            "license",
+            "logo_uri",
+            "scope",
+            "token_endpoint",
+            "optional_group_attributes",
+            "optional_user_attributes",
+            "organization",
+            "phone",
+            "provider_authentication_method",
+            "provider_authentication_methods",
+            "provider_contact_information",
+            "provider_domain",
+            "provisioning_profiles",
+            "registration_request_extensions",
+            "registration_response_extensions",
+            "required_group_attributes",
+            "required_user_attributes",
+            "saml_metadata_uri",
+            "saml_response_attributes",
+            "saml_subject",
+            "schema_grammar",
+            "schema_grammars",
+            "can_support_nested_groups",
+            "max_group_membership_changes",
+            "scim_service_uri",
+            "signing_algorithms",
+            // Profile, schema grammar and provider authentication URNs
+            "urn:ietf:params:fastfed:1.0:authentication:saml:2.0:enterprise",
+            "urn:ietf:params:fastfed:1.0:provisioning:scim:2.0:enterprise",
+            "urn:ietf:params:fastfed:1.0:schemas:scim:2.0",
+            "urn:ietf:params:fastfed:1.0:provider_authentication:oauth:2.0:jwt_profile",
+            // Licenses
+            "https://openid.net/intellectual-property/licenses/fastfed/1.0/",
+            // Contract proposal statuses
+            "Pending",
+            "Accepted",
+            "Cancelled",
+            // Signing algorithms
+            "RS256",
+            "RS384",
+            "RS512",
+            "ES256",
+            "ES384",
+            "ES512",
+            "PS256",
+            "PS384",
+            "PS512",
+            // SCIM attributes
+            "externalId",
+            "userName",
+            "displayName",
+            "active",
+            "members",
+            "name.givenName",
+            "name.familyName",
+            "name.formatted",
+            "emails[primary eq true].value",
+            "phoneNumbers[primary eq true].value",
+            "urn:ietf:params:scim:schemas:core:2.0:User:",
+            "urn:ietf:params:scim:schemas:core:2.0:Group:"
+    );
+
+    private static final Map<String, Integer> DICTIONARY_INDEX = new HashMap<>();
+    static {
+        for (int i = 0; i < DICTIONARY.size(); i++) {
+            DICTIONARY_INDEX.put(DICTIONARY.get(i), i);
+        }
+    }
+
+    /**
+     * Encodes a JSON object into the binary form.
+     * @param json JSON object
+     * @return binary document
+     */
+    public static byte[] encode(JsonObject json) {
+        Objects.requireNonNull(json, "json must not be null");
+        Encoder encoder = new Encoder();
+        encoder.out.write(MAGIC, 0, MAGIC.length);
+        encoder.out.write(VERSION);
+        encoder.writeValue(json.materialize());
+        return encoder.out.toByteArray();
+    }
+
+    /**
+     * Decodes a binary document into a JSON object, using the default JsonProvider for the decoded objects
+     * and arrays.
+     * @param data binary document, as produced by encode()
+     * @param errorAccumulator Error accumulator
+     * @return JsonObject
+     * @throws InvalidMetadataException if the document is malformed
+     */
+    public static JsonObject decode(byte[] data, ErrorAccumulator errorAccumulator)
+        throws InvalidMetadataException
+    {
+        Objects.requireNonNull(data, "data must not be null");
+        JsonProvider provider = JsonProvider.getDefault();
+        Decoder decoder = new Decoder(data, errorAccumulator, provider);
+        Map<String, Object> result = decoder.readDocument();
+        return new JsonObject(errorAccumulator, result, "", provider);
+    }
+
+    private static class Encoder {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        private final Map<String, Integer> stringsWritten = new HashMap<>();
+
+        private void writeValue(Object value) {
+            if (value == null) {
+                out.write(NULL);
+            }
+            else if (value instanceof String) {
+                writeString((String) value);
+            }
+            else if (value instanceof Boolean) {
+                out.write((Boolean) value ? TRUE : FALSE);
+            }
+            else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                out.write(INTEGER);
+                long number = ((Number) value).longValue();
+                writeVarint((number << 1) ^ (number >> 63));
+            }
+            else if (value instanceof Number) {
+                double number = ((Number) value).doubleValue();
+                // Matches JsonWriter, since JSON has no representation for non-finite numbers
+                if (!Double.isFinite(number)) {
+                    out.write(NULL);
+                    return;
+                }
+                out.write(DOUBLE);
+                long bits = Double.doubleToLongBits(number);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    out.write((int) (bits >>> shift));
+                }
+            }
+            else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                out.write(OBJECT);
+                writeVarint(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    writeString(String.valueOf(entry.getKey()));
+                    writeValue(entry.getValue());
+                }
+            }
+            else if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                out.write(ARRAY);
+                writeVarint(collection.size());
+                for (Object entry : collection) {
+                    writeValue(entry);
+                }
+            }
+            else {
+                writeString(value.toString());
+            }
+        }
+
+        private void writeString(String value) {
+            Integer index = DICTIONARY_INDEX.get(value);
+            if (index != null) {
+                out.write(DICTIONARY_STRING);
+                writeVarint(index);
+                return;
+            }
+            index = stringsWritten.get(value);
+            if (index != null) {
+                out.write(STRING_REFERENCE);
+                writeVarint(index);
+                return;
+            }
+            stringsWritten.put(value, stringsWritten.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.write(STRING);
+            writeVarint(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+
+    private static class Decoder {
+        private final byte[] data;
+        private final ErrorAccumulator errorAccumulator;
+        private final JsonProvider provider;
+        private final List<String> stringsRead = new ArrayList<>();
+        private int position = 0;
+
+        private Decoder(byte[] data, ErrorAccumulator errorAccumulator, JsonProvider provider) {
+            this.data = data;
+            this.errorAccumulator = errorAccumulator;
+            this.provider = provider;
+        }
+
+        private Map<String, Object> readDocument() {
+            if (data.length == 0) {
+                throw error("Binary metadata is empty");
+            }
+            for (byte b : MAGIC) {
+                if (position == data.length || data[position++] != b) {
+                    throw error("Malformed binary metadata. Not a FastFed binary document");
+                }
+            }
+            int version = readByte();
+            if (version != VERSION) {
+                throw error("Malformed binary metadata. Unsupported version " + version);
+            }
+            int tag = readByte();
+            if (tag != OBJECT) {
+                throw error("Malformed binary metadata. Expected an Object at the top level");
+            }
+            Map<String, Object> result = readObject(0);
+            if (position != data.length) {
+                throw error("Malformed binary metadata. Unexpected data at position " + position);
+            }
+            return result;
+        }
+
+        private Object readValue(int depth) {
+            int tag = readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case FALSE:
+                    return Boolean.FALSE;
+                case TRUE:
+                    return Boolean.TRUE;
+                case INTEGER:
+                    long zigzag = readVarint();
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                case DOUBLE:
+                    long bits = 0;
+                    for (int i = 0; i < 8; i++) {
+                        bits = (bits << 8) | readByte();
+                    }
+                    return Double.longBitsToDouble(bits);
+                case OBJECT:
+                    return readObject(depth + 1);
+                case ARRAY:
+                    return readArray(depth + 1);
+                default:
+                    return readString(tag);
+            }
+        }
+
+        private Map<String, Object> readObject(int depth) {
+            checkDepth(depth);
+            long count = readCount();
+            Map<String, Object> result = provider.newObject();
+            for (long i = 0; i < count; i++) {
+                String key = readString(readByte());
+                result.put(key, readValue(depth));
+            }
+            return result;
+        }
+
+        private List<Object> readArray(int depth) {
+            checkDepth(depth);
+            long count = readCount();
+            List<Object> result = provider.newArray();
+            for (long i = 0; i < count; i++) {
+                result.add(readValue(depth));
+            }
+            return result;
+        }
+
+        private String readString(int tag) {
+            switch (tag) {
+                case STRING:
+                    int length = (int) readCount();
+                    String value = new String(data, position, length, StandardCharsets.UTF_8);
+                    position += length;
+                    stringsRead.add(value);
+                    return value;
+                case DICTIONARY_STRING:
+                    long index = readVarint();
+                    if (index < 0 || index >= DICTIONARY.size()) {
+                        throw error("Malformed binary metadata. Unknown dictionary entry " + index);
+                    }
+                    return DICTIONARY.get((int) index);
+                case STRING_REFERENCE:
+                    long reference = readVarint();
+                    if (reference < 0 || reference >= stringsRead.size()) {
+                        throw error("Malformed binary metadata. Invalid string reference " + reference);
+                    }
+                    return stringsRead.get((int) reference);
+                default:
+                    throw error("Malformed binary metadata. Unexpected tag " + tag + " at position " + (position - 1));
+            }
+        }
+
+        /**
+         * Reads the size of an object, array or string. Every entry occupies at least one byte, so a size larger
+         * than the remaining data can be rejected before anything is allocated for it.
+         */
+        private long readCount() {
+            long count = readVarint();
+            if (count < 0 || count > data.length - position) {
+                throw error("Malformed binary metadata. Invalid length " + count + " at position " + position);
+            }
+            return count;
+        }
+
+        private long readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw error("Malformed binary metadata. Invalid number at position " + position);
+        }
+
+        private int readByte() {
+            if (position >= data.length) {
+                throw error("Malformed binary metadata. Unexpected end of data");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        private void checkDepth(int depth) {
+            // Guards against a stack overflow from a hostile document
+            if (depth > MAX_DEPTH) {
+                throw error("Malformed binary metadata. Exceeded the maximum nesting depth of " + MAX_DEPTH);
+            }
+        }
+
+        private InvalidMetadataException error(String message) {
+            errorAccumulator.add(message);
+            return new InvalidMetadataException(errorAccumulator);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.fastfed4j.core.json;
+
+import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.exception.InvalidMetadataException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JsonProvider backed by JsonReader and JsonWriter, with no dependencies outside of the JDK.
+ *
+ * <p>Documents are tokenized in a single pass, without the intermediate buffering and exception-driven control
+ * flow of JSON Simple. Objects preserve the order of their members.</p>
+ */
+public class BuiltInJsonProvider implements JsonProvider {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> parseObject(String json, ErrorAccumulator errorAccumulator)
+        throws InvalidMetadataException
+    {
+        JsonReader reader = new JsonReader(json, errorAccumulator);
+        reader.requireObject();
+        Map<String, Object> result = (Map<String, Object>) reader.nextValue();
+        reader.endDocument();
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> newObject() {
+        return new LinkedHashMap<>();
+    }
+
+    @Override
+    public List<Object> newArray() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public String toJsonString(Map<String, Object> object) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            new JsonWriter(builder).value(object);
+        } catch (IOException e) {
+            // Not possible when writing to a StringBuilder
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+}
@@ -1,5 +1,7 @@
 package org.fastfed4j.core.json;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -8,21 +10,59 @@ import org.fastfed4j.core.exception.ErrorAccumulator;
 /**
  * Abstracts an underlying JSON parser implementation behind a consistent interface. Also adds convenience utilities for
  * casting to particular data types and reporting errors when JSON contents do not conform to the expected types.
+ *
+ * <p>A JsonObject may also be a lazy view over a raw JSON document, created by JsonParser when parsing bytes. A lazy
+ * view holds only an index of the positions of its members within the document. Each member is decoded the first
+ * time it is read, and a nested object is itself returned as a lazy view, so that the portions of a document that
+ * are never read are never decoded.</p>
  */
 @SuppressWarnings("unchecked")
 public class JsonObject {
     public static final String JSON_PATH_DELIMITER = ".";
 
-    private final org.json.simple.JSONObject impl;
+    // For a lazy view, impl holds only the members decoded so far, and is complete once lazyMembers is null.
+    private Map<String, Object> impl;
+    private final JsonProvider provider;
     private final ErrorAccumulator errorAccumulator;
     private final String jsonPath;
 
+    // Lazy views only. The position of each member's value within the document, and the reader used to decode them.
+    private Map<String, Integer> lazyMembers;
+    private Map<String, JsonObject> lazyObjects;
+    private JsonReader lazySource;
+
+    // Normalized, immutable views of the array members that have been read, keyed by member name
+    private Map<String, StringArray> stringArrays;
+
+    /**
+     * The normalized form of an array member, computed once and shared by all subsequent reads of the member.
+     * Holds either the immutable list and set of Strings, or the type mismatch error to report on each read.
+     */
+    private static final class StringArray {
+        private final List<String> list;
+        private final Set<String> set;
+        private final String errorMsg;
+
+        private StringArray(List<String> list) {
+            this.list = Collections.unmodifiableList(list);
+            this.set = Collections.unmodifiableSet(new HashSet<>(list));
+            this.errorMsg = null;
+        }
+
+        private StringArray(String errorMsg) {
+            this.list = null;
+            this.set = null;
+            this.errorMsg = errorMsg;
+        }
+    }
+
     /**
      * JsonObject is immutable. Builder pattern is used for construction.
      */
     public static class Builder {
         private final Optional<String> wrapperName;
-        private final JsonObject instance = new JsonObject( new ErrorAccumulator(), new org.json.simple.JSONObject());
+        private final JsonProvider provider = JsonProvider.getDefault();
+        private final JsonObject instance = new JsonObject( new ErrorAccumulator(), provider.newObject(), "", provider);
 
         // There isn't a deep clone method in JSON Simple. As a result, when built, this implementation simply returns
         // the JsonObject used during construction. This opens the door to a risk that somebody builds a new JsonObject
@@ -65,14 +105,14 @@ public class JsonObject {
         public Builder put(String memberName, JsonObject value) {
             assertUnfinished();
             if (value == null) return this;
-            instance.impl.put(memberName, value.impl);
+            instance.impl.put(memberName, value.materialize());
             return this;
         }
 
         public Builder put(String memberName, Collection<String> value) {
             assertUnfinished();
             if (value == null) return this;
-            org.json.simple.JSONArray jsonArray = new org.json.simple.JSONArray();
+            List<Object> jsonArray = provider.newArray();
             jsonArray.addAll(value);
             instance.impl.put(memberName, jsonArray);
             return this;
@@ -93,7 +133,7 @@ public class JsonObject {
         }
 
         public Builder putAll(JsonObject obj) {
-            instance.impl.putAll(obj.impl);
+            instance.impl.putAll(obj.materialize());
             return this;
         }
 
@@ -112,17 +152,118 @@ public class JsonObject {
         }
     }
 
-    protected JsonObject(ErrorAccumulator errorAccumulator, org.json.simple.JSONObject jsonObject) {
+    protected JsonObject(ErrorAccumulator errorAccumulator, Map<String, Object> jsonObject) {
         this(errorAccumulator, jsonObject, "");
     }
 
-    protected JsonObject(ErrorAccumulator errorAccumulator, org.json.simple.JSONObject jsonObject, String jsonPath) {
+    protected JsonObject(ErrorAccumulator errorAccumulator, Map<String, Object> jsonObject, String jsonPath) {
+        this(errorAccumulator, jsonObject, jsonPath, JsonProvider.getDefault());
+    }
+
+    /**
+     * Constructs a JsonObject over an object produced by a JsonProvider.
+     * @param errorAccumulator Error accumulator
+     * @param jsonObject object, as represented by the provider
+     * @param jsonPath fully qualified JSON path of the object
+     * @param provider JsonProvider used to create new values and to serialize the object
+     */
+    protected JsonObject(ErrorAccumulator errorAccumulator, Map<String, Object> jsonObject, String jsonPath, JsonProvider provider) {
         Objects.requireNonNull(errorAccumulator, "errorAccumulator must not be null");
         Objects.requireNonNull(jsonPath, "jsonPath must not be null");
         Objects.requireNonNull(jsonObject, "jsonObject must not be null");
+        Objects.requireNonNull(provider, "provider must not be null");
         this.errorAccumulator = errorAccumulator;
         this.jsonPath = jsonPath;
         this.impl = jsonObject;
+        this.provider = provider;
+    }
+
+    /**
+     * Constructs a lazy view over the JSON object at the current position of the reader. The object is scanned in
+     * order to index its members, which consumes it from the reader, but the values are not decoded.
+     */
+    JsonObject(ErrorAccumulator errorAccumulator, JsonReader reader, String jsonPath) {
+        Objects.requireNonNull(errorAccumulator, "errorAccumulator must not be null");
+        Objects.requireNonNull(jsonPath, "jsonPath must not be null");
+        this.errorAccumulator = errorAccumulator;
+        this.jsonPath = jsonPath;
+        this.impl = new LinkedHashMap<>();
+        this.provider = JsonProvider.getDefault();
+        this.lazyMembers = new LinkedHashMap<>();
+        this.lazySource = reader;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String memberName = reader.nextName();
+            lazyMembers.put(memberName, reader.nextValuePosition());
+            reader.skipValue();
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Gets the raw value of a member, decoding it first if this is a lazy view.
+     */
+    private synchronized Object get(String key) {
+        if (lazyMembers == null || impl.containsKey(key)) {
+            return impl.get(key);
+        }
+        Integer position = lazyMembers.get(key);
+        if (position == null) {
+            return null;
+        }
+        Object value = lazySource.readerAt(position).nextValue();
+        impl.put(key, value);
+        return value;
+    }
+
+    /**
+     * Gets the underlying object, first decoding any members of a lazy view that have not yet been read.
+     */
+    synchronized Map<String, Object> materialize() {
+        if (lazyMembers != null) {
+            for (Map.Entry<String, Integer> entry : lazyMembers.entrySet()) {
+                String key = entry.getKey();
+                if (impl.containsKey(key)) {
+                    continue;
+                }
+                JsonObject child = (lazyObjects == null) ? null : lazyObjects.get(key);
+                if (child != null) {
+                    impl.put(key, child.materialize());
+                } else {
+                    impl.put(key, lazySource.readerAt(entry.getValue()).nextValue());
+                }
+            }
+            lazyMembers = null;
+            lazyObjects = null;
+            lazySource = null;
+        }
+        return impl;
+    }
+
+    /**
+     * Gets a nested object of a lazy view as another lazy view, or null if the member is not an undecoded object.
+     */
+    private synchronized JsonObject getLazyObject(String key) {
+        if (lazyMembers == null || impl.containsKey(key)) {
+            return null;
+        }
+        if (lazyObjects != null && lazyObjects.containsKey(key)) {
+            return lazyObjects.get(key);
+        }
+        Integer position = lazyMembers.get(key);
+        if (position == null) {
+            return null;
+        }
+        JsonReader reader = lazySource.readerAt(position);
+        if (reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+            return null;
+        }
+        JsonObject child = new JsonObject(errorAccumulator, reader, getFullyQualifiedName(key));
+        if (lazyObjects == null) {
+            lazyObjects = new HashMap<>();
+        }
+        lazyObjects.put(key, child);
+        return child;
     }
 
     /**
@@ -141,9 +282,9 @@ public class JsonObject {
                 return value;
             }
         }
-        else if (value instanceof org.json.simple.JSONArray) {
-            org.json.simple.JSONArray originalValue = (org.json.simple.JSONArray) value;
-            org.json.simple.JSONArray filteredValue = new org.json.simple.JSONArray();
+        else if (value instanceof List) {
+            List<Object> originalValue = (List<Object>) value;
+            List<Object> filteredValue = new ArrayList<>(originalValue.size());
             for (Object o : originalValue) {
                 //Filter nulls from the collection
                 Object normalizedEntry = normalize(o);
@@ -170,10 +311,10 @@ public class JsonObject {
         if (obj instanceof Boolean) {
             return "Boolean";
         }
-        if (obj instanceof org.json.simple.JSONArray) {
+        if (obj instanceof List) {
             return "Array";
         }
-        if (obj instanceof org.json.simple.JSONObject) {
+        if (obj instanceof Map) {
             return "Object";
         }
         return obj.getClass().getName();
@@ -213,20 +354,25 @@ public class JsonObject {
         return containsKey(key) && keySet().size() == 1;
     }
 
-    public boolean containsKey(String key) {
-        return impl.containsKey(key);
+    public synchronized boolean containsKey(String key) {
+        return (lazyMembers == null) ? impl.containsKey(key) : lazyMembers.containsKey(key);
     }
 
     public boolean containsValueForKey(String key) {
-        return (null != normalize(impl.get(key)));
+        Object value = get(key);
+        if (value instanceof List) {
+            // Normalization filters the contents of an array, but never turns the array itself into null
+            return true;
+        }
+        return (null != normalize(value));
     }
 
-    public Set<String> keySet() {
-        return new HashSet<String>( impl.keySet());
+    public synchronized Set<String> keySet() {
+        return new HashSet<String>( (lazyMembers == null) ? impl.keySet() : lazyMembers.keySet());
     }
 
     public String getString(String key) {
-        Object result = normalize(impl.get(key));
+        Object result = normalize(get(key));
         if (null == result) {
             return null;
         }
@@ -238,7 +384,7 @@ public class JsonObject {
     }
 
     public Boolean getBoolean(String key) {
-        Object result = normalize(impl.get(key));
+        Object result = normalize(get(key));
         if (null == result) {
             return null;
         }
@@ -250,7 +396,7 @@ public class JsonObject {
     }
 
     public Integer getInteger(String key) {
-        Object result = normalize(impl.get(key));
+        Object result = normalize(get(key));
         if (null == result) {
             return null;
         }
@@ -266,7 +412,7 @@ public class JsonObject {
     }
 
     public Long getLong(String key) {
-        Object result = normalize(impl.get(key));
+        Object result = normalize(get(key));
         if (null == result) {
             return null;
         }
@@ -286,67 +432,135 @@ public class JsonObject {
         return result;
     }
 
+    /**
+     * Gets an array of Strings. The array is normalized on the first read, and the same immutable list is returned
+     * by all subsequent reads.
+     * @param key member name
+     * @return immutable list, or null if the value is undefined or is not an array of Strings
+     */
     public List<String> getStringList(String key) {
-        Object result = normalize(impl.get(key));
+        StringArray stringArray = getStringArray(key);
+        return (stringArray == null) ? null : stringArray.list;
+    }
 
-        if (null == result) {
+    /**
+     * Gets an array of Strings as a Set. The array is normalized on the first read, and the same immutable set is
+     * returned by all subsequent reads.
+     * @param key member name
+     * @return immutable set, or null if the value is undefined or is not an array of Strings
+     */
+    public Set<String> getStringSet (String key) {
+        StringArray stringArray = getStringArray(key);
+        return (stringArray == null) ? null : stringArray.set;
+    }
+
+    /**
+     * The FastFed spec generally requires that unspecified or null values for lists be
+     * treated equivalently to an empty list. To comply with this requirement, this is a
+     * convenience method that returns an empty list if the list is undefined.
+     * @param key
+     * @return Returns the value if defined in the JSON, else returns an empty set. The set is immutable.
+     */
+    public Set<String> getNonNullableStringSet (String key) {
+        Set<String> stringSet = getStringSet(key);
+        return (stringSet == null) ? Collections.emptySet() : stringSet;
+    }
+
+    /**
+     * Gets the normalized form of an array member, computing it on the first read. Type mismatches are reported
+     * to the ErrorAccumulator on every read, matching the behavior of the other accessors.
+     * @return the normalized array, or null if the value is undefined or does not contain a valid array
+     */
+    private StringArray getStringArray(String key) {
+        StringArray stringArray;
+        synchronized (this) {
+            stringArray = (stringArrays == null) ? null : stringArrays.get(key);
+        }
+        if (stringArray == null) {
+            Object result = normalize(get(key));
+            if (null == result) {
+                return null;
+            }
+            stringArray = toStringArray(key, result);
+            synchronized (this) {
+                if (stringArrays == null) {
+                    stringArrays = new HashMap<>();
+                }
+                stringArrays.put(key, stringArray);
+            }
+        }
+        if (stringArray.errorMsg != null) {
+            errorAccumulator.add(stringArray.errorMsg);
             return null;
         }
+        return stringArray;
+    }
 
-        if (! (result instanceof org.json.simple.JSONArray)) {
-            errorAccumulator.add( createTypeMismatchErrorMsg(key, "Array", getDisplayableObjectType(result)));
-            return null;
+    private StringArray toStringArray(String key, Object normalizedValue) {
+        if (! (normalizedValue instanceof List)) {
+            return new StringArray(
+                    createTypeMismatchErrorMsg(key, "Array", getDisplayableObjectType(normalizedValue)));
         }
 
-        ArrayList<String> response = new ArrayList<>();
-        for (Object o : (org.json.simple.JSONArray)result) {
+        List<Object> jsonArray = (List<Object>) normalizedValue;
+        ArrayList<String> response = new ArrayList<>(jsonArray.size());
+        for (Object o : jsonArray) {
             if (! (o instanceof String)) {
-                errorAccumulator.add(
+                return new StringArray(
                         createTypeMismatchErrorMsg(key, "Array containing Strings",
                                 "Array containing " + getDisplayableObjectType(o) + "s"));
-                return null;
             }
             response.add((String)o);
         }
-        return response;
+        return new StringArray(response);
     }
 
-    public Set<String> getStringSet (String key) {
-        Set<String> returnVal = null;
-        List<String> stringList = getStringList(key);
-        if (stringList != null) {
-            returnVal = new HashSet<>(stringList);
+    public JsonObject getObject(String key) {
+        JsonObject lazyObject = getLazyObject(key);
+        if (lazyObject != null) {
+            return lazyObject;
         }
-        return returnVal;
-    }
 
-    /**
-     * The FastFed spec generally requires that unspecified or null values for lists be
-     * treated equivalently to an empty list. To comply with this requirement, this is a
-     * convenience method that returns an empty list if the list is undefined.
-     * @param key
-     * @return Returns the value if defined in the JSON, else returns an empty set.
-     */
-    public Set<String> getNonNullableStringSet (String key) {
-        List<String> stringList = getStringList(key);
-        if (stringList != null) {
-            return new HashSet<String>(stringList);
-        } else {
-            return new HashSet<String>();
+        Object result = get(key);
+        if (null == result) {
+            return null;
         }
+        if (! (result instanceof Map)) {
+            errorAccumulator.add( createTypeMismatchErrorMsg(key, "Object", getDisplayableObjectType(result)));
+            return null;
+        }
+
+        return new JsonObject( errorAccumulator, (Map<String, Object>)result, getFullyQualifiedName(key), provider);
     }
 
-    public JsonObject getObject(String key) {
-        Object result = impl.get(key);
+    /**
+     * Gets an array of objects, such as the "keys" member of a JSON Web Key Set.
+     * @param key member name
+     * @return list of objects, or null if the value is undefined or is not an array of objects
+     */
+    public List<JsonObject> getObjectList(String key) {
+        Object result = normalize(get(key));
         if (null == result) {
             return null;
         }
-        if (! (result instanceof org.json.simple.JSONObject)) {
-            errorAccumulator.add( createTypeMismatchErrorMsg(key, "Object", getDisplayableObjectType(result)));
+        if (! (result instanceof List)) {
+            errorAccumulator.add( createTypeMismatchErrorMsg(key, "Array", getDisplayableObjectType(result)));
             return null;
         }
 
-        return new JsonObject( errorAccumulator, (org.json.simple.JSONObject)result, getFullyQualifiedName(key));
+        List<Object> jsonArray = (List<Object>) result;
+        List<JsonObject> response = new ArrayList<>(jsonArray.size());
+        for (int i = 0; i < jsonArray.size(); i++) {
+            Object o = jsonArray.get(i);
+            if (! (o instanceof Map)) {
+                errorAccumulator.add( createTypeMismatchErrorMsg(key, "Array containing Objects",
+                        "Array containing " + getDisplayableObjectType(o) + "s"));
+                return null;
+            }
+            response.add(new JsonObject(errorAccumulator, (Map<String, Object>) o,
+                    getFullyQualifiedName(key) + "[" + i + "]", provider));
+        }
+        return response;
     }
 
     /**
@@ -381,8 +595,24 @@ public class JsonObject {
         }
     }
 
+    /**
+     * Serializes into canonical JSON, in which object members and array entries appear in sorted order. Two
+     * objects with equivalent contents always produce the same canonical string.
+     * @return canonical JSON
+     */
+    public String toCanonicalString() {
+        StringBuilder builder = new StringBuilder();
+        try {
+            new JsonWriter(builder).canonicalValue(materialize());
+        } catch (IOException e) {
+            // Not possible when writing to a StringBuilder
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
     @Override
     public String toString() {
-        return impl.toJSONString();
+        return provider.toJsonString(materialize());
     }
 }
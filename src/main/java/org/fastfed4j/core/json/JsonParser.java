@@ -3,13 +3,17 @@ package org.fastfed4j.core.json;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.exception.InvalidMetadataException;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
 /**
  * Utility to parse a JSON document
  */
 public class JsonParser {
 
     /**
-     * Parse a JSON string into a JSON object
+     * Parse a JSON string into a JSON object, using the default JsonProvider
      * @param jsonString JSON string
      * @param errorAccumulator Error accumulator
      * @return JsonObject
@@ -18,25 +22,74 @@ public class JsonParser {
     public static JsonObject parse(String jsonString, ErrorAccumulator errorAccumulator)
         throws InvalidMetadataException
     {
-        if (null == jsonString || jsonString.isEmpty()) {
-            errorAccumulator.add("JSON is empty");
-            throw new InvalidMetadataException(errorAccumulator);
-        }
-
-        Object obj;
-        try {
-            obj = (new org.json.simple.parser.JSONParser()).parse(jsonString);
-        } catch (Exception e) {
-            errorAccumulator.add("Malformed JSON: " + e + "\n" + jsonString);
-            throw new InvalidMetadataException(errorAccumulator);
-        }
-
-        if (!(obj instanceof org.json.simple.JSONObject)) {
-            errorAccumulator.add("Malformed JSON. Expected an Object, received a " + JsonObject.getDisplayableObjectType(obj));
-            throw new InvalidMetadataException(errorAccumulator);
-        }
-
-        return new JsonObject(errorAccumulator, (org.json.simple.JSONObject)obj);
+        return parse(jsonString, errorAccumulator, JsonProvider.getDefault());
+    }
+
+    /**
+     * Parse a JSON string into a JSON object, using a specific JsonProvider
+     * @param jsonString JSON string
+     * @param errorAccumulator Error accumulator
+     * @param provider JSON implementation
+     * @return JsonObject
+     * @throws InvalidMetadataException if JSON is malformed
+     */
+    public static JsonObject parse(String jsonString, ErrorAccumulator errorAccumulator, JsonProvider provider)
+        throws InvalidMetadataException
+    {
+        Objects.requireNonNull(provider, "provider must not be null");
+        return new JsonObject(errorAccumulator, provider.parseObject(jsonString, errorAccumulator), "", provider);
+    }
+
+    /**
+     * Parse a UTF-8 encoded JSON document into a lazily decoded JSON object
+     * @param json JSON document
+     * @param errorAccumulator Error accumulator
+     * @return JsonObject
+     * @throws InvalidMetadataException if JSON is malformed
+     */
+    public static JsonObject parse(byte[] json, ErrorAccumulator errorAccumulator)
+        throws InvalidMetadataException
+    {
+        return parse(new JsonReader(json, errorAccumulator));
+    }
+
+    /**
+     * Parse a UTF-8 encoded JSON document into a lazily decoded JSON object, reading the bytes between the
+     * position and limit of the buffer.
+     * @param json JSON document
+     * @param errorAccumulator Error accumulator
+     * @return JsonObject
+     * @throws InvalidMetadataException if JSON is malformed
+     */
+    public static JsonObject parse(ByteBuffer json, ErrorAccumulator errorAccumulator)
+        throws InvalidMetadataException
+    {
+        return parse(new JsonReader(json, errorAccumulator));
+    }
+
+    /**
+     * Parse a UTF-8 encoded JSON document into a lazily decoded JSON object. The stream is read to the end, but
+     * is not closed.
+     * @param json JSON document
+     * @param errorAccumulator Error accumulator
+     * @return JsonObject
+     * @throws InvalidMetadataException if JSON is malformed
+     */
+    public static JsonObject parse(InputStream json, ErrorAccumulator errorAccumulator)
+        throws InvalidMetadataException
+    {
+        return parse(new JsonReader(json, errorAccumulator));
+    }
+
+    /**
+     * Byte input is scanned by JsonReader, and the result is a lazy view over the raw bytes. The scan checks the
+     * syntax of the entire document, but values are only decoded when they are read from the JsonObject.
+     */
+    private static JsonObject parse(JsonReader reader) {
+        reader.requireObject();
+        JsonObject result = reader.nextJsonObject();
+        reader.endDocument();
+        return result;
     }
 
 }
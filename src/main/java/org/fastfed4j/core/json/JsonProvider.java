@@ -0,0 +1,64 @@
+package org.fastfed4j.core.json;
+
+import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.exception.InvalidMetadataException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service provider interface for the JSON implementation underlying JsonParser, JsonObject and JsonObject.Builder.
+ *
+ * <p>Providers represent JSON values with the standard Java types: a Map for an object, a List for an array,
+ * and a String, Long, Double, Boolean or null for the primitives. Any Map or List produced by one provider
+ * can therefore be consumed by another.</p>
+ *
+ * <p>Two implementations are included. JsonSimpleProvider, which is backed by JSON Simple, is the default.
+ * BuiltInJsonProvider, which is backed by JsonReader and JsonWriter, has no external dependencies. A different
+ * default can be installed by registering an implementation with java.util.ServiceLoader, via a
+ * META-INF/services/org.fastfed4j.core.json.JsonProvider file on the classpath.</p>
+ */
+public interface JsonProvider {
+
+    /**
+     * Parses a JSON document whose top-level value must be an object.
+     *
+     * <p>Implementations must report an empty document as "JSON is empty", and a top-level value of any other
+     * type as "Malformed JSON. Expected an Object, received a [type]". The description of a syntax error is
+     * specific to the implementation, but is always reported as a single error beginning with "Malformed JSON".</p>
+     * @param json JSON document
+     * @param errorAccumulator Error accumulator
+     * @return the top-level object
+     * @throws InvalidMetadataException if the JSON is empty, malformed, or not an object
+     */
+    Map<String, Object> parseObject(String json, ErrorAccumulator errorAccumulator)
+        throws InvalidMetadataException;
+
+    /**
+     * Creates an empty, mutable object.
+     * @return object
+     */
+    Map<String, Object> newObject();
+
+    /**
+     * Creates an empty, mutable array.
+     * @return array
+     */
+    List<Object> newArray();
+
+    /**
+     * Serializes an object, including all of its nested values, into compact JSON.
+     * @param object object
+     * @return JSON document
+     */
+    String toJsonString(Map<String, Object> object);
+
+    /**
+     * Gets the provider used by JsonParser and JsonObject when no provider is specified. This is the first
+     * implementation registered with java.util.ServiceLoader, if any, else JsonSimpleProvider.
+     * @return JsonProvider
+     */
+    static JsonProvider getDefault() {
+        return JsonProviderLoader.DEFAULT;
+    }
+}
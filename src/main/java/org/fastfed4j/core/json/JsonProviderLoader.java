@@ -0,0 +1,18 @@
+package org.fastfed4j.core.json;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * Resolves the default JsonProvider on first use.
+ */
+class JsonProviderLoader {
+    static final JsonProvider DEFAULT = load();
+
+    private JsonProviderLoader() {}
+
+    private static JsonProvider load() {
+        Iterator<JsonProvider> providers = ServiceLoader.load(JsonProvider.class).iterator();
+        return providers.hasNext() ? providers.next() : new JsonSimpleProvider();
+    }
+}
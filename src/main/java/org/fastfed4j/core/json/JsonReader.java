@@ -0,0 +1,960 @@
+package org.fastfed4j.core.json;
+
+import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.exception.InvalidMetadataException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Streaming, pull-based reader for a JSON document.
+ *
+ * <p>Unlike JsonParser, which materializes the entire document into a tree before any values can be read,
+ * this reader exposes the document as a sequence of tokens that are consumed in document order. Metadata
+ * objects use it to hydrate themselves directly from the token stream, without building an intermediate
+ * map for each nested object.</p>
+ *
+ * <p>The typed accessors (nextString, nextBoolean, nextStringSet, etc) apply the same normalization and report
+ * the same type mismatch errors as the equivalent methods of JsonObject, so that both hydration paths produce
+ * identical results.</p>
+ *
+ * <p>The document may be supplied either as a String or as UTF-8 encoded bytes. Because every structural character
+ * in JSON is ASCII, byte input is scanned directly without first decoding the document into a String; only the
+ * contents of string values are decoded, as they are read.</p>
+ *
+ * <p>Syntax errors are reported to the ErrorAccumulator and raised as an InvalidMetadataException. When that
+ * happens, any type mismatch errors previously reported by this reader are discarded, matching the behavior
+ * of JsonParser which never gets as far as type checking a malformed document.</p>
+ */
+public class JsonReader {
+
+    /**
+     * The kinds of tokens that can appear within a JSON document.
+     */
+    public enum Token {
+        BEGIN_OBJECT,
+        END_OBJECT,
+        BEGIN_ARRAY,
+        END_ARRAY,
+        NAME,
+        STRING,
+        NUMBER,
+        BOOLEAN,
+        NULL,
+        END_DOCUMENT
+    }
+
+    // Scopes on the parser stack
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    /**
+     * Maximum depth to which objects and arrays may be nested. Values are read recursively, so the limit guards
+     * against documents crafted to exhaust the thread stack.
+     */
+    public static final int MAX_NESTING_DEPTH = 512;
+
+    private final Source json;
+    private final ErrorAccumulator errorAccumulator;
+    private final int initialErrorCount;
+    private int pos = 0;
+
+    private int[] stack = new int[32];
+    private int stackSize = 0;
+    private Token peeked = null;
+
+    // Names of the objects currently being read, used to construct fully qualified names for error messages.
+    private final Deque<String> objectNames = new ArrayDeque<>();
+    private String lastName = null;
+    private String jsonPath = "";
+
+    /**
+     * Constructs a reader over a JSON document.
+     * @param json JSON document
+     * @param errorAccumulator Error accumulator
+     * @throws InvalidMetadataException if the JSON is empty
+     */
+    public JsonReader(String json, ErrorAccumulator errorAccumulator)
+        throws InvalidMetadataException
+    {
+        this((json == null) ? null : new StringSource(json), errorAccumulator);
+    }
+
+    /**
+     * Constructs a reader over a UTF-8 encoded JSON document.
+     * @param json JSON document
+     * @param errorAccumulator Error accumulator
+     * @throws InvalidMetadataException if the JSON is empty
+     */
+    public JsonReader(byte[] json, ErrorAccumulator errorAccumulator)
+        throws InvalidMetadataException
+    {
+        this((json == null) ? null : new ByteArraySource(json, 0, json.length), errorAccumulator);
+    }
+
+    /**
+     * Constructs a reader over a UTF-8 encoded JSON document, consisting of the bytes between the current
+     * position and the limit of the buffer. Direct and memory-mapped buffers are read in place. The position
+     * and limit of the buffer are not modified.
+     * @param json JSON document
+     * @param errorAccumulator Error accumulator
+     * @throws InvalidMetadataException if the JSON is empty
+     */
+    public JsonReader(ByteBuffer json, ErrorAccumulator errorAccumulator)
+        throws InvalidMetadataException
+    {
+        this(toSource(json), errorAccumulator);
+    }
+
+    /**
+     * Constructs a reader over a UTF-8 encoded JSON document. The stream is read to the end, but is not closed.
+     * @param json JSON document
+     * @param errorAccumulator Error accumulator
+     * @throws InvalidMetadataException if the JSON is empty
+     * @throws UncheckedIOException if the stream cannot be read
+     */
+    public JsonReader(InputStream json, ErrorAccumulator errorAccumulator)
+        throws InvalidMetadataException
+    {
+        this(readAllBytes(json), errorAccumulator);
+    }
+
+    private JsonReader(Source json, ErrorAccumulator errorAccumulator)
+        throws InvalidMetadataException
+    {
+        Objects.requireNonNull(errorAccumulator, "errorAccumulator must not be null");
+        this.errorAccumulator = errorAccumulator;
+        this.initialErrorCount = errorAccumulator.getErrors().size();
+        if (null == json || json.length() == 0) {
+            errorAccumulator.add("JSON is empty");
+            throw new InvalidMetadataException(errorAccumulator);
+        }
+        this.json = json;
+        this.pos = json.start();
+        push(EMPTY_DOCUMENT);
+    }
+
+    /**
+     * Constructs a reader over a value within a document that has already been scanned by another reader.
+     */
+    private JsonReader(Source json, ErrorAccumulator errorAccumulator, int position) {
+        this.errorAccumulator = errorAccumulator;
+        this.initialErrorCount = errorAccumulator.getErrors().size();
+        this.json = json;
+        this.pos = position;
+        push(EMPTY_DOCUMENT);
+    }
+
+    private static Source toSource(ByteBuffer buffer) {
+        if (buffer == null) {
+            return null;
+        }
+        if (buffer.hasArray()) {
+            return new ByteArraySource(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        return new ByteBufferSource(buffer);
+    }
+
+    private static byte[] readAllBytes(InputStream in) {
+        if (in == null) {
+            return null;
+        }
+        try {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read JSON", e);
+        }
+    }
+
+    public ErrorAccumulator getErrorAccumulator() {
+        return errorAccumulator;
+    }
+
+    /**
+     * Gets the full text of the document being read, for inclusion in error messages. Byte input is decoded
+     * each time this method is invoked.
+     * @return JSON document
+     */
+    public String getDocument() {
+        return json.toString();
+    }
+
+    /**
+     * Gets the fully qualified JSON path of the object currently being read.
+     * @return path, or an empty string when reading the top-level object
+     */
+    public String getJsonPath() {
+        return jsonPath;
+    }
+
+    public String getFullyQualifiedName(String jsonMemberName) {
+        if (jsonPath.isEmpty()) {
+            return jsonMemberName;
+        }
+        else {
+            return String.join(JsonObject.JSON_PATH_DELIMITER, jsonPath, jsonMemberName);
+        }
+    }
+
+    /**
+     * Gets the type of the next token without consuming it.
+     * @return next token
+     */
+    public Token peek() {
+        if (peeked != null) {
+            return peeked;
+        }
+
+        int scope = stack[stackSize - 1];
+        switch (scope) {
+            case EMPTY_ARRAY:
+            case NONEMPTY_ARRAY:
+                stack[stackSize - 1] = NONEMPTY_ARRAY;
+                if (nextNonSeparator() == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                return peeked = peekValue();
+
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT: {
+                int c = nextNonSeparator();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected a member name");
+                }
+                stack[stackSize - 1] = DANGLING_NAME;
+                return peeked = Token.NAME;
+            }
+
+            case DANGLING_NAME: {
+                stack[stackSize - 1] = NONEMPTY_OBJECT;
+                // JSON Simple also treats the separator between a name and its value as optional
+                int c = nextNonWhitespace();
+                while (c == ':') {
+                    pos++;
+                    c = nextNonWhitespace();
+                }
+                return peeked = peekValue();
+            }
+
+            case EMPTY_DOCUMENT:
+                stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+                return peeked = peekValue();
+
+            case NONEMPTY_DOCUMENT:
+                if (nextNonWhitespace() != -1) {
+                    throw syntaxError("Unexpected content after the end of the document");
+                }
+                return peeked = Token.END_DOCUMENT;
+
+            default:
+                throw new IllegalStateException("Corrupt JsonReader state");
+        }
+    }
+
+    public void beginObject() {
+        expect(Token.BEGIN_OBJECT);
+        pos++;
+        push(EMPTY_OBJECT);
+        objectNames.push(jsonPath);
+        jsonPath = (lastName == null) ? jsonPath : getFullyQualifiedName(lastName);
+        lastName = null;
+    }
+
+    public void endObject() {
+        expect(Token.END_OBJECT);
+        pos++;
+        stackSize--;
+        jsonPath = objectNames.pop();
+        lastName = null;
+    }
+
+    public void beginArray() {
+        expect(Token.BEGIN_ARRAY);
+        pos++;
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() {
+        expect(Token.END_ARRAY);
+        pos++;
+        stackSize--;
+    }
+
+    /**
+     * Tests if the current object or array contains another element.
+     * @return true if there is another member or array entry
+     */
+    public boolean hasNext() {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    public String nextName() {
+        expect(Token.NAME);
+        lastName = readString();
+        return lastName;
+    }
+
+    /**
+     * Verifies that the top-level value of the document is a JSON object.
+     * @throws InvalidMetadataException if the document contains any other type of value
+     */
+    public void requireObject() {
+        if (peek() != Token.BEGIN_OBJECT) {
+            Object value = readValue();
+            endDocument();
+            errorAccumulator.add("Malformed JSON. Expected an Object, received a " + JsonObject.getDisplayableObjectType(value));
+            throw new InvalidMetadataException(errorAccumulator);
+        }
+    }
+
+    /**
+     * Verifies that the entire document has been consumed.
+     * @throws InvalidMetadataException if content remains after the top-level value
+     */
+    public void endDocument() {
+        expect(Token.END_DOCUMENT);
+    }
+
+    /**
+     * Skips over the next value, including all nested contents if the value is an object or array.
+     * <p>The syntax of the skipped content is fully checked, but strings are not decoded and no objects or
+     * arrays are constructed.</p>
+     */
+    public void skipValue() {
+        int depth = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    peeked = null;
+                    pos++;
+                    push(EMPTY_OBJECT);
+                    depth++;
+                    break;
+                case BEGIN_ARRAY:
+                    peeked = null;
+                    pos++;
+                    push(EMPTY_ARRAY);
+                    depth++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    peeked = null;
+                    pos++;
+                    stackSize--;
+                    depth--;
+                    break;
+                case NAME:
+                case STRING:
+                    peeked = null;
+                    skipString();
+                    break;
+                default:
+                    readValue();
+                    break;
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Tests if the next value is the last member of the enclosing object, without consuming it. The value is
+     * skipped over to find the token which follows it, and the reader is then returned to its current position.
+     * @return true if the value is followed by the end of the enclosing object
+     */
+    public boolean nextIsLastMember() {
+        int savedPos = pos;
+        Token savedPeeked = peeked;
+        int savedStackSize = stackSize;
+        int savedScope = stack[stackSize - 1];
+        skipValue();
+        boolean isLastMember = (peek() == Token.END_OBJECT);
+        pos = savedPos;
+        peeked = savedPeeked;
+        stackSize = savedStackSize;
+        stack[stackSize - 1] = savedScope;
+        return isLastMember;
+    }
+
+    /**
+     * Prepares to read a member whose value is expected to be a JSON object.
+     * <p>If the value is an object, it is left unconsumed and the method returns true. If the value is null it is
+     * consumed and the method returns false. Any other type is reported as an error, skipped, and the method
+     * returns false.</p>
+     * @param memberName name of the member being read
+     * @return true if the next value is an object
+     */
+    public boolean nextIsObject(String memberName) {
+        Token token = peek();
+        if (token == Token.BEGIN_OBJECT) {
+            return true;
+        }
+        Object value = readValue();
+        if (value != null) {
+            errorAccumulator.add( createTypeMismatchErrorMsg(memberName, "Object", JsonObject.getDisplayableObjectType(value)));
+        }
+        return false;
+    }
+
+    /**
+     * Reads the next JSON object into a JsonObject. This is the bridge for consumers that do not support
+     * streaming hydration. The result is a lazy view, in which the members are decoded as they are read.
+     * @return JsonObject
+     */
+    public JsonObject nextJsonObject() {
+        String objectPath = (lastName == null) ? jsonPath : getFullyQualifiedName(lastName);
+        if (peek() != Token.BEGIN_OBJECT) {
+            Object value = readValue();
+            throw syntaxError("Expected an Object, received a " + JsonObject.getDisplayableObjectType(value));
+        }
+        return new JsonObject(errorAccumulator, this, objectPath);
+    }
+
+    /**
+     * Gets the position of the next value within the document, for later use with readerAt().
+     */
+    int nextValuePosition() {
+        peek();
+        return pos;
+    }
+
+    /**
+     * Creates a new reader over the value at a position previously obtained from nextValuePosition().
+     * The value must already have been scanned, so that it is known to be syntactically valid.
+     */
+    JsonReader readerAt(int position) {
+        return new JsonReader(json, errorAccumulator, position);
+    }
+
+    /**
+     * Reads the next value in full, using the representation defined by JsonProvider.
+     */
+    Object nextValue() {
+        return readValue();
+    }
+
+    public String nextString(String memberName) {
+        Object result = normalize(readValue());
+        if (null == result) {
+            return null;
+        }
+        if (! (result instanceof String)) {
+            errorAccumulator.add( createTypeMismatchErrorMsg(memberName, "String", JsonObject.getDisplayableObjectType(result)));
+            return null;
+        }
+        return (String)result;
+    }
+
+    public Boolean nextBoolean(String memberName) {
+        Object result = normalize(readValue());
+        if (null == result) {
+            return null;
+        }
+        if (! (result instanceof Boolean)) {
+            errorAccumulator.add( createTypeMismatchErrorMsg(memberName, "Boolean", JsonObject.getDisplayableObjectType(result)));
+            return null;
+        }
+        return (Boolean)result;
+    }
+
+    public Integer nextInteger(String memberName) {
+        Object result = normalize(readValue());
+        if (null == result) {
+            return null;
+        }
+        if (! (result instanceof Long)) {
+            errorAccumulator.add( createTypeMismatchErrorMsg(memberName, "Number", JsonObject.getDisplayableObjectType(result)));
+            return null;
+        }
+        if ((Long)result > Integer.MAX_VALUE || (Long)result < Integer.MIN_VALUE) {
+            errorAccumulator.add( "Invalid value for " + getFullyQualifiedName(memberName) + "(" + result + " out of bounds for an integer)");
+            return null;
+        }
+        return ((Long) result).intValue();
+    }
+
+    public Long nextLong(String memberName) {
+        Object result = normalize(readValue());
+        if (null == result) {
+            return null;
+        }
+        if (! (result instanceof Long)) {
+            errorAccumulator.add( createTypeMismatchErrorMsg(memberName, "Long", JsonObject.getDisplayableObjectType(result)));
+            return null;
+        }
+        return (Long)result;
+    }
+
+    public Date nextDate(String memberName) {
+        Long longValue = nextLong(memberName);
+        Date result = null;
+        if (longValue != null) {
+            result = new Date(longValue);
+        }
+        return result;
+    }
+
+    public List<String> nextStringList(String memberName) {
+        Object result = normalize(readValue());
+
+        if (null == result) {
+            return null;
+        }
+
+        if (! (result instanceof List)) {
+            errorAccumulator.add( createTypeMismatchErrorMsg(memberName, "Array", JsonObject.getDisplayableObjectType(result)));
+            return null;
+        }
+
+        ArrayList<String> response = new ArrayList<>();
+        for (Object o : (List<?>)result) {
+            if (! (o instanceof String)) {
+                errorAccumulator.add(
+                        createTypeMismatchErrorMsg(memberName, "Array containing Strings",
+                                "Array containing " + JsonObject.getDisplayableObjectType(o) + "s"));
+                return null;
+            }
+            response.add((String)o);
+        }
+        return response;
+    }
+
+    public Set<String> nextStringSet(String memberName) {
+        Set<String> returnVal = null;
+        List<String> stringList = nextStringList(memberName);
+        if (stringList != null) {
+            returnVal = new HashSet<>(stringList);
+        }
+        return returnVal;
+    }
+
+    /**
+     * Equivalent to JsonObject.getNonNullableStringSet(). Returns an empty set if the value is null or invalid.
+     * @param memberName name of the member being read
+     * @return the value if defined in the JSON, else an empty set.
+     */
+    public Set<String> nextNonNullableStringSet(String memberName) {
+        Set<String> returnVal = nextStringSet(memberName);
+        return (returnVal == null) ? new HashSet<>() : returnVal;
+    }
+
+    /**
+     * Ensure that empty, null, and missing values are all treated equivalently by normalizing them into null
+     * and/or removing them from collections. Equivalent to the normalization performed by JsonObject.
+     */
+    private Object normalize(Object value) {
+        if (value instanceof String) {
+            return ((String) value).trim().isEmpty() ? null : value;
+        }
+        else if (value instanceof List) {
+            List<?> originalValue = (List<?>) value;
+            List<Object> filteredValue = new ArrayList<>(originalValue.size());
+            for (Object o : originalValue) {
+                Object normalizedEntry = normalize(o);
+                if (normalizedEntry != null) filteredValue.add(normalizedEntry);
+            }
+            return filteredValue;
+        }
+        return value;
+    }
+
+    private String createTypeMismatchErrorMsg(String memberName, String expectedType, String actualType) {
+        return "Invalid type for \"" + getFullyQualifiedName(memberName) + "\" " +
+                "(expected: " + expectedType + ", received: " + actualType + ")";
+    }
+
+    /**
+     * Reads the next value in full, using the representation defined by JsonProvider
+     * (String, Long, Double, Boolean, null, List, Map).
+     */
+    private Object readValue() {
+        switch (peek()) {
+            case STRING:
+                peeked = null;
+                return readString();
+            case NUMBER:
+                peeked = null;
+                return readNumber();
+            case BOOLEAN:
+                peeked = null;
+                if (json.charAt(pos) == 't') {
+                    pos += 4;
+                    return Boolean.TRUE;
+                }
+                pos += 5;
+                return Boolean.FALSE;
+            case NULL:
+                peeked = null;
+                pos += 4;
+                return null;
+            case BEGIN_ARRAY: {
+                List<Object> array = new ArrayList<>();
+                beginArray();
+                while (hasNext()) {
+                    array.add(readValue());
+                }
+                endArray();
+                return array;
+            }
+            case BEGIN_OBJECT: {
+                Map<String, Object> object = new LinkedHashMap<>();
+                beginObject();
+                while (hasNext()) {
+                    String name = nextName();
+                    object.put(name, readValue());
+                }
+                endObject();
+                return object;
+            }
+            default:
+                throw syntaxError("Expected a value but found " + peek());
+        }
+    }
+
+    private Token peekValue() {
+        int c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+                return literal("true", Token.BOOLEAN);
+            case 'f':
+                return literal("false", Token.BOOLEAN);
+            case 'n':
+                return literal("null", Token.NULL);
+            case -1:
+                throw syntaxError("Unexpected end of input");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return Token.NUMBER;
+                }
+                throw syntaxError("Unexpected character (" + (char) c + ")");
+        }
+    }
+
+    private Token literal(String text, Token token) {
+        if (pos + text.length() > json.length()) {
+            throw syntaxError("Unexpected end of input");
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (json.charAt(pos + i) != text.charAt(i)) {
+                throw syntaxError("Unexpected character (" + (char) json.charAt(pos + i) + ")");
+            }
+        }
+        return token;
+    }
+
+    private void expect(Token expected) {
+        Token actual = peek();
+        if (actual != expected) {
+            throw syntaxError("Expected " + expected + " but found " + actual);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        // The first entry on the stack is the document itself, rather than a nested object or array
+        if (stackSize > MAX_NESTING_DEPTH) {
+            throw syntaxError("Objects and arrays are nested more than " + MAX_NESTING_DEPTH + " levels deep");
+        }
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        }
+        stack[stackSize++] = scope;
+    }
+
+    /**
+     * Skips whitespace and the separators between the entries of an object or array. JSON Simple treats the
+     * separators as optional, and this reader does the same in order to accept every document it accepts.
+     */
+    private int nextNonSeparator() {
+        int c = nextNonWhitespace();
+        while (c == ',') {
+            pos++;
+            c = nextNonWhitespace();
+        }
+        return c;
+    }
+
+    private int nextNonWhitespace() {
+        while (pos < json.length()) {
+            int c = json.charAt(pos);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                pos++;
+            } else {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a quoted string, with the position on the opening quote.
+     */
+    private String readString() {
+        int start = ++pos;
+        StringBuilder builder = null;
+        while (pos < json.length()) {
+            int c = json.charAt(pos);
+            if (c == '"') {
+                String result;
+                if (builder == null) {
+                    result = json.substring(start, pos);
+                } else {
+                    builder.append(json.substring(start, pos));
+                    result = builder.toString();
+                }
+                pos++;
+                return result;
+            }
+            if (c == '\\') {
+                if (builder == null) {
+                    builder = new StringBuilder();
+                }
+                builder.append(json.substring(start, pos));
+                pos++;
+                builder.append(readEscapeCharacter());
+                start = pos;
+            } else {
+                pos++;
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    /**
+     * Skips a quoted string, with the position on the opening quote, checking the escape sequences
+     * without decoding the contents.
+     */
+    private void skipString() {
+        pos++;
+        while (pos < json.length()) {
+            int c = json.charAt(pos++);
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                readEscapeCharacter();
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    private char readEscapeCharacter() {
+        if (pos >= json.length()) {
+            throw syntaxError("Unterminated escape sequence");
+        }
+        char c = (char) json.charAt(pos++);
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                if (pos + 4 > json.length()) {
+                    throw syntaxError("Unterminated escape sequence");
+                }
+                // Exactly four hex digits, so unlike Integer.parseInt(), no sign is accepted
+                int result = 0;
+                for (int end = pos + 4; pos < end; pos++) {
+                    int digit = Character.digit(json.charAt(pos), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid unicode escape sequence");
+                    }
+                    result = (result << 4) | digit;
+                }
+                return (char) result;
+            default:
+                throw syntaxError("Invalid escape sequence (\\" + c + ")");
+        }
+    }
+
+    private Object readNumber() {
+        int start = pos;
+        boolean isDecimal = false;
+        while (pos < json.length()) {
+            int c = json.charAt(pos);
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+') {
+                pos++;
+            } else if (c == '.' || c == 'e' || c == 'E') {
+                isDecimal = true;
+                pos++;
+            } else {
+                break;
+            }
+        }
+        String text = json.substring(start, pos);
+        try {
+            return isDecimal ? (Object) Double.valueOf(text) : (Object) Long.valueOf(text);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Invalid number (" + text + ")");
+        }
+    }
+
+    private InvalidMetadataException syntaxError(String message) {
+        List<String> errors = errorAccumulator.getErrors();
+        errors.subList(initialErrorCount, errors.size()).clear();
+        errorAccumulator.add("Malformed JSON: " + message + " at position " + pos + ".\n" + json);
+        return new InvalidMetadataException(errorAccumulator);
+    }
+
+    /**
+     * Random access to the characters of the document. Byte-oriented sources return the unsigned value of each
+     * byte, which is sufficient to locate every token since JSON syntax is entirely ASCII and the bytes of a
+     * multi-byte UTF-8 sequence never fall within the ASCII range. Only the contents of strings and numbers are
+     * decoded, through substring().
+     */
+    private abstract static class Source {
+        /**
+         * Gets the index of the first character of the document, past any byte order mark.
+         */
+        abstract int start();
+        abstract int length();
+        abstract int charAt(int index);
+        abstract String substring(int start, int end);
+    }
+
+    private static class StringSource extends Source {
+        private final String text;
+
+        StringSource(String text) {
+            this.text = text;
+        }
+
+        @Override
+        int start() {
+            return 0;
+        }
+
+        @Override
+        int length() {
+            return text.length();
+        }
+
+        @Override
+        int charAt(int index) {
+            return text.charAt(index);
+        }
+
+        @Override
+        String substring(int start, int end) {
+            return text.substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private static class ByteArraySource extends Source {
+        private final byte[] bytes;
+        private final int offset;
+        private final int length;
+
+        ByteArraySource(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        int start() {
+            return hasByteOrderMark(this) ? 3 : 0;
+        }
+
+        @Override
+        int length() {
+            return length;
+        }
+
+        @Override
+        int charAt(int index) {
+            return bytes[offset + index] & 0xFF;
+        }
+
+        @Override
+        String substring(int start, int end) {
+            return new String(bytes, offset + start, end - start, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return substring(start(), length);
+        }
+    }
+
+    private static class ByteBufferSource extends Source {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final int length;
+
+        ByteBufferSource(ByteBuffer buffer) {
+            // Use a duplicate so that changes to the position and limit of the caller's buffer have no effect.
+            this.buffer = buffer.duplicate();
+            this.offset = buffer.position();
+            this.length = buffer.remaining();
+        }
+
+        @Override
+        int start() {
+            return hasByteOrderMark(this) ? 3 : 0;
+        }
+
+        @Override
+        int length() {
+            return length;
+        }
+
+        @Override
+        int charAt(int index) {
+            return buffer.get(offset + index) & 0xFF;
+        }
+
+        @Override
+        String substring(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset + start);
+            view.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return substring(start(), length);
+        }
+    }
+
+    private static boolean hasByteOrderMark(Source source) {
+        return source.length() >= 3
+                && source.charAt(0) == 0xEF
+                && source.charAt(1) == 0xBB
+                && source.charAt(2) == 0xBF;
+    }
+}
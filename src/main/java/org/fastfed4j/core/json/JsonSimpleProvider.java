@@ -0,0 +1,54 @@
+package org.fastfed4j.core.json;
+
+import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.exception.InvalidMetadataException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JsonProvider backed by the JSON Simple library. This is the default provider.
+ */
+@SuppressWarnings("unchecked")
+public class JsonSimpleProvider implements JsonProvider {
+
+    @Override
+    public Map<String, Object> parseObject(String json, ErrorAccumulator errorAccumulator)
+        throws InvalidMetadataException
+    {
+        if (null == json || json.isEmpty()) {
+            errorAccumulator.add("JSON is empty");
+            throw new InvalidMetadataException(errorAccumulator);
+        }
+
+        Object obj;
+        try {
+            obj = (new org.json.simple.parser.JSONParser()).parse(json);
+        } catch (Exception e) {
+            errorAccumulator.add("Malformed JSON: " + e + "\n" + json);
+            throw new InvalidMetadataException(errorAccumulator);
+        }
+
+        if (!(obj instanceof org.json.simple.JSONObject)) {
+            errorAccumulator.add("Malformed JSON. Expected an Object, received a " + JsonObject.getDisplayableObjectType(obj));
+            throw new InvalidMetadataException(errorAccumulator);
+        }
+
+        return (org.json.simple.JSONObject) obj;
+    }
+
+    @Override
+    public Map<String, Object> newObject() {
+        return new org.json.simple.JSONObject();
+    }
+
+    @Override
+    public List<Object> newArray() {
+        return new org.json.simple.JSONArray();
+    }
+
+    @Override
+    public String toJsonString(Map<String, Object> object) {
+        return org.json.simple.JSONObject.toJSONString(object);
+    }
+}
@@ -0,0 +1,332 @@
+package org.fastfed4j.core.json;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Streaming writer for a JSON document.
+ *
+ * <p>This is the serialization counterpart to JsonReader. Metadata objects use it to write their contents directly
+ * to the output in a single pass, rather than building a JsonObject tree that must then be rendered with
+ * toString().</p>
+ *
+ * <p>The output is compact (no insignificant whitespace), and strings are escaped in the same way as the
+ * toString() method of JsonObject. The member() methods follow the conventions of JsonObject.Builder, in which
+ * null values are omitted rather than written.</p>
+ */
+public class JsonWriter {
+
+    // Scopes on the writer stack
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private final Appendable out;
+    private int[] stack = new int[32];
+    private int stackSize = 0;
+
+    /**
+     * Constructs a writer that appends a JSON document to the output.
+     * @param out destination of the JSON document
+     */
+    public JsonWriter(Appendable out) {
+        Objects.requireNonNull(out, "out must not be null");
+        this.out = out;
+        push(EMPTY_DOCUMENT);
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        push(EMPTY_OBJECT);
+        out.append('{');
+        return this;
+    }
+
+    /**
+     * Writes a member name, followed by the start of an object as its value.
+     * @param memberName name of the member
+     * @return this writer
+     */
+    public JsonWriter beginObject(String memberName) throws IOException {
+        return name(memberName).beginObject();
+    }
+
+    public JsonWriter endObject() throws IOException {
+        int scope = peekScope();
+        if (scope != EMPTY_OBJECT && scope != NONEMPTY_OBJECT) {
+            throw new IllegalStateException("Not positioned inside an object");
+        }
+        stackSize--;
+        out.append('}');
+        return this;
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        push(EMPTY_ARRAY);
+        out.append('[');
+        return this;
+    }
+
+    public JsonWriter endArray() throws IOException {
+        int scope = peekScope();
+        if (scope != EMPTY_ARRAY && scope != NONEMPTY_ARRAY) {
+            throw new IllegalStateException("Not positioned inside an array");
+        }
+        stackSize--;
+        out.append(']');
+        return this;
+    }
+
+    public JsonWriter name(String memberName) throws IOException {
+        Objects.requireNonNull(memberName, "memberName must not be null");
+        int scope = peekScope();
+        if (scope == NONEMPTY_OBJECT) {
+            out.append(',');
+        } else if (scope != EMPTY_OBJECT) {
+            throw new IllegalStateException("A member name must be written inside an object");
+        }
+        stack[stackSize - 1] = DANGLING_NAME;
+        writeString(memberName);
+        out.append(':');
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    public JsonWriter value(Number value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        out.append(value.toString());
+        return this;
+    }
+
+    public JsonWriter value(Boolean value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        out.append(value.toString());
+        return this;
+    }
+
+    /**
+     * Writes a value represented with the standard Java types used by JsonProvider: a Map for an object, a List
+     * for an array, and a String, Number, Boolean or null for the primitives. Other types are written as Strings.
+     * @param value value, including all nested values
+     * @return this writer
+     */
+    public JsonWriter value(Object value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        else if (value instanceof String) {
+            return value((String) value);
+        }
+        else if (value instanceof Number) {
+            // Matches JSON Simple, which has no representation for non-finite numbers
+            if ((value instanceof Double && !Double.isFinite((Double) value))
+                    || (value instanceof Float && !Float.isFinite((Float) value))) {
+                return nullValue();
+            }
+            return value((Number) value);
+        }
+        else if (value instanceof Boolean) {
+            return value((Boolean) value);
+        }
+        else if (value instanceof Map) {
+            beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                name(String.valueOf(entry.getKey()));
+                value(entry.getValue());
+            }
+            return endObject();
+        }
+        else if (value instanceof Collection) {
+            beginArray();
+            for (Object entry : (Collection<?>) value) {
+                value(entry);
+            }
+            return endArray();
+        }
+        return value(value.toString());
+    }
+
+    /**
+     * Writes a value in canonical form, in which the members of each object are sorted by name and the entries of
+     * each array are sorted by their canonical encoding. Equivalent values therefore always produce identical
+     * output, regardless of the iteration order of the underlying Maps and Sets.
+     * @param value value, including all nested values
+     * @return this writer
+     */
+    public JsonWriter canonicalValue(Object value) throws IOException {
+        if (value instanceof Map) {
+            SortedMap<String, Object> members = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                members.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+            beginObject();
+            for (Map.Entry<String, Object> entry : members.entrySet()) {
+                name(entry.getKey());
+                canonicalValue(entry.getValue());
+            }
+            return endObject();
+        }
+        else if (value instanceof Collection) {
+            List<String> entries = new ArrayList<>();
+            for (Object entry : (Collection<?>) value) {
+                StringBuilder encoded = new StringBuilder();
+                new JsonWriter(encoded).canonicalValue(entry);
+                entries.add(encoded.toString());
+            }
+            Collections.sort(entries);
+            beginArray();
+            for (String entry : entries) {
+                beforeValue();
+                out.append(entry);
+            }
+            return endArray();
+        }
+        return value(value);
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        out.append("null");
+        return this;
+    }
+
+    /**
+     * Writes a member with a String value. Equivalent to JsonObject.Builder.put(), in that nothing is written if
+     * the value is null.
+     */
+    public JsonWriter member(String memberName, String value) throws IOException {
+        if (value == null) return this;
+        return name(memberName).value(value);
+    }
+
+    public JsonWriter member(String memberName, Number value) throws IOException {
+        if (value == null) return this;
+        return name(memberName).value(value);
+    }
+
+    public JsonWriter member(String memberName, Boolean value) throws IOException {
+        if (value == null) return this;
+        return name(memberName).value(value);
+    }
+
+    /**
+     * Writes a member with a Date value, represented as milliseconds since the epoch.
+     */
+    public JsonWriter member(String memberName, Date value) throws IOException {
+        if (value == null) return this;
+        return name(memberName).value(value.getTime());
+    }
+
+    /**
+     * Writes a member with an array of Strings.
+     */
+    public JsonWriter member(String memberName, Collection<String> value) throws IOException {
+        if (value == null) return this;
+        name(memberName).beginArray();
+        for (String entry : value) {
+            value(entry);
+        }
+        return endArray();
+    }
+
+    private void beforeValue() throws IOException {
+        switch (peekScope()) {
+            case EMPTY_DOCUMENT:
+                stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+                break;
+            case DANGLING_NAME:
+                stack[stackSize - 1] = NONEMPTY_OBJECT;
+                break;
+            case EMPTY_ARRAY:
+                stack[stackSize - 1] = NONEMPTY_ARRAY;
+                break;
+            case NONEMPTY_ARRAY:
+                out.append(',');
+                break;
+            case NONEMPTY_DOCUMENT:
+                throw new IllegalStateException("A JSON document must contain a single top-level value");
+            default:
+                throw new IllegalStateException("A member name must be written before its value");
+        }
+    }
+
+    private int peekScope() {
+        return stack[stackSize - 1];
+    }
+
+    private void push(int scope) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        }
+        stack[stackSize++] = scope;
+    }
+
+    /**
+     * Writes a quoted string, escaped in the same manner as JSON Simple.
+     */
+    private void writeString(String value) throws IOException {
+        out.append('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            switch (c) {
+                case '"':
+                    replacement = "\\\"";
+                    break;
+                case '\\':
+                    replacement = "\\\\";
+                    break;
+                case '/':
+                    replacement = "\\/";
+                    break;
+                case '\b':
+                    replacement = "\\b";
+                    break;
+                case '\f':
+                    replacement = "\\f";
+                    break;
+                case '\n':
+                    replacement = "\\n";
+                    break;
+                case '\r':
+                    replacement = "\\r";
+                    break;
+                case '\t':
+                    replacement = "\\t";
+                    break;
+                default:
+                    if (c <= '\u001F' || (c >= '\u007F' && c <= '\u009F') || (c >= '\u2000' && c <= '\u20FF')) {
+                        replacement = String.format("\\u%04X", (int) c);
+                    } else {
+                        continue;
+                    }
+            }
+            out.append(value, start, i);
+            out.append(replacement);
+            start = i + 1;
+        }
+        out.append(value, start, length);
+        out.append('"');
+    }
+}
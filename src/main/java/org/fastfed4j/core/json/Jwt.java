@@ -3,16 +3,31 @@ package org.fastfed4j.core.json;
 import org.fastfed4j.core.configuration.FastFedConfiguration;
 import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.exception.FastFedSecurityException;
+import org.fastfed4j.core.exception.InvalidMetadataException;
+import org.fastfed4j.core.jws.CompactJws;
+import org.fastfed4j.core.jws.JwsAlgorithm;
+import org.fastfed4j.core.jws.JwsSigner;
+import org.fastfed4j.core.jws.JwsVerifier;
+import org.fastfed4j.core.jws.ReplayCache;
 import org.fastfed4j.core.metadata.Metadata;
-import org.fastfed4j.core.metadata.ProviderContactInformation;
-import org.fastfed4j.profile.scim.enterprise.ProviderAuthenticationMethods;
-import org.fastfed4j.profile.scim.enterprise.RegistrationRequestExtension;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
 import java.util.Date;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Base class for all FastFed messages that are represented as a Jwt.
+ *
+ * <p>The expiration is serialized as a NumericDate, which is the number of seconds since the epoch (RFC 7519,
+ * section 2), so any milliseconds are discarded.</p>
+ *
+ * <p>A Jwt is accepted until its expiration plus the clock skew of the FastFedConfiguration, to tolerate
+ * differences between the clocks of the providers.</p>
  */
 public abstract class Jwt extends Metadata {
 
@@ -43,6 +58,7 @@ public abstract class Jwt extends Metadata {
     }
 
     public void setIssuer(String issuer) {
+        markModified();
         this.issuer = issuer;
     }
 
@@ -51,6 +67,7 @@ public abstract class Jwt extends Metadata {
     }
 
     public void setAudience(String audience) {
+        markModified();
         this.audience = audience;
     }
 
@@ -59,17 +76,110 @@ public abstract class Jwt extends Metadata {
     }
 
     public void setExpiration(Date expiration) {
+        markModified();
         this.expiration = expiration;
     }
 
-    // TODO
-    //public static Jwt fromCompactSerialization(String s) {
-    //    return new Jwt();
-    //
-    //}
+    /**
+     * Verifies the signature of a Jwt, and then hydrates the object from its claims and validates the contents
+     * to ensure it complies with the FastFed specification, and was issued by the expected issuer for the expected
+     * audience.
+     * @param jwt compact serialization of the Jwt
+     * @param verifier verifier holding the keys of the signer
+     * @param expectedIssuer entity_id of the provider which must have issued the Jwt
+     * @param expectedAudience entity_id of the provider for which the Jwt must be intended
+     * @throws InvalidMetadataException if the Jwt is malformed or missing content
+     * @throws FastFedSecurityException if the Jwt signature is invalid or expired, or the issuer or audience
+     * doesn't match
+     */
+    protected void hydrateAndValidateJwt(String jwt, JwsVerifier verifier, String expectedIssuer,
+                                         String expectedAudience)
+            throws InvalidMetadataException, FastFedSecurityException
+    {
+        Objects.requireNonNull(jwt, "jwt must not be null");
+        hydrateAndValidateJws(CompactJws.parse(jwt), verifier, expectedIssuer, expectedAudience,
+                getFastFedConfiguration().getClock());
+    }
+
+    /**
+     * Verifies and validates a Jwt as per hydrateAndValidateJwt(jwt, verifier, expectedIssuer, expectedAudience),
+     * and then records the Jwt in a replay cache, so that it is rejected if it is presented again before it
+     * expires. The expiration is checked against the clock of the replay cache, which remembers the Jwt for as
+     * long as it is accepted.
+     * @param jwt compact serialization of the Jwt
+     * @param verifier verifier holding the keys of the signer
+     * @param expectedIssuer entity_id of the provider which must have issued the Jwt
+     * @param expectedAudience entity_id of the provider for which the Jwt must be intended
+     * @param replayCache cache of the Jwts which have already been accepted
+     * @throws InvalidMetadataException if the Jwt is malformed or missing content
+     * @throws FastFedSecurityException if the Jwt signature is invalid or expired, the issuer or audience doesn't
+     * match, or the Jwt is a replay
+     */
+    protected void hydrateAndValidateJwt(String jwt, JwsVerifier verifier, String expectedIssuer,
+                                         String expectedAudience, ReplayCache replayCache)
+            throws InvalidMetadataException, FastFedSecurityException
+    {
+        Objects.requireNonNull(jwt, "jwt must not be null");
+        Objects.requireNonNull(replayCache, "replayCache must not be null");
+        CompactJws jws = CompactJws.parse(jwt);
+        hydrateAndValidateJws(jws, verifier, expectedIssuer, expectedAudience, replayCache.getClock());
+        replayCache.checkAndRecord(jws, getAcceptedUntil());
+    }
 
-    public String toCompactSerialization() {
-        return ""; //TODO
+    private void hydrateAndValidateJws(CompactJws jws, JwsVerifier verifier, String expectedIssuer,
+                                       String expectedAudience, Clock clock) {
+        Objects.requireNonNull(verifier, "verifier must not be null");
+        Objects.requireNonNull(expectedIssuer, "expectedIssuer must not be null");
+        Objects.requireNonNull(expectedAudience, "expectedAudience must not be null");
+        hydrateAndValidate(verifier.verify(jws));
+        if (getAcceptedUntil().getTime() <= clock.millis()) {
+            throw new FastFedSecurityException("Jwt has expired (exp=" + expiration.toInstant() + ")");
+        }
+        if (!expectedIssuer.equals(issuer)) {
+            throw new FastFedSecurityException(
+                    "Jwt issuer \"" + issuer + "\" does not match the expected issuer \"" + expectedIssuer + "\"");
+        }
+        if (!expectedAudience.equals(audience)) {
+            throw new FastFedSecurityException(
+                    "Jwt audience \"" + audience + "\" does not match the expected audience \"" + expectedAudience + "\"");
+        }
+    }
+
+    /**
+     * Gets the time until which the Jwt is accepted, which is its expiration plus the clock skew.
+     */
+    private Date getAcceptedUntil() {
+        return new Date(expiration.getTime() + getFastFedConfiguration().getClockSkew().toMillis());
+    }
+
+    /**
+     * Validates the claims, and then signs them into a Jwt in compact serialization format. The strongest of the
+     * signing algorithms which the key supports is used.
+     * @param signer signer holding the private key of the issuer
+     * @param signingAlgorithms names of the permitted algorithms, such as Contract.getSigningAlgorithms()
+     * @return compact serialization of the Jwt
+     * @throws InvalidMetadataException if the claims are non-compliant with the FastFed specification
+     * @throws IllegalArgumentException if the key does not support any of the signing algorithms
+     */
+    public String toCompactSerialization(JwsSigner signer, Set<String> signingAlgorithms)
+            throws InvalidMetadataException
+    {
+        Objects.requireNonNull(signer, "signer must not be null");
+        Objects.requireNonNull(signingAlgorithms, "signingAlgorithms must not be null");
+        ErrorAccumulator errorAccumulator = new ErrorAccumulator();
+        validate(errorAccumulator);
+        if (errorAccumulator.hasErrors()) {
+            throw new InvalidMetadataException(errorAccumulator);
+        }
+        JwsAlgorithm algorithm = signer.selectAlgorithm(signingAlgorithms);
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(512);
+        try {
+            writeJson(payload);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return signer.sign(payload.toByteArray(), algorithm);
     }
 
     @Override
@@ -77,17 +187,48 @@ public abstract class Jwt extends Metadata {
         JsonObject.Builder builder = new JsonObject.Builder();
         builder.put(JsonMember.JWT_ISSUER, issuer);
         builder.put(JsonMember.JWT_AUDIENCE, audience);
-        builder.put(JsonMember.JWT_EXPIRATION, expiration);
+        if (expiration != null)
+            builder.put(JsonMember.JWT_EXPIRATION, toNumericDate(expiration));
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.member(JsonMember.JWT_ISSUER, issuer);
+        writer.member(JsonMember.JWT_AUDIENCE, audience);
+        if (expiration != null)
+            writer.member(JsonMember.JWT_EXPIRATION, toNumericDate(expiration));
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
         super.hydrateFromJson(json);
         this.setIssuer(json.getString(JsonMember.JWT_ISSUER));
         this.setAudience(json.getString(JsonMember.JWT_AUDIENCE));
-        this.setExpiration(json.getDate(JsonMember.JWT_EXPIRATION));
+        this.setExpiration(fromNumericDate(json.getLong(JsonMember.JWT_EXPIRATION)));
+    }
+
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, null);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.JWT_ISSUER:
+                setIssuer( reader.nextString(memberName));
+                return true;
+            case JsonMember.JWT_AUDIENCE:
+                setAudience( reader.nextString(memberName));
+                return true;
+            case JsonMember.JWT_EXPIRATION:
+                setExpiration( fromNumericDate(reader.nextLong(memberName)));
+                return true;
+            default:
+                return super.hydrateMember(memberName, reader);
+        }
     }
 
     @Override
@@ -95,7 +236,14 @@ public abstract class Jwt extends Metadata {
         validateRequiredString(errorAccumulator, JsonMember.JWT_ISSUER, issuer);
         validateRequiredString(errorAccumulator, JsonMember.JWT_AUDIENCE, audience);
         validateRequiredDate(errorAccumulator, JsonMember.JWT_EXPIRATION, expiration);
-        //TODO - add full Jwt validation
+    }
+
+    protected static Long toNumericDate(Date date) {
+        return date.getTime() / 1000;
+    }
+
+    protected static Date fromNumericDate(Long seconds) {
+        return (seconds == null) ? null : new Date(seconds * 1000);
     }
 
     @Override
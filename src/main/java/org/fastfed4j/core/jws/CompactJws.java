@@ -0,0 +1,137 @@
+package org.fastfed4j.core.jws;
+
+import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.exception.InvalidMetadataException;
+import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonParser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * A JWS in the compact serialization defined in section 7.1 of RFC 7515, which consists of the base64url encoded
+ * header, payload and signature, separated by periods.
+ *
+ * <p>Parsing a JWS only decodes it, and does not verify the signature. Use JwsVerifier before trusting the
+ * payload.</p>
+ */
+public final class CompactJws {
+    static final String ALGORITHM = "alg";
+    static final String KEY_ID = "kid";
+    static final String CRITICAL = "crit";
+    static final String TYPE = "typ";
+
+    private final JsonObject header;
+    private final String algorithm;
+    private final String keyId;
+    private final byte[] payload;
+    private final byte[] signingInput;
+    private final byte[] signature;
+
+    private CompactJws(JsonObject header, String algorithm, String keyId, byte[] payload, byte[] signingInput,
+                       byte[] signature) {
+        this.header = header;
+        this.algorithm = algorithm;
+        this.keyId = keyId;
+        this.payload = payload;
+        this.signingInput = signingInput;
+        this.signature = signature;
+    }
+
+    public JsonObject getHeader() {
+        return header;
+    }
+
+    /**
+     * Gets the signing algorithm named in the "alg" header.
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Gets the key ID named in the "kid" header, or null if the header is absent.
+     */
+    public String getKeyId() {
+        return keyId;
+    }
+
+    /**
+     * Gets the decoded payload. The payload must not be trusted until the signature has been verified.
+     * @return payload
+     */
+    public byte[] getPayload() {
+        return payload.clone();
+    }
+
+    /**
+     * Gets the content covered by the signature, which is the encoded header and payload.
+     */
+    byte[] getSigningInput() {
+        return signingInput;
+    }
+
+    byte[] getSignature() {
+        return signature;
+    }
+
+    /**
+     * Parses a JWS from its compact serialization.
+     * @param jws compact serialization
+     * @return CompactJws
+     * @throws InvalidMetadataException if the JWS is malformed
+     */
+    public static CompactJws parse(String jws) throws InvalidMetadataException {
+        Objects.requireNonNull(jws, "jws must not be null");
+        ErrorAccumulator errorAccumulator = new ErrorAccumulator();
+        int firstPeriod = jws.indexOf('.');
+        int secondPeriod = (firstPeriod < 0) ? -1 : jws.indexOf('.', firstPeriod + 1);
+        if (secondPeriod < 0 || jws.indexOf('.', secondPeriod + 1) >= 0) {
+            errorAccumulator.add("Invalid JWS (expected three period-separated parts)");
+            throw new InvalidMetadataException(errorAccumulator);
+        }
+
+        byte[] headerBytes = decode(jws.substring(0, firstPeriod), "header", errorAccumulator);
+        byte[] payload = decode(jws.substring(firstPeriod + 1, secondPeriod), "payload", errorAccumulator);
+        byte[] signature = decode(jws.substring(secondPeriod + 1), "signature", errorAccumulator);
+        if (errorAccumulator.hasErrors()) {
+            throw new InvalidMetadataException(errorAccumulator);
+        }
+
+        JsonObject header = JsonParser.parse(headerBytes, errorAccumulator);
+        String algorithm = null;
+        String keyId = null;
+        if (header != null && !errorAccumulator.hasErrors()) {
+            algorithm = header.getString(ALGORITHM);
+            keyId = header.getString(KEY_ID);
+            if (algorithm == null) {
+                errorAccumulator.add("Missing value for \"" + ALGORITHM + "\" in the JWS header");
+            }
+            // No extensions are understood, so any critical extension makes the JWS invalid (RFC 7515, 4.1.11)
+            if (header.containsValueForKey(CRITICAL)) {
+                errorAccumulator.add("Unsupported value for \"" + CRITICAL + "\" in the JWS header");
+            }
+        }
+        if (errorAccumulator.hasErrors() || header == null) {
+            throw new InvalidMetadataException(errorAccumulator);
+        }
+        byte[] signingInput = jws.substring(0, secondPeriod).getBytes(StandardCharsets.US_ASCII);
+        return new CompactJws(header, algorithm, keyId, payload, signingInput, signature);
+    }
+
+    private static byte[] decode(String part, String partName, ErrorAccumulator errorAccumulator) {
+        // The compact serialization omits padding (RFC 7515, section 2)
+        if (part.isEmpty() || part.indexOf('=') >= 0) {
+            errorAccumulator.add("Invalid JWS " + partName + " (not base64url encoded)");
+            return null;
+        }
+        try {
+            return Base64.getUrlDecoder().decode(part);
+        }
+        catch (IllegalArgumentException e) {
+            errorAccumulator.add("Invalid JWS " + partName + " (not base64url encoded)");
+            return null;
+        }
+    }
+}
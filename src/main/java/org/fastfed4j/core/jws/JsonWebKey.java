@@ -0,0 +1,326 @@
+package org.fastfed4j.core.jws;
+
+import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.json.JsonObject;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A public JSON Web Key, as defined in RFC 7517, which verifies the signatures of JWS messages.
+ *
+ * <p>The key material is decoded once, when the key is parsed. Each key also keeps a pool of Signature objects
+ * which have already been initialized with the key, so verifying a message only costs the signature check itself.
+ * Instances are immutable and thread-safe.</p>
+ */
+public final class JsonWebKey {
+    static final String KEY_TYPE = "kty";
+    static final String KEY_ID = "kid";
+    static final String USE = "use";
+    static final String ALGORITHM = "alg";
+    static final String CURVE = "crv";
+    static final String RSA_MODULUS = "n";
+    static final String RSA_EXPONENT = "e";
+    static final String X_COORDINATE = "x";
+    static final String Y_COORDINATE = "y";
+    static final String SIGNATURE_USE = "sig";
+
+    private static final int MIN_RSA_KEY_SIZE = 2048;
+
+    // Maps a JWK curve name to the JCA name of the curve, and the size of its coordinates in bytes
+    static final Map<String, String> EC_CURVES = Map.of(
+            "P-256", "secp256r1",
+            "P-384", "secp384r1",
+            "P-521", "secp521r1");
+    static final Map<String, Integer> EC_COORDINATE_SIZES = Map.of(
+            "P-256", 32,
+            "P-384", 48,
+            "P-521", 66);
+    static final Map<JwsAlgorithm, String> EC_ALGORITHM_CURVES = Map.of(
+            JwsAlgorithm.ES256, "P-256",
+            JwsAlgorithm.ES384, "P-384",
+            JwsAlgorithm.ES512, "P-521");
+
+    // DER encoding of the SubjectPublicKeyInfo which precedes the raw public key of each Edwards curve
+    private static final Map<String, byte[]> OKP_KEY_PREFIXES = Map.of(
+            "Ed25519", new byte[] {0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21, 0x00},
+            "Ed448", new byte[] {0x30, 0x43, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x71, 0x03, 0x3a, 0x00});
+    static final Map<String, Integer> OKP_KEY_SIZES = Map.of(
+            "Ed25519", 32,
+            "Ed448", 57);
+
+    private final String keyId;
+    private final String keyType;
+    private final String curve;
+    private final JwsAlgorithm algorithm;
+    private final PublicKey publicKey;
+    private final String canonicalJson;
+    private final Map<JwsAlgorithm, Queue<Signature>> verifiers = new ConcurrentHashMap<>();
+
+    private JsonWebKey(String keyId, String keyType, String curve, JwsAlgorithm algorithm, PublicKey publicKey,
+                       String canonicalJson) {
+        this.keyId = keyId;
+        this.keyType = keyType;
+        this.curve = curve;
+        this.algorithm = algorithm;
+        this.publicKey = publicKey;
+        this.canonicalJson = canonicalJson;
+    }
+
+    /**
+     * Gets the key ID ("kid"), or null if the key doesn't have one.
+     */
+    public String getKeyId() {
+        return keyId;
+    }
+
+    /**
+     * Gets the key type ("kty"), which is one of RSA, EC or OKP.
+     */
+    public String getKeyType() {
+        return keyType;
+    }
+
+    /**
+     * Gets the algorithm ("alg") which the key is restricted to, or null if it may be used with any algorithm of
+     * its key type.
+     */
+    public JwsAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    /**
+     * Gets the canonical JSON of the key, which is equal for two keys if and only if they have the same members.
+     */
+    String getCanonicalJson() {
+        return canonicalJson;
+    }
+
+    /**
+     * Tests if the key may verify signatures produced with an algorithm.
+     * @param jwsAlgorithm signing algorithm
+     * @return true if the key type, curve, and any "alg" restriction of the key are compatible with the algorithm
+     */
+    public boolean supports(JwsAlgorithm jwsAlgorithm) {
+        if (jwsAlgorithm == null || !keyType.equals(jwsAlgorithm.getKeyType())) {
+            return false;
+        }
+        if (algorithm != null && algorithm != jwsAlgorithm) {
+            return false;
+        }
+        return !EC_ALGORITHM_CURVES.containsKey(jwsAlgorithm) || EC_ALGORITHM_CURVES.get(jwsAlgorithm).equals(curve);
+    }
+
+    /**
+     * Verifies a signature.
+     * @param jwsAlgorithm signing algorithm
+     * @param signingInput signed content
+     * @param signature signature to verify
+     * @return true if the signature is valid. False if the signature is invalid, or the key does not support the
+     * algorithm.
+     */
+    public boolean verify(JwsAlgorithm jwsAlgorithm, byte[] signingInput, byte[] signature) {
+        if (!supports(jwsAlgorithm)) {
+            return false;
+        }
+        Queue<Signature> pool = verifiers.computeIfAbsent(jwsAlgorithm, k -> new ConcurrentLinkedQueue<>());
+        Signature verifier = pool.poll();
+        try {
+            if (verifier == null) {
+                verifier = jwsAlgorithm.newSignature(curve);
+                verifier.initVerify(publicKey);
+            }
+            verifier.update(signingInput);
+            boolean valid = verifier.verify(signature);
+            // A successful call to verify() resets the Signature, which may then be reused
+            pool.offer(verifier);
+            return valid;
+        }
+        catch (SignatureException e) {
+            // Thrown for a malformed signature, after which the state of the Signature is undefined
+            return false;
+        }
+        catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to verify a signature with algorithm " + jwsAlgorithm, e);
+        }
+    }
+
+    /**
+     * Parses a public key from its JSON representation. Private key members are ignored.
+     * @param json JSON representation of the key
+     * @param errorAccumulator accumulates the reasons why the key is invalid or unsupported
+     * @return key, or null if the key is invalid, unsupported, or is not intended for signatures
+     */
+    public static JsonWebKey fromJson(JsonObject json, ErrorAccumulator errorAccumulator) {
+        int initialErrors = errorAccumulator.getErrors().size();
+        String keyType = json.getString(KEY_TYPE);
+        String keyId = json.getString(KEY_ID);
+        String use = json.getString(USE);
+        String algorithmName = json.getString(ALGORITHM);
+        if (keyType == null) {
+            errorAccumulator.add("Missing value for \"" + json.getFullyQualifiedName(KEY_TYPE) + "\"");
+            return null;
+        }
+        if (use != null && !use.equals(SIGNATURE_USE)) {
+            return null;
+        }
+        JwsAlgorithm algorithm = null;
+        if (algorithmName != null) {
+            if (!JwsAlgorithm.isValid(algorithmName)) {
+                errorAccumulator.add("Unsupported value for \"" + json.getFullyQualifiedName(ALGORITHM) + "\" (" + algorithmName + ")");
+                return null;
+            }
+            algorithm = JwsAlgorithm.fromString(algorithmName);
+        }
+
+        String curve = null;
+        PublicKey publicKey;
+        try {
+            switch (keyType) {
+                case "RSA":
+                    publicKey = toRsaPublicKey(json, errorAccumulator);
+                    break;
+                case "EC":
+                    curve = json.getString(CURVE);
+                    publicKey = toEcPublicKey(json, curve, errorAccumulator);
+                    break;
+                case "OKP":
+                    curve = json.getString(CURVE);
+                    publicKey = toOkpPublicKey(json, curve, errorAccumulator);
+                    break;
+                default:
+                    errorAccumulator.add("Unsupported value for \"" + json.getFullyQualifiedName(KEY_TYPE) + "\" (" + keyType + ")");
+                    return null;
+            }
+        }
+        catch (GeneralSecurityException | IllegalArgumentException e) {
+            errorAccumulator.add("Invalid key \"" + json.getJsonPath() + "\" (" + e.getMessage() + ")");
+            return null;
+        }
+        if (publicKey == null || errorAccumulator.getErrors().size() > initialErrors) {
+            return null;
+        }
+
+        JsonWebKey key = new JsonWebKey(keyId, keyType, curve, algorithm, publicKey, json.toCanonicalString());
+        if (algorithm != null && !key.supports(algorithm)) {
+            errorAccumulator.add("Invalid value for \"" + json.getFullyQualifiedName(ALGORITHM) + "\" (" + algorithmName
+                    + " cannot be used with a key of type " + keyType + (curve == null ? "" : " " + curve) + ")");
+            return null;
+        }
+        return key;
+    }
+
+    private static PublicKey toRsaPublicKey(JsonObject json, ErrorAccumulator errorAccumulator)
+            throws GeneralSecurityException
+    {
+        byte[] modulus = decodeRequired(json, RSA_MODULUS, errorAccumulator);
+        byte[] exponent = decodeRequired(json, RSA_EXPONENT, errorAccumulator);
+        if (modulus == null || exponent == null) {
+            return null;
+        }
+        RSAPublicKey publicKey = (RSAPublicKey) KeyFactory.getInstance("RSA").generatePublic(
+                new RSAPublicKeySpec(new BigInteger(1, modulus), new BigInteger(1, exponent)));
+        if (publicKey.getModulus().bitLength() < MIN_RSA_KEY_SIZE) {
+            errorAccumulator.add("Invalid key \"" + json.getJsonPath() + "\" (RSA keys must be at least "
+                    + MIN_RSA_KEY_SIZE + " bits)");
+            return null;
+        }
+        return publicKey;
+    }
+
+    private static PublicKey toEcPublicKey(JsonObject json, String curve, ErrorAccumulator errorAccumulator)
+            throws GeneralSecurityException
+    {
+        if (curve == null || !EC_CURVES.containsKey(curve)) {
+            errorAccumulator.add("Unsupported value for \"" + json.getFullyQualifiedName(CURVE) + "\" (" + curve + ")");
+            return null;
+        }
+        byte[] x = decodeRequired(json, X_COORDINATE, errorAccumulator);
+        byte[] y = decodeRequired(json, Y_COORDINATE, errorAccumulator);
+        if (x == null || y == null) {
+            return null;
+        }
+        int coordinateSize = EC_COORDINATE_SIZES.get(curve);
+        if (x.length != coordinateSize || y.length != coordinateSize) {
+            errorAccumulator.add("Invalid key \"" + json.getJsonPath() + "\" (coordinates of a " + curve
+                    + " key must be " + coordinateSize + " bytes)");
+            return null;
+        }
+        ECPoint point = new ECPoint(new BigInteger(1, x), new BigInteger(1, y));
+        return KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(point, ecParameters(curve)));
+    }
+
+    /**
+     * Gets the domain parameters of an elliptic curve.
+     * @param curve JWK name of the curve, such as P-256
+     */
+    static ECParameterSpec ecParameters(String curve) throws GeneralSecurityException {
+        AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+        parameters.init(new ECGenParameterSpec(EC_CURVES.get(curve)));
+        return parameters.getParameterSpec(ECParameterSpec.class);
+    }
+
+    private static PublicKey toOkpPublicKey(JsonObject json, String curve, ErrorAccumulator errorAccumulator)
+            throws GeneralSecurityException
+    {
+        if (curve == null || !OKP_KEY_PREFIXES.containsKey(curve)) {
+            errorAccumulator.add("Unsupported value for \"" + json.getFullyQualifiedName(CURVE) + "\" (" + curve + ")");
+            return null;
+        }
+        byte[] x = decodeRequired(json, X_COORDINATE, errorAccumulator);
+        if (x == null) {
+            return null;
+        }
+        if (x.length != OKP_KEY_SIZES.get(curve)) {
+            errorAccumulator.add("Invalid key \"" + json.getJsonPath() + "\" (a " + curve + " key must be "
+                    + OKP_KEY_SIZES.get(curve) + " bytes)");
+            return null;
+        }
+        byte[] prefix = OKP_KEY_PREFIXES.get(curve);
+        byte[] encoded = new byte[prefix.length + x.length];
+        System.arraycopy(prefix, 0, encoded, 0, prefix.length);
+        System.arraycopy(x, 0, encoded, prefix.length, x.length);
+        return KeyFactory.getInstance(curve).generatePublic(new X509EncodedKeySpec(encoded));
+    }
+
+    static byte[] decodeRequired(JsonObject json, String memberName, ErrorAccumulator errorAccumulator) {
+        String value = json.getString(memberName);
+        if (value == null) {
+            errorAccumulator.add("Missing value for \"" + json.getFullyQualifiedName(memberName) + "\"");
+            return null;
+        }
+        try {
+            return Base64.getUrlDecoder().decode(value);
+        }
+        catch (IllegalArgumentException e) {
+            errorAccumulator.add("Invalid value for \"" + json.getFullyQualifiedName(memberName) + "\" (not base64url encoded)");
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "JsonWebKey{kid=" + keyId + ", kty=" + keyType + (curve == null ? "" : ", crv=" + curve) + "}";
+    }
+}
@@ -0,0 +1,167 @@
+package org.fastfed4j.core.jws;
+
+import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.exception.InvalidMetadataException;
+import org.fastfed4j.core.http.MetadataFetcher;
+import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonParser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A JSON Web Key Set, as defined in section 5 of RFC 7517, such as the document hosted at the jwks_uri of an
+ * Identity Provider.
+ *
+ * <p>Only the public keys which can verify signatures are retained. Keys which are intended for encryption, or
+ * which use an unsupported key type or algorithm, are skipped rather than failing the whole set, since a provider
+ * may publish keys for purposes other than FastFed. Instances are immutable and thread-safe.</p>
+ */
+public final class JsonWebKeySet implements JwsKeyResolver {
+    private static final String KEYS = "keys";
+
+    private final List<JsonWebKey> keys;
+
+    /**
+     * Constructs a key set from a collection of keys.
+     * @param keys keys
+     */
+    public JsonWebKeySet(List<JsonWebKey> keys) {
+        Objects.requireNonNull(keys, "keys must not be null");
+        this.keys = Collections.unmodifiableList(new ArrayList<>(keys));
+    }
+
+    /**
+     * Gets all the keys in the set.
+     * @return immutable list of keys
+     */
+    public List<JsonWebKey> getKeys() {
+        return keys;
+    }
+
+    /**
+     * Gets the first key with a key ID.
+     * @param keyId key ID ("kid")
+     * @return key, or null if the set does not contain the key ID
+     */
+    public JsonWebKey getKey(String keyId) {
+        for (JsonWebKey key : keys) {
+            if (Objects.equals(keyId, key.getKeyId())) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the keys which may verify a signature.
+     * @param keyId key ID ("kid") from the JWS header, or null to consider every key
+     * @param algorithm signing algorithm from the JWS header
+     * @return matching keys, in the order they appear in the set
+     */
+    @Override
+    public List<JsonWebKey> findKeys(String keyId, JwsAlgorithm algorithm) {
+        List<JsonWebKey> matches = new ArrayList<>(1);
+        for (JsonWebKey key : keys) {
+            if ((keyId == null || keyId.equals(key.getKeyId())) && key.supports(algorithm)) {
+                matches.add(key);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Gets a copy of this set in which each key that is unchanged from a previous set is replaced by the previous
+     * instance, so that the parsed key and its initialized Signature objects are retained when a key set is
+     * retrieved again.
+     * @param previous previous version of the key set
+     * @return key set
+     */
+    JsonWebKeySet reuseUnchangedKeys(JsonWebKeySet previous) {
+        Map<String, JsonWebKey> previousKeys = new HashMap<>();
+        for (JsonWebKey key : previous.keys) {
+            previousKeys.put(key.getCanonicalJson(), key);
+        }
+        List<JsonWebKey> merged = new ArrayList<>(keys.size());
+        for (JsonWebKey key : keys) {
+            merged.add(previousKeys.getOrDefault(key.getCanonicalJson(), key));
+        }
+        return new JsonWebKeySet(merged);
+    }
+
+    /**
+     * Retrieve a key set from a URL endpoint, such as the jwks_uri of an Identity Provider.
+     * @param url the endpoint which hosts the key set
+     * @return JsonWebKeySet
+     * @throws InvalidMetadataException if the key set is malformed
+     * @throws java.io.UncheckedIOException if the key set cannot be retrieved
+     */
+    public static JsonWebKeySet fromRemoteEndpoint(String url) throws InvalidMetadataException {
+        return MetadataFetcher.join(fromRemoteEndpointAsync(url, MetadataFetcher.getDefault()));
+    }
+
+    /**
+     * Asynchronously retrieve a key set from a URL endpoint. The future completes exceptionally with the same
+     * exceptions as fromRemoteEndpoint().
+     * @param url the endpoint which hosts the key set
+     * @param fetcher fetcher used to query the endpoint
+     * @return future containing the JsonWebKeySet
+     */
+    public static CompletableFuture<JsonWebKeySet> fromRemoteEndpointAsync(String url, MetadataFetcher fetcher) {
+        Objects.requireNonNull(url, "url must not be null");
+        Objects.requireNonNull(fetcher, "fetcher must not be null");
+        return fetcher.fetch(url).thenApply(JsonWebKeySet::fromJson);
+    }
+
+    /**
+     * Parses a key set from its UTF-8 encoded JSON representation.
+     * @param json JSON representation of the key set
+     * @return JsonWebKeySet
+     * @throws InvalidMetadataException if the JSON is malformed, or does not contain an array of keys
+     */
+    public static JsonWebKeySet fromJson(byte[] json) throws InvalidMetadataException {
+        Objects.requireNonNull(json, "json must not be null");
+        ErrorAccumulator errorAccumulator = new ErrorAccumulator();
+        return fromJson(JsonParser.parse(json, errorAccumulator), errorAccumulator);
+    }
+
+    /**
+     * Parses a key set from its JSON representation.
+     * @param json JSON representation of the key set
+     * @return JsonWebKeySet
+     * @throws InvalidMetadataException if the JSON is malformed, or does not contain an array of keys
+     */
+    public static JsonWebKeySet fromJson(String json) throws InvalidMetadataException {
+        Objects.requireNonNull(json, "json must not be null");
+        ErrorAccumulator errorAccumulator = new ErrorAccumulator();
+        return fromJson(JsonParser.parse(json, errorAccumulator), errorAccumulator);
+    }
+
+    private static JsonWebKeySet fromJson(JsonObject json, ErrorAccumulator errorAccumulator) {
+        List<JsonObject> jsonKeys = null;
+        if (json != null && !errorAccumulator.hasErrors()) {
+            jsonKeys = json.getObjectList(KEYS);
+            if (jsonKeys == null && !errorAccumulator.hasErrors()) {
+                errorAccumulator.add("Missing value for \"" + KEYS + "\"");
+            }
+        }
+        if (errorAccumulator.hasErrors() || jsonKeys == null) {
+            throw new InvalidMetadataException(errorAccumulator);
+        }
+
+        List<JsonWebKey> keys = new ArrayList<>(jsonKeys.size());
+        for (JsonObject jsonKey : jsonKeys) {
+            // Each key is parsed with its own accumulator, so that an unsupported key is skipped
+            JsonWebKey key = JsonWebKey.fromJson(jsonKey, new ErrorAccumulator());
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        return new JsonWebKeySet(keys);
+    }
+}
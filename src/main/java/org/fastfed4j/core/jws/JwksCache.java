@@ -0,0 +1,185 @@
+package org.fastfed4j.core.jws;
+
+import org.fastfed4j.core.http.HttpCache;
+import org.fastfed4j.core.http.MetadataFetcher;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the key sets published at the jwks_uri of remote providers, such as IdentityProvider.getJwksUri() for
+ * Registration Requests, or Oauth2JwtClientMetadata.getJwksUri() for SCIM client assertions, so that verifying a
+ * signature doesn't require a request to the provider.
+ *
+ * <p>Key sets are cached following the HTTP caching headers of the response, as described in HttpCache, and are
+ * refreshed in the background before they expire. Keys which are unchanged after a refresh are retained along with
+ * their parsed form and initialized Signature objects.</p>
+ *
+ * <p>When a signature names a key ID which isn't in the cached key set, the provider may have rotated its keys, so
+ * the key set is retrieved again before the signature is rejected. These refreshes are rate-limited to one per
+ * minimum refresh interval for each jwks_uri, so that a stream of messages with unknown key IDs cannot be used to
+ * flood the provider with requests. Concurrent lookups of the same jwks_uri share a single request.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public class JwksCache extends HttpCache<JsonWebKeySet> {
+
+    /**
+     * Default minimum interval between the retrievals of a key set that are triggered by an unknown key ID.
+     */
+    public static final Duration DEFAULT_MINIMUM_REFRESH_INTERVAL = Duration.ofMinutes(1);
+
+    private final long minimumRefreshIntervalMillis;
+
+    private final Map<String, Long> unknownKeyRefreshes = new ConcurrentHashMap<>();
+    private final LongAdder unknownKeyRefreshCount = new LongAdder();
+
+    private JwksCache(Builder builder) {
+        super(builder);
+        this.minimumRefreshIntervalMillis = builder.minimumRefreshInterval.toMillis();
+    }
+
+    /**
+     * Gets a shared cache with the default settings, which uses the default MetadataFetcher.
+     * @return JwksCache
+     */
+    public static JwksCache getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private static class DefaultHolder {
+        private static final JwksCache INSTANCE = new Builder().build();
+    }
+
+    /**
+     * Gets the key set published at a jwks_uri, retrieving it if the cached copy is missing or stale. Blocks until
+     * the key set is available.
+     * @param jwksUri the endpoint which hosts the key set
+     * @return key set
+     * @throws org.fastfed4j.core.exception.InvalidMetadataException if the key set is malformed
+     * @throws UncheckedIOException if the key set cannot be retrieved
+     */
+    @Override
+    public JsonWebKeySet get(String jwksUri) {
+        return super.get(jwksUri);
+    }
+
+    /**
+     * Finds the keys published at a jwks_uri which may verify a signature. If there are none, the key set is
+     * retrieved again, unless it was retrieved within the minimum refresh interval.
+     * @param jwksUri the endpoint which hosts the key set
+     * @param keyId key ID ("kid") from the JWS header, or null to consider every key
+     * @param algorithm signing algorithm from the JWS header
+     * @return future containing the matching keys, or an empty list if there are none
+     */
+    public CompletableFuture<List<JsonWebKey>> findKeysAsync(String jwksUri, String keyId, JwsAlgorithm algorithm) {
+        return getAsync(jwksUri).thenCompose(keySet -> {
+            List<JsonWebKey> keys = keySet.findKeys(keyId, algorithm);
+            if (!keys.isEmpty()) {
+                return CompletableFuture.completedFuture(keys);
+            }
+            CompletableFuture<JsonWebKeySet> refreshed = getRefreshInProgress(jwksUri);
+            if (refreshed == null) {
+                if (!tryAcquireUnknownKeyRefresh(jwksUri)) {
+                    return CompletableFuture.completedFuture(keys);
+                }
+                unknownKeyRefreshCount.increment();
+                refreshed = refresh(jwksUri);
+            }
+            return refreshed.thenApply(newKeySet -> newKeySet.findKeys(keyId, algorithm));
+        });
+    }
+
+    /**
+     * Gets a key resolver for the keys published at a jwks_uri. The resolver blocks while the key set is
+     * retrieved.
+     * @param jwksUri the endpoint which hosts the key set
+     * @return key resolver
+     */
+    public JwsKeyResolver getKeyResolver(String jwksUri) {
+        Objects.requireNonNull(jwksUri, "jwksUri must not be null");
+        return (keyId, algorithm) -> MetadataFetcher.join(findKeysAsync(jwksUri, keyId, algorithm));
+    }
+
+    /**
+     * Gets a verifier for signatures made with the keys published at a jwks_uri.
+     * @param jwksUri the endpoint which hosts the key set
+     * @param signingAlgorithms names of the accepted algorithms, such as Contract.getSigningAlgorithms()
+     * @return verifier
+     */
+    public JwsVerifier getVerifier(String jwksUri, Set<String> signingAlgorithms) {
+        return new JwsVerifier(getKeyResolver(jwksUri), signingAlgorithms);
+    }
+
+    /**
+     * Gets the number of retrievals which were triggered by an unknown key ID.
+     */
+    public long getUnknownKeyRefreshCount() {
+        return unknownKeyRefreshCount.sum();
+    }
+
+    /**
+     * Determines if a key set may be retrieved again because of an unknown key ID, and if so, records the time of
+     * the retrieval. Only one caller is permitted per minimum refresh interval.
+     */
+    private boolean tryAcquireUnknownKeyRefresh(String jwksUri) {
+        long now = getClock().millis();
+        Long storedAt = getStoredAt(jwksUri);
+        if (storedAt != null && now - storedAt < minimumRefreshIntervalMillis) {
+            return false;
+        }
+        Long previous = unknownKeyRefreshes.get(jwksUri);
+        if (previous == null) {
+            return unknownKeyRefreshes.putIfAbsent(jwksUri, now) == null;
+        }
+        return now - previous >= minimumRefreshIntervalMillis && unknownKeyRefreshes.replace(jwksUri, previous, now);
+    }
+
+    @Override
+    protected JsonWebKeySet load(String jwksUri, byte[] body, JsonWebKeySet previous) {
+        JsonWebKeySet keySet = JsonWebKeySet.fromJson(body);
+        return (previous == null) ? keySet : keySet.reuseUnchangedKeys(previous);
+    }
+
+    /**
+     * Builder for JwksCache
+     */
+    public static class Builder extends HttpCache.Builder<Builder> {
+        private Duration minimumRefreshInterval = DEFAULT_MINIMUM_REFRESH_INTERVAL;
+
+        /**
+         * Construct a new Builder with default values for all settings
+         */
+        public Builder() {}
+
+        /**
+         * Generates a JwksCache from the Builder settings.
+         * @return JwksCache
+         */
+        public JwksCache build() {
+            return new JwksCache(this);
+        }
+
+        /**
+         * Sets the minimum interval between the retrievals of a key set that are triggered by an unknown key ID.
+         * Default value is 1 minute.
+         * @param minimumRefreshInterval interval
+         * @return Builder
+         */
+        public Builder setMinimumRefreshInterval(Duration minimumRefreshInterval) {
+            Objects.requireNonNull(minimumRefreshInterval, "minimumRefreshInterval must not be null");
+            if (minimumRefreshInterval.isNegative()) {
+                throw new IllegalArgumentException("minimumRefreshInterval must not be negative");
+            }
+            this.minimumRefreshInterval = minimumRefreshInterval;
+            return this;
+        }
+    }
+}
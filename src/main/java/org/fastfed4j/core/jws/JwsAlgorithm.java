@@ -0,0 +1,105 @@
+package org.fastfed4j.core.jws;
+
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Enumeration of the JWS signing algorithms supported by the SDK, as registered in section 3.1 of RFC 7518 and
+ * section 3.1 of RFC 8037. These are the values which may appear in the signing_algorithms of a provider's
+ * Capabilities.
+ *
+ * <p>The HMAC algorithms and "none" are deliberately absent, since FastFed messages are always signed with an
+ * asymmetric key published in the signer's JWKS.</p>
+ */
+public enum JwsAlgorithm {
+
+    RS256("RS256", "RSA", "SHA256withRSA", null, 0),
+    RS384("RS384", "RSA", "SHA384withRSA", null, 0),
+    RS512("RS512", "RSA", "SHA512withRSA", null, 0),
+    PS256("PS256", "RSA", "RSASSA-PSS", MGF1ParameterSpec.SHA256, 32),
+    PS384("PS384", "RSA", "RSASSA-PSS", MGF1ParameterSpec.SHA384, 48),
+    PS512("PS512", "RSA", "RSASSA-PSS", MGF1ParameterSpec.SHA512, 64),
+    ES256("ES256", "EC", "SHA256withECDSAinP1363Format", null, 0),
+    ES384("ES384", "EC", "SHA384withECDSAinP1363Format", null, 0),
+    ES512("ES512", "EC", "SHA512withECDSAinP1363Format", null, 0),
+    EDDSA("EdDSA", "OKP", null, null, 0);
+
+    private static Map<String, JwsAlgorithm> reverseLookup = new ConcurrentHashMap<>();
+    private final String name;
+    private final String keyType;
+    private final String jcaName;
+    private final MGF1ParameterSpec pssDigest;
+    private final int pssSaltLength;
+
+    JwsAlgorithm(String name, String keyType, String jcaName, MGF1ParameterSpec pssDigest, int pssSaltLength) {
+        this.name = name;
+        this.keyType = keyType;
+        this.jcaName = jcaName;
+        this.pssDigest = pssDigest;
+        this.pssSaltLength = pssSaltLength;
+    }
+
+    /**
+     * Gets the name of the algorithm, as it appears in the "alg" header of a JWS.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the type of JSON Web Key ("kty") which the algorithm signs with.
+     */
+    public String getKeyType() {
+        return keyType;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    /**
+     * Creates an uninitialized Signature for the algorithm.
+     * @param curve curve of the key, which selects the variant of EdDSA. Ignored by the other algorithms.
+     * @return signature
+     * @throws GeneralSecurityException if the algorithm is not available on this platform
+     */
+    Signature newSignature(String curve) throws GeneralSecurityException {
+        if (this == EDDSA) {
+            // Ed25519 and Ed448 are only available from Java 15, and are looked up by name for that reason
+            return Signature.getInstance(curve);
+        }
+        Signature signature = Signature.getInstance(jcaName);
+        if (pssDigest != null) {
+            signature.setParameter(
+                    new PSSParameterSpec(pssDigest.getDigestAlgorithm(), "MGF1", pssDigest, pssSaltLength, 1));
+        }
+        return signature;
+    }
+
+    public static JwsAlgorithm fromString(String name) {
+        initializeReverseLookupIfNeeded();
+        if (name != null && reverseLookup.containsKey(name)){
+            return reverseLookup.get(name);
+        } else {
+            throw new RuntimeException("Unrecognized signing algorithm: \"" + name + "\"");
+        }
+    }
+
+    public static boolean isValid(String name) {
+        initializeReverseLookupIfNeeded();
+        return (name != null && reverseLookup.containsKey(name));
+    }
+
+    private static void initializeReverseLookupIfNeeded() {
+        if (reverseLookup.isEmpty()) {
+            for (JwsAlgorithm v : values()) {
+                reverseLookup.put(v.name, v);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.fastfed4j.core.jws;
+
+import java.util.List;
+
+/**
+ * Source of the keys which JwsVerifier uses to verify signatures. Implemented by JsonWebKeySet, for a fixed set of
+ * keys, and by JwksCache, for the current keys published at a jwks_uri.
+ */
+public interface JwsKeyResolver {
+
+    /**
+     * Finds the keys which may verify a signature.
+     * @param keyId key ID ("kid") from the JWS header, or null to consider every key
+     * @param algorithm signing algorithm from the JWS header
+     * @return matching keys, or an empty list if there are none
+     * @throws java.io.UncheckedIOException if the keys cannot be retrieved
+     */
+    List<JsonWebKey> findKeys(String keyId, JwsAlgorithm algorithm);
+}
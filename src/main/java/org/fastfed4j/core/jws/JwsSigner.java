@@ -0,0 +1,340 @@
+package org.fastfed4j.core.jws;
+
+import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.exception.InvalidMetadataException;
+import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonParser;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.ECKey;
+import java.security.interfaces.RSAKey;
+import java.security.spec.ECPrivateKeySpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPrivateCrtKeySpec;
+import java.security.spec.RSAPrivateKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Signs JWS messages with a private key, such as the Registration Requests and OAuth2 client assertions issued by
+ * an Identity Provider. The matching public key is expected to be published at the provider's jwks_uri under the
+ * same key ID.
+ *
+ * <p>Issuing a message only costs the signature itself. The private key is parsed once, when the signer is
+ * constructed. The JWS header of each algorithm is encoded in advance, and each thread keeps its own Signature
+ * object per algorithm, already initialized with the key.</p>
+ *
+ * <p>When the message is signed for a set of signing algorithms, such as Contract.getSigningAlgorithms(), the
+ * strongest algorithm which the key supports is chosen. Instances are immutable and thread-safe.</p>
+ */
+public class JwsSigner {
+    private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private static final String JWT_TYPE = "JWT";
+    private static final String PRIVATE_KEY = "d";
+    private static final int MIN_RSA_KEY_SIZE = 2048;
+
+    // Algorithms in order of preference, strongest first
+    private static final List<JwsAlgorithm> STRONGEST_FIRST = List.of(
+            JwsAlgorithm.EDDSA,
+            JwsAlgorithm.ES512, JwsAlgorithm.ES384, JwsAlgorithm.ES256,
+            JwsAlgorithm.PS512, JwsAlgorithm.PS384, JwsAlgorithm.PS256,
+            JwsAlgorithm.RS512, JwsAlgorithm.RS384, JwsAlgorithm.RS256);
+
+    // DER encoding of the PrivateKeyInfo which precedes the raw private key of each Edwards curve
+    private static final Map<String, byte[]> OKP_KEY_PREFIXES = Map.of(
+            "Ed25519", new byte[] {0x30, 0x2e, 0x02, 0x01, 0x00, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70,
+                                   0x04, 0x22, 0x04, 0x20},
+            "Ed448", new byte[] {0x30, 0x47, 0x02, 0x01, 0x00, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x71,
+                                 0x04, 0x3b, 0x04, 0x39});
+
+    private final String keyId;
+    private final PrivateKey privateKey;
+    private final String curve;
+    private final List<JwsAlgorithm> algorithms;
+    private final Map<JwsAlgorithm, byte[]> encodedHeaders = new EnumMap<>(JwsAlgorithm.class);
+    private final Map<JwsAlgorithm, ThreadLocal<Signature>> signatures = new EnumMap<>(JwsAlgorithm.class);
+
+    /**
+     * Constructs a signer.
+     * @param keyId key ID ("kid") under which the public key is published, or null to omit it from the header
+     * @param privateKey RSA (at least 2048 bits), EC (P-256, P-384 or P-521) or EdDSA private key
+     * @throws IllegalArgumentException if the key is not supported
+     */
+    public JwsSigner(String keyId, PrivateKey privateKey) {
+        Objects.requireNonNull(privateKey, "privateKey must not be null");
+        this.keyId = keyId;
+        this.privateKey = privateKey;
+        this.curve = curveOf(privateKey);
+
+        List<JwsAlgorithm> supported = new ArrayList<>();
+        for (JwsAlgorithm algorithm : STRONGEST_FIRST) {
+            if (!isCompatible(algorithm)) {
+                continue;
+            }
+            try {
+                // Verifies that the algorithm is available on this platform, and accepts the key
+                newSignature(algorithm);
+            }
+            catch (GeneralSecurityException e) {
+                continue;
+            }
+            supported.add(algorithm);
+            encodedHeaders.put(algorithm, encodeHeader(algorithm));
+            signatures.put(algorithm, ThreadLocal.withInitial(() -> {
+                try {
+                    return newSignature(algorithm);
+                }
+                catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("Unable to sign with algorithm " + algorithm, e);
+                }
+            }));
+        }
+        if (supported.isEmpty()) {
+            throw new IllegalArgumentException("No signing algorithm supports the key (" + privateKey.getAlgorithm() + ")");
+        }
+        this.algorithms = Collections.unmodifiableList(supported);
+    }
+
+    public String getKeyId() {
+        return keyId;
+    }
+
+    /**
+     * Gets the algorithms which the key can sign with.
+     * @return immutable list of algorithms, strongest first
+     */
+    public List<JwsAlgorithm> getAlgorithms() {
+        return algorithms;
+    }
+
+    /**
+     * Selects the strongest algorithm which the key supports from a set of signing algorithms.
+     * @param signingAlgorithms names of the permitted algorithms, such as Contract.getSigningAlgorithms()
+     * @return algorithm
+     * @throws IllegalArgumentException if the key doesn't support any of the algorithms
+     */
+    public JwsAlgorithm selectAlgorithm(Set<String> signingAlgorithms) {
+        Objects.requireNonNull(signingAlgorithms, "signingAlgorithms must not be null");
+        for (JwsAlgorithm algorithm : algorithms) {
+            if (signingAlgorithms.contains(algorithm.getName())) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("The signing key does not support any of the signing algorithms "
+                + signingAlgorithms + " (supported: " + algorithms + ")");
+    }
+
+    /**
+     * Signs a payload with the strongest algorithm which the key supports from a set of signing algorithms.
+     * @param payload payload, such as the claims of a Jwt
+     * @param signingAlgorithms names of the permitted algorithms, such as Contract.getSigningAlgorithms()
+     * @return compact serialization of the JWS
+     * @throws IllegalArgumentException if the key doesn't support any of the algorithms
+     */
+    public String sign(byte[] payload, Set<String> signingAlgorithms) {
+        return sign(payload, selectAlgorithm(signingAlgorithms));
+    }
+
+    /**
+     * Signs a payload.
+     * @param payload payload, such as the claims of a Jwt
+     * @param algorithm signing algorithm
+     * @return compact serialization of the JWS
+     * @throws IllegalArgumentException if the key doesn't support the algorithm
+     */
+    public String sign(byte[] payload, JwsAlgorithm algorithm) {
+        Objects.requireNonNull(payload, "payload must not be null");
+        byte[] header = encodedHeaders.get(algorithm);
+        if (header == null) {
+            throw new IllegalArgumentException("The signing key does not support the algorithm " + algorithm);
+        }
+        byte[] encodedPayload = encoder.encode(payload);
+        byte[] signingInput = Arrays.copyOf(header, header.length + 1 + encodedPayload.length);
+        signingInput[header.length] = '.';
+        System.arraycopy(encodedPayload, 0, signingInput, header.length + 1, encodedPayload.length);
+
+        ThreadLocal<Signature> threadSignature = signatures.get(algorithm);
+        byte[] signature;
+        try {
+            // A successful call to sign() resets the Signature, which may then be reused
+            Signature signer = threadSignature.get();
+            signer.update(signingInput);
+            signature = signer.sign();
+        }
+        catch (GeneralSecurityException e) {
+            // The state of the Signature is undefined after a failure, so the thread creates a new one next time
+            threadSignature.remove();
+            throw new IllegalStateException("Unable to sign with algorithm " + algorithm, e);
+        }
+        return new String(signingInput, StandardCharsets.US_ASCII) + "." + encoder.encodeToString(signature);
+    }
+
+    /**
+     * Constructs a signer from a private JSON Web Key, which includes the private key member ("d").
+     * @param json JSON representation of the key
+     * @return JwsSigner, using the key ID of the key
+     * @throws InvalidMetadataException if the key is malformed, is not a private key, or is not supported
+     */
+    public static JwsSigner fromJwk(String json) throws InvalidMetadataException {
+        Objects.requireNonNull(json, "json must not be null");
+        ErrorAccumulator errorAccumulator = new ErrorAccumulator();
+        JsonObject jwk = JsonParser.parse(json, errorAccumulator);
+        PrivateKey privateKey = null;
+        if (jwk != null && !errorAccumulator.hasErrors()) {
+            try {
+                privateKey = toPrivateKey(jwk, errorAccumulator);
+            }
+            catch (GeneralSecurityException | IllegalArgumentException e) {
+                errorAccumulator.add("Invalid private key (" + e.getMessage() + ")");
+            }
+        }
+        if (errorAccumulator.hasErrors() || privateKey == null) {
+            throw new InvalidMetadataException(errorAccumulator);
+        }
+        try {
+            return new JwsSigner(jwk.getString(JsonWebKey.KEY_ID), privateKey);
+        }
+        catch (IllegalArgumentException e) {
+            errorAccumulator.add(e.getMessage());
+            throw new InvalidMetadataException(errorAccumulator);
+        }
+    }
+
+    private static PrivateKey toPrivateKey(JsonObject jwk, ErrorAccumulator errorAccumulator)
+            throws GeneralSecurityException
+    {
+        String keyType = jwk.getString(JsonWebKey.KEY_TYPE);
+        if (keyType == null) {
+            errorAccumulator.add("Missing value for \"" + JsonWebKey.KEY_TYPE + "\"");
+            return null;
+        }
+        byte[] d = JsonWebKey.decodeRequired(jwk, PRIVATE_KEY, errorAccumulator);
+        if (d == null) {
+            return null;
+        }
+        String curve = jwk.getString(JsonWebKey.CURVE);
+        switch (keyType) {
+            case "RSA":
+                byte[] n = JsonWebKey.decodeRequired(jwk, JsonWebKey.RSA_MODULUS, errorAccumulator);
+                byte[] e = JsonWebKey.decodeRequired(jwk, JsonWebKey.RSA_EXPONENT, errorAccumulator);
+                if (n == null || e == null) {
+                    return null;
+                }
+                KeyFactory rsaKeyFactory = KeyFactory.getInstance("RSA");
+                if (jwk.containsValueForKey("p") && jwk.containsValueForKey("q") && jwk.containsValueForKey("dp")
+                        && jwk.containsValueForKey("dq") && jwk.containsValueForKey("qi")) {
+                    byte[] p = JsonWebKey.decodeRequired(jwk, "p", errorAccumulator);
+                    byte[] q = JsonWebKey.decodeRequired(jwk, "q", errorAccumulator);
+                    byte[] dp = JsonWebKey.decodeRequired(jwk, "dp", errorAccumulator);
+                    byte[] dq = JsonWebKey.decodeRequired(jwk, "dq", errorAccumulator);
+                    byte[] qi = JsonWebKey.decodeRequired(jwk, "qi", errorAccumulator);
+                    if (p == null || q == null || dp == null || dq == null || qi == null) {
+                        return null;
+                    }
+                    // The Chinese Remainder Theorem parameters make signing several times faster
+                    return rsaKeyFactory.generatePrivate(new RSAPrivateCrtKeySpec(
+                            unsigned(n), unsigned(e), unsigned(d),
+                            unsigned(p), unsigned(q), unsigned(dp), unsigned(dq), unsigned(qi)));
+                }
+                return rsaKeyFactory.generatePrivate(new RSAPrivateKeySpec(unsigned(n), unsigned(d)));
+            case "EC":
+                if (curve == null || !JsonWebKey.EC_CURVES.containsKey(curve)) {
+                    errorAccumulator.add("Unsupported value for \"" + JsonWebKey.CURVE + "\" (" + curve + ")");
+                    return null;
+                }
+                return KeyFactory.getInstance("EC").generatePrivate(
+                        new ECPrivateKeySpec(unsigned(d), JsonWebKey.ecParameters(curve)));
+            case "OKP":
+                if (curve == null || !OKP_KEY_PREFIXES.containsKey(curve)) {
+                    errorAccumulator.add("Unsupported value for \"" + JsonWebKey.CURVE + "\" (" + curve + ")");
+                    return null;
+                }
+                if (d.length != JsonWebKey.OKP_KEY_SIZES.get(curve)) {
+                    errorAccumulator.add("Invalid value for \"" + PRIVATE_KEY + "\" (a " + curve + " key must be "
+                            + JsonWebKey.OKP_KEY_SIZES.get(curve) + " bytes)");
+                    return null;
+                }
+                byte[] prefix = OKP_KEY_PREFIXES.get(curve);
+                byte[] encoded = Arrays.copyOf(prefix, prefix.length + d.length);
+                System.arraycopy(d, 0, encoded, prefix.length, d.length);
+                return KeyFactory.getInstance(curve).generatePrivate(new PKCS8EncodedKeySpec(encoded));
+            default:
+                errorAccumulator.add("Unsupported value for \"" + JsonWebKey.KEY_TYPE + "\" (" + keyType + ")");
+                return null;
+        }
+    }
+
+    private static BigInteger unsigned(byte[] value) {
+        return new BigInteger(1, value);
+    }
+
+    /**
+     * Gets the JWK name of the curve of an EC or EdDSA key.
+     * @return curve, or null for an RSA key
+     * @throws IllegalArgumentException if the key is not supported
+     */
+    private static String curveOf(PrivateKey privateKey) {
+        if (privateKey instanceof RSAKey) {
+            if (((RSAKey) privateKey).getModulus().bitLength() < MIN_RSA_KEY_SIZE) {
+                throw new IllegalArgumentException("RSA keys must be at least " + MIN_RSA_KEY_SIZE + " bits");
+            }
+            return null;
+        }
+        if (privateKey instanceof ECKey) {
+            int fieldSize = ((ECKey) privateKey).getParams().getCurve().getField().getFieldSize();
+            String curve = "P-" + fieldSize;
+            if (!JsonWebKey.EC_CURVES.containsKey(curve)) {
+                throw new IllegalArgumentException("Unsupported EC curve (" + fieldSize + " bits)");
+            }
+            return curve;
+        }
+        // The EdDSA key interfaces are only available from Java 15, so the curve is read from the encoded key
+        byte[] encoded = privateKey.getEncoded();
+        for (Map.Entry<String, byte[]> entry : OKP_KEY_PREFIXES.entrySet()) {
+            byte[] prefix = entry.getValue();
+            if (encoded != null && encoded.length > prefix.length
+                    && Arrays.equals(Arrays.copyOfRange(encoded, 5, 12), Arrays.copyOfRange(prefix, 5, 12))) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalArgumentException("Unsupported private key (" + privateKey.getAlgorithm() + ")");
+    }
+
+    private boolean isCompatible(JwsAlgorithm algorithm) {
+        if (curve == null) {
+            return algorithm.getKeyType().equals("RSA");
+        }
+        if (JsonWebKey.EC_CURVES.containsKey(curve)) {
+            return curve.equals(JsonWebKey.EC_ALGORITHM_CURVES.get(algorithm));
+        }
+        return algorithm == JwsAlgorithm.EDDSA;
+    }
+
+    private Signature newSignature(JwsAlgorithm algorithm) throws GeneralSecurityException {
+        Signature signature = algorithm.newSignature(curve);
+        signature.initSign(privateKey);
+        return signature;
+    }
+
+    private byte[] encodeHeader(JwsAlgorithm algorithm) {
+        JsonObject.Builder builder = new JsonObject.Builder();
+        builder.put(CompactJws.ALGORITHM, algorithm.getName());
+        if (keyId != null) {
+            builder.put(CompactJws.KEY_ID, keyId);
+        }
+        builder.put(CompactJws.TYPE, JWT_TYPE);
+        return encoder.encode(builder.build().toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,98 @@
+package org.fastfed4j.core.jws;
+
+import org.fastfed4j.core.exception.FastFedSecurityException;
+import org.fastfed4j.core.exception.InvalidMetadataException;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Verifies the signatures of JWS messages against the keys of a signer, such as a RegistrationRequest signed by an
+ * Identity Provider with one of the keys published at its jwks_uri.
+ *
+ * <p>Only the signing algorithms agreed with the signer are accepted, which are typically the signing_algorithms
+ * from the Capabilities of the provider. The key is selected by the "kid" header, so verifying a message costs a
+ * single signature check. The keys retain their parsed form and initialized Signature objects between calls, so
+ * a verifier should be kept for as long as the key set is current, or be backed by a JwksCache.</p>
+ *
+ * <p>Instances are immutable and thread-safe.</p>
+ */
+public class JwsVerifier {
+    private final JwsKeyResolver keyResolver;
+    private final Set<JwsAlgorithm> algorithms;
+
+    /**
+     * Constructs a verifier.
+     * @param keyResolver keys of the signer, such as a JsonWebKeySet, or the keys of a jwks_uri held by a JwksCache
+     * @param signingAlgorithms names of the accepted algorithms, such as Capabilities.getSigningAlgorithms().
+     *                          Names which are not supported by the SDK are ignored.
+     */
+    public JwsVerifier(JwsKeyResolver keyResolver, Set<String> signingAlgorithms) {
+        Objects.requireNonNull(keyResolver, "keyResolver must not be null");
+        Objects.requireNonNull(signingAlgorithms, "signingAlgorithms must not be null");
+        this.keyResolver = keyResolver;
+        EnumSet<JwsAlgorithm> algorithms = EnumSet.noneOf(JwsAlgorithm.class);
+        for (String name : signingAlgorithms) {
+            if (JwsAlgorithm.isValid(name)) {
+                algorithms.add(JwsAlgorithm.fromString(name));
+            }
+        }
+        this.algorithms = Collections.unmodifiableSet(algorithms);
+    }
+
+    public JwsKeyResolver getKeyResolver() {
+        return keyResolver;
+    }
+
+    /**
+     * Gets the accepted signing algorithms.
+     * @return immutable set of algorithms
+     */
+    public Set<JwsAlgorithm> getAlgorithms() {
+        return algorithms;
+    }
+
+    /**
+     * Parses a JWS and verifies its signature.
+     * @param jws compact serialization of the JWS
+     * @return verified payload
+     * @throws InvalidMetadataException if the JWS is malformed
+     * @throws FastFedSecurityException if the algorithm is not accepted, the key is unknown, or the signature is
+     * invalid
+     * @throws java.io.UncheckedIOException if the key resolver cannot retrieve the keys
+     */
+    public byte[] verify(String jws) throws InvalidMetadataException, FastFedSecurityException {
+        return verify(CompactJws.parse(jws));
+    }
+
+    /**
+     * Verifies the signature of a parsed JWS.
+     * @param jws parsed JWS
+     * @return verified payload
+     * @throws FastFedSecurityException if the algorithm is not accepted, the key is unknown, or the signature is
+     * invalid
+     * @throws java.io.UncheckedIOException if the key resolver cannot retrieve the keys
+     */
+    public byte[] verify(CompactJws jws) throws FastFedSecurityException {
+        Objects.requireNonNull(jws, "jws must not be null");
+        JwsAlgorithm algorithm = JwsAlgorithm.isValid(jws.getAlgorithm()) ? JwsAlgorithm.fromString(jws.getAlgorithm()) : null;
+        if (algorithm == null || !algorithms.contains(algorithm)) {
+            throw new FastFedSecurityException("JWS signing algorithm is not accepted (\"" + jws.getAlgorithm() + "\")");
+        }
+        List<JsonWebKey> keys = keyResolver.findKeys(jws.getKeyId(), algorithm);
+        if (keys.isEmpty()) {
+            throw new FastFedSecurityException("No key is available to verify the JWS (kid=\"" + jws.getKeyId()
+                    + "\", alg=\"" + jws.getAlgorithm() + "\")");
+        }
+        // Several keys only match when the JWS omits the key ID, in which case each candidate is tried in turn
+        for (JsonWebKey key : keys) {
+            if (key.verify(algorithm, jws.getSigningInput(), jws.getSignature())) {
+                return jws.getPayload();
+            }
+        }
+        throw new FastFedSecurityException("JWS signature is invalid (kid=\"" + jws.getKeyId() + "\")");
+    }
+}
@@ -0,0 +1,351 @@
+package org.fastfed4j.core.jws;
+
+import org.fastfed4j.core.exception.FastFedSecurityException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Detects the replay of signed messages, such as a Registration Request which an attacker captures and submits to
+ * the fastfed_handshake_register_uri a second time. Each message is recorded until it expires, and a message
+ * which has already been recorded is rejected.
+ *
+ * <p>A message is identified by the hash of its signed content, or by its issuer and "jti" claim. Messages are grouped
+ * into time buckets by expiration, in a ring which covers the maximum lifetime of a message. Since a message
+ * always falls into the bucket of its own expiration, recording it is a single insert into a concurrent set,
+ * without a global lock. A bucket is discarded as a whole once all of its messages have expired, and its slot in
+ * the ring is reused for a later bucket.</p>
+ *
+ * <p>Memory is bounded by the maximum size. When the cache is full and no bucket has expired, further messages
+ * are rejected rather than recorded, since evicting a message which has not expired would allow it to be
+ * replayed. Messages whose expiration lies beyond the maximum lifetime are rejected for the same reason.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public class ReplayCache {
+
+    /**
+     * Default maximum number of recorded messages.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 100_000;
+
+    /**
+     * Default span of expiration times which share a bucket.
+     */
+    public static final Duration DEFAULT_BUCKET_DURATION = Duration.ofMinutes(1);
+
+    /**
+     * Default upper limit on the time until a message expires.
+     */
+    public static final Duration DEFAULT_MAXIMUM_LIFETIME = Duration.ofHours(24);
+
+    private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private static final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final Clock clock;
+    private final int maximumSize;
+    private final long bucketMillis;
+    private final long maximumLifetimeMillis;
+    private final AtomicReferenceArray<Bucket> buckets;
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder replayCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * The messages which expire within one bucket duration. The count is the number of messages admitted into
+     * the bucket, and is set to RETIRED when the bucket is discarded, after which no more messages are admitted.
+     */
+    private static final class Bucket {
+        private static final int RETIRED = Integer.MIN_VALUE;
+
+        private final long epoch;
+        private final Set<String> ids = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger count = new AtomicInteger();
+
+        private Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+
+        private boolean admit() {
+            for (;;) {
+                int current = count.get();
+                if (current == RETIRED) {
+                    return false;
+                }
+                if (count.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private int retire() {
+            return count.getAndSet(RETIRED);
+        }
+    }
+
+    private ReplayCache(Builder builder) {
+        this.clock = builder.clock;
+        this.maximumSize = builder.maximumSize;
+        this.bucketMillis = builder.bucketDuration.toMillis();
+        this.maximumLifetimeMillis = builder.maximumLifetime.toMillis();
+        // A message expires at most one maximum lifetime from now, so the live buckets span that many bucket
+        // durations, plus the partial buckets at either end
+        long slots = (maximumLifetimeMillis + bucketMillis - 1) / bucketMillis + 2;
+        if (slots > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("bucketDuration is too short for the maximumLifetime");
+        }
+        this.buckets = new AtomicReferenceArray<>((int) slots);
+    }
+
+    /**
+     * Gets a shared cache with the default settings.
+     * @return ReplayCache
+     */
+    public static ReplayCache getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private static class DefaultHolder {
+        private static final ReplayCache INSTANCE = new Builder().build();
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Records a verified JWS, identified by the hash of its signing input (the encoded header and payload), and
+     * rejects it if it was already recorded. The signature is not part of the identifier, since some signatures
+     * are malleable: an ECDSA signature (r, s) may be rewritten as (r, n - s), which verifies just as well.
+     * @param jws JWS whose signature has been verified
+     * @param expiration time until which the message is accepted, such as Jwt.getExpiration() plus
+     *                   FastFedConfiguration.getClockSkew()
+     * @throws FastFedSecurityException if the JWS is a replay, has expired, expires beyond the maximum lifetime,
+     * or cannot be recorded because the cache is full
+     */
+    public void checkAndRecord(CompactJws jws, Date expiration) throws FastFedSecurityException {
+        Objects.requireNonNull(jws, "jws must not be null");
+        record(encoder.encodeToString(sha256.get().digest(jws.getSigningInput())), expiration);
+    }
+
+    /**
+     * Records a message identified by its issuer and "jti" claim, and rejects it if it was already recorded.
+     * @param issuer issuer of the message, which scopes the identifier
+     * @param jwtId unique identifier of the message
+     * @param expiration expiration of the message
+     * @throws FastFedSecurityException if the message is a replay, has expired, expires beyond the maximum lifetime,
+     * or cannot be recorded because the cache is full
+     */
+    public void checkAndRecord(String issuer, String jwtId, Date expiration) throws FastFedSecurityException {
+        Objects.requireNonNull(issuer, "issuer must not be null");
+        Objects.requireNonNull(jwtId, "jwtId must not be null");
+        // The separator cannot appear in a base64url encoded hash, so the two kinds of identifier never collide
+        record(issuer + '\u0000' + jwtId, expiration);
+    }
+
+    /**
+     * Discards the buckets whose messages have all expired. This happens automatically as the cache fills up.
+     */
+    public void purge() {
+        purge(clock.millis());
+    }
+
+    /**
+     * Gets the number of recorded messages, including any which have expired but not yet been discarded.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Gets the number of messages which were rejected as replays.
+     */
+    public long getReplayCount() {
+        return replayCount.sum();
+    }
+
+    /**
+     * Gets the number of messages which were rejected because the cache was full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    private void record(String id, Date expiration) {
+        Objects.requireNonNull(expiration, "expiration must not be null");
+        long now = clock.millis();
+        long expiresAt = expiration.getTime();
+        if (expiresAt <= now) {
+            throw new FastFedSecurityException("Jwt has expired (exp=" + expiration.toInstant() + ")");
+        }
+        if (expiresAt - now > maximumLifetimeMillis) {
+            throw new FastFedSecurityException("Jwt expiration is too far in the future to be checked for replay (exp="
+                    + expiration.toInstant() + ")");
+        }
+
+        Bucket bucket = getBucket(expiresAt / bucketMillis, now);
+        if (!bucket.ids.add(id)) {
+            replayCount.increment();
+            throw new FastFedSecurityException("Jwt has already been used");
+        }
+        if (!reserve(now)) {
+            bucket.ids.remove(id);
+            rejectedCount.increment();
+            throw new FastFedSecurityException("Unable to check the Jwt for replay (the replay cache is full)");
+        }
+        if (!bucket.admit()) {
+            // The bucket was discarded after the lookup, which only happens once the message has expired
+            size.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the bucket of an epoch, replacing the bucket which previously occupied its slot. Any previous occupant
+     * has already expired, since the ring covers every epoch in which a live message can expire.
+     */
+    private Bucket getBucket(long epoch, long now) {
+        int slot = (int) Math.floorMod(epoch, (long) buckets.length());
+        for (;;) {
+            Bucket current = buckets.get(slot);
+            if (current != null && current.epoch == epoch) {
+                return current;
+            }
+            if (current != null && !isExpired(current, now)) {
+                // Only possible if the clock has moved backwards, in which case the message cannot be tracked
+                throw new FastFedSecurityException("Unable to check the Jwt for replay (the clock moved backwards)");
+            }
+            Bucket created = new Bucket(epoch);
+            if (buckets.compareAndSet(slot, current, created)) {
+                if (current != null) {
+                    release(current);
+                }
+                return created;
+            }
+        }
+    }
+
+    private boolean reserve(long now) {
+        if (size.incrementAndGet() <= maximumSize) {
+            return true;
+        }
+        size.decrementAndGet();
+        purge(now);
+        if (size.incrementAndGet() <= maximumSize) {
+            return true;
+        }
+        size.decrementAndGet();
+        return false;
+    }
+
+    private void purge(long now) {
+        for (int slot = 0; slot < buckets.length(); slot++) {
+            Bucket bucket = buckets.get(slot);
+            if (bucket != null && isExpired(bucket, now) && buckets.compareAndSet(slot, bucket, null)) {
+                release(bucket);
+            }
+        }
+    }
+
+    private boolean isExpired(Bucket bucket, long now) {
+        return (bucket.epoch + 1) * bucketMillis <= now;
+    }
+
+    private void release(Bucket bucket) {
+        size.addAndGet(-bucket.retire());
+    }
+
+    /**
+     * Builder for ReplayCache
+     */
+    public static class Builder {
+        private Clock clock = Clock.systemUTC();
+        private int maximumSize = DEFAULT_MAXIMUM_SIZE;
+        private Duration bucketDuration = DEFAULT_BUCKET_DURATION;
+        private Duration maximumLifetime = DEFAULT_MAXIMUM_LIFETIME;
+
+        /**
+         * Construct a new Builder with default values for all settings
+         */
+        public Builder() {}
+
+        /**
+         * Generates a ReplayCache from the Builder settings.
+         * @return ReplayCache
+         * @throws IllegalArgumentException if the bucket duration is too short for the maximum lifetime
+         */
+        public ReplayCache build() {
+            return new ReplayCache(this);
+        }
+
+        /**
+         * Sets the clock used to determine if messages have expired. Default value is the system clock.
+         * @param clock clock
+         * @return Builder
+         */
+        public Builder setClock(Clock clock) {
+            Objects.requireNonNull(clock, "clock must not be null");
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of recorded messages. Default value is 100,000.
+         * @param maximumSize maximum number of messages
+         * @return Builder
+         */
+        public Builder setMaximumSize(int maximumSize) {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("maximumSize must be positive");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Sets the span of expiration times which share a bucket. Shorter buckets release memory sooner after the
+         * messages expire, at the cost of a larger ring. Default value is 1 minute.
+         * @param bucketDuration duration
+         * @return Builder
+         */
+        public Builder setBucketDuration(Duration bucketDuration) {
+            Objects.requireNonNull(bucketDuration, "bucketDuration must not be null");
+            if (bucketDuration.toMillis() <= 0) {
+                throw new IllegalArgumentException("bucketDuration must be at least 1 millisecond");
+            }
+            this.bucketDuration = bucketDuration;
+            return this;
+        }
+
+        /**
+         * Sets the upper limit on the time until a message expires. Messages which expire later are rejected.
+         * Default value is 24 hours.
+         * @param maximumLifetime duration
+         * @return Builder
+         */
+        public Builder setMaximumLifetime(Duration maximumLifetime) {
+            Objects.requireNonNull(maximumLifetime, "maximumLifetime must not be null");
+            if (maximumLifetime.isNegative() || maximumLifetime.isZero()) {
+                throw new IllegalArgumentException("maximumLifetime must be positive");
+            }
+            this.maximumLifetime = maximumLifetime;
+            return this;
+        }
+    }
+}
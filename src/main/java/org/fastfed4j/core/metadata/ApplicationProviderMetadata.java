@@ -7,16 +7,23 @@ import org.fastfed4j.core.constants.ProvisioningProfile;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.exception.FastFedSecurityException;
 import org.fastfed4j.core.exception.InvalidMetadataException;
+import org.fastfed4j.core.http.MetadataFetcher;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.core.util.FormattingUtils;
 import org.fastfed4j.core.util.ValidationUtils;
 import org.fastfed4j.profile.saml.enterprise.EnterpriseSAML;
 import org.fastfed4j.profile.Profile;
 import org.fastfed4j.profile.scim.enterprise.EnterpriseSCIM;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents the Application Provider Metadata defined in section 3.3.8 of the FastFed Core specification.
@@ -56,6 +63,7 @@ public class ApplicationProviderMetadata extends CommonProviderMetadata {
      * @param handshakeRegisterUri uri
      */
     public void setHandshakeRegisterUri(String handshakeRegisterUri) {
+        markModified();
         this.handshakeRegisterUri = handshakeRegisterUri;
     }
 
@@ -76,22 +84,50 @@ public class ApplicationProviderMetadata extends CommonProviderMetadata {
     }
 
     /**
-     * Retrieve Application Provider Metadata from a URL endpoint
+     * Retrieve Application Provider Metadata from a URL endpoint. Blocks until the metadata has been retrieved.
      * @param configuration FastFed Configuration that controls the SDK behavior
      * @param url the endpoint which hosts the metadata
      * @return ApplicationProviderMetadata
      * @throws InvalidMetadataException if the metadata is malformed
      * @throws FastFedSecurityException if the metadata content violates the FastFed security requirements
+     * @throws java.io.UncheckedIOException if the metadata cannot be retrieved
      */
     public static ApplicationProviderMetadata fromRemoteEndpoint(FastFedConfiguration configuration, String url)
             throws InvalidMetadataException, FastFedSecurityException
+    {
+        return MetadataFetcher.join(fromRemoteEndpointAsync(configuration, url));
+    }
+
+    /**
+     * Asynchronously retrieve Application Provider Metadata from a URL endpoint, using the default MetadataFetcher.
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param url the endpoint which hosts the metadata
+     * @return future containing the ApplicationProviderMetadata
+     */
+    public static CompletableFuture<ApplicationProviderMetadata> fromRemoteEndpointAsync(FastFedConfiguration configuration, String url) {
+        return fromRemoteEndpointAsync(configuration, url, MetadataFetcher.getDefault());
+    }
+
+    /**
+     * Asynchronously retrieve Application Provider Metadata from a URL endpoint. The future completes exceptionally with
+     * the same exceptions as fromRemoteEndpoint().
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param url the endpoint which hosts the metadata
+     * @param fetcher fetcher used to query the endpoint
+     * @return future containing the ApplicationProviderMetadata
+     */
+    public static CompletableFuture<ApplicationProviderMetadata> fromRemoteEndpointAsync(FastFedConfiguration configuration,
+                                                                                         String url,
+                                                                                         MetadataFetcher fetcher)
     {
         Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
         Objects.requireNonNull(url, "url must not be null");
-        String jsonString = ""; //TODO - implement the HTTP query
-        ApplicationProviderMetadata metadata = fromJson(configuration, jsonString);
-        validationUtils.assertProviderDomainIsValid(url, metadata.getProviderDomain());
-        return metadata;
+        Objects.requireNonNull(fetcher, "fetcher must not be null");
+        return fetcher.fetch(url).thenApply(json -> {
+            ApplicationProviderMetadata metadata = fromJson(configuration, json);
+            validationUtils.assertProviderDomainIsValid(url, metadata.getProviderDomain());
+            return metadata;
+        });
     }
 
     /**
@@ -111,17 +147,79 @@ public class ApplicationProviderMetadata extends CommonProviderMetadata {
         return metadata;
     }
 
+    /**
+     * Map a UTF-8 encoded JSON document into an instance of this class
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param json json document
+     * @return ApplicationProviderMetadata
+     * @throws InvalidMetadataException if the metadata is malformed
+     */
+    public static ApplicationProviderMetadata fromJson(FastFedConfiguration configuration, byte[] json)
+            throws InvalidMetadataException
+    {
+        Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
+        Objects.requireNonNull(json, "json must not be null");
+        ApplicationProviderMetadata metadata = new ApplicationProviderMetadata(configuration);
+        metadata.hydrateAndValidate(json);
+        return metadata;
+    }
+
+    /**
+     * Map a UTF-8 encoded JSON document, consisting of the bytes between the position and limit of the
+     * buffer, into an instance of this class
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param json json document
+     * @return ApplicationProviderMetadata
+     * @throws InvalidMetadataException if the metadata is malformed
+     */
+    public static ApplicationProviderMetadata fromJson(FastFedConfiguration configuration, ByteBuffer json)
+            throws InvalidMetadataException
+    {
+        Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
+        Objects.requireNonNull(json, "json must not be null");
+        ApplicationProviderMetadata metadata = new ApplicationProviderMetadata(configuration);
+        metadata.hydrateAndValidate(json);
+        return metadata;
+    }
+
+    /**
+     * Map a UTF-8 encoded JSON stream into an instance of this class. The stream is read to the end, but is
+     * not closed.
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param json json document
+     * @return ApplicationProviderMetadata
+     * @throws InvalidMetadataException if the metadata is malformed
+     */
+    public static ApplicationProviderMetadata fromJson(FastFedConfiguration configuration, InputStream json)
+            throws InvalidMetadataException
+    {
+        Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
+        Objects.requireNonNull(json, "json must not be null");
+        ApplicationProviderMetadata metadata = new ApplicationProviderMetadata(configuration);
+        metadata.hydrateAndValidate(json);
+        return metadata;
+    }
+
     @Override
     public JsonObject toJson() {
         JsonObject.Builder builder = new JsonObject.Builder(JsonMember.APPLICATION_PROVIDER);
         builder.putAll(super.toJson());
         builder.put(JsonMember.FASTFED_HANDSHAKE_REGISTER_URI, handshakeRegisterUri);
-        for (Metadata obj : getAllMetadataExtensions().values()) {
+        for (Metadata obj : getMetadataExtensionValues()) {
             builder.putAll(obj.toJson());
         }
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(JsonMember.APPLICATION_PROVIDER);
+        super.writeJsonMembers(writer);
+        // Metadata extensions are written by the superclass
+        writer.member(JsonMember.FASTFED_HANDSHAKE_REGISTER_URI, handshakeRegisterUri);
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -131,6 +229,21 @@ public class ApplicationProviderMetadata extends CommonProviderMetadata {
         setHandshakeRegisterUri(json.getString(JsonMember.FASTFED_HANDSHAKE_REGISTER_URI));
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, JsonMember.APPLICATION_PROVIDER);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        if (memberName.equals(JsonMember.FASTFED_HANDSHAKE_REGISTER_URI)) {
+            setHandshakeRegisterUri( reader.nextString(memberName));
+            return true;
+        }
+        return hydrateExtension(memberName, reader, getAllMetadataExtensions(), Profile.ExtensionType.ApplicationProviderMetadata)
+                || super.hydrateMember(memberName, reader);
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         super.validate(errorAccumulator);
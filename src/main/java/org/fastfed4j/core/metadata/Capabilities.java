@@ -5,8 +5,12 @@ import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.constants.SchemaGrammar;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
+import org.fastfed4j.core.util.UrnSet;
 import org.fastfed4j.profile.ProfileRegistry;
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -19,6 +23,17 @@ public class Capabilities extends Metadata {
     private Set<String> provisioningProfiles = new HashSet<>();
     private Set<String> schemaGrammars = new HashSet<>();
     private Set<String> signingAlgorithms = new HashSet<>();
+    private volatile CachedCompact cachedCompact;
+
+    private static final class CachedCompact {
+        private final Compact compact;
+        private final long modificationStamp;
+
+        private CachedCompact(Compact compact, long modificationStamp) {
+            this.compact = compact;
+            this.modificationStamp = modificationStamp;
+        }
+    }
 
     /**
      * Constructs an empty instance
@@ -44,39 +59,43 @@ public class Capabilities extends Metadata {
     }
 
     public Set<String> getAuthenticationProfiles() {
-        return authenticationProfiles;
+        return exposeCollection(authenticationProfiles);
     }
 
     public void setAuthenticationProfiles(Set<String> authenticationProfiles) {
+        markModified();
         Objects.requireNonNull(authenticationProfiles, "authenticationProfiles must not be null");
-        this.authenticationProfiles = authenticationProfiles;
+        this.authenticationProfiles = new HashSet<>(authenticationProfiles);
     }
 
     public Set<String> getProvisioningProfiles() {
-        return provisioningProfiles;
+        return exposeCollection(provisioningProfiles);
     }
 
     public void setProvisioningProfiles(Set<String> provisioningProfiles) {
+        markModified();
         Objects.requireNonNull(provisioningProfiles, "provisioningProfiles must not be null");
-        this.provisioningProfiles = provisioningProfiles;
+        this.provisioningProfiles = new HashSet<>(provisioningProfiles);
     }
 
     public Set<String> getSchemaGrammars() {
-        return schemaGrammars;
+        return exposeCollection(schemaGrammars);
     }
 
     public void setSchemaGrammars(Set<String> schemaGrammars) {
+        markModified();
         Objects.requireNonNull(schemaGrammars, "schemaGrammars must not be null");
-        this.schemaGrammars = schemaGrammars;
+        this.schemaGrammars = new HashSet<>(schemaGrammars);
     }
 
     public Set<String> getSigningAlgorithms() {
-        return signingAlgorithms;
+        return exposeCollection(signingAlgorithms);
     }
 
     public void setSigningAlgorithms(Set<String> signingAlgorithms) {
+        markModified();
         Objects.requireNonNull(signingAlgorithms, "signingAlgorithms must not be null");
-        this.signingAlgorithms = signingAlgorithms;
+        this.signingAlgorithms = new HashSet<>(signingAlgorithms);
     }
 
     /**
@@ -111,6 +130,26 @@ public class Capabilities extends Metadata {
         return result;
     }
 
+    /**
+     * Gets the capabilities in compact form, in which each collection is represented as an UrnSet. The compact form
+     * is cached, and the cached value is discarded whenever the Capabilities are modified.
+     * @return compact form of the capabilities
+     */
+    public Compact toCompact() {
+        long stamp = getModificationStamp();
+        CachedCompact cached = cachedCompact;
+        if (cached != null && cached.modificationStamp == stamp) {
+            return cached.compact;
+        }
+        Compact compact = new Compact(
+                UrnSet.of(authenticationProfiles),
+                UrnSet.of(provisioningProfiles),
+                UrnSet.of(schemaGrammars),
+                UrnSet.of(signingAlgorithms));
+        cachedCompact = new CachedCompact(compact, stamp);
+        return compact;
+    }
+
     @Override
     public JsonObject toJson() {
         JsonObject.Builder builder = new JsonObject.Builder(JsonMember.CAPABILITIES);
@@ -122,17 +161,57 @@ public class Capabilities extends Metadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(JsonMember.CAPABILITIES);
+        super.writeJsonMembers(writer);
+        writer.member(JsonMember.AUTHENTICATION_PROFILES, authenticationProfiles);
+        writer.member(JsonMember.PROVISIONING_PROFILES, provisioningProfiles);
+        writer.member(JsonMember.SCHEMA_GRAMMARS, schemaGrammars);
+        writer.member(JsonMember.SIGNING_ALGORITHMS, signingAlgorithms);
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
         json = json.unwrapObjectIfNeeded(JsonMember.CAPABILITIES);
         super.hydrateFromJson(json);
 
-        authenticationProfiles = json.getNonNullableStringSet(JsonMember.AUTHENTICATION_PROFILES);
-        provisioningProfiles = json.getNonNullableStringSet(JsonMember.PROVISIONING_PROFILES);
-        schemaGrammars = json.getNonNullableStringSet(JsonMember.SCHEMA_GRAMMARS);
-        signingAlgorithms = json.getNonNullableStringSet(JsonMember.SIGNING_ALGORITHMS);
+        authenticationProfiles = new HashSet<>( json.getNonNullableStringSet(JsonMember.AUTHENTICATION_PROFILES));
+        provisioningProfiles = new HashSet<>( json.getNonNullableStringSet(JsonMember.PROVISIONING_PROFILES));
+        schemaGrammars = new HashSet<>( json.getNonNullableStringSet(JsonMember.SCHEMA_GRAMMARS));
+        signingAlgorithms = new HashSet<>( json.getNonNullableStringSet(JsonMember.SIGNING_ALGORITHMS));
+        removeUnrecognizedSchemaGrammars();
+    }
+
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, JsonMember.CAPABILITIES);
+        removeUnrecognizedSchemaGrammars();
+    }
 
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.AUTHENTICATION_PROFILES:
+                authenticationProfiles = reader.nextNonNullableStringSet(memberName);
+                return true;
+            case JsonMember.PROVISIONING_PROFILES:
+                provisioningProfiles = reader.nextNonNullableStringSet(memberName);
+                return true;
+            case JsonMember.SCHEMA_GRAMMARS:
+                schemaGrammars = reader.nextNonNullableStringSet(memberName);
+                return true;
+            case JsonMember.SIGNING_ALGORITHMS:
+                signingAlgorithms = reader.nextNonNullableStringSet(memberName);
+                return true;
+            default:
+                return super.hydrateMember(memberName, reader);
+        }
+    }
+
+    private void removeUnrecognizedSchemaGrammars() {
         //Ignore unrecognized schema grammars. They cause problems downstream when validating DesiredAttributes.
         //Schema grammars are not intended to be easily pluggable or changed, because so much logic
         //depends upon a shared consensus on the valid grammar.
@@ -169,4 +248,87 @@ public class Capabilities extends Metadata {
     public int hashCode() {
         return Objects.hash(authenticationProfiles, provisioningProfiles, schemaGrammars, signingAlgorithms);
     }
+
+    /**
+     * Immutable, compact form of the Capabilities, in which each collection is represented as a bitset of well-known
+     * URNs and signing algorithms. Used to evaluate the compatibility between providers with a few word operations.
+     */
+    public static final class Compact {
+        public static final Compact EMPTY = new Compact(UrnSet.EMPTY, UrnSet.EMPTY, UrnSet.EMPTY, UrnSet.EMPTY);
+
+        private final UrnSet authenticationProfiles;
+        private final UrnSet provisioningProfiles;
+        private final UrnSet schemaGrammars;
+        private final UrnSet signingAlgorithms;
+
+        public Compact(UrnSet authenticationProfiles,
+                       UrnSet provisioningProfiles,
+                       UrnSet schemaGrammars,
+                       UrnSet signingAlgorithms)
+        {
+            this.authenticationProfiles = Objects.requireNonNull(authenticationProfiles);
+            this.provisioningProfiles = Objects.requireNonNull(provisioningProfiles);
+            this.schemaGrammars = Objects.requireNonNull(schemaGrammars);
+            this.signingAlgorithms = Objects.requireNonNull(signingAlgorithms);
+        }
+
+        public UrnSet getAuthenticationProfiles() {
+            return authenticationProfiles;
+        }
+
+        public UrnSet getProvisioningProfiles() {
+            return provisioningProfiles;
+        }
+
+        public UrnSet getSchemaGrammars() {
+            return schemaGrammars;
+        }
+
+        public UrnSet getSigningAlgorithms() {
+            return signingAlgorithms;
+        }
+
+        /**
+         * Calculates the capabilities shared with another provider.
+         * @param other capabilities of the other provider
+         * @return shared capabilities
+         */
+        public Compact intersect(Compact other) {
+            return new Compact(
+                    authenticationProfiles.intersect(other.authenticationProfiles),
+                    provisioningProfiles.intersect(other.provisioningProfiles),
+                    schemaGrammars.intersect(other.schemaGrammars),
+                    signingAlgorithms.intersect(other.signingAlgorithms));
+        }
+
+        /**
+         * Converts the compact form back into a Capabilities object.
+         * @param configuration FastFed configuration
+         * @return new, mutable Capabilities
+         */
+        public Capabilities toCapabilities(FastFedConfiguration configuration) {
+            Capabilities capabilities = new Capabilities(configuration);
+            capabilities.setAuthenticationProfiles(authenticationProfiles.toSet());
+            capabilities.setProvisioningProfiles(provisioningProfiles.toSet());
+            capabilities.setSchemaGrammars(schemaGrammars.toSet());
+            capabilities.setSigningAlgorithms(signingAlgorithms.toSet());
+            return capabilities;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Compact that = (Compact) o;
+            return authenticationProfiles.equals(that.authenticationProfiles) &&
+                    provisioningProfiles.equals(that.provisioningProfiles) &&
+                    schemaGrammars.equals(that.schemaGrammars) &&
+                    signingAlgorithms.equals(that.signingAlgorithms);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(authenticationProfiles, provisioningProfiles, schemaGrammars, signingAlgorithms);
+        }
+    }
 }
@@ -4,8 +4,11 @@ import org.fastfed4j.core.configuration.FastFedConfiguration;
 import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.profile.saml.enterprise.EnterpriseSAML;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -46,6 +49,7 @@ abstract public class CommonProviderMetadata extends Metadata {
     }
 
     public void setEntityId(String entityId) {
+        markModified();
         this.entityId = entityId;
     }
 
@@ -54,6 +58,7 @@ abstract public class CommonProviderMetadata extends Metadata {
     }
 
     public void setProviderDomain(String providerDomain) {
+        markModified();
         if (providerDomain != null) {
             this.providerDomain = providerDomain.toLowerCase();
         }
@@ -64,6 +69,7 @@ abstract public class CommonProviderMetadata extends Metadata {
     }
 
     public void setProviderContactInformation(ProviderContactInformation providerContactInformation) {
+        markModified();
         this.providerContactInformation = providerContactInformation;
     }
 
@@ -72,6 +78,7 @@ abstract public class CommonProviderMetadata extends Metadata {
     }
 
     public void setDisplaySettings(DisplaySettings displaySettings) {
+        markModified();
         this.displaySettings = displaySettings;
     }
 
@@ -80,9 +87,21 @@ abstract public class CommonProviderMetadata extends Metadata {
     }
 
     public void setCapabilities(Capabilities capabilities) {
+        markModified();
         this.capabilities = capabilities;
     }
 
+    @Override
+    public void freeze() {
+        freezeAll(providerContactInformation, displaySettings, capabilities);
+        super.freeze();
+    }
+
+    @Override
+    protected long getModificationStamp() {
+        return latestModificationStamp(super.getModificationStamp(), providerContactInformation, displaySettings, capabilities);
+    }
+
     @Override
     public JsonObject toJson() {
         JsonObject.Builder builder = new JsonObject.Builder();
@@ -99,6 +118,19 @@ abstract public class CommonProviderMetadata extends Metadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        super.writeJsonMembers(writer);
+        writer.member(JsonMember.ENTITY_ID, entityId);
+        writer.member(JsonMember.PROVIDER_DOMAIN, providerDomain);
+        if (capabilities != null)
+            writeChildJsonMembers(writer, capabilities);
+        if (displaySettings != null)
+            writeChildJsonMembers(writer, displaySettings);
+        if (providerContactInformation != null)
+            writeChildJsonMembers(writer, providerContactInformation);
+    }
+
     @Override
     public void hydrateFromJson(JsonObject jsonObj) {
         if (jsonObj == null) return;
@@ -128,6 +160,41 @@ abstract public class CommonProviderMetadata extends Metadata {
         }
     }
 
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.ENTITY_ID:
+                setEntityId( reader.nextString(memberName));
+                return true;
+            case JsonMember.PROVIDER_DOMAIN:
+                setProviderDomain( reader.nextString(memberName));
+                return true;
+            case JsonMember.PROVIDER_CONTACT_INFORMATION:
+                if (reader.nextIsObject(memberName)) {
+                    ProviderContactInformation providerContactInformation = new ProviderContactInformation(getFastFedConfiguration());
+                    providerContactInformation.hydrateFromJson(reader);
+                    setProviderContactInformation(providerContactInformation);
+                }
+                return true;
+            case JsonMember.DISPLAY_SETTINGS:
+                if (reader.nextIsObject(memberName)) {
+                    DisplaySettings displaySettings = new DisplaySettings(getFastFedConfiguration());
+                    displaySettings.hydrateFromJson(reader);
+                    setDisplaySettings(displaySettings);
+                }
+                return true;
+            case JsonMember.CAPABILITIES:
+                if (reader.nextIsObject(memberName)) {
+                    Capabilities capabilities = new Capabilities(getFastFedConfiguration());
+                    capabilities.hydrateFromJson(reader);
+                    setCapabilities(capabilities);
+                }
+                return true;
+            default:
+                return super.hydrateMember(memberName, reader);
+        }
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         // Ensure required members are non-null
@@ -1,5 +1,6 @@
 package org.fastfed4j.core.metadata;
 
+import java.io.IOException;
 import java.util.*;
 
 import org.fastfed4j.core.configuration.FastFedConfiguration;
@@ -7,6 +8,8 @@ import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.constants.SchemaGrammar;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 
 /**
  * Represents the Desired Attributes metadata, as defined in section 3.3.5 of the FastFed Core specification.
@@ -31,6 +34,8 @@ public class DesiredAttributes extends Metadata {
         private Set<String> optionalUserAttributes = new HashSet<>();
         private Set<String> requiredGroupAttributes = new HashSet<>();
         private Set<String> optionalGroupAttributes = new HashSet<>();
+        private volatile long modificationStamp = nextModificationStamp();
+        private volatile boolean frozen = false;
 
         public ForSchemaGrammar(SchemaGrammar schemaGrammar) {
             this.schemaGrammar = schemaGrammar;
@@ -38,53 +43,72 @@ public class DesiredAttributes extends Metadata {
 
         public ForSchemaGrammar(ForSchemaGrammar other) {
             this.schemaGrammar = other.schemaGrammar;
-            this.requiredUserAttributes = other.requiredUserAttributes;
-            this.optionalUserAttributes = other.optionalUserAttributes;
-            this.requiredGroupAttributes = other.requiredGroupAttributes;
-            this.optionalGroupAttributes = other.optionalGroupAttributes;
+            this.requiredUserAttributes = new HashSet<>(other.requiredUserAttributes);
+            this.optionalUserAttributes = new HashSet<>(other.optionalUserAttributes);
+            this.requiredGroupAttributes = new HashSet<>(other.requiredGroupAttributes);
+            this.optionalGroupAttributes = new HashSet<>(other.optionalGroupAttributes);
         }
 
         public SchemaGrammar getSchemaGrammar() { return schemaGrammar; }
 
         public void setSchemaGrammar(SchemaGrammar schemaGrammar) {
+            markModified();
             Objects.requireNonNull(schemaGrammar, "schemaGrammar must not be null");
             this.schemaGrammar = schemaGrammar;
         }
 
         public Set<String> getRequiredUserAttributes() {
-            return requiredUserAttributes;
+            return exposeCollection(requiredUserAttributes);
         }
 
         public void setRequiredUserAttributes(Set<String> requiredUserAttributes) {
+            markModified();
             Objects.requireNonNull(requiredUserAttributes, "requiredUserAttributes must not be null");
-            this.requiredUserAttributes = requiredUserAttributes;
+            this.requiredUserAttributes = new HashSet<>(requiredUserAttributes);
         }
 
         public Set<String> getOptionalUserAttributes() {
-            return optionalUserAttributes;
+            return exposeCollection(optionalUserAttributes);
         }
 
         public void setOptionalUserAttributes(Set<String> optionalUserAttributes) {
+            markModified();
             Objects.requireNonNull(optionalUserAttributes, "optionalUserAttributes must not be null");
-            this.optionalUserAttributes = optionalUserAttributes;
+            this.optionalUserAttributes = new HashSet<>(optionalUserAttributes);
         }
 
         public Set<String> getRequiredGroupAttributes() {
-            return requiredGroupAttributes;
+            return exposeCollection(requiredGroupAttributes);
         }
 
         public void setRequiredGroupAttributes(Set<String> requiredGroupAttributes) {
+            markModified();
             Objects.requireNonNull(requiredGroupAttributes, "requiredGroupAttributes must not be null");
-            this.requiredGroupAttributes = requiredGroupAttributes;
+            this.requiredGroupAttributes = new HashSet<>(requiredGroupAttributes);
         }
 
         public Set<String> getOptionalGroupAttributes() {
-            return optionalGroupAttributes;
+            return exposeCollection(optionalGroupAttributes);
         }
 
         public void setOptionalGroupAttributes(Set<String> optionalGroupAttributes) {
+            markModified();
             Objects.requireNonNull(optionalGroupAttributes, "optionalGroupAttributes must not be null");
-            this.optionalGroupAttributes = optionalGroupAttributes;
+            this.optionalGroupAttributes = new HashSet<>(optionalGroupAttributes);
+        }
+
+        private void markModified() {
+            if (frozen) {
+                throw new UnsupportedOperationException("Cannot modify a frozen DesiredAttributes");
+            }
+            modificationStamp = nextModificationStamp();
+        }
+
+        private Set<String> exposeCollection(Set<String> collection) {
+            if (frozen) {
+                return Collections.unmodifiableSet(collection);
+            }
+            return TrackedCollections.set(collection, this::markModified);
         }
 
         @Override
@@ -133,16 +157,17 @@ public class DesiredAttributes extends Metadata {
      * @param other object to merge
      */
     public void addAll(DesiredAttributes other) {
+        markModified();
         for (SchemaGrammar schemaGrammar : other.desiredAttributes.keySet()) {
             if (! this.desiredAttributes.containsKey(schemaGrammar)) {
                 this.desiredAttributes.put(schemaGrammar, new ForSchemaGrammar(schemaGrammar));
             }
             DesiredAttributes.ForSchemaGrammar thisValue = this.desiredAttributes.get(schemaGrammar);
             DesiredAttributes.ForSchemaGrammar otherValue = other.desiredAttributes.get(schemaGrammar);
-            thisValue.requiredUserAttributes.addAll( otherValue.getRequiredUserAttributes());
-            thisValue.optionalUserAttributes.addAll( otherValue.getOptionalUserAttributes());
-            thisValue.requiredGroupAttributes.addAll( otherValue.getRequiredGroupAttributes());
-            thisValue.optionalGroupAttributes.addAll( otherValue.getOptionalGroupAttributes());
+            thisValue.requiredUserAttributes.addAll( otherValue.requiredUserAttributes);
+            thisValue.optionalUserAttributes.addAll( otherValue.optionalUserAttributes);
+            thisValue.requiredGroupAttributes.addAll( otherValue.requiredGroupAttributes);
+            thisValue.optionalGroupAttributes.addAll( otherValue.optionalGroupAttributes);
 
             removeDuplicateAttributesFromSet(thisValue.requiredUserAttributes, thisValue.optionalUserAttributes);
             removeDuplicateAttributesFromSet(thisValue.requiredGroupAttributes, thisValue.optionalGroupAttributes);
@@ -154,10 +179,11 @@ public class DesiredAttributes extends Metadata {
      * @param userAttribute the user attribute to add to the set
      */
     public void addRequiredUserAttribute(UserAttribute userAttribute) {
+        markModified();
         if (userAttribute == null)
             return;
 
-        for (SchemaGrammar schemaGrammar : userAttribute.getAllSchemaGrammars()) {
+        for (SchemaGrammar schemaGrammar : userAttribute.viewSchemaGrammars()) {
             if (! this.desiredAttributes.containsKey(schemaGrammar)) {
                 this.desiredAttributes.put(schemaGrammar, new ForSchemaGrammar(schemaGrammar));
             }
@@ -176,6 +202,7 @@ public class DesiredAttributes extends Metadata {
      * @param optionalAttributes optional attributes
      */
     public void removeDuplicateAttributesFromSet(Set<String> requiredAttributes, Set<String> optionalAttributes) {
+        markModified();
         Set<String> itemsToRemove = new HashSet<>();
         for (String item : optionalAttributes) {
             if (requiredAttributes.contains(item))
@@ -189,7 +216,7 @@ public class DesiredAttributes extends Metadata {
      * @return collection of schema grammars
      */
     public Set<SchemaGrammar> getAllSchemaGrammars() {
-        return desiredAttributes.keySet();
+        return exposeCollection(desiredAttributes.keySet());
     }
 
     /**
@@ -198,7 +225,7 @@ public class DesiredAttributes extends Metadata {
      */
     public Set<String> getAllSchemaGrammarUrns() {
         Set<String> returnVal = new HashSet<>();
-        for (SchemaGrammar schemaGrammar : getAllSchemaGrammars()) {
+        for (SchemaGrammar schemaGrammar : desiredAttributes.keySet()) {
             returnVal.add(schemaGrammar.getUrn());
         }
         return returnVal;
@@ -216,6 +243,7 @@ public class DesiredAttributes extends Metadata {
      * Adds a new instance of DesiredAttributes.ForSchemaGrammar into the DesiredAttributes.
      */
     public void setForSchemaGrammar(ForSchemaGrammar forSchemaGrammar) {
+        markModified();
         desiredAttributes.put(forSchemaGrammar.getSchemaGrammar(), forSchemaGrammar);
     }
 
@@ -223,6 +251,7 @@ public class DesiredAttributes extends Metadata {
      * Removes an instance of DesiredAttributes.ForSchemaGrammar from the DesiredAttributes.
      */
     public void remove(SchemaGrammar schemaGrammar) {
+        markModified();
         desiredAttributes.remove(schemaGrammar);
     }
 
@@ -268,6 +297,7 @@ public class DesiredAttributes extends Metadata {
      * @param requiredUserAttributes set of required user attributes. Null values are prohibited. The absence of attributes is represented by using an empty Set.
      */
     public void setRequiredUserAttributes(Set<String> requiredUserAttributes) {
+        markModified();
         Objects.requireNonNull(requiredUserAttributes, "requiredUserAttributes must not be null");
         getForSchemaGrammar(preferredSchemaGrammar).setRequiredUserAttributes(requiredUserAttributes);
     }
@@ -278,6 +308,7 @@ public class DesiredAttributes extends Metadata {
      * @param optionalUserAttributes set of optional user attributes. Null values are prohibited. The absence of attributes is represented by using an empty Set.
      */
     public void setOptionalUserAttributes(Set<String> optionalUserAttributes) {
+        markModified();
         Objects.requireNonNull(optionalUserAttributes, "optionalUserAttributes must not be null");
         getForSchemaGrammar(preferredSchemaGrammar).setOptionalUserAttributes(optionalUserAttributes);
     }
@@ -288,6 +319,7 @@ public class DesiredAttributes extends Metadata {
      * @param requiredGroupAttributes set of required group attributes. Null values are prohibited. The absence of attributes is represented by using an empty Set.
      */
     public void setRequiredGroupAttributes(Set<String> requiredGroupAttributes) {
+        markModified();
         Objects.requireNonNull(requiredGroupAttributes, "requiredGroupAttributes must not be null");
         getForSchemaGrammar(preferredSchemaGrammar).setRequiredGroupAttributes(requiredGroupAttributes);
     }
@@ -298,10 +330,28 @@ public class DesiredAttributes extends Metadata {
      * @param optionalGroupAttributes set of optional group attributes. Null values are prohibited. The absence of attributes is represented by using an empty Set.
      */
     public void setOptionalGroupAttributes(Set<String> optionalGroupAttributes) {
+        markModified();
         Objects.requireNonNull(optionalGroupAttributes, "optionalGroupAttributes must not be null");
         getForSchemaGrammar(preferredSchemaGrammar).setOptionalGroupAttributes(optionalGroupAttributes);
     }
 
+    @Override
+    public void freeze() {
+        for (ForSchemaGrammar forSchemaGrammar : desiredAttributes.values()) {
+            forSchemaGrammar.frozen = true;
+        }
+        super.freeze();
+    }
+
+    @Override
+    protected long getModificationStamp() {
+        long stamp = super.getModificationStamp();
+        for (ForSchemaGrammar forSchemaGrammar : desiredAttributes.values()) {
+            stamp = Math.max(stamp, forSchemaGrammar.modificationStamp);
+        }
+        return stamp;
+    }
+
     @Override
     public JsonObject toJson() {
         JsonObject.Builder builder = new JsonObject.Builder(JsonMember.DESIRED_ATTRIBUTES);
@@ -309,15 +359,30 @@ public class DesiredAttributes extends Metadata {
             String schemaGrammar = entry.getKey().getUrn();
             ForSchemaGrammar value = entry.getValue();
             JsonObject.Builder builderForSchema = new JsonObject.Builder(schemaGrammar);
-            builderForSchema.put(JsonMember.REQUIRED_USER_ATTRIBUTES, value.getRequiredUserAttributes());
-            builderForSchema.put(JsonMember.OPTIONAL_USER_ATTRIBUTES, value.getOptionalUserAttributes());
-            builderForSchema.put(JsonMember.REQUIRED_GROUP_ATTRIBUTES, value.getRequiredGroupAttributes());
-            builderForSchema.put(JsonMember.OPTIONAL_GROUP_ATTRIBUTES, value.getOptionalGroupAttributes());
+            builderForSchema.put(JsonMember.REQUIRED_USER_ATTRIBUTES, value.requiredUserAttributes);
+            builderForSchema.put(JsonMember.OPTIONAL_USER_ATTRIBUTES, value.optionalUserAttributes);
+            builderForSchema.put(JsonMember.REQUIRED_GROUP_ATTRIBUTES, value.requiredGroupAttributes);
+            builderForSchema.put(JsonMember.OPTIONAL_GROUP_ATTRIBUTES, value.optionalGroupAttributes);
             builder.putAll(builderForSchema.build());
         }
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(JsonMember.DESIRED_ATTRIBUTES);
+        for (Map.Entry<SchemaGrammar, ForSchemaGrammar> entry : desiredAttributes.entrySet()) {
+            ForSchemaGrammar value = entry.getValue();
+            writer.beginObject(entry.getKey().getUrn());
+            writer.member(JsonMember.REQUIRED_USER_ATTRIBUTES, value.requiredUserAttributes);
+            writer.member(JsonMember.OPTIONAL_USER_ATTRIBUTES, value.optionalUserAttributes);
+            writer.member(JsonMember.REQUIRED_GROUP_ATTRIBUTES, value.requiredGroupAttributes);
+            writer.member(JsonMember.OPTIONAL_GROUP_ATTRIBUTES, value.optionalGroupAttributes);
+            writer.endObject();
+        }
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -335,17 +400,75 @@ public class DesiredAttributes extends Metadata {
             SchemaGrammar schemaGrammar = SchemaGrammar.fromString(schemaGrammarString);
             JsonObject schemaJson = json.getObject(schemaGrammarString);
 
-            DesiredAttributes.ForSchemaGrammar forSchema = new DesiredAttributes.ForSchemaGrammar(schemaGrammar);
-            forSchema.setRequiredUserAttributes( normalize(schemaJson.getStringSet(JsonMember.REQUIRED_USER_ATTRIBUTES)));
-            forSchema.setOptionalUserAttributes( normalize(schemaJson.getStringSet(JsonMember.OPTIONAL_USER_ATTRIBUTES)));
-            forSchema.setRequiredGroupAttributes( normalize(schemaJson.getStringSet(JsonMember.REQUIRED_GROUP_ATTRIBUTES)));
-            forSchema.setOptionalGroupAttributes( normalize(schemaJson.getStringSet(JsonMember.OPTIONAL_GROUP_ATTRIBUTES)));
+            putForSchemaGrammar(schemaGrammar,
+                    schemaJson.getStringSet(JsonMember.REQUIRED_USER_ATTRIBUTES),
+                    schemaJson.getStringSet(JsonMember.OPTIONAL_USER_ATTRIBUTES),
+                    schemaJson.getStringSet(JsonMember.REQUIRED_GROUP_ATTRIBUTES),
+                    schemaJson.getStringSet(JsonMember.OPTIONAL_GROUP_ATTRIBUTES));
+        }
+    }
 
-            removeDuplicateAttributesFromSet(forSchema.getRequiredUserAttributes(), forSchema.getOptionalUserAttributes());
-            removeDuplicateAttributesFromSet(forSchema.getRequiredGroupAttributes(), forSchema.getOptionalGroupAttributes());
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, JsonMember.DESIRED_ATTRIBUTES);
+    }
 
-            this.desiredAttributes.put(schemaGrammar, forSchema);
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        if (! SchemaGrammar.isValid(memberName))
+            return super.hydrateMember(memberName, reader);
+
+        if (! reader.nextIsObject(memberName))
+            return true;
+
+        Set<String> requiredUserAttributes = null;
+        Set<String> optionalUserAttributes = null;
+        Set<String> requiredGroupAttributes = null;
+        Set<String> optionalGroupAttributes = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String schemaMemberName = reader.nextName();
+            switch (schemaMemberName) {
+                case JsonMember.REQUIRED_USER_ATTRIBUTES:
+                    requiredUserAttributes = reader.nextStringSet(schemaMemberName);
+                    break;
+                case JsonMember.OPTIONAL_USER_ATTRIBUTES:
+                    optionalUserAttributes = reader.nextStringSet(schemaMemberName);
+                    break;
+                case JsonMember.REQUIRED_GROUP_ATTRIBUTES:
+                    requiredGroupAttributes = reader.nextStringSet(schemaMemberName);
+                    break;
+                case JsonMember.OPTIONAL_GROUP_ATTRIBUTES:
+                    optionalGroupAttributes = reader.nextStringSet(schemaMemberName);
+                    break;
+                default:
+                    reader.skipValue();
+            }
         }
+        reader.endObject();
+
+        putForSchemaGrammar(SchemaGrammar.fromString(memberName),
+                requiredUserAttributes, optionalUserAttributes, requiredGroupAttributes, optionalGroupAttributes);
+        return true;
+    }
+
+    private void putForSchemaGrammar(SchemaGrammar schemaGrammar,
+                                     Set<String> requiredUserAttributes,
+                                     Set<String> optionalUserAttributes,
+                                     Set<String> requiredGroupAttributes,
+                                     Set<String> optionalGroupAttributes)
+    {
+        DesiredAttributes.ForSchemaGrammar forSchema = new DesiredAttributes.ForSchemaGrammar(schemaGrammar);
+        forSchema.setRequiredUserAttributes( normalize(requiredUserAttributes));
+        forSchema.setOptionalUserAttributes( normalize(optionalUserAttributes));
+        forSchema.setRequiredGroupAttributes( normalize(requiredGroupAttributes));
+        forSchema.setOptionalGroupAttributes( normalize(optionalGroupAttributes));
+
+        removeDuplicateAttributesFromSet(forSchema.getRequiredUserAttributes(), forSchema.getOptionalUserAttributes());
+        removeDuplicateAttributesFromSet(forSchema.getRequiredGroupAttributes(), forSchema.getOptionalGroupAttributes());
+
+        this.desiredAttributes.put(schemaGrammar, forSchema);
     }
 
     @Override
@@ -395,6 +518,8 @@ public class DesiredAttributes extends Metadata {
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
+        Boolean equalsByFingerprint = equalsByCachedFingerprint((Metadata) o);
+        if (equalsByFingerprint != null) return equalsByFingerprint;
         DesiredAttributes that = (DesiredAttributes) o;
 
         return desiredAttributes.equals(that.desiredAttributes);
@@ -4,7 +4,10 @@ import org.fastfed4j.core.configuration.FastFedConfiguration;
 import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 
+import java.io.IOException;
 import java.util.Objects;
 import java.util.Set;
 
@@ -41,6 +44,7 @@ public class DisplaySettings extends Metadata {
     }
 
     public void setDisplayName(String displayName) {
+        markModified();
         this.displayName = displayName;
     }
 
@@ -49,6 +53,7 @@ public class DisplaySettings extends Metadata {
     }
 
     public void setLogoUri(String logoUri) {
+        markModified();
         this.logoUri = logoUri;
     }
 
@@ -57,6 +62,7 @@ public class DisplaySettings extends Metadata {
     }
 
     public void setIconUri(String iconUri) {
+        markModified();
         this.iconUri = iconUri;
     }
 
@@ -65,6 +71,7 @@ public class DisplaySettings extends Metadata {
     }
 
     public void setLicense(String license) {
+        markModified();
         this.license = license;
     }
 
@@ -78,6 +85,16 @@ public class DisplaySettings extends Metadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(JsonMember.DISPLAY_SETTINGS);
+        writer.member(JsonMember.DISPLAY_NAME, displayName);
+        writer.member(JsonMember.LOGO_URI, logoUri);
+        writer.member(JsonMember.ICON_URI, iconUri);
+        writer.member(JsonMember.LICENSE, license);
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -89,6 +106,31 @@ public class DisplaySettings extends Metadata {
         this.setLicense( json.getString(JsonMember.LICENSE));
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, JsonMember.DISPLAY_SETTINGS);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.DISPLAY_NAME:
+                setDisplayName( reader.nextString(memberName));
+                return true;
+            case JsonMember.ICON_URI:
+                setIconUri( reader.nextString(memberName));
+                return true;
+            case JsonMember.LOGO_URI:
+                setLogoUri( reader.nextString(memberName));
+                return true;
+            case JsonMember.LICENSE:
+                setLicense( reader.nextString(memberName));
+                return true;
+            default:
+                return super.hydrateMember(memberName, reader);
+        }
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
          validateRequiredString(errorAccumulator, JsonMember.DISPLAY_NAME, displayName);
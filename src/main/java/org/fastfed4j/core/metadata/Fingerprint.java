@@ -0,0 +1,75 @@
+package org.fastfed4j.core.metadata;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A 256-bit fingerprint of the contents of a Metadata object, computed as a SHA-256 digest. See
+ * Metadata.getFingerprint(). Two objects of the same type have equal fingerprints if and only if they have
+ * equivalent contents.
+ */
+public final class Fingerprint {
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final byte[] digest;
+    private final int hashCode;
+
+    private Fingerprint(byte[] digest) {
+        this.digest = digest;
+        this.hashCode = Arrays.hashCode(digest);
+    }
+
+    /**
+     * Computes the fingerprint of a canonical JSON document.
+     * @param canonicalJson canonical JSON, as produced by JsonWriter.canonicalValue()
+     * @return fingerprint
+     */
+    public static Fingerprint of(String canonicalJson) {
+        Objects.requireNonNull(canonicalJson, "canonicalJson must not be null");
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            return new Fingerprint(messageDigest.digest(canonicalJson.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gets the raw bytes of the fingerprint.
+     * @return copy of the SHA-256 digest
+     */
+    public byte[] toByteArray() {
+        return digest.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Fingerprint that = (Fingerprint) o;
+        return hashCode == that.hashCode && Arrays.equals(digest, that.digest);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Gets the fingerprint as a lowercase hexadecimal string.
+     */
+    @Override
+    public String toString() {
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xF];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,141 @@
+package org.fastfed4j.core.metadata;
+
+import org.fastfed4j.core.json.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON writer used to compute the fingerprint of a Metadata object. Rather than writing out the contents of each
+ * Metadata object held beneath the one being fingerprinted, it writes a placeholder member holding the child's own
+ * fingerprint. Fingerprints therefore form a Merkle tree, in which the fingerprint of an unchanged child is reused
+ * from its cache rather than being recomputed from the full contents.
+ *
+ * <p>The members are collected as they are written, and the document is written out as canonical JSON once the
+ * top-level object ends, so that neither the order in which the members were written nor the iteration order of
+ * the collections affects the result.</p>
+ */
+class FingerprintWriter extends JsonWriter {
+
+    /**
+     * Placeholder member names begin with a control character, so they cannot collide with the names of members
+     * defined by the FastFed specification.
+     */
+    private static final String PLACEHOLDER_PREFIX = "\u0000";
+
+    private final Appendable out;
+    private final Deque<Object> containers = new ArrayDeque<>();
+    private String pendingName;
+
+    FingerprintWriter(Appendable out) {
+        super(out);
+        this.out = out;
+    }
+
+    /**
+     * Writes a placeholder for the members of a child object, in place of the members themselves.
+     * @param child child object
+     * @return this writer
+     */
+    FingerprintWriter child(Metadata child) throws IOException {
+        name(PLACEHOLDER_PREFIX + child.getFingerprint()).value(true);
+        return this;
+    }
+
+    @Override
+    public JsonWriter beginObject() {
+        open(new HashMap<String, Object>());
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() throws IOException {
+        if (!(containers.peek() instanceof Map)) {
+            throw new IllegalStateException("Not positioned inside an object");
+        }
+        return close();
+    }
+
+    @Override
+    public JsonWriter beginArray() {
+        open(new ArrayList<>());
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() throws IOException {
+        if (!(containers.peek() instanceof List)) {
+            throw new IllegalStateException("Not positioned inside an array");
+        }
+        return close();
+    }
+
+    @Override
+    public JsonWriter name(String memberName) {
+        if (!(containers.peek() instanceof Map) || pendingName != null) {
+            throw new IllegalStateException("A member name must be written inside an object");
+        }
+        pendingName = memberName;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) {
+        add(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Number value) {
+        add(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Boolean value) {
+        add(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter nullValue() {
+        add(null);
+        return this;
+    }
+
+    private void open(Object container) {
+        if (!containers.isEmpty()) {
+            add(container);
+        }
+        containers.push(container);
+    }
+
+    private JsonWriter close() throws IOException {
+        Object container = containers.pop();
+        if (containers.isEmpty()) {
+            new JsonWriter(out).canonicalValue(container);
+        }
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void add(Object value) {
+        Object container = containers.peek();
+        if (container instanceof Map) {
+            if (pendingName == null) {
+                throw new IllegalStateException("A member name must be written before its value");
+            }
+            ((Map<String, Object>) container).put(pendingName, value);
+            pendingName = null;
+        } else if (container instanceof List) {
+            ((List<Object>) container).add(value);
+        } else {
+            throw new IllegalStateException("A fingerprint must be computed from a JSON object");
+        }
+    }
+}
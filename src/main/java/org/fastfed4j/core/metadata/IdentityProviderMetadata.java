@@ -5,11 +5,18 @@ import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.exception.FastFedSecurityException;
 import org.fastfed4j.core.exception.InvalidMetadataException;
+import org.fastfed4j.core.http.MetadataFetcher;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.core.util.ValidationUtils;
 import org.fastfed4j.profile.Profile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents the Identity Provider Metadata, as defined in section 3.3.7 of the FastFed Core specification.
@@ -49,6 +56,7 @@ public class IdentityProviderMetadata extends CommonProviderMetadata {
      * @param jwksUri uri
      */
     public void setJwksUri(String jwksUri) {
+        markModified();
         this.jwksUri = jwksUri;
     }
 
@@ -65,6 +73,7 @@ public class IdentityProviderMetadata extends CommonProviderMetadata {
      * @param handshakeStartUri uri
      */
     public void setHandshakeStartUri(String handshakeStartUri) {
+        markModified();
         this.handshakeStartUri = handshakeStartUri;
     }
 
@@ -77,23 +86,60 @@ public class IdentityProviderMetadata extends CommonProviderMetadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(JsonMember.IDENTITY_PROVIDER);
+        super.writeJsonMembers(writer);
+        writer.member(JsonMember.JWKS_URI, jwksUri);
+        writer.member(JsonMember.FASTFED_HANDSHAKE_START_URI, handshakeStartUri);
+        writer.endObject();
+    }
+
     /**
-     * Retrieve Identity Provider Metadata from a URL endpoint
+     * Retrieve Identity Provider Metadata from a URL endpoint. Blocks until the metadata has been retrieved.
      * @param configuration FastFed Configuration that controls the SDK behavior
      * @param url the endpoint which hosts the metadata
      * @return IdentityProviderMetadata
      * @throws InvalidMetadataException if the metadata is malformed
      * @throws FastFedSecurityException if the metadata content violates the FastFed security requirements
+     * @throws java.io.UncheckedIOException if the metadata cannot be retrieved
      */
     public static IdentityProviderMetadata fromRemoteEndpoint(FastFedConfiguration configuration, String url)
             throws InvalidMetadataException, FastFedSecurityException
+    {
+        return MetadataFetcher.join(fromRemoteEndpointAsync(configuration, url));
+    }
+
+    /**
+     * Asynchronously retrieve Identity Provider Metadata from a URL endpoint, using the default MetadataFetcher.
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param url the endpoint which hosts the metadata
+     * @return future containing the IdentityProviderMetadata
+     */
+    public static CompletableFuture<IdentityProviderMetadata> fromRemoteEndpointAsync(FastFedConfiguration configuration, String url) {
+        return fromRemoteEndpointAsync(configuration, url, MetadataFetcher.getDefault());
+    }
+
+    /**
+     * Asynchronously retrieve Identity Provider Metadata from a URL endpoint. The future completes exceptionally with
+     * the same exceptions as fromRemoteEndpoint().
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param url the endpoint which hosts the metadata
+     * @param fetcher fetcher used to query the endpoint
+     * @return future containing the IdentityProviderMetadata
+     */
+    public static CompletableFuture<IdentityProviderMetadata> fromRemoteEndpointAsync(FastFedConfiguration configuration,
+                                                                                      String url,
+                                                                                      MetadataFetcher fetcher)
     {
         Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
         Objects.requireNonNull(url, "Missing value for retrievedFromUrl");
-        String jsonString = ""; //TODO - implement the HTTP query
-        IdentityProviderMetadata metadata = fromJson(configuration, jsonString);
-        validationUtils.assertProviderDomainIsValid(url, metadata.getProviderDomain());
-        return metadata;
+        Objects.requireNonNull(fetcher, "fetcher must not be null");
+        return fetcher.fetch(url).thenApply(json -> {
+            IdentityProviderMetadata metadata = fromJson(configuration, json);
+            validationUtils.assertProviderDomainIsValid(url, metadata.getProviderDomain());
+            return metadata;
+        });
     }
 
     /**
@@ -113,6 +159,59 @@ public class IdentityProviderMetadata extends CommonProviderMetadata {
         return metadata;
     }
 
+    /**
+     * Map a UTF-8 encoded JSON document into an instance of this class
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param json json document
+     * @return IdentityProviderMetadata
+     * @throws InvalidMetadataException if the metadata is malformed
+     */
+    public static IdentityProviderMetadata fromJson(FastFedConfiguration configuration, byte[] json)
+            throws InvalidMetadataException
+    {
+        Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
+        Objects.requireNonNull(json, "json must not be null");
+        IdentityProviderMetadata metadata = new IdentityProviderMetadata(configuration);
+        metadata.hydrateAndValidate(json);
+        return metadata;
+    }
+
+    /**
+     * Map a UTF-8 encoded JSON document, consisting of the bytes between the position and limit of the
+     * buffer, into an instance of this class
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param json json document
+     * @return IdentityProviderMetadata
+     * @throws InvalidMetadataException if the metadata is malformed
+     */
+    public static IdentityProviderMetadata fromJson(FastFedConfiguration configuration, ByteBuffer json)
+            throws InvalidMetadataException
+    {
+        Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
+        Objects.requireNonNull(json, "json must not be null");
+        IdentityProviderMetadata metadata = new IdentityProviderMetadata(configuration);
+        metadata.hydrateAndValidate(json);
+        return metadata;
+    }
+
+    /**
+     * Map a UTF-8 encoded JSON stream into an instance of this class. The stream is read to the end, but is
+     * not closed.
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param json json document
+     * @return IdentityProviderMetadata
+     * @throws InvalidMetadataException if the metadata is malformed
+     */
+    public static IdentityProviderMetadata fromJson(FastFedConfiguration configuration, InputStream json)
+            throws InvalidMetadataException
+    {
+        Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
+        Objects.requireNonNull(json, "json must not be null");
+        IdentityProviderMetadata metadata = new IdentityProviderMetadata(configuration);
+        metadata.hydrateAndValidate(json);
+        return metadata;
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -123,6 +222,26 @@ public class IdentityProviderMetadata extends CommonProviderMetadata {
         setHandshakeStartUri(json.getString(JsonMember.FASTFED_HANDSHAKE_START_URI));
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, JsonMember.IDENTITY_PROVIDER);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.JWKS_URI:
+                setJwksUri( reader.nextString(memberName));
+                return true;
+            case JsonMember.FASTFED_HANDSHAKE_START_URI:
+                setHandshakeStartUri( reader.nextString(memberName));
+                return true;
+            default:
+                return hydrateExtension(memberName, reader, getAllMetadataExtensions(), Profile.ExtensionType.IdentityProviderMetadata)
+                        || super.hydrateMember(memberName, reader);
+        }
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         super.validate(errorAccumulator);
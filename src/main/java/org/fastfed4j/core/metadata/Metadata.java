@@ -3,25 +3,49 @@ package org.fastfed4j.core.metadata;
 import org.fastfed4j.core.configuration.FastFedConfiguration;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.exception.InvalidMetadataException;
+import org.fastfed4j.core.json.BinaryJson;
 import org.fastfed4j.core.json.JsonObject;
-import org.fastfed4j.core.json.JsonParser;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.core.util.ReflectionUtils;
 import org.fastfed4j.core.util.ValidationUtils;
 import org.fastfed4j.profile.Profile;
 import org.fastfed4j.profile.ProfileRegistry;
 
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Base class for all FastFed Metadata objects. Provides common methods for JSON serialization and validation,
  * plus extension points for capturing the extended attributes required by some FastFed Profiles.
  */
-abstract public class Metadata {
+abstract public class Metadata implements Cloneable {
     private static final ValidationUtils validationUtils = new ValidationUtils();
+    private static final AtomicLong modificationSequence = new AtomicLong();
 
     private final FastFedConfiguration configuration;
     private Map<String, Metadata> metadataExtensions = new HashMap<>();
     private String jsonPath = ""; //If hydrated from JSON, this is the fully qualified JSON path for the object.
+    private volatile long modificationStamp = nextModificationStamp();
+    private volatile CachedFingerprint cachedFingerprint;
+    private long frozenModificationStamp;
+    private volatile boolean frozen = false;
+
+    /**
+     * A fingerprint, plus the modification stamp of the contents from which it was computed.
+     */
+    private static final class CachedFingerprint {
+        private final Fingerprint fingerprint;
+        private final long modificationStamp;
+
+        private CachedFingerprint(Fingerprint fingerprint, long modificationStamp) {
+            this.fingerprint = fingerprint;
+            this.modificationStamp = modificationStamp;
+        }
+    }
 
     /**
      * Constructs an empty object with only the FastFedConfiguration
@@ -56,6 +80,7 @@ abstract public class Metadata {
      * @param ext the extended metadata defined by the profile
      */
     public void addMetadataExtension(String profileUrn, Metadata ext) {
+        markModified();
         metadataExtensions.put(profileUrn,ext);
     }
 
@@ -64,7 +89,16 @@ abstract public class Metadata {
      * @return collection of extensions, keyed by profile URN
      */
     public Map<String, Metadata> getAllMetadataExtensions() {
-        return metadataExtensions;
+        return exposeCollection(metadataExtensions);
+    }
+
+    /**
+     * Gets all the metadata extensions as a read-only collection. Unlike getAllMetadataExtensions(), this does not
+     * mark the object as modified, and is intended for serialization and validation within subclasses.
+     * @return collection of extensions
+     */
+    protected Collection<Metadata> getMetadataExtensionValues() {
+        return Collections.unmodifiableCollection(metadataExtensions.values());
     }
 
     /**
@@ -120,7 +154,7 @@ abstract public class Metadata {
         for (Map.Entry<String, Metadata> entry : other.entrySet()) {
             String profileUrn = entry.getKey();
             Metadata originalEntry = entry.getValue();
-            Metadata clonedEntry = (Metadata) ReflectionUtils.copy(originalEntry);
+            Metadata clonedEntry = ReflectionUtils.copy(originalEntry);
             clone.put(profileUrn, clonedEntry);
         }
         return clone;
@@ -132,14 +166,361 @@ abstract public class Metadata {
      */
     public JsonObject toJson() {
         JsonObject.Builder builder = new JsonObject.Builder();
-        if (hasMetadataExtensions()) {
-            for (Metadata obj : getAllMetadataExtensions().values()) {
-                builder.putAll(obj.toJson());
-            }
+        for (Metadata obj : metadataExtensions.values()) {
+            builder.putAll(obj.toJson());
         }
         return builder.build();
     }
 
+    /**
+     * Serializes into JSON, appending the document to the output in a single pass. Produces the same contents as
+     * toJson(), without building an intermediate JsonObject.
+     * @param out destination of the JSON document
+     * @throws IOException if the output cannot be written
+     */
+    public void writeJson(Appendable out) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        writeJsonMembers(writer);
+        writer.endObject();
+    }
+
+    /**
+     * Serializes into UTF-8 encoded JSON, writing the document to the stream in a single pass. The stream is
+     * flushed, but is not closed.
+     * @param out destination of the JSON document
+     * @throws IOException if the output cannot be written
+     */
+    public void writeJson(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeJson(writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the members of this object into the JSON object currently open on the writer. This is the streaming
+     * equivalent of merging the results of toJson() into a parent JsonObject.Builder via putAll(), and subclasses
+     * that override toJson() override this method to match.
+     * @param writer JSON writer
+     * @throws IOException if the output cannot be written
+     */
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        for (Metadata obj : metadataExtensions.values()) {
+            writeChildJsonMembers(writer, obj);
+        }
+    }
+
+    /**
+     * Writes the members of a child object into the JSON object currently open on the writer. Subclasses use this
+     * from writeJsonMembers(), rather than invoking writeJsonMembers() on the child directly, so that the child is
+     * represented by its cached fingerprint when computing the fingerprint of the parent.
+     * @param writer JSON writer
+     * @param child child object
+     * @throws IOException if the output cannot be written
+     */
+    protected static void writeChildJsonMembers(JsonWriter writer, Metadata child) throws IOException {
+        if (writer instanceof FingerprintWriter) {
+            ((FingerprintWriter) writer).child(child);
+        } else {
+            child.writeJsonMembers(writer);
+        }
+    }
+
+    /**
+     * Serializes into the compact binary form of BinaryJson, which is intended for storage. The binary form holds
+     * the same contents as toJson(), and can be converted back via hydrateAndValidateBinary().
+     * @return binary document
+     */
+    public byte[] toBinary() {
+        return BinaryJson.encode(toJson());
+    }
+
+    /**
+     * Serializes into canonical JSON, in which object members and array entries appear in sorted order. Two objects
+     * with equivalent contents always produce the same canonical JSON, which makes it suitable for hashing.
+     * @return canonical JSON
+     */
+    public String toCanonicalJson() {
+        return toJson().toCanonicalString();
+    }
+
+    /**
+     * Gets a fingerprint of the contents of the object. Two objects of the same type have equal fingerprints if and
+     * only if they have equivalent contents.
+     *
+     * <p>Fingerprints form a Merkle tree. The fingerprint of an object is computed from the canonical JSON of its
+     * own members, in which each Metadata object beneath it is represented by its own fingerprint, rather than by
+     * its contents. Each fingerprint is cached, and the cached value is discarded whenever the object, or any
+     * Metadata object beneath it, is modified via its setters or via the collections returned by its getters.
+     * Reading the object, including its collections, leaves the cached fingerprint intact.
+     * Recomputing the fingerprint after a change therefore only revisits the objects along the path to the change.
+     * Setters copy the collections passed to them, so that every collection held by the object can only be
+     * modified in ways that are detected.</p>
+     *
+     * <p>Checking that a cached fingerprint is still current takes time proportional to the size of the tree,
+     * since it gathers the modification stamps of every Metadata object beneath this one. Once the object is
+     * frozen the check takes constant time, because the tree can no longer change.</p>
+     * @return fingerprint
+     */
+    public Fingerprint getFingerprint() {
+        long stamp = currentModificationStamp();
+        CachedFingerprint cached = cachedFingerprint;
+        if (cached != null && cached.modificationStamp == stamp) {
+            return cached.fingerprint;
+        }
+        Fingerprint fingerprint = computeFingerprint();
+        cachedFingerprint = new CachedFingerprint(fingerprint, stamp);
+        return fingerprint;
+    }
+
+    private Fingerprint computeFingerprint() {
+        StringBuilder canonicalJson = new StringBuilder();
+        try {
+            FingerprintWriter writer = new FingerprintWriter(canonicalJson);
+            writer.beginObject();
+            writeJsonMembers(writer);
+            writer.endObject();
+        } catch (IOException e) {
+            // Not possible when writing to a StringBuilder
+            throw new UncheckedIOException(e);
+        }
+        return Fingerprint.of(canonicalJson.toString());
+    }
+
+    /**
+     * Gets the cached fingerprint, provided it is still current, without computing a new one. Unless the object
+     * is frozen, this visits every Metadata object beneath it to confirm that none has been modified.
+     * @return fingerprint, or null if none has been computed since the object was last modified
+     */
+    protected Fingerprint getCachedFingerprint() {
+        CachedFingerprint cached = cachedFingerprint;
+        if (cached != null && cached.modificationStamp == currentModificationStamp()) {
+            return cached.fingerprint;
+        }
+        return null;
+    }
+
+    /**
+     * Tests equality via the cached fingerprints of two objects, which avoids a comparison of their full contents.
+     * Only applicable when both objects hold a current fingerprint.
+     * @param other object to compare
+     * @return true if both fingerprints are current and equal, false if both are current and differ, or null if the
+     *         contents must be compared instead
+     */
+    protected Boolean equalsByCachedFingerprint(Metadata other) {
+        Fingerprint fingerprint = getCachedFingerprint();
+        if (fingerprint == null) {
+            return null;
+        }
+        Fingerprint otherFingerprint = other.getCachedFingerprint();
+        if (otherFingerprint == null) {
+            return null;
+        }
+        return fingerprint.equals(otherFingerprint);
+    }
+
+    /**
+     * Records that the contents of the object have changed, which invalidates any cached fingerprint of the object
+     * and of every Metadata object above it. Subclasses invoke this from each method that modifies the object.
+     * Modifications made through the collections returned by exposeCollection() are recorded automatically.
+     */
+    protected void markModified() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Cannot modify a frozen " + getClass().getSimpleName());
+        }
+        modificationStamp = nextModificationStamp();
+    }
+
+    /**
+     * Returns a collection held by the object to a caller that may modify it. The caller receives a view of the
+     * collection which records each modification made through it, so that merely reading the collection leaves
+     * the cached fingerprint intact. If the object is frozen, an unmodifiable view is returned instead.
+     * @param collection collection held by the object, or null
+     * @return a view of the collection
+     */
+    protected <T> Set<T> exposeCollection(Set<T> collection) {
+        if (collection == null) {
+            return null;
+        }
+        if (frozen) {
+            return Collections.unmodifiableSet(collection);
+        }
+        return TrackedCollections.set(collection, this::markModified);
+    }
+
+    /**
+     * Returns a table held by the object to a caller that may modify it, as per exposeCollection(Set).
+     * @param collection table held by the object, or null
+     * @return a view of the table
+     */
+    protected <K, V> Map<K, V> exposeCollection(Map<K, V> collection) {
+        if (collection == null) {
+            return null;
+        }
+        if (frozen) {
+            return Collections.unmodifiableMap(collection);
+        }
+        return TrackedCollections.map(collection, this::markModified);
+    }
+
+    /**
+     * Gets the stamp of the most recent modification to the object or to any Metadata object beneath it. Stamps
+     * are drawn from a single increasing sequence, so any modification within the tree raises the result.
+     * Subclasses that hold other Metadata objects override this method to include them.
+     * @return modification stamp
+     */
+    protected long getModificationStamp() {
+        long stamp = modificationStamp;
+        for (Metadata ext : metadataExtensions.values()) {
+            stamp = Math.max(stamp, ext.currentModificationStamp());
+        }
+        return stamp;
+    }
+
+    /**
+     * Gets the modification stamp of the object's own fields, excluding the Metadata objects held beneath it.
+     * Subclasses use this to track changes to a subset of their children.
+     * @return modification stamp
+     */
+    protected long getLocalModificationStamp() {
+        return modificationStamp;
+    }
+
+    /**
+     * Gets the modification stamp, without visiting the objects beneath a frozen object, since none of them can
+     * change once it is frozen.
+     */
+    private long currentModificationStamp() {
+        return frozen ? frozenModificationStamp : getModificationStamp();
+    }
+
+    /**
+     * Combines a modification stamp with those of a set of child objects.
+     * @param stamp modification stamp of the parent
+     * @param children child objects, any of which may be null
+     * @return the most recent of the modification stamps
+     */
+    protected static long latestModificationStamp(long stamp, Metadata... children) {
+        for (Metadata child : children) {
+            if (child != null) {
+                stamp = Math.max(stamp, child.currentModificationStamp());
+            }
+        }
+        return stamp;
+    }
+
+    /**
+     * Combines a modification stamp with those of a table of child objects.
+     * @param stamp modification stamp of the parent
+     * @param children child objects, keyed by profile URN
+     * @return the most recent of the modification stamps
+     */
+    protected static long latestModificationStamp(long stamp, Map<String, Metadata> children) {
+        for (Metadata child : children.values()) {
+            stamp = Math.max(stamp, child.currentModificationStamp());
+        }
+        return stamp;
+    }
+
+    /**
+     * Makes the object, and every Metadata object beneath it, immutable. Afterwards, any attempt to modify the
+     * object throws an UnsupportedOperationException, and the getters return unmodifiable views of collections.
+     * A frozen object can be shared between threads without locking, and can be shared between snapshots by the
+     * "with" operations of classes such as Contract, which copy only the objects along the path to a change.
+     *
+     * <p>Subclasses that hold other Metadata objects override this method to freeze them too, before invoking
+     * the superclass implementation. A frozen object can be copied into a new, mutable object via its copy
+     * constructor.</p>
+     */
+    public void freeze() {
+        if (frozen) return;
+        freezeAll(metadataExtensions);
+        frozenModificationStamp = getModificationStamp();
+        frozen = true;
+    }
+
+    /**
+     * Tests if the object has been frozen.
+     * @return true if the object is immutable
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Gets an immutable snapshot of the object. This is the object itself if it is already frozen, else a frozen
+     * copy of it.
+     * @return frozen object
+     */
+    public Metadata snapshot() {
+        if (frozen) return this;
+        Metadata copy = ReflectionUtils.copy(this);
+        copy.freeze();
+        return copy;
+    }
+
+    /**
+     * Gets an immutable snapshot of a child object, as described by snapshot().
+     * @param child child object, or null
+     * @return frozen object, or null
+     */
+    @SuppressWarnings("unchecked")
+    protected static <T extends Metadata> T snapshotOf(T child) {
+        return (child == null) ? null : (T) child.snapshot();
+    }
+
+    /**
+     * Freezes a set of child objects, as described by freeze().
+     * @param children child objects, any of which may be null
+     */
+    protected static void freezeAll(Metadata... children) {
+        for (Metadata child : children) {
+            if (child != null) {
+                child.freeze();
+            }
+        }
+    }
+
+    /**
+     * Freezes a table of child objects, as described by freeze().
+     * @param children child objects, keyed by profile URN
+     */
+    protected static void freezeAll(Map<String, Metadata> children) {
+        for (Metadata child : children.values()) {
+            child.freeze();
+        }
+    }
+
+    /**
+     * Creates a mutable, shallow copy of a frozen object, which shares all of its fields with the original. This
+     * is the basis of the "with" operations: the caller replaces the fields along the path to the change, and then
+     * freezes the copy. Everything else remains shared, which is safe because it is frozen.
+     * @return shallow copy
+     */
+    protected Metadata shallowCopy() {
+        if (!frozen) {
+            throw new IllegalStateException("Only a frozen " + getClass().getSimpleName() + " can be shallow copied");
+        }
+        try {
+            Metadata copy = (Metadata) super.clone();
+            copy.frozen = false;
+            copy.cachedFingerprint = null;
+            copy.modificationStamp = nextModificationStamp();
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            // Not possible, since Metadata implements Cloneable
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Draws the next value from the sequence of modification stamps.
+     * @return modification stamp
+     */
+    protected static long nextModificationStamp() {
+        return modificationSequence.incrementAndGet();
+    }
+
     /**
      * Hydrates the object from a JSON-serialized representation and then validates the contents to ensure it complies
      * with the FastFed specification.
@@ -150,20 +531,101 @@ abstract public class Metadata {
             throws InvalidMetadataException
     {
         Objects.requireNonNull(jsonString, "json must not be null");
+        hydrateAndValidate(new JsonReader(jsonString, new ErrorAccumulator()));
+    }
+
+    /**
+     * Hydrates the object from a UTF-8 encoded JSON representation and then validates the contents to ensure it
+     * complies with the FastFed specification.
+     * @param json JSON representation of the metadata
+     * @throws InvalidMetadataException if the JSON is malformed or non-compliant with the FastFed specification
+     */
+    public void hydrateAndValidate(byte[] json)
+            throws InvalidMetadataException
+    {
+        Objects.requireNonNull(json, "json must not be null");
+        hydrateAndValidate(new JsonReader(json, new ErrorAccumulator()));
+    }
+
+    /**
+     * Hydrates the object from a UTF-8 encoded JSON representation, consisting of the bytes between the position
+     * and limit of the buffer, and then validates the contents to ensure it complies with the FastFed specification.
+     * @param json JSON representation of the metadata
+     * @throws InvalidMetadataException if the JSON is malformed or non-compliant with the FastFed specification
+     */
+    public void hydrateAndValidate(ByteBuffer json)
+            throws InvalidMetadataException
+    {
+        Objects.requireNonNull(json, "json must not be null");
+        hydrateAndValidate(new JsonReader(json, new ErrorAccumulator()));
+    }
+
+    /**
+     * Hydrates the object from a UTF-8 encoded JSON stream and then validates the contents to ensure it complies
+     * with the FastFed specification. The stream is read to the end, but is not closed.
+     * @param json JSON representation of the metadata
+     * @throws InvalidMetadataException if the JSON is malformed or non-compliant with the FastFed specification
+     * @throws java.io.UncheckedIOException if the stream cannot be read
+     */
+    public void hydrateAndValidate(InputStream json)
+            throws InvalidMetadataException
+    {
+        Objects.requireNonNull(json, "json must not be null");
+        hydrateAndValidate(new JsonReader(json, new ErrorAccumulator()));
+    }
+
+    /**
+     * Hydrates the object from the binary form produced by toBinary(), and then validates the contents to ensure
+     * it complies with the FastFed specification.
+     * @param data binary document
+     * @throws InvalidMetadataException if the document is malformed or non-compliant with the FastFed specification
+     */
+    public void hydrateAndValidateBinary(byte[] data)
+            throws InvalidMetadataException
+    {
+        Objects.requireNonNull(data, "data must not be null");
 
         ErrorAccumulator errorAccumulator = new ErrorAccumulator();
-        JsonObject json = JsonParser.parse(jsonString, errorAccumulator);
+        JsonObject json = BinaryJson.decode(data, errorAccumulator);
         hydrateFromJson(json);
 
+        // Check for type errors in the decoded document
+        if (errorAccumulator.hasErrors()) {
+            throw new InvalidMetadataException(errorAccumulator, json.toString());
+        }
+
+        // Check for semantic validation errors; i.e. non-compliance to the spec
+        validate(errorAccumulator);
+        if (errorAccumulator.hasErrors()) {
+            throw new InvalidMetadataException(errorAccumulator, json.toString());
+        }
+    }
+
+    /**
+     * Hydrates the object from a streaming JSON reader positioned at the start of the document, and then validates
+     * the contents to ensure it complies with the FastFed specification.
+     * @param reader JSON reader
+     * @throws InvalidMetadataException if the JSON is malformed or non-compliant with the FastFed specification
+     */
+    public void hydrateAndValidate(JsonReader reader)
+            throws InvalidMetadataException
+    {
+        Objects.requireNonNull(reader, "reader must not be null");
+
+        ErrorAccumulator errorAccumulator = reader.getErrorAccumulator();
+        reader.requireObject();
+        hydrateFromJson(reader);
+        reader.endDocument();
+
         // Check for syntactic validation errors; i.e. invalid JSON
         if (errorAccumulator.hasErrors()) {
-            throw new InvalidMetadataException(errorAccumulator, jsonString);
+            throw new InvalidMetadataException(errorAccumulator, reader.getDocument());
         }
 
         // Check for semantic validation errors; i.e. non-compliance to the spec
         validate(errorAccumulator);
         if (errorAccumulator.hasErrors()) {
-            throw new InvalidMetadataException(errorAccumulator, jsonString);
+            throw new InvalidMetadataException(errorAccumulator, reader.getDocument());
         }
     }
 
@@ -172,9 +634,115 @@ abstract public class Metadata {
      */
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
+        markModified();
         this.jsonPath = json.getJsonPath();
     }
 
+    /**
+     * Populates the contents of the object from a streaming JSON reader, positioned at the start of the object.
+     *
+     * <p>Subclasses that support streaming hydration override this method, typically by invoking hydrateMembers()
+     * and handling each member in hydrateMember(). The default implementation reads the object into a JsonObject
+     * and delegates to hydrateFromJson(JsonObject), so that every Metadata class can be hydrated from a reader.</p>
+     * @param reader JSON source used for hydration
+     */
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateFromJson(reader.nextJsonObject());
+    }
+
+    /**
+     * Reads the members of a JSON object from a streaming reader, passing each of them to hydrateMember().
+     * Members that are not consumed by hydrateMember() are skipped.
+     *
+     * <p>Equivalent to JsonObject.unwrapObjectIfNeeded(), if the only member is named after the wrapper, the
+     * members of the wrapped object are read instead. Otherwise the object is treated as already unwrapped.</p>
+     * @param reader JSON source used for hydration
+     * @param wrapperName the name of the JSON member to unwrap, or null if the object is never wrapped
+     */
+    protected void hydrateMembers(JsonReader reader, String wrapperName) {
+        reader.beginObject();
+        markModified();
+        this.jsonPath = reader.getJsonPath();
+        boolean isFirstMember = true;
+        while (reader.hasNext()) {
+            String memberName = reader.nextName();
+            if (isFirstMember && memberName.equals(wrapperName) && reader.nextIsLastMember()) {
+                if (reader.nextIsObject(memberName)) {
+                    hydrateMembers(reader, null);
+                }
+            }
+            else if (! hydrateMember(memberName, reader)) {
+                reader.skipValue();
+            }
+            isFirstMember = false;
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Populates a single member of the object from a streaming reader, positioned at the member's value.
+     * @param memberName name of the JSON member
+     * @param reader JSON source used for hydration
+     * @return true if the value was consumed, false if the member is not recognized
+     */
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        return false;
+    }
+
+    /**
+     * Populates a table of Metadata extensions from a streaming reader, positioned at the start of a JSON object
+     * whose members are keyed by profile URN.
+     * @param reader JSON source used for hydration
+     * @param extensionTable the location where the hydrated metadata should be added
+     * @param extensionType extensions of the given type will be hydrated.
+     */
+    public void hydrateExtensions(JsonReader reader,
+                                  Map<String,Metadata> extensionTable,
+                                  Profile.ExtensionType extensionType)
+    {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String memberName = reader.nextName();
+            if (! hydrateExtension(memberName, reader, extensionTable, extensionType)) {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Populates a single Metadata extension from a streaming reader, if the member name is the URN of a
+     * profile in the registry.
+     * @param memberName name of the JSON member
+     * @param reader JSON source used for hydration
+     * @param extensionTable the location where the hydrated metadata should be added
+     * @param extensionType extensions of the given type will be hydrated.
+     * @return true if the value was consumed, false if the member is not a known profile URN
+     */
+    protected boolean hydrateExtension(String memberName,
+                                       JsonReader reader,
+                                       Map<String,Metadata> extensionTable,
+                                       Profile.ExtensionType extensionType)
+    {
+        Profile profile = getFastFedConfiguration().getProfileRegistry().getByUrn(memberName);
+        if (profile == null) {
+            return false;
+        }
+        if (! reader.nextIsObject(memberName)) {
+            return true;
+        }
+
+        Optional<Metadata> impl = newExtension(profile, extensionType);
+        if (impl.isEmpty()) {
+            reader.skipValue();
+            return true;
+        }
+
+        impl.get().hydrateFromJson(reader);
+        extensionTable.put(memberName, impl.get());
+        return true;
+    }
+
     /**
      * Populates the contents of the object from a JSON representation,
      * including any Metadata extensions.
@@ -211,24 +779,7 @@ abstract public class Metadata {
 
             // Fetch the implementation of the profile
             Profile profile = registry.getByUrn(urn);
-            Optional<Metadata> impl;
-            switch (extensionType) {
-                case ApplicationProviderMetadata:
-                    impl = profile.newApplicationProviderMetadataExtension(getFastFedConfiguration());
-                    break;
-                case IdentityProviderMetadata:
-                    impl = profile.newIdentityProviderMetadataExtension(getFastFedConfiguration());
-                    break;
-                case RegistrationRequest:
-                    impl = profile.newRegistrationRequestExtension(getFastFedConfiguration());
-                    break;
-                case RegistrationResponse:
-                    impl = profile.newRegistrationResponseExtension(getFastFedConfiguration());
-                    break;
-                default:
-                    throw new RuntimeException("Unrecognized extension type: " + extensionType);
-            }
-
+            Optional<Metadata> impl = newExtension(profile, extensionType);
             if (impl.isEmpty()) {
                 continue;
             }
@@ -239,6 +790,21 @@ abstract public class Metadata {
         }
     }
 
+    private Optional<Metadata> newExtension(Profile profile, Profile.ExtensionType extensionType) {
+        switch (extensionType) {
+            case ApplicationProviderMetadata:
+                return profile.newApplicationProviderMetadataExtension(getFastFedConfiguration());
+            case IdentityProviderMetadata:
+                return profile.newIdentityProviderMetadataExtension(getFastFedConfiguration());
+            case RegistrationRequest:
+                return profile.newRegistrationRequestExtension(getFastFedConfiguration());
+            case RegistrationResponse:
+                return profile.newRegistrationResponseExtension(getFastFedConfiguration());
+            default:
+                throw new RuntimeException("Unrecognized extension type: " + extensionType);
+        }
+    }
+
     /**
      * Validates that the contents of the object conform to the FastFed specification.
      * @param errorAccumulator to capture the full list of validation errors
@@ -362,6 +928,13 @@ abstract public class Metadata {
 
     @Override
     public String toString() {
-        return toJson().toString();
+        StringBuilder builder = new StringBuilder();
+        try {
+            writeJson(builder);
+        } catch (IOException e) {
+            // Not possible when writing to a StringBuilder
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
     }
 }
@@ -0,0 +1,202 @@
+package org.fastfed4j.core.metadata;
+
+import org.fastfed4j.core.configuration.FastFedConfiguration;
+import org.fastfed4j.core.constants.JsonMember;
+import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.exception.InvalidMetadataException;
+import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
+import org.fastfed4j.core.json.Jwt;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Represents a Jwt which a client presents to an OAuth2 token endpoint, as defined in section 3 of RFC 7523.
+ * A provider signs the assertion to obtain an access token from the endpoint advertised in
+ * Oauth2JwtServiceMetadata, such as the token endpoint of an Application Provider offering Enterprise SCIM.
+ */
+public class Oauth2ClientAssertion extends Jwt {
+    private String subject;
+    private Date issuedAt;
+    private String jwtId;
+
+    /**
+     * Constructs an empty instance
+     */
+    public Oauth2ClientAssertion(FastFedConfiguration configuration) {
+        super(configuration);
+    }
+
+    /**
+     * Copy constructor
+     */
+    public Oauth2ClientAssertion(Oauth2ClientAssertion other) {
+        super(other);
+        this.subject = other.subject;
+        this.issuedAt = other.issuedAt;
+        this.jwtId = other.jwtId;
+    }
+
+    /**
+     * Gets the subject, which is the client ID of the client authenticating to the token endpoint.
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        markModified();
+        this.subject = subject;
+    }
+
+    public Date getIssuedAt() {
+        return issuedAt;
+    }
+
+    public void setIssuedAt(Date issuedAt) {
+        markModified();
+        this.issuedAt = issuedAt;
+    }
+
+    /**
+     * Gets the unique identifier of the assertion, which allows the token endpoint to reject replays.
+     */
+    public String getJwtId() {
+        return jwtId;
+    }
+
+    public void setJwtId(String jwtId) {
+        markModified();
+        this.jwtId = jwtId;
+    }
+
+    /**
+     * Constructs an assertion in which the client identifies itself as both issuer and subject, with a random
+     * identifier.
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param clientId client ID of the authenticating provider, such as its entity_id
+     * @param tokenEndpoint token endpoint that is the audience of the assertion
+     * @param issuedAt time at which the assertion is issued
+     * @param lifetime time until the assertion expires
+     * @return Oauth2ClientAssertion
+     */
+    public static Oauth2ClientAssertion create(FastFedConfiguration configuration,
+                                               String clientId,
+                                               String tokenEndpoint,
+                                               Instant issuedAt,
+                                               Duration lifetime)
+    {
+        Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
+        Objects.requireNonNull(clientId, "clientId must not be null");
+        Objects.requireNonNull(tokenEndpoint, "tokenEndpoint must not be null");
+        Objects.requireNonNull(issuedAt, "issuedAt must not be null");
+        Objects.requireNonNull(lifetime, "lifetime must not be null");
+        if (lifetime.isNegative() || lifetime.isZero()) {
+            throw new IllegalArgumentException("lifetime must be positive");
+        }
+        // Claims are serialized in whole seconds
+        Instant issued = issuedAt.truncatedTo(ChronoUnit.SECONDS);
+        Oauth2ClientAssertion assertion = new Oauth2ClientAssertion(configuration);
+        assertion.setIssuer(clientId);
+        assertion.setSubject(clientId);
+        assertion.setAudience(tokenEndpoint);
+        assertion.setIssuedAt(Date.from(issued));
+        assertion.setExpiration(Date.from(issued.plus(lifetime).truncatedTo(ChronoUnit.SECONDS)));
+        assertion.setJwtId(UUID.randomUUID().toString());
+        return assertion;
+    }
+
+    /**
+     * Map a JSON document into an instance of this class
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param json json document
+     * @return Oauth2ClientAssertion
+     * @throws InvalidMetadataException if the json is malformed or missing content
+     */
+    public static Oauth2ClientAssertion fromJson(FastFedConfiguration configuration,
+                                                 String json)
+            throws InvalidMetadataException
+    {
+        Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
+        Objects.requireNonNull(json, "json must not be null");
+        Oauth2ClientAssertion assertion = new Oauth2ClientAssertion(configuration);
+        assertion.hydrateAndValidate(json);
+        return assertion;
+    }
+
+    @Override
+    public JsonObject toJson() {
+        JsonObject.Builder builder = new JsonObject.Builder();
+        builder.putAll(super.toJson());
+        builder.put(JsonMember.JWT_SUBJECT, subject);
+        if (issuedAt != null)
+            builder.put(JsonMember.JWT_ISSUED_AT, toNumericDate(issuedAt));
+        builder.put(JsonMember.JWT_ID, jwtId);
+        return builder.build();
+    }
+
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        super.writeJsonMembers(writer);
+        writer.member(JsonMember.JWT_SUBJECT, subject);
+        if (issuedAt != null)
+            writer.member(JsonMember.JWT_ISSUED_AT, toNumericDate(issuedAt));
+        writer.member(JsonMember.JWT_ID, jwtId);
+    }
+
+    @Override
+    public void hydrateFromJson(JsonObject json) {
+        if (json == null) return;
+        super.hydrateFromJson(json);
+        this.setSubject(json.getString(JsonMember.JWT_SUBJECT));
+        this.setIssuedAt(fromNumericDate(json.getLong(JsonMember.JWT_ISSUED_AT)));
+        this.setJwtId(json.getString(JsonMember.JWT_ID));
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.JWT_SUBJECT:
+                setSubject( reader.nextString(memberName));
+                return true;
+            case JsonMember.JWT_ISSUED_AT:
+                setIssuedAt( fromNumericDate(reader.nextLong(memberName)));
+                return true;
+            case JsonMember.JWT_ID:
+                setJwtId( reader.nextString(memberName));
+                return true;
+            default:
+                return super.hydrateMember(memberName, reader);
+        }
+    }
+
+    @Override
+    public void validate(ErrorAccumulator errorAccumulator) {
+        super.validate(errorAccumulator);
+        validateRequiredString(errorAccumulator, JsonMember.JWT_SUBJECT, subject);
+        validateRequiredString(errorAccumulator, JsonMember.JWT_ID, jwtId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        Oauth2ClientAssertion that = (Oauth2ClientAssertion) o;
+        return Objects.equals(subject, that.subject) &&
+                Objects.equals(issuedAt, that.issuedAt) &&
+                Objects.equals(jwtId, that.jwtId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), subject, issuedAt, jwtId);
+    }
+}
@@ -5,7 +5,10 @@ import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.constants.ProviderAuthenticationProtocol;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -37,6 +40,7 @@ public class Oauth2JwtClientMetadata extends ProviderAuthenticationMetadata {
     }
 
     public void setJwksUri(String jwksUri) {
+        markModified();
         this.jwksUri = jwksUri;
     }
 
@@ -53,6 +57,14 @@ public class Oauth2JwtClientMetadata extends ProviderAuthenticationMetadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(ProviderAuthenticationProtocol.OAUTH2_JWT.toString());
+        super.writeJsonMembers(writer);
+        writer.member(JsonMember.JWKS_URI, jwksUri);
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -60,6 +72,20 @@ public class Oauth2JwtClientMetadata extends ProviderAuthenticationMetadata {
         setJwksUri( json.getString(JsonMember.JWKS_URI));
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, null);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        if (memberName.equals(JsonMember.JWKS_URI)) {
+            setJwksUri( reader.nextString(memberName));
+            return true;
+        }
+        return super.hydrateMember(memberName, reader);
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         validateRequiredUrl(errorAccumulator, JsonMember.JWKS_URI, jwksUri);
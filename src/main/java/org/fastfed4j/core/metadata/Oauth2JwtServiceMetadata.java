@@ -5,7 +5,10 @@ import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.constants.ProviderAuthenticationProtocol;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -39,6 +42,7 @@ public class Oauth2JwtServiceMetadata extends ProviderAuthenticationMetadata {
     }
 
     public void setOauthTokenEndpoint(String oauthTokenEndpoint) {
+        markModified();
         this.oauthTokenEndpoint = oauthTokenEndpoint;
     }
 
@@ -47,6 +51,7 @@ public class Oauth2JwtServiceMetadata extends ProviderAuthenticationMetadata {
     }
 
     public void setOauthScope(String oauthScope) {
+        markModified();
         this.oauthScope = oauthScope;
     }
 
@@ -64,6 +69,15 @@ public class Oauth2JwtServiceMetadata extends ProviderAuthenticationMetadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(ProviderAuthenticationProtocol.OAUTH2_JWT.toString());
+        super.writeJsonMembers(writer);
+        writer.member(JsonMember.OAUTH2_TOKEN_ENDPOINT, oauthTokenEndpoint);
+        writer.member(JsonMember.OAUTH2_SCOPE, oauthScope);
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -72,6 +86,25 @@ public class Oauth2JwtServiceMetadata extends ProviderAuthenticationMetadata {
         setOauthScope( json.getString(JsonMember.OAUTH2_SCOPE));
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, null);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.OAUTH2_TOKEN_ENDPOINT:
+                setOauthTokenEndpoint( reader.nextString(memberName));
+                return true;
+            case JsonMember.OAUTH2_SCOPE:
+                setOauthScope( reader.nextString(memberName));
+                return true;
+            default:
+                return super.hydrateMember(memberName, reader);
+        }
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         validateRequiredUrl(errorAccumulator, JsonMember.OAUTH2_TOKEN_ENDPOINT, oauthTokenEndpoint);
@@ -4,7 +4,10 @@ import org.fastfed4j.core.configuration.FastFedConfiguration;
 import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -38,6 +41,7 @@ public class ProviderContactInformation extends Metadata {
     }
 
     public void setOrganization(String organization) {
+        markModified();
         this.organization = organization;
     }
 
@@ -46,6 +50,7 @@ public class ProviderContactInformation extends Metadata {
     }
 
     public void setPhone(String phone) {
+        markModified();
         this.phone = phone;
     }
 
@@ -54,6 +59,7 @@ public class ProviderContactInformation extends Metadata {
     }
 
     public void setEmail(String email) {
+        markModified();
         this.email = email;
     }
 
@@ -67,6 +73,16 @@ public class ProviderContactInformation extends Metadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(JsonMember.PROVIDER_CONTACT_INFORMATION);
+        super.writeJsonMembers(writer);
+        writer.member(JsonMember.ORGANIZATION, organization);
+        writer.member(JsonMember.PHONE, phone);
+        writer.member(JsonMember.EMAIL, email);
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -77,6 +93,28 @@ public class ProviderContactInformation extends Metadata {
         this.setPhone( json.getString(JsonMember.PHONE));
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, JsonMember.PROVIDER_CONTACT_INFORMATION);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.ORGANIZATION:
+                setOrganization( reader.nextString(memberName));
+                return true;
+            case JsonMember.EMAIL:
+                setEmail( reader.nextString(memberName));
+                return true;
+            case JsonMember.PHONE:
+                setPhone( reader.nextString(memberName));
+                return true;
+            default:
+                return super.hydrateMember(memberName, reader);
+        }
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         validateRequiredString(errorAccumulator, JsonMember.ORGANIZATION, this.organization);
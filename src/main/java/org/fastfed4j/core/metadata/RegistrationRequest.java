@@ -8,11 +8,16 @@ import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.exception.FastFedSecurityException;
 import org.fastfed4j.core.exception.InvalidMetadataException;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.core.json.Jwt;
+import org.fastfed4j.core.jws.JwsVerifier;
+import org.fastfed4j.core.jws.ReplayCache;
 import org.fastfed4j.profile.saml.enterprise.EnterpriseSAML;
 import org.fastfed4j.profile.Profile;
 import org.fastfed4j.profile.scim.enterprise.EnterpriseSCIM;
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -47,15 +52,16 @@ public class RegistrationRequest extends Jwt {
      * @return authentication profile URNs
      */
     public Set<String> getAuthenticationProfiles() {
-        return authenticationProfiles;
+        return exposeCollection(authenticationProfiles);
     }
 
     /**
      * Sets the authentication profiles to be enabled between the Identity Provider and Application Provider.
-     * @param authenticationProfiles authentication profile URNs
+     * @param authenticationProfiles authentication profile URNs, which are copied
      */
     public void setAuthenticationProfiles(Set<String> authenticationProfiles) {
-        this.authenticationProfiles = authenticationProfiles;
+        markModified();
+        this.authenticationProfiles = (authenticationProfiles == null) ? null : new HashSet<>(authenticationProfiles);
     }
 
     /**
@@ -63,15 +69,16 @@ public class RegistrationRequest extends Jwt {
      * @return provisioning profile URNs
      */
     public Set<String> getProvisioningProfiles() {
-        return provisioningProfiles;
+        return exposeCollection(provisioningProfiles);
     }
 
     /**
      * Sets the provisioning profiles to be enabled between the Identity Provider and Application Provider.
-     * @param provisioningProfiles provisioning profile URNs
+     * @param provisioningProfiles provisioning profile URNs, which are copied
      */
     public void setProvisioningProfiles(Set<String> provisioningProfiles) {
-        this.provisioningProfiles = provisioningProfiles;
+        markModified();
+        this.provisioningProfiles = (provisioningProfiles == null) ? null : new HashSet<>(provisioningProfiles);
     }
 
     /**
@@ -113,29 +120,105 @@ public class RegistrationRequest extends Jwt {
             builder.put(JsonMember.AUTHENTICATION_PROFILES, authenticationProfiles);
         if (provisioningProfiles != null)
             builder.put(JsonMember.PROVISIONING_PROFILES, provisioningProfiles);
-        for (Metadata obj : getAllMetadataExtensions().values()) {
+        for (Metadata obj : getMetadataExtensionValues()) {
             builder.putAll(obj.toJson());
         }
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        super.writeJsonMembers(writer);
+        if (authenticationProfiles != null)
+            writer.member(JsonMember.AUTHENTICATION_PROFILES, authenticationProfiles);
+        if (provisioningProfiles != null)
+            writer.member(JsonMember.PROVISIONING_PROFILES, provisioningProfiles);
+        // Jwt does not write the metadata extensions, so they are written here
+        for (Metadata obj : getMetadataExtensionValues()) {
+            writeChildJsonMembers(writer, obj);
+        }
+    }
+
+    /**
+     * Constructs an instance of this class from the claims of a Registration Request, without verifying a signature.
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param jwt the claims of the Registration Request, as a JSON document
+     * @return RegistrationRequest
+     * @throws InvalidMetadataException if the json is malformed or missing content
+     * @deprecated The signature, issuer and audience of the Registration Request are not verified. Use
+     * fromJwt(configuration, jwt, verifier, identityProviderEntityId, applicationProviderEntityId), or
+     * Contract.validateAndOverlayRegistrationRequest, to accept a signed Jwt.
+     */
+    @Deprecated
+    public static RegistrationRequest fromJwt(FastFedConfiguration configuration,
+                                              String jwt)
+        throws InvalidMetadataException
+    {
+        Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
+        Objects.requireNonNull(jwt, "jwt must not be null");
+        return fromJson(configuration, jwt);
+    }
+
     /**
      * Parses and validates a Jwt and then constructs an instance of this class from the contents of the token.
+     * The Jwt is not checked for replay, which requires the overload that accepts a ReplayCache.
      * @param configuration FastFed Configuration that controls the SDK behavior
-     * @param jwt Java Web Token in compact serialization form
+     * @param jwt Jwt in compact serialization format
+     * @param verifier verifier holding the keys published at the jwks_uri of the Identity Provider, and accepting
+     *                 the signing algorithms of the contract
+     * @param identityProviderEntityId entity_id of the Identity Provider, which must be the issuer of the Jwt
+     * @param applicationProviderEntityId entity_id of the Application Provider, which must be the audience of the Jwt
      * @return RegistrationRequest
      * @throws InvalidMetadataException if the Jwt is malformed or missing content
-     * @throws FastFedSecurityException if the Jwt signature is invalid or expired
+     * @throws FastFedSecurityException if the Jwt signature is invalid or expired, or the issuer or audience
+     * doesn't match
      */
     public static RegistrationRequest fromJwt(FastFedConfiguration configuration,
-                                              String jwt)
+                                              String jwt,
+                                              JwsVerifier verifier,
+                                              String identityProviderEntityId,
+                                              String applicationProviderEntityId)
+        throws InvalidMetadataException, FastFedSecurityException
+    {
+        Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
+        Objects.requireNonNull(jwt, "jwt must not be null");
+        Objects.requireNonNull(verifier, "verifier must not be null");
+        RegistrationRequest registrationRequest = new RegistrationRequest(configuration);
+        registrationRequest.hydrateAndValidateJwt(jwt, verifier, identityProviderEntityId, applicationProviderEntityId);
+        return registrationRequest;
+    }
+
+    /**
+     * Parses and validates a Jwt and then constructs an instance of this class from the contents of the token.
+     * The Jwt is recorded in a replay cache, and is rejected if the cache shows it has already been presented.
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param jwt Jwt in compact serialization format
+     * @param verifier verifier holding the keys published at the jwks_uri of the Identity Provider, and accepting
+     *                 the signing algorithms of the contract
+     * @param identityProviderEntityId entity_id of the Identity Provider, which must be the issuer of the Jwt
+     * @param applicationProviderEntityId entity_id of the Application Provider, which must be the audience of the Jwt
+     * @param replayCache cache of the Registration Requests which have already been accepted
+     * @return RegistrationRequest
+     * @throws InvalidMetadataException if the Jwt is malformed or missing content
+     * @throws FastFedSecurityException if the Jwt signature is invalid or expired, the issuer or audience doesn't
+     * match, or the Jwt is a replay
+     */
+    public static RegistrationRequest fromJwt(FastFedConfiguration configuration,
+                                              String jwt,
+                                              JwsVerifier verifier,
+                                              String identityProviderEntityId,
+                                              String applicationProviderEntityId,
+                                              ReplayCache replayCache)
         throws InvalidMetadataException, FastFedSecurityException
     {
         Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
         Objects.requireNonNull(jwt, "jwt must not be null");
-        // TODO - Deserialize and validate the jwt
-        String json = jwt;
-        return fromJson(configuration, json);
+        Objects.requireNonNull(verifier, "verifier must not be null");
+        Objects.requireNonNull(replayCache, "replayCache must not be null");
+        RegistrationRequest registrationRequest = new RegistrationRequest(configuration);
+        registrationRequest.hydrateAndValidateJwt(
+                jwt, verifier, identityProviderEntityId, applicationProviderEntityId, replayCache);
+        return registrationRequest;
     }
 
     /**
@@ -165,6 +248,21 @@ public class RegistrationRequest extends Jwt {
         setProvisioningProfiles( json.getStringSet(JsonMember.PROVISIONING_PROFILES));
     }
 
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.AUTHENTICATION_PROFILES:
+                setAuthenticationProfiles( reader.nextStringSet(memberName));
+                return true;
+            case JsonMember.PROVISIONING_PROFILES:
+                setProvisioningProfiles( reader.nextStringSet(memberName));
+                return true;
+            default:
+                return hydrateExtension(memberName, reader, getAllMetadataExtensions(), Profile.ExtensionType.RegistrationRequest)
+                        || super.hydrateMember(memberName, reader);
+        }
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         super.validate(errorAccumulator);
@@ -8,10 +8,15 @@ import org.fastfed4j.core.contract.EnabledProfiles;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.exception.InvalidMetadataException;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.profile.saml.enterprise.EnterpriseSAML;
 import org.fastfed4j.profile.Profile;
 import org.fastfed4j.profile.scim.enterprise.EnterpriseSCIM;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -55,6 +60,7 @@ public class RegistrationResponse extends Metadata {
      * Sets the handshake finalize uri to perform section 7.2.4.1 of the FastFed Core specification
      */
     public void setHandshakeFinalizeUri(String handshakeFinalizeUri) {
+        markModified();
         this.handshakeFinalizeUri = handshakeFinalizeUri;
     }
 
@@ -79,12 +85,19 @@ public class RegistrationResponse extends Metadata {
         JsonObject.Builder builder = new JsonObject.Builder();
         builder.putAll(super.toJson());
         builder.put(JsonMember.FASTFED_HANDSHAKE_FINALIZE_URI, handshakeFinalizeUri);
-        for (Metadata obj : getAllMetadataExtensions().values()) {
+        for (Metadata obj : getMetadataExtensionValues()) {
             builder.putAll(obj.toJson());
         }
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        super.writeJsonMembers(writer);
+        // Metadata extensions are written by the superclass
+        writer.member(JsonMember.FASTFED_HANDSHAKE_FINALIZE_URI, handshakeFinalizeUri);
+    }
+
     /**
      * Map a JSON document into an instance of this class
      * @param configuration FastFed Configuration that controls the SDK behavior
@@ -107,6 +120,74 @@ public class RegistrationResponse extends Metadata {
         return registrationResponse;
     }
 
+    /**
+     * Map a UTF-8 encoded JSON document into an instance of this class
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param json json document
+     * @param enabledProfiles used during validation to ensure the appropriate extended attributes are defined for
+     *                        all of the enabled authentication and provisioning profiles
+     * @return RegistrationResponse
+     * @throws InvalidMetadataException
+     */
+    public static RegistrationResponse fromJson(FastFedConfiguration configuration,
+                                                byte[] json,
+                                                EnabledProfiles enabledProfiles)
+            throws InvalidMetadataException
+    {
+        Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
+        Objects.requireNonNull(json, "json must not be null");
+        Objects.requireNonNull(enabledProfiles, "enabledProfiles must not be null");
+        RegistrationResponse registrationResponse = new RegistrationResponse(configuration, enabledProfiles);
+        registrationResponse.hydrateAndValidate(json);
+        return registrationResponse;
+    }
+
+    /**
+     * Map a UTF-8 encoded JSON document, consisting of the bytes between the position and limit of the
+     * buffer, into an instance of this class
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param json json document
+     * @param enabledProfiles used during validation to ensure the appropriate extended attributes are defined for
+     *                        all of the enabled authentication and provisioning profiles
+     * @return RegistrationResponse
+     * @throws InvalidMetadataException
+     */
+    public static RegistrationResponse fromJson(FastFedConfiguration configuration,
+                                                ByteBuffer json,
+                                                EnabledProfiles enabledProfiles)
+            throws InvalidMetadataException
+    {
+        Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
+        Objects.requireNonNull(json, "json must not be null");
+        Objects.requireNonNull(enabledProfiles, "enabledProfiles must not be null");
+        RegistrationResponse registrationResponse = new RegistrationResponse(configuration, enabledProfiles);
+        registrationResponse.hydrateAndValidate(json);
+        return registrationResponse;
+    }
+
+    /**
+     * Map a UTF-8 encoded JSON stream into an instance of this class. The stream is read to the end, but is
+     * not closed.
+     * @param configuration FastFed Configuration that controls the SDK behavior
+     * @param json json document
+     * @param enabledProfiles used during validation to ensure the appropriate extended attributes are defined for
+     *                        all of the enabled authentication and provisioning profiles
+     * @return RegistrationResponse
+     * @throws InvalidMetadataException
+     */
+    public static RegistrationResponse fromJson(FastFedConfiguration configuration,
+                                                InputStream json,
+                                                EnabledProfiles enabledProfiles)
+            throws InvalidMetadataException
+    {
+        Objects.requireNonNull(configuration, "FastFedConfiguration must not be null");
+        Objects.requireNonNull(json, "json must not be null");
+        Objects.requireNonNull(enabledProfiles, "enabledProfiles must not be null");
+        RegistrationResponse registrationResponse = new RegistrationResponse(configuration, enabledProfiles);
+        registrationResponse.hydrateAndValidate(json);
+        return registrationResponse;
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -115,6 +196,21 @@ public class RegistrationResponse extends Metadata {
         setHandshakeFinalizeUri( json.getString(JsonMember.FASTFED_HANDSHAKE_FINALIZE_URI));
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, null);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        if (memberName.equals(JsonMember.FASTFED_HANDSHAKE_FINALIZE_URI)) {
+            setHandshakeFinalizeUri( reader.nextString(memberName));
+            return true;
+        }
+        return hydrateExtension(memberName, reader, getAllMetadataExtensions(), Profile.ExtensionType.RegistrationResponse)
+                || super.hydrateMember(memberName, reader);
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         validateExtensions(errorAccumulator, enabledProfiles.getAllProfiles(), Profile.ExtensionType.RegistrationResponse);
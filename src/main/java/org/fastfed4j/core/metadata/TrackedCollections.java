@@ -0,0 +1,222 @@
+package org.fastfed4j.core.metadata;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Views of the collections held by a Metadata object, which report each modification made through the view. The
+ * getters of a Metadata object return these views, so that reading a collection doesn't invalidate the cached
+ * fingerprint of the object, while modifying it does.
+ */
+final class TrackedCollections {
+
+    private TrackedCollections() {}
+
+    /**
+     * Wraps a set in a view that invokes a callback after each modification.
+     * @param set the set held by the object
+     * @param onModified callback invoked after the set is modified
+     * @return view of the set
+     */
+    static <T> Set<T> set(Set<T> set, Runnable onModified) {
+        return new TrackedSet<>(set, onModified);
+    }
+
+    /**
+     * Wraps a table in a view that invokes a callback after each modification.
+     * @param map the table held by the object
+     * @param onModified callback invoked after the table is modified
+     * @return view of the table
+     */
+    static <K, V> Map<K, V> map(Map<K, V> map, Runnable onModified) {
+        return new TrackedMap<>(map, onModified);
+    }
+
+    private static final class TrackedSet<T> extends AbstractSet<T> {
+        private final Set<T> set;
+        private final Runnable onModified;
+
+        private TrackedSet(Set<T> set, Runnable onModified) {
+            this.set = set;
+            this.onModified = onModified;
+        }
+
+        @Override
+        public int size() {
+            return set.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return set.contains(o);
+        }
+
+        @Override
+        public boolean add(T t) {
+            boolean changed = set.add(t);
+            if (changed) onModified.run();
+            return changed;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            boolean changed = set.remove(o);
+            if (changed) onModified.run();
+            return changed;
+        }
+
+        @Override
+        public void clear() {
+            if (set.isEmpty()) return;
+            set.clear();
+            onModified.run();
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new TrackedIterator<>(set.iterator(), onModified);
+        }
+    }
+
+    private static final class TrackedMap<K, V> extends AbstractMap<K, V> {
+        private final Map<K, V> map;
+        private final Runnable onModified;
+
+        private TrackedMap(Map<K, V> map, Runnable onModified) {
+            this.map = map;
+            this.onModified = onModified;
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return map.get(key);
+        }
+
+        @Override
+        public V put(K key, V value) {
+            V previous = map.put(key, value);
+            onModified.run();
+            return previous;
+        }
+
+        @Override
+        public V remove(Object key) {
+            if (!map.containsKey(key)) return null;
+            V previous = map.remove(key);
+            onModified.run();
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            if (map.isEmpty()) return;
+            map.clear();
+            onModified.run();
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new AbstractSet<Map.Entry<K, V>>() {
+                @Override
+                public int size() {
+                    return map.size();
+                }
+
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    Iterator<Map.Entry<K, V>> entries = map.entrySet().iterator();
+                    return new TrackedIterator<Map.Entry<K, V>>(entries, onModified) {
+                        @Override
+                        public Map.Entry<K, V> next() {
+                            return new TrackedEntry<>(super.next(), onModified);
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    private static class TrackedIterator<T> implements Iterator<T> {
+        private final Iterator<T> iterator;
+        private final Runnable onModified;
+
+        private TrackedIterator(Iterator<T> iterator, Runnable onModified) {
+            this.iterator = iterator;
+            this.onModified = onModified;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return iterator.next();
+        }
+
+        @Override
+        public void remove() {
+            iterator.remove();
+            onModified.run();
+        }
+    }
+
+    private static final class TrackedEntry<K, V> implements Map.Entry<K, V> {
+        private final Map.Entry<K, V> entry;
+        private final Runnable onModified;
+
+        private TrackedEntry(Map.Entry<K, V> entry, Runnable onModified) {
+            this.entry = entry;
+            this.onModified = onModified;
+        }
+
+        @Override
+        public K getKey() {
+            return entry.getKey();
+        }
+
+        @Override
+        public V getValue() {
+            return entry.getValue();
+        }
+
+        @Override
+        public V setValue(V value) {
+            V previous = entry.setValue(value);
+            onModified.run();
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) return false;
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            return Objects.equals(getKey(), other.getKey()) && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
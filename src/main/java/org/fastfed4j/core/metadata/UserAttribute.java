@@ -1,5 +1,6 @@
 package org.fastfed4j.core.metadata;
 
+import java.io.IOException;
 import java.util.*;
 
 import org.fastfed4j.core.configuration.FastFedConfiguration;
@@ -7,6 +8,8 @@ import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.constants.SchemaGrammar;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.core.util.ValidationUtils;
 
 /**
@@ -50,7 +53,14 @@ public class UserAttribute extends Metadata {
      * @return collection of schema grammars
      */
     public Set<SchemaGrammar> getAllSchemaGrammars() {
-        return userAttribute.keySet();
+        return exposeCollection(userAttribute.keySet());
+    }
+
+    /**
+     * Read-only view of the schema grammars, which does not treat the attribute as modified.
+     */
+    Set<SchemaGrammar> viewSchemaGrammars() {
+        return Collections.unmodifiableSet(userAttribute.keySet());
     }
 
     /**
@@ -76,6 +86,7 @@ public class UserAttribute extends Metadata {
      * @param value of the attribute
      */
     public void set(String value) {
+        markModified();
         userAttribute.put(preferredSchemaGrammar, value);
     }
 
@@ -90,6 +101,15 @@ public class UserAttribute extends Metadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(jsonObjectName);
+        for (Map.Entry<SchemaGrammar, String> entry : userAttribute.entrySet()) {
+            writer.member(entry.getKey().getUrn(), entry.getValue());
+        }
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -110,6 +130,22 @@ public class UserAttribute extends Metadata {
         }
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, jsonObjectName);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        if (! SchemaGrammar.isValid(memberName))
+            return super.hydrateMember(memberName, reader);
+
+        SchemaGrammar schemaGrammar = SchemaGrammar.fromString(memberName);
+        String attributeName = reader.nextString(memberName);
+        this.userAttribute.put(schemaGrammar, attributeName);
+        return true;
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         if (userAttribute.size() == 0) {
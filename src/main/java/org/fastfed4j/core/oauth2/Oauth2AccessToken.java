@@ -0,0 +1,65 @@
+package org.fastfed4j.core.oauth2;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * An access token issued by an OAuth2 token endpoint, as defined in section 5.1 of RFC 6749.
+ *
+ * <p>Instances are immutable and thread-safe.</p>
+ */
+public final class Oauth2AccessToken {
+    private final String value;
+    private final String tokenType;
+    private final String scope;
+    private final Instant expiresAt;
+
+    /**
+     * Constructs an access token.
+     * @param value the access token
+     * @param tokenType type of the token, such as "Bearer"
+     * @param scope scope granted to the token, or null if unspecified
+     * @param expiresAt time at which the token expires
+     */
+    public Oauth2AccessToken(String value, String tokenType, String scope, Instant expiresAt) {
+        Objects.requireNonNull(value, "value must not be null");
+        Objects.requireNonNull(tokenType, "tokenType must not be null");
+        Objects.requireNonNull(expiresAt, "expiresAt must not be null");
+        this.value = value;
+        this.tokenType = tokenType;
+        this.scope = scope;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getTokenType() {
+        return tokenType;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Gets the value of the Authorization header which presents the token, such as "Bearer mF_9.B5f-4.1JqM".
+     * @return header value
+     */
+    public String getAuthorizationHeader() {
+        // The token type is case-insensitive (RFC 6749, section 5.1), but the scheme is conventionally capitalized
+        String scheme = tokenType.equalsIgnoreCase("Bearer") ? "Bearer" : tokenType;
+        return scheme + " " + value;
+    }
+
+    @Override
+    public String toString() {
+        // The token itself is omitted, so that it isn't leaked into logs
+        return "Oauth2AccessToken{tokenType=" + tokenType + ", scope=" + scope + ", expiresAt=" + expiresAt + "}";
+    }
+}
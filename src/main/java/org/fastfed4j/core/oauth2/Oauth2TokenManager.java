@@ -0,0 +1,466 @@
+package org.fastfed4j.core.oauth2;
+
+import org.fastfed4j.core.configuration.FastFedConfiguration;
+import org.fastfed4j.core.contract.Contract;
+import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.exception.InvalidMetadataException;
+import org.fastfed4j.core.http.MetadataFetcher;
+import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonParser;
+import org.fastfed4j.core.jws.JwsSigner;
+import org.fastfed4j.core.metadata.Oauth2ClientAssertion;
+import org.fastfed4j.core.metadata.Oauth2JwtServiceMetadata;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Obtains and caches the OAuth2 access tokens which a provider presents to the endpoints of another provider,
+ * such as the SCIM endpoints of an Application Provider which uses the OAuth2 Jwt protocol for Enterprise SCIM.
+ *
+ * <p>Tokens are requested from the token endpoint with a signed Oauth2ClientAssertion, using the JWT bearer grant
+ * defined in section 2.1 of RFC 7523, and are cached per token endpoint, scope and client. A token is refreshed in
+ * the background once a fraction of its lifetime has passed, while the cached token continues to be returned, so
+ * that callers only wait for a token when none is cached or the cached token has expired. Concurrent requests for
+ * the same token share a single request to the token endpoint.</p>
+ *
+ * <p>Requests to the token endpoint are made by a MetadataFetcher, and so share its limits, retries and circuit
+ * breaker for each host. Every attempt, including a retry, is signed with a new client assertion.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public class Oauth2TokenManager {
+
+    /**
+     * Grant type of the JWT bearer grant (RFC 7523, section 2.1).
+     */
+    public static final String JWT_BEARER_GRANT_TYPE = "urn:ietf:params:oauth:grant-type:jwt-bearer";
+
+    /**
+     * Default lifetime of tokens whose response doesn't specify expires_in.
+     */
+    public static final Duration DEFAULT_TOKEN_LIFETIME = Duration.ofMinutes(5);
+
+    /**
+     * Default lifetime of the client assertions sent to the token endpoint.
+     */
+    public static final Duration DEFAULT_ASSERTION_LIFETIME = Duration.ofMinutes(5);
+
+    /**
+     * Default fraction of the lifetime of a token after which it is refreshed in the background.
+     */
+    public static final double DEFAULT_REFRESH_AHEAD_FACTOR = 0.8;
+
+    /**
+     * Default time before the expiration of a token at which it is no longer used, to allow for clock skew and
+     * for the time taken by the request which presents it.
+     */
+    public static final Duration DEFAULT_EXPIRY_MARGIN = Duration.ofSeconds(30);
+
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded";
+    private static final String ACCESS_TOKEN = "access_token";
+    private static final String TOKEN_TYPE = "token_type";
+    private static final String EXPIRES_IN = "expires_in";
+    private static final String SCOPE = "scope";
+
+    private final FastFedConfiguration configuration;
+    private final MetadataFetcher fetcher;
+    private final Clock clock;
+    private final long defaultTokenLifetimeMillis;
+    private final Duration assertionLifetime;
+    private final double refreshAheadFactor;
+    private final long expiryMarginMillis;
+
+    private final Map<TokenKey, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<TokenKey, CompletableFuture<Oauth2AccessToken>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder refreshAheadCount = new LongAdder();
+
+    private static final class TokenKey {
+        private final String tokenEndpoint;
+        private final String scope;
+        private final String clientId;
+
+        private TokenKey(String tokenEndpoint, String scope, String clientId) {
+            this.tokenEndpoint = tokenEndpoint;
+            this.scope = scope;
+            this.clientId = clientId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            TokenKey that = (TokenKey) o;
+            return tokenEndpoint.equals(that.tokenEndpoint) &&
+                    Objects.equals(scope, that.scope) &&
+                    clientId.equals(that.clientId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tokenEndpoint, scope, clientId);
+        }
+    }
+
+    private static final class Entry {
+        private final Oauth2AccessToken token;
+        private final long refreshAt;
+        private final long expiresAt;
+
+        private Entry(Oauth2AccessToken token, long refreshAt, long expiresAt) {
+            this.token = token;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private Oauth2TokenManager(Builder builder) {
+        this.configuration = builder.configuration;
+        this.fetcher = (builder.fetcher == null ? MetadataFetcher.getDefault() : builder.fetcher);
+        this.clock = builder.clock;
+        this.defaultTokenLifetimeMillis = builder.defaultTokenLifetime.toMillis();
+        this.assertionLifetime = builder.assertionLifetime;
+        this.refreshAheadFactor = builder.refreshAheadFactor;
+        this.expiryMarginMillis = builder.expiryMargin.toMillis();
+    }
+
+    /**
+     * Gets an access token for the Enterprise SCIM endpoints of the Application Provider of a contract, which must
+     * use the OAuth2 Jwt protocol. The Identity Provider authenticates with its entity_id as the client ID, and
+     * signs the assertion with one of the signing algorithms of the contract.
+     * @param contract contract between the Identity Provider and Application Provider
+     * @param signer signer holding the private key of the Identity Provider
+     * @return future containing the access token
+     * @throws IllegalArgumentException if the contract doesn't use the OAuth2 Jwt protocol for Enterprise SCIM
+     */
+    public CompletableFuture<Oauth2AccessToken> getEnterpriseScimTokenAsync(Contract contract, JwsSigner signer) {
+        Objects.requireNonNull(contract, "contract must not be null");
+        Oauth2JwtServiceMetadata service = contract.getApplicationProvider().getEnterpriseScimOauth2JwtService();
+        if (service == null) {
+            throw new IllegalArgumentException("The contract does not use the OAuth2 Jwt protocol for Enterprise SCIM");
+        }
+        return getTokenAsync(service.getOauthTokenEndpoint(), service.getOauthScope(),
+                contract.getIdentityProvider().getEntityId(), signer, contract.getSigningAlgorithms());
+    }
+
+    /**
+     * Gets an access token, requesting one from the token endpoint if none is cached or the cached token has
+     * expired. Blocks until the token is available.
+     * @param tokenEndpoint the token endpoint
+     * @param scope the requested scope, or null to request the default scope
+     * @param clientId client ID, which is the issuer and subject of the client assertion
+     * @param signer signer holding the private key of the client
+     * @param signingAlgorithms names of the algorithms accepted by the token endpoint
+     * @return access token
+     * @throws InvalidMetadataException if the token response is malformed
+     * @throws java.io.UncheckedIOException if the token cannot be obtained, including when the token endpoint
+     * rejects the request
+     */
+    public Oauth2AccessToken getToken(String tokenEndpoint, String scope, String clientId, JwsSigner signer,
+                                      Set<String> signingAlgorithms) {
+        return MetadataFetcher.join(getTokenAsync(tokenEndpoint, scope, clientId, signer, signingAlgorithms));
+    }
+
+    /**
+     * Gets an access token, as per getToken(), without blocking. The returned future is already complete if a
+     * token is cached, including while the token is refreshed in the background.
+     * @param tokenEndpoint the token endpoint
+     * @param scope the requested scope, or null to request the default scope
+     * @param clientId client ID, which is the issuer and subject of the client assertion
+     * @param signer signer holding the private key of the client
+     * @param signingAlgorithms names of the algorithms accepted by the token endpoint
+     * @return future containing the access token
+     */
+    public CompletableFuture<Oauth2AccessToken> getTokenAsync(String tokenEndpoint, String scope, String clientId,
+                                                              JwsSigner signer, Set<String> signingAlgorithms) {
+        Objects.requireNonNull(tokenEndpoint, "tokenEndpoint must not be null");
+        Objects.requireNonNull(clientId, "clientId must not be null");
+        Objects.requireNonNull(signer, "signer must not be null");
+        Objects.requireNonNull(signingAlgorithms, "signingAlgorithms must not be null");
+        TokenKey key = new TokenKey(tokenEndpoint, scope, clientId);
+        Entry entry = entries.get(key);
+        long now = clock.millis();
+        if (entry != null && now < entry.expiresAt) {
+            hitCount.increment();
+            if (now >= entry.refreshAt && !inFlight.containsKey(key)) {
+                // Failures are ignored, since the token remains usable until it expires
+                refreshAheadCount.increment();
+                refresh(key, signer, signingAlgorithms);
+            }
+            return CompletableFuture.completedFuture(entry.token);
+        }
+        missCount.increment();
+        return refresh(key, signer, signingAlgorithms).copy();
+    }
+
+    /**
+     * Gets a cached access token without requesting one.
+     * @param tokenEndpoint the token endpoint
+     * @param scope the requested scope, or null for the default scope
+     * @param clientId client ID
+     * @return access token, or null if no unexpired token is cached
+     */
+    public Oauth2AccessToken getCachedToken(String tokenEndpoint, String scope, String clientId) {
+        Entry entry = entries.get(new TokenKey(tokenEndpoint, scope, clientId));
+        return (entry != null && clock.millis() < entry.expiresAt) ? entry.token : null;
+    }
+
+    /**
+     * Discards a cached access token, such as after the resource server has rejected it. A request for the token
+     * which is already in progress is not cancelled, and caches the token it obtains when it completes.
+     * @param tokenEndpoint the token endpoint
+     * @param scope the requested scope, or null for the default scope
+     * @param clientId client ID
+     */
+    public void invalidate(String tokenEndpoint, String scope, String clientId) {
+        entries.remove(new TokenKey(tokenEndpoint, scope, clientId));
+    }
+
+    /**
+     * Discards all the cached access tokens. The counts are retained. As with invalidate(), requests which are
+     * already in progress are not cancelled, and cache the tokens they obtain.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of lookups that were answered from the cache.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Gets the number of lookups that had to wait for a token to be obtained.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Gets the number of background refreshes of tokens which had not yet expired.
+     */
+    public long getRefreshAheadCount() {
+        return refreshAheadCount.sum();
+    }
+
+    /**
+     * Requests a token, unless a request for the same token is already in progress, in which case the
+     * in-progress request is shared.
+     */
+    private CompletableFuture<Oauth2AccessToken> refresh(TokenKey key, JwsSigner signer, Set<String> signingAlgorithms) {
+        CompletableFuture<Oauth2AccessToken> promise = new CompletableFuture<>();
+        CompletableFuture<Oauth2AccessToken> existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            return existing;
+        }
+        // Each attempt carries a new assertion, since the token endpoint may reject a "jti" which it has already
+        // seen (RFC 7523, section 3), including that of an attempt which it processed but which appeared to fail
+        CompletableFuture<byte[]> response;
+        try {
+            response = fetcher.post(key.tokenEndpoint, FORM_CONTENT_TYPE, () -> {
+                String assertion = Oauth2ClientAssertion
+                        .create(configuration, key.clientId, key.tokenEndpoint, clock.instant(), assertionLifetime)
+                        .toCompactSerialization(signer, signingAlgorithms);
+                return toTokenRequest(assertion, key.scope);
+            });
+        }
+        catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.thenApply(body -> update(key, body))
+                .whenComplete((token, error) -> {
+                    inFlight.remove(key, promise);
+                    if (error != null) {
+                        promise.completeExceptionally(MetadataFetcher.unwrap(error));
+                    } else {
+                        promise.complete(token);
+                    }
+                });
+        return promise;
+    }
+
+    private static byte[] toTokenRequest(String assertion, String scope) {
+        StringBuilder form = new StringBuilder(assertion.length() + 128);
+        form.append("grant_type=").append(URLEncoder.encode(JWT_BEARER_GRANT_TYPE, StandardCharsets.UTF_8));
+        form.append("&assertion=").append(assertion);
+        if (scope != null) {
+            form.append("&scope=").append(URLEncoder.encode(scope, StandardCharsets.UTF_8));
+        }
+        return form.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private Oauth2AccessToken update(TokenKey key, byte[] body) {
+        ErrorAccumulator errorAccumulator = new ErrorAccumulator();
+        JsonObject json = JsonParser.parse(body, errorAccumulator);
+        String accessToken = null;
+        String tokenType = null;
+        Long expiresIn = null;
+        String scope = null;
+        if (json != null && !errorAccumulator.hasErrors()) {
+            accessToken = json.getString(ACCESS_TOKEN);
+            tokenType = json.getString(TOKEN_TYPE);
+            expiresIn = json.getLong(EXPIRES_IN);
+            scope = json.getString(SCOPE);
+            if (accessToken == null) {
+                errorAccumulator.add("Missing value for \"" + ACCESS_TOKEN + "\"");
+            }
+            if (tokenType == null) {
+                errorAccumulator.add("Missing value for \"" + TOKEN_TYPE + "\"");
+            }
+            if (expiresIn != null && expiresIn <= 0) {
+                errorAccumulator.add("Invalid value for \"" + EXPIRES_IN + "\" (" + expiresIn + ")");
+            }
+        }
+        if (errorAccumulator.hasErrors() || json == null) {
+            throw new InvalidMetadataException(errorAccumulator);
+        }
+
+        long lifetime = (expiresIn == null) ? defaultTokenLifetimeMillis
+                                            : Math.min(expiresIn, Long.MAX_VALUE / 2000) * 1000;
+        long now = clock.millis();
+        long expiresAt = now + lifetime - Math.min(expiryMarginMillis, lifetime / 2);
+        long refreshAt = Math.min(now + (long) (lifetime * refreshAheadFactor), expiresAt);
+        // The response may omit the scope when it is identical to the requested scope (RFC 6749, section 5.1)
+        Oauth2AccessToken token = new Oauth2AccessToken(accessToken, tokenType, (scope == null ? key.scope : scope),
+                                                        Instant.ofEpochMilli(now + lifetime));
+        entries.put(key, new Entry(token, refreshAt, expiresAt));
+        return token;
+    }
+
+    /**
+     * Builder for Oauth2TokenManager
+     */
+    public static class Builder {
+        private FastFedConfiguration configuration = FastFedConfiguration.DEFAULT;
+        private MetadataFetcher fetcher;
+        private Clock clock = Clock.systemUTC();
+        private Duration defaultTokenLifetime = DEFAULT_TOKEN_LIFETIME;
+        private Duration assertionLifetime = DEFAULT_ASSERTION_LIFETIME;
+        private double refreshAheadFactor = DEFAULT_REFRESH_AHEAD_FACTOR;
+        private Duration expiryMargin = DEFAULT_EXPIRY_MARGIN;
+
+        /**
+         * Construct a new Builder with default values for all settings
+         */
+        public Builder() {}
+
+        /**
+         * Generates an Oauth2TokenManager from the Builder settings.
+         * @return Oauth2TokenManager
+         */
+        public Oauth2TokenManager build() {
+            return new Oauth2TokenManager(this);
+        }
+
+        /**
+         * Sets the FastFed Configuration used to construct the client assertions. Default value is
+         * FastFedConfiguration.DEFAULT.
+         * @param configuration FastFed Configuration
+         * @return Builder
+         */
+        public Builder setConfiguration(FastFedConfiguration configuration) {
+            Objects.requireNonNull(configuration, "configuration must not be null");
+            this.configuration = configuration;
+            return this;
+        }
+
+        /**
+         * Sets the fetcher used to send requests to the token endpoints. By default, MetadataFetcher.getDefault()
+         * is used.
+         * @param fetcher fetcher
+         * @return Builder
+         */
+        public Builder setFetcher(MetadataFetcher fetcher) {
+            Objects.requireNonNull(fetcher, "fetcher must not be null");
+            this.fetcher = fetcher;
+            return this;
+        }
+
+        /**
+         * Sets the clock used to determine the age of the tokens, and to date the client assertions. Default value
+         * is the system clock.
+         * @param clock clock
+         * @return Builder
+         */
+        public Builder setClock(Clock clock) {
+            Objects.requireNonNull(clock, "clock must not be null");
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Sets the lifetime of tokens whose response doesn't specify expires_in. Default value is 5 minutes.
+         * @param defaultTokenLifetime lifetime
+         * @return Builder
+         */
+        public Builder setDefaultTokenLifetime(Duration defaultTokenLifetime) {
+            Objects.requireNonNull(defaultTokenLifetime, "defaultTokenLifetime must not be null");
+            if (defaultTokenLifetime.isNegative() || defaultTokenLifetime.isZero()) {
+                throw new IllegalArgumentException("defaultTokenLifetime must be positive");
+            }
+            this.defaultTokenLifetime = defaultTokenLifetime;
+            return this;
+        }
+
+        /**
+         * Sets the lifetime of the client assertions sent to the token endpoint. Default value is 5 minutes.
+         * @param assertionLifetime lifetime
+         * @return Builder
+         */
+        public Builder setAssertionLifetime(Duration assertionLifetime) {
+            Objects.requireNonNull(assertionLifetime, "assertionLifetime must not be null");
+            if (assertionLifetime.isNegative() || assertionLifetime.isZero()) {
+                throw new IllegalArgumentException("assertionLifetime must be positive");
+            }
+            this.assertionLifetime = assertionLifetime;
+            return this;
+        }
+
+        /**
+         * Sets the fraction of the lifetime of a token after which it is refreshed in the background. A value of
+         * 1 disables refresh-ahead. Default value is 0.8.
+         * @param refreshAheadFactor fraction between 0 and 1
+         * @return Builder
+         */
+        public Builder setRefreshAheadFactor(double refreshAheadFactor) {
+            if (!(refreshAheadFactor >= 0 && refreshAheadFactor <= 1)) {
+                throw new IllegalArgumentException(
+                        "refreshAheadFactor must be between 0 and 1 (received: " + refreshAheadFactor + ")");
+            }
+            this.refreshAheadFactor = refreshAheadFactor;
+            return this;
+        }
+
+        /**
+         * Sets the time before the expiration of a token at which it is no longer used. The margin is limited to
+         * half the lifetime of the token. Default value is 30 seconds.
+         * @param expiryMargin margin
+         * @return Builder
+         */
+        public Builder setExpiryMargin(Duration expiryMargin) {
+            Objects.requireNonNull(expiryMargin, "expiryMargin must not be null");
+            if (expiryMargin.isNegative()) {
+                throw new IllegalArgumentException("expiryMargin must not be negative");
+            }
+            this.expiryMargin = expiryMargin;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package org.fastfed4j.core.util;
+
+import org.fastfed4j.core.metadata.Capabilities;
+import org.fastfed4j.core.metadata.CommonProviderMetadata;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the Capabilities of a catalog of providers. For each capability value, the index
+ * holds a bitset of the providers which offer it, so that queries are answered by combining bitsets rather than by
+ * scanning the catalog.
+ *
+ * <p>Providers are identified by a key chosen by the caller, such as the entity id. Calling put() with an existing
+ * key replaces the indexed capabilities, which allows the index to be maintained incrementally as metadata is
+ * refreshed. The capabilities are captured when the provider is added; subsequent changes to the metadata are not
+ * reflected until it is put() again.</p>
+ *
+ * <p>The index is thread-safe. Queries may run concurrently with each other, and are serialized with updates.</p>
+ * @param <T> type of provider metadata
+ */
+public class CapabilityIndex<T extends CommonProviderMetadata> {
+    /**
+     * The categories of capabilities, as defined in section 3.3.1 of the FastFed Core specification.
+     */
+    public enum Category {
+        AUTHENTICATION_PROFILES,
+        PROVISIONING_PROFILES,
+        SCHEMA_GRAMMARS,
+        SIGNING_ALGORITHMS
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> idsByKey = new HashMap<>();
+    private final List<Entry<T>> entries = new ArrayList<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    private final BitSet allIds = new BitSet();
+    private final Map<Category, Map<String, BitSet>> postings = new EnumMap<>(Category.class);
+    private final Map<Category, BitSet> emptyCategories = new EnumMap<>(Category.class);
+
+    private static final class Entry<T> {
+        private final T provider;
+        private final Capabilities.Compact capabilities;
+
+        private Entry(T provider, Capabilities.Compact capabilities) {
+            this.provider = provider;
+            this.capabilities = capabilities;
+        }
+    }
+
+    /**
+     * Constructs an empty index.
+     */
+    public CapabilityIndex() {
+        for (Category category : Category.values()) {
+            postings.put(category, new HashMap<>());
+            emptyCategories.put(category, new BitSet());
+        }
+    }
+
+    /**
+     * Adds a provider to the index, replacing any provider previously added with the same key.
+     * @param key key of the provider
+     * @param provider provider metadata
+     */
+    public void put(String key, T provider) {
+        Objects.requireNonNull(key, "key must not be null");
+        Objects.requireNonNull(provider, "provider must not be null");
+        Capabilities capabilities = provider.getCapabilities();
+        Capabilities.Compact compact = (capabilities == null ? Capabilities.Compact.EMPTY : capabilities.toCompact());
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+            int id = (freeIds.isEmpty() ? entries.size() : freeIds.pop());
+            Entry<T> entry = new Entry<>(provider, compact);
+            if (id == entries.size()) {
+                entries.add(entry);
+            } else {
+                entries.set(id, entry);
+            }
+            idsByKey.put(key, id);
+            allIds.set(id);
+            for (Category category : Category.values()) {
+                Set<String> values = valuesOf(compact, category).toSet();
+                if (values.isEmpty()) {
+                    emptyCategories.get(category).set(id);
+                }
+                for (String value : values) {
+                    postings.get(category).computeIfAbsent(value, v -> new BitSet()).set(id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a provider from the index.
+     * @param key key of the provider
+     * @return true if the provider existed in the index
+     */
+    public boolean remove(String key) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a provider from the index.
+     * @param key key of the provider
+     * @return provider metadata, or null if the key doesn't exist in the index
+     */
+    public T get(String key) {
+        lock.readLock().lock();
+        try {
+            Integer id = idsByKey.get(key);
+            return (id == null ? null : entries.get(id).provider);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return idsByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Begins a query for the providers which offer a set of capabilities.
+     * @return empty query, which matches every provider
+     */
+    public Query query() {
+        return new Query();
+    }
+
+    /**
+     * Finds the providers which are compatible with an Identity Provider, treating the indexed providers as
+     * Application Providers. Applies the same rules as CompatibilityUtils.evaluateCompatibility().
+     * @param identityProviderCapabilities capabilities of the Identity Provider
+     * @return compatible providers
+     */
+    public List<T> findCompatibleWithIdentityProvider(Capabilities identityProviderCapabilities) {
+        Capabilities.Compact idp = identityProviderCapabilities.toCompact();
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) allIds.clone();
+            // An Application Provider without authentication or provisioning profiles doesn't require them
+            result.and(union(Category.AUTHENTICATION_PROFILES, idp.getAuthenticationProfiles(), true));
+            result.and(union(Category.PROVISIONING_PROFILES, idp.getProvisioningProfiles(), true));
+            result.and(union(Category.SCHEMA_GRAMMARS, idp.getSchemaGrammars(), false));
+            result.and(union(Category.SIGNING_ALGORITHMS, idp.getSigningAlgorithms(), false));
+            return providersOf(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the providers which are compatible with an Application Provider, treating the indexed providers as
+     * Identity Providers. Applies the same rules as CompatibilityUtils.evaluateCompatibility().
+     * @param applicationProviderCapabilities capabilities of the Application Provider
+     * @return compatible providers
+     */
+    public List<T> findCompatibleWithApplicationProvider(Capabilities applicationProviderCapabilities) {
+        Capabilities.Compact app = applicationProviderCapabilities.toCompact();
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) allIds.clone();
+            if (!app.getAuthenticationProfiles().isEmpty()) {
+                result.and(union(Category.AUTHENTICATION_PROFILES, app.getAuthenticationProfiles(), false));
+            }
+            if (!app.getProvisioningProfiles().isEmpty()) {
+                result.and(union(Category.PROVISIONING_PROFILES, app.getProvisioningProfiles(), false));
+            }
+            result.and(union(Category.SCHEMA_GRAMMARS, app.getSchemaGrammars(), false));
+            result.and(union(Category.SIGNING_ALGORITHMS, app.getSigningAlgorithms(), false));
+            return providersOf(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Query for the providers which offer all of a set of capabilities.
+     */
+    public class Query {
+        private final Map<Category, Set<String>> required = new EnumMap<>(Category.class);
+
+        private Query() {}
+
+        /**
+         * Requires that matching providers offer a capability.
+         * @param category category of the capability
+         * @param value URN or signing algorithm
+         * @return this query
+         */
+        public Query require(Category category, String value) {
+            Objects.requireNonNull(category, "category must not be null");
+            Objects.requireNonNull(value, "value must not be null");
+            required.computeIfAbsent(category, c -> new HashSet<>()).add(value);
+            return this;
+        }
+
+        public Query requireAuthenticationProfile(String urn) {
+            return require(Category.AUTHENTICATION_PROFILES, urn);
+        }
+
+        public Query requireProvisioningProfile(String urn) {
+            return require(Category.PROVISIONING_PROFILES, urn);
+        }
+
+        public Query requireSchemaGrammar(String urn) {
+            return require(Category.SCHEMA_GRAMMARS, urn);
+        }
+
+        public Query requireSigningAlgorithm(String algorithm) {
+            return require(Category.SIGNING_ALGORITHMS, algorithm);
+        }
+
+        /**
+         * Finds the matching providers.
+         * @return providers which offer all the required capabilities
+         */
+        public List<T> find() {
+            lock.readLock().lock();
+            try {
+                BitSet result = (BitSet) allIds.clone();
+                for (Map.Entry<Category, Set<String>> entry : required.entrySet()) {
+                    for (String value : entry.getValue()) {
+                        BitSet ids = postings.get(entry.getKey()).get(value);
+                        if (ids == null) {
+                            return new ArrayList<>();
+                        }
+                        result.and(ids);
+                    }
+                }
+                return providersOf(result);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    private boolean removeLocked(String key) {
+        Integer id = idsByKey.remove(key);
+        if (id == null) {
+            return false;
+        }
+        Entry<T> entry = entries.set(id, null);
+        allIds.clear(id);
+        for (Category category : Category.values()) {
+            emptyCategories.get(category).clear(id);
+            Map<String, BitSet> categoryPostings = postings.get(category);
+            for (String value : valuesOf(entry.capabilities, category).toSet()) {
+                BitSet ids = categoryPostings.get(value);
+                ids.clear(id);
+                if (ids.isEmpty()) {
+                    categoryPostings.remove(value);
+                }
+            }
+        }
+        freeIds.push(id);
+        return true;
+    }
+
+    /**
+     * Calculates the providers which offer any of a set of values.
+     * @param category category of the values
+     * @param values values
+     * @param includeEmpty true to include the providers with no values in the category
+     * @return ids of the providers
+     */
+    private BitSet union(Category category, UrnSet values, boolean includeEmpty) {
+        BitSet result = new BitSet();
+        if (includeEmpty) {
+            result.or(emptyCategories.get(category));
+        }
+        Map<String, BitSet> categoryPostings = postings.get(category);
+        for (String value : values.toSet()) {
+            BitSet ids = categoryPostings.get(value);
+            if (ids != null) {
+                result.or(ids);
+            }
+        }
+        return result;
+    }
+
+    private List<T> providersOf(BitSet ids) {
+        List<T> result = new ArrayList<>(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            result.add(entries.get(id).provider);
+        }
+        return result;
+    }
+
+    private static UrnSet valuesOf(Capabilities.Compact capabilities, Category category) {
+        switch (category) {
+            case AUTHENTICATION_PROFILES:
+                return capabilities.getAuthenticationProfiles();
+            case PROVISIONING_PROFILES:
+                return capabilities.getProvisioningProfiles();
+            case SCHEMA_GRAMMARS:
+                return capabilities.getSchemaGrammars();
+            case SIGNING_ALGORITHMS:
+                return capabilities.getSigningAlgorithms();
+            default:
+                throw new RuntimeException("No handler for category " + category);
+        }
+    }
+}
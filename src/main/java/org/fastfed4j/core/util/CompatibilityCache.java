@@ -0,0 +1,196 @@
+package org.fastfed4j.core.util;
+
+import org.fastfed4j.core.metadata.Capabilities;
+import org.fastfed4j.profile.ProfileRegistry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, concurrent cache of the compatibility decisions made by CompatibilityUtils, keyed by the compact form
+ * of the Capabilities of the two providers. Many providers publish identical capabilities, so the decision for a
+ * given pair of capabilities can be reused across all the providers which share them.
+ *
+ * <p>When the cache is full, the oldest entries are evicted first. Cached decisions are discarded whenever a
+ * ProfileRegistry is modified, as detected via ProfileRegistry.getGeneration().</p>
+ */
+public class CompatibilityCache {
+
+    /**
+     * Default maximum number of entries in a cache.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    /**
+     * Cache shared by every CompatibilityUtils instance constructed with the default constructor.
+     */
+    public static final CompatibilityCache SHARED = new CompatibilityCache(DEFAULT_MAXIMUM_SIZE);
+
+    private final int maximumSize;
+    private final Map<Key, Decision> decisions = new ConcurrentHashMap<>();
+    private final Queue<Key> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Constructs an empty cache.
+     * @param maximumSize maximum number of entries, or zero to disable caching
+     */
+    public CompatibilityCache(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative");
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Gets the number of lookups that were answered from the cache.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Gets the number of lookups that required a decision to be computed.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Gets the number of entries evicted to respect the maximum size.
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public int size() {
+        return decisions.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Discards all the cached decisions. The hit, miss and eviction counts are retained.
+     */
+    public void invalidateAll() {
+        decisions.clear();
+        insertionOrder.clear();
+    }
+
+    /**
+     * Gets the decision for a pair of capabilities, computing it if necessary.
+     * @param identityProviderCapabilities compact capabilities of the Identity Provider
+     * @param applicationProviderCapabilities compact capabilities of the Application Provider
+     * @param computation computes the decision on a cache miss
+     * @return decision
+     */
+    Decision get(Capabilities.Compact identityProviderCapabilities,
+                 Capabilities.Compact applicationProviderCapabilities,
+                 Supplier<Decision> computation)
+    {
+        // The generation is read before computing, so a decision computed concurrently with a change to a
+        // ProfileRegistry is recorded against the old generation, and is never served.
+        long generation = ProfileRegistry.getGeneration();
+        Key key = new Key(identityProviderCapabilities, applicationProviderCapabilities);
+        Decision decision = decisions.get(key);
+        if (decision != null && decision.generation == generation) {
+            hitCount.increment();
+            return decision;
+        }
+        missCount.increment();
+        decision = computation.get().withGeneration(generation);
+        if (maximumSize > 0) {
+            if (decisions.put(key, decision) == null) {
+                insertionOrder.add(key);
+            }
+            evictIfNeeded();
+        }
+        return decision;
+    }
+
+    private void evictIfNeeded() {
+        while (decisions.size() > maximumSize) {
+            Key oldest = insertionOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            if (decisions.remove(oldest) != null) {
+                evictionCount.increment();
+            }
+        }
+    }
+
+    private static final class Key {
+        private final Capabilities.Compact identityProviderCapabilities;
+        private final Capabilities.Compact applicationProviderCapabilities;
+        private final int hashCode;
+
+        private Key(Capabilities.Compact identityProviderCapabilities, Capabilities.Compact applicationProviderCapabilities) {
+            this.identityProviderCapabilities = identityProviderCapabilities;
+            this.applicationProviderCapabilities = applicationProviderCapabilities;
+            this.hashCode = 31 * identityProviderCapabilities.hashCode() + applicationProviderCapabilities.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return hashCode == that.hashCode &&
+                    identityProviderCapabilities.equals(that.identityProviderCapabilities) &&
+                    applicationProviderCapabilities.equals(that.applicationProviderCapabilities);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * The outcome of evaluating the compatibility between a pair of capabilities.
+     */
+    static final class Decision {
+        private final Capabilities.Compact sharedCapabilities;
+        private final List<String> errors;
+        private final long generation;
+
+        Decision(Capabilities.Compact sharedCapabilities, List<String> errors) {
+            this(sharedCapabilities, errors, 0);
+        }
+
+        private Decision(Capabilities.Compact sharedCapabilities, List<String> errors, long generation) {
+            this.sharedCapabilities = Objects.requireNonNull(sharedCapabilities);
+            this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+            this.generation = generation;
+        }
+
+        private Decision withGeneration(long generation) {
+            return new Decision(sharedCapabilities, errors, generation);
+        }
+
+        Capabilities.Compact getSharedCapabilities() {
+            return sharedCapabilities;
+        }
+
+        List<String> getErrors() {
+            return errors;
+        }
+
+        boolean isCompatible() {
+            return errors.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package org.fastfed4j.core.util;
+
+import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.metadata.ApplicationProviderMetadata;
+import org.fastfed4j.core.metadata.Capabilities;
+import org.fastfed4j.core.metadata.CommonProviderMetadata;
+import org.fastfed4j.core.metadata.IdentityProviderMetadata;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates the compatibility between every pair in a catalog of Identity Providers and a catalog of Application
+ * Providers, such as when answering which of the applications in a marketplace are compatible with a given
+ * Identity Provider.
+ *
+ * <p>The capabilities of each provider are converted into their compact form once, up front, and providers with
+ * identical capabilities are grouped together, so that each distinct pair of capabilities is evaluated only once.
+ * The resulting matrix is evaluated in parallel on a ForkJoinPool, and stored as one bit per pair. Error
+ * messages are only produced on request, via explain().</p>
+ *
+ * <p>The matrix reflects the capabilities at the time it was evaluated. Instances are immutable and thread-safe.</p>
+ */
+public class CompatibilityMatrix {
+    private static final CompatibilityUtils compatibilityUtils = new CompatibilityUtils();
+
+    /**
+     * Number of 64-bit words of the matrix evaluated by each fork/join task.
+     */
+    private static final int WORDS_PER_TASK = 64;
+
+    private final List<IdentityProviderMetadata> identityProviders;
+    private final List<ApplicationProviderMetadata> applicationProviders;
+    private final Capabilities.Compact[] identityProviderCapabilities;
+    private final Capabilities.Compact[] applicationProviderCapabilities;
+    private final int[] identityProviderGroups;
+    private final int[] applicationProviderGroups;
+    private final int wordsPerRow;
+    private final long[] matrix;
+
+    private CompatibilityMatrix(List<IdentityProviderMetadata> identityProviders,
+                                List<ApplicationProviderMetadata> applicationProviders,
+                                ForkJoinPool pool)
+    {
+        this.identityProviders = identityProviders;
+        this.applicationProviders = applicationProviders;
+
+        List<Capabilities.Compact> idpCapabilities = new ArrayList<>();
+        List<Capabilities.Compact> appCapabilities = new ArrayList<>();
+        this.identityProviderGroups = groupByCapabilities(identityProviders, idpCapabilities);
+        this.applicationProviderGroups = groupByCapabilities(applicationProviders, appCapabilities);
+
+        this.identityProviderCapabilities = idpCapabilities.toArray(new Capabilities.Compact[0]);
+        this.applicationProviderCapabilities = appCapabilities.toArray(new Capabilities.Compact[0]);
+
+        this.wordsPerRow = (appCapabilities.size() + 63) >>> 6;
+        this.matrix = new long[idpCapabilities.size() * wordsPerRow];
+        if (matrix.length > 0) {
+            pool.invoke(new EvaluationTask(0, matrix.length));
+        }
+    }
+
+    /**
+     * Evaluates the compatibility between every pair of providers, using the common ForkJoinPool.
+     * @param identityProviders catalog of Identity Providers
+     * @param applicationProviders catalog of Application Providers
+     * @return compatibility matrix, indexed by the positions of the providers in each list
+     */
+    public static CompatibilityMatrix evaluate(List<IdentityProviderMetadata> identityProviders,
+                                               List<ApplicationProviderMetadata> applicationProviders)
+    {
+        return evaluate(identityProviders, applicationProviders, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Evaluates the compatibility between every pair of providers.
+     * @param identityProviders catalog of Identity Providers
+     * @param applicationProviders catalog of Application Providers
+     * @param pool pool in which to evaluate the matrix
+     * @return compatibility matrix, indexed by the positions of the providers in each list
+     */
+    public static CompatibilityMatrix evaluate(List<IdentityProviderMetadata> identityProviders,
+                                               List<ApplicationProviderMetadata> applicationProviders,
+                                               ForkJoinPool pool)
+    {
+        Objects.requireNonNull(identityProviders, "identityProviders must not be null");
+        Objects.requireNonNull(applicationProviders, "applicationProviders must not be null");
+        Objects.requireNonNull(pool, "pool must not be null");
+        return new CompatibilityMatrix(
+                Collections.unmodifiableList(new ArrayList<>(identityProviders)),
+                Collections.unmodifiableList(new ArrayList<>(applicationProviders)),
+                pool);
+    }
+
+    public List<IdentityProviderMetadata> getIdentityProviders() {
+        return identityProviders;
+    }
+
+    public List<ApplicationProviderMetadata> getApplicationProviders() {
+        return applicationProviders;
+    }
+
+    /**
+     * Tests if a pair of providers is compatible.
+     * @param identityProviderIndex position of the Identity Provider
+     * @param applicationProviderIndex position of the Application Provider
+     * @return true if compatible
+     */
+    public boolean isCompatible(int identityProviderIndex, int applicationProviderIndex) {
+        int row = identityProviderGroups[identityProviderIndex];
+        int column = applicationProviderGroups[applicationProviderIndex];
+        return (matrix[row * wordsPerRow + (column >>> 6)] & (1L << column)) != 0;
+    }
+
+    /**
+     * Gets all the Application Providers which are compatible with an Identity Provider.
+     * @param identityProviderIndex position of the Identity Provider
+     * @return positions of the compatible Application Providers, in ascending order
+     */
+    public int[] getCompatibleApplicationProviders(int identityProviderIndex) {
+        int rowOffset = identityProviderGroups[identityProviderIndex] * wordsPerRow;
+        int[] result = new int[applicationProviderGroups.length];
+        int count = 0;
+        for (int i = 0; i < applicationProviderGroups.length; i++) {
+            int column = applicationProviderGroups[i];
+            if ((matrix[rowOffset + (column >>> 6)] & (1L << column)) != 0) {
+                result[count++] = i;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Gets all the Identity Providers which are compatible with an Application Provider.
+     * @param applicationProviderIndex position of the Application Provider
+     * @return positions of the compatible Identity Providers, in ascending order
+     */
+    public int[] getCompatibleIdentityProviders(int applicationProviderIndex) {
+        int column = applicationProviderGroups[applicationProviderIndex];
+        int[] result = new int[identityProviderGroups.length];
+        int count = 0;
+        for (int i = 0; i < identityProviderGroups.length; i++) {
+            if ((matrix[identityProviderGroups[i] * wordsPerRow + (column >>> 6)] & (1L << column)) != 0) {
+                result[count++] = i;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Explains the compatibility of a pair of providers, as per CompatibilityUtils.evaluateCompatibility(). The
+     * explanation is based on the capabilities at the time the matrix was evaluated, so it always agrees with
+     * isCompatible().
+     * @param errorAccumulator if the providers are incompatible, will be populated with the incompatibility error messages
+     * @param identityProviderIndex position of the Identity Provider
+     * @param applicationProviderIndex position of the Application Provider
+     * @return If compatible, returns the mutually shared capabilities. Else, returns an empty value.
+     */
+    public Optional<Capabilities> explain(ErrorAccumulator errorAccumulator,
+                                          int identityProviderIndex,
+                                          int applicationProviderIndex)
+    {
+        return compatibilityUtils.evaluateCompatibility(
+                errorAccumulator,
+                identityProviderCapabilities[identityProviderGroups[identityProviderIndex]],
+                applicationProviderCapabilities[applicationProviderGroups[applicationProviderIndex]],
+                identityProviders.get(identityProviderIndex).getFastFedConfiguration());
+    }
+
+    /**
+     * Assigns each provider to a group of providers with identical capabilities.
+     * @param providers providers to group
+     * @param groupCapabilities populated with the capabilities of each group
+     * @return group of each provider, indexed by the position of the provider
+     */
+    private static int[] groupByCapabilities(List<? extends CommonProviderMetadata> providers,
+                                             List<Capabilities.Compact> groupCapabilities)
+    {
+        Map<Capabilities.Compact, Integer> groups = new HashMap<>();
+        int[] result = new int[providers.size()];
+        for (int i = 0; i < result.length; i++) {
+            Capabilities capabilities = providers.get(i).getCapabilities();
+            Capabilities.Compact compact = (capabilities == null ? Capabilities.Compact.EMPTY : capabilities.toCompact());
+            Integer group = groups.get(compact);
+            if (group == null) {
+                group = groupCapabilities.size();
+                groups.put(compact, group);
+                groupCapabilities.add(compact);
+            }
+            result[i] = group;
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates a range of words in the matrix. Each word is written by exactly one task, so no synchronization is
+     * needed beyond the happens-before edge established when the task is joined.
+     */
+    private class EvaluationTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int fromWord;
+        private final int toWord;
+
+        EvaluationTask(int fromWord, int toWord) {
+            this.fromWord = fromWord;
+            this.toWord = toWord;
+        }
+
+        @Override
+        protected void compute() {
+            if (toWord - fromWord > WORDS_PER_TASK) {
+                int middle = (fromWord + toWord) >>> 1;
+                invokeAll(new EvaluationTask(fromWord, middle), new EvaluationTask(middle, toWord));
+                return;
+            }
+            for (int w = fromWord; w < toWord; w++) {
+                Capabilities.Compact idp = identityProviderCapabilities[w / wordsPerRow];
+                int firstColumn = (w % wordsPerRow) << 6;
+                int lastColumn = Math.min(firstColumn + 64, applicationProviderCapabilities.length);
+                long word = 0L;
+                for (int column = firstColumn; column < lastColumn; column++) {
+                    if (compatibilityUtils.isCompatible(idp, applicationProviderCapabilities[column])) {
+                        word |= 1L << column;
+                    }
+                }
+                matrix[w] = word;
+            }
+        }
+    }
+}
@@ -7,16 +7,34 @@ import org.fastfed4j.core.metadata.ApplicationProviderMetadata;
 import org.fastfed4j.core.metadata.Capabilities;
 import org.fastfed4j.core.metadata.IdentityProviderMetadata;
 
-import java.util.HashSet;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Utilities to evaluate the compatibility between FastFed providers.
  */
 public class CompatibilityUtils {
+    private final CompatibilityCache cache;
+
+    /**
+     * Constructs an instance which caches its decisions in CompatibilityCache.SHARED.
+     */
+    public CompatibilityUtils() {
+        this(CompatibilityCache.SHARED);
+    }
+
+    /**
+     * Constructs an instance which caches its decisions in the given cache.
+     * @param cache cache of compatibility decisions
+     */
+    public CompatibilityUtils(CompatibilityCache cache) {
+        Objects.requireNonNull(cache, "cache must not be null");
+        this.cache = cache;
+    }
+
+    public CompatibilityCache getCache() {
+        return cache;
+    }
 
     /**
      * Get the mutually shared capabilities between two providers.
@@ -30,30 +48,30 @@ public class CompatibilityUtils {
         Objects.requireNonNull(identityProviderCapabilities);
         Objects.requireNonNull(applicationProviderCapabilities);
 
-        Set<String> mergedAuthenticationProfiles = intersect(
-                identityProviderCapabilities.getAuthenticationProfiles(),
-                applicationProviderCapabilities.getAuthenticationProfiles()
-        );
-        Set<String> mergedProvisioningProfiles = intersect(
-                identityProviderCapabilities.getProvisioningProfiles(),
-                applicationProviderCapabilities.getProvisioningProfiles()
-        );
-        Set<String> mergedSchemaGrammars = intersect(
-                identityProviderCapabilities.getSchemaGrammars(),
-                applicationProviderCapabilities.getSchemaGrammars()
-        );
-        Set<String> mergedSigningAlgorithms = intersect(
-                identityProviderCapabilities.getSigningAlgorithms(),
-                applicationProviderCapabilities.getSigningAlgorithms()
-        );
-
-        Capabilities capabilities = new Capabilities(identityProviderCapabilities.getFastFedConfiguration());
-        capabilities.setAuthenticationProfiles(mergedAuthenticationProfiles);
-        capabilities.setProvisioningProfiles(mergedProvisioningProfiles);
-        capabilities.setSchemaGrammars(mergedSchemaGrammars);
-        capabilities.setSigningAlgorithms(mergedSigningAlgorithms);
-
-        return capabilities;
+        CompatibilityCache.Decision decision = decide(
+                identityProviderCapabilities.toCompact(), applicationProviderCapabilities.toCompact());
+        return decision.getSharedCapabilities().toCapabilities(identityProviderCapabilities.getFastFedConfiguration());
+    }
+
+    /**
+     * Test if two providers are mutually compatible, using the compact form of their capabilities. This applies the
+     * same rules as evaluateCompatibility(), without calculating the shared capabilities or the error messages.
+     * @param identityProviderCapabilities compact capabilities of the Identity Provider
+     * @param applicationProviderCapabilities compact capabilities of the Application Provider
+     * @return true if compatible
+     */
+    public boolean isCompatible(Capabilities.Compact identityProviderCapabilities,
+                                Capabilities.Compact applicationProviderCapabilities)
+    {
+        UrnSet appAuthenticationProfiles = applicationProviderCapabilities.getAuthenticationProfiles();
+        UrnSet appProvisioningProfiles = applicationProviderCapabilities.getProvisioningProfiles();
+
+        return (appAuthenticationProfiles.isEmpty()
+                    || appAuthenticationProfiles.intersects(identityProviderCapabilities.getAuthenticationProfiles()))
+            && (appProvisioningProfiles.isEmpty()
+                    || appProvisioningProfiles.intersects(identityProviderCapabilities.getProvisioningProfiles()))
+            && applicationProviderCapabilities.getSchemaGrammars().intersects(identityProviderCapabilities.getSchemaGrammars())
+            && applicationProviderCapabilities.getSigningAlgorithms().intersects(identityProviderCapabilities.getSigningAlgorithms());
     }
 
     /**
@@ -88,21 +106,61 @@ public class CompatibilityUtils {
                                                         IdentityProviderMetadata idpMetadata,
                                                         ApplicationProviderMetadata appMetadata)
     {
-        Capabilities idpCapabilities = idpMetadata.getCapabilities();
-        Capabilities appCapabilities = appMetadata.getCapabilities();
-        Capabilities sharedCapabilities = getSharedCapabilities(idpCapabilities, appCapabilities);
-        Set<String> sharedAuthenticationProfiles = sharedCapabilities.getAuthenticationProfiles();
-        Set<String> sharedProvisioningProfiles = sharedCapabilities.getProvisioningProfiles();
-        Set<String> sharedSchemaGrammars = sharedCapabilities.getSchemaGrammars();
-        Set<String> sharedSigningAlgorithms = sharedCapabilities.getSigningAlgorithms();
+        return evaluateCompatibility(
+                errorAccumulator,
+                idpMetadata.getCapabilities().toCompact(),
+                appMetadata.getCapabilities().toCompact(),
+                idpMetadata.getFastFedConfiguration());
+    }
+
+    /**
+     * Evaluate if two providers are mutually compatible, using the compact form of their capabilities, and if so,
+     * return the mutually shared capabilities.
+     * @param errorAccumulator If the providers are incompatible, will be populated with the full list of incompatibility error messages
+     * @param identityProviderCapabilities compact capabilities of the Identity Provider
+     * @param applicationProviderCapabilities compact capabilities of the Application Provider
+     * @param configuration FastFed Configuration of the returned capabilities
+     * @return If compatible, returns the mutually shared capabilities. Else, returns an empty value.
+     */
+    public Optional<Capabilities> evaluateCompatibility(ErrorAccumulator errorAccumulator,
+                                                        Capabilities.Compact identityProviderCapabilities,
+                                                        Capabilities.Compact applicationProviderCapabilities,
+                                                        FastFedConfiguration configuration)
+    {
+        CompatibilityCache.Decision decision = decide(identityProviderCapabilities, applicationProviderCapabilities);
+        for (String error : decision.getErrors()) {
+            errorAccumulator.add(error);
+        }
+
+        if (decision.isCompatible()) {
+            return Optional.of(decision.getSharedCapabilities().toCapabilities(configuration));
+        }
+        else {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Gets the compatibility decision for a pair of capabilities, from the cache if possible.
+     * @param idpCapabilities capabilities of the Identity Provider
+     * @param appCapabilities capabilities of the Application Provider
+     * @return decision
+     */
+    private CompatibilityCache.Decision decide(Capabilities.Compact idpCapabilities,
+                                               Capabilities.Compact appCapabilities) {
+        return cache.get(idpCapabilities, appCapabilities, () -> computeDecision(idpCapabilities, appCapabilities));
+    }
+
+    private CompatibilityCache.Decision computeDecision(Capabilities.Compact idpCapabilities,
+                                                        Capabilities.Compact appCapabilities)
+    {
+        ErrorAccumulator errorAccumulator = new ErrorAccumulator();
+        Capabilities.Compact sharedCapabilities = idpCapabilities.intersect(appCapabilities);
 
         boolean appRequiresAuthentication = !appCapabilities.getAuthenticationProfiles().isEmpty();
         boolean appRequiresProvisioning = !appCapabilities.getProvisioningProfiles().isEmpty();
 
-        boolean isCompatible = true;
-
-        if (appRequiresAuthentication && notCompatible(sharedAuthenticationProfiles)) {
-            isCompatible = false;
+        if (appRequiresAuthentication && sharedCapabilities.getAuthenticationProfiles().isEmpty()) {
             errorAccumulator.add(
                     "Incompatible authentication profiles. (IdentityProvider='"
                             + idpCapabilities.getAuthenticationProfiles().toString()
@@ -112,8 +170,7 @@ public class CompatibilityUtils {
             );
         }
 
-        if (appRequiresProvisioning && notCompatible(sharedProvisioningProfiles)) {
-            isCompatible = false;
+        if (appRequiresProvisioning && sharedCapabilities.getProvisioningProfiles().isEmpty()) {
             errorAccumulator.add(
                     "Incompatible provisioning profiles. (IdentityProvider='"
                             + idpCapabilities.getProvisioningProfiles().toString()
@@ -123,8 +180,7 @@ public class CompatibilityUtils {
             );
         }
 
-        if (notCompatible(sharedSchemaGrammars)) {
-            isCompatible = false;
+        if (sharedCapabilities.getSchemaGrammars().isEmpty()) {
             errorAccumulator.add(
                     "Incompatible schema grammars. (IdentityProvider='"
                             + idpCapabilities.getSchemaGrammars().toString()
@@ -134,8 +190,7 @@ public class CompatibilityUtils {
             );
         }
 
-        if (notCompatible(sharedSigningAlgorithms)) {
-            isCompatible = false;
+        if (sharedCapabilities.getSigningAlgorithms().isEmpty()) {
             errorAccumulator.add(
                     "Incompatible signing algorithms. (IdentityProvider='"
                             + idpCapabilities.getSigningAlgorithms().toString()
@@ -145,35 +200,6 @@ public class CompatibilityUtils {
             );
         }
 
-        if (isCompatible) {
-            return Optional.of(sharedCapabilities);
-        }
-        else {
-            return Optional.empty();
-        }
-    }
-
-    /**
-     * Calculate the intersection between two sets
-     * @param set1 first set
-     * @param set2 second set
-     * @return intersection
-     */
-    private Set<String> intersect(Set<String> set1, Set<String> set2) {
-        if (set1 == null || set2 == null) {
-            return new HashSet<>();
-        }
-        return set1.stream()
-                .filter(set2::contains)
-                .collect(Collectors.toSet());
-    }
-
-    /**
-     * Evaluate if two providers are compatible by examining if a shared set of capabilities are empty
-     * @param sharedCapabilities mutually shared set of capabilities between two providers
-     * @return true if not compatible
-     */
-    private boolean notCompatible(Set<String> sharedCapabilities) {
-        return (sharedCapabilities == null || sharedCapabilities.isEmpty());
+        return new CompatibilityCache.Decision(sharedCapabilities, errorAccumulator.getErrors());
     }
 }
@@ -2,6 +2,9 @@ package org.fastfed4j.core.util;
 
 import org.fastfed4j.core.metadata.Metadata;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.Objects;
 
@@ -49,21 +52,42 @@ public class ReflectionUtils {
         return returnVal;
     }
 
+    /**
+     * Copy constructors, looked up once per class and then invoked directly. Metadata objects are copied
+     * frequently (e.g. whenever a Contract is copied, each of its profile extensions is copied too), so the
+     * reflective lookup must not be repeated on every copy.
+     */
+    private static final ClassValue<MethodHandle> copyConstructors = new ClassValue<>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                return MethodHandles.publicLookup()
+                        .findConstructor(type, MethodType.methodType(void.class, type))
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            }
+            catch (NoSuchMethodException ex) {
+                throw new RuntimeException("No copy constructor is defined for class " + type.getName(), ex);
+            }
+            catch (IllegalAccessException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    };
+
     /**
      * Creates a copy of an object by invoking the copy constructor.
      * @param originalObj the object to be copied
      * @return the copy
      */
-    public static Object copy(Object originalObj) {
+    public static <T> T copy(T originalObj) {
+        MethodHandle copyConstructor = copyConstructors.get(originalObj.getClass());
         try {
-            //Invoke the copy constructor via reflection
-            Object copy = originalObj.getClass().getConstructor(originalObj.getClass()).newInstance(originalObj);
-            return copy;
+            return (T) copyConstructor.invokeExact((Object) originalObj);
         }
-        catch (NoSuchMethodException ex) {
-            throw new RuntimeException("No copy constructor is defined for class " + originalObj.getClass().getName(), ex);
+        catch (RuntimeException | Error ex) {
+            throw ex;
         }
-        catch (Exception ex) {
+        catch (Throwable ex) {
             throw new RuntimeException(ex);
         }
     }
@@ -0,0 +1,104 @@
+package org.fastfed4j.core.util;
+
+import org.fastfed4j.core.constants.AuthenticationProfile;
+import org.fastfed4j.core.constants.ProviderAuthenticationProtocol;
+import org.fastfed4j.core.constants.ProvisioningProfile;
+import org.fastfed4j.core.constants.SchemaGrammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Global symbol table which assigns a small, stable index to each well-known URN and signing algorithm. The
+ * indexes are used as bit positions by UrnSet.
+ *
+ * <p>The table is seeded once, with the constants defined by AuthenticationProfile, ProvisioningProfile,
+ * SchemaGrammar and ProviderAuthenticationProtocol, plus the JWS signing algorithms recognized by FastFed, and is
+ * never modified afterwards. Every UrnSet therefore represents a given value in the same way, regardless of when
+ * it was built. Other values, including the URNs of profiles added to a ProfileRegistry at runtime, are held in the
+ * overflow set of an UrnSet instead.</p>
+ */
+public final class UrnDictionary {
+
+    /**
+     * Index returned for a value that is not in the table.
+     */
+    public static final int NOT_FOUND = -1;
+
+    private static final List<String> SIGNING_ALGORITHMS = Arrays.asList(
+            "RS256", "RS384", "RS512",
+            "ES256", "ES384", "ES512",
+            "PS256", "PS384", "PS512",
+            "EdDSA"
+    );
+
+    private static final Map<String, Integer> indexes;
+    private static final List<String> values;
+
+    static {
+        List<String> seed = new ArrayList<>();
+        for (AuthenticationProfile v : AuthenticationProfile.values()) {
+            seed.add(v.getUrn());
+        }
+        for (ProvisioningProfile v : ProvisioningProfile.values()) {
+            seed.add(v.getUrn());
+        }
+        for (SchemaGrammar v : SchemaGrammar.values()) {
+            seed.add(v.getUrn());
+        }
+        for (ProviderAuthenticationProtocol v : ProviderAuthenticationProtocol.values()) {
+            seed.add(v.getUrn());
+        }
+        seed.addAll(SIGNING_ALGORITHMS);
+
+        Map<String, Integer> seedIndexes = new HashMap<>();
+        List<String> seedValues = new ArrayList<>();
+        for (String value : seed) {
+            if (!seedIndexes.containsKey(value)) {
+                seedIndexes.put(value, seedValues.size());
+                seedValues.add(value);
+            }
+        }
+        indexes = Collections.unmodifiableMap(seedIndexes);
+        values = Collections.unmodifiableList(seedValues);
+    }
+
+    private UrnDictionary() {}
+
+    /**
+     * Gets the number of values in the table.
+     * @return number of values
+     */
+    public static int size() {
+        return values.size();
+    }
+
+    /**
+     * Looks up the index of a value.
+     * @param value URN or signing algorithm
+     * @return index of the value, or NOT_FOUND if it is not in the table
+     */
+    public static int indexOf(String value) {
+        if (value == null) {
+            return NOT_FOUND;
+        }
+        Integer index = indexes.get(value);
+        return (index != null ? index : NOT_FOUND);
+    }
+
+    /**
+     * Gets the value at an index.
+     * @param index index returned by indexOf()
+     * @return URN or signing algorithm
+     */
+    public static String valueOf(int index) {
+        if (index < 0 || index >= values.size()) {
+            throw new IndexOutOfBoundsException("Invalid index: " + index);
+        }
+        return values.get(index);
+    }
+}
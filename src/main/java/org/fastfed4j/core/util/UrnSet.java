@@ -0,0 +1,183 @@
+package org.fastfed4j.core.util;
+
+import java.util.*;
+
+/**
+ * Immutable set of URNs or signing algorithms, represented as a bitset over the indexes assigned by UrnDictionary.
+ * Values which are not in the dictionary are held in a separate overflow set, so any collection of strings can be
+ * represented. In practice, the capabilities of a provider consist almost entirely of well-known values, and the
+ * set operations reduce to a few operations on 64-bit words.
+ */
+public final class UrnSet {
+    public static final UrnSet EMPTY = new UrnSet(new long[0], Collections.emptySet());
+
+    private final long[] words;
+    private final Set<String> overflow;
+
+    private UrnSet(long[] words, Set<String> overflow) {
+        this.words = words;
+        this.overflow = overflow;
+    }
+
+    /**
+     * Converts a collection of values into an UrnSet.
+     * @param values values, which may be null
+     * @return set containing the values
+     */
+    public static UrnSet of(Collection<String> values) {
+        if (values == null || values.isEmpty()) {
+            return EMPTY;
+        }
+        long[] words = new long[0];
+        Set<String> overflow = null;
+        for (String value : values) {
+            int index = UrnDictionary.indexOf(value);
+            if (index == UrnDictionary.NOT_FOUND) {
+                if (overflow == null) {
+                    overflow = new HashSet<>();
+                }
+                overflow.add(value);
+                continue;
+            }
+            int word = index >>> 6;
+            if (word >= words.length) {
+                words = Arrays.copyOf(words, word + 1);
+            }
+            words[word] |= 1L << index;
+        }
+        return new UrnSet(words, overflow == null ? Collections.emptySet() : Collections.unmodifiableSet(overflow));
+    }
+
+    /**
+     * Calculates the intersection with another set.
+     * @param other other set
+     * @return values which exist in both sets
+     */
+    public UrnSet intersect(UrnSet other) {
+        int length = Math.min(words.length, other.words.length);
+        long[] result = new long[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = words[i] & other.words[i];
+        }
+        Set<String> sharedOverflow = Collections.emptySet();
+        if (!overflow.isEmpty() && !other.overflow.isEmpty()) {
+            sharedOverflow = new HashSet<>(overflow);
+            sharedOverflow.retainAll(other.overflow);
+            sharedOverflow = Collections.unmodifiableSet(sharedOverflow);
+        }
+        return new UrnSet(trim(result), sharedOverflow);
+    }
+
+    /**
+     * Tests if the set shares at least one value with another set. Equivalent to !intersect(other).isEmpty(),
+     * without allocating the intersection.
+     * @param other other set
+     * @return true if the sets have a value in common
+     */
+    public boolean intersects(UrnSet other) {
+        int length = Math.min(words.length, other.words.length);
+        for (int i = 0; i < length; i++) {
+            if ((words[i] & other.words[i]) != 0) {
+                return true;
+            }
+        }
+        if (overflow.isEmpty() || other.overflow.isEmpty()) {
+            return false;
+        }
+        Set<String> smaller = (overflow.size() <= other.overflow.size() ? overflow : other.overflow);
+        Set<String> larger = (smaller == overflow ? other.overflow : overflow);
+        for (String value : smaller) {
+            if (larger.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tests if every value of another set exists in this set.
+     * @param other other set
+     * @return true if the other set is a subset of this one
+     */
+    public boolean containsAll(UrnSet other) {
+        for (int i = 0; i < other.words.length; i++) {
+            long word = (i < words.length ? words[i] : 0L);
+            if ((other.words[i] & ~word) != 0) {
+                return false;
+            }
+        }
+        return overflow.containsAll(other.overflow);
+    }
+
+    /**
+     * Tests if the set contains a value.
+     * @param value value
+     * @return true if the value exists in the set
+     */
+    public boolean contains(String value) {
+        int index = UrnDictionary.indexOf(value);
+        if (index == UrnDictionary.NOT_FOUND) {
+            return overflow.contains(value);
+        }
+        int word = index >>> 6;
+        return (word < words.length && (words[word] & (1L << index)) != 0);
+    }
+
+    public boolean isEmpty() {
+        return words.length == 0 && overflow.isEmpty();
+    }
+
+    public int size() {
+        int size = overflow.size();
+        for (long word : words) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    /**
+     * Converts the set back into a collection of strings.
+     * @return new, mutable set containing the values
+     */
+    public Set<String> toSet() {
+        Set<String> result = new HashSet<>(overflow);
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                int bit = Long.numberOfTrailingZeros(word);
+                result.add(UrnDictionary.valueOf((i << 6) + bit));
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes trailing empty words, so that equal sets have identical representations.
+     */
+    private static long[] trim(long[] words) {
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0) {
+            length--;
+        }
+        return (length == words.length ? words : Arrays.copyOf(words, length));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UrnSet that = (UrnSet) o;
+        return Arrays.equals(words, that.words) && overflow.equals(that.overflow);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(words) + overflow.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toSet().toString();
+    }
+}
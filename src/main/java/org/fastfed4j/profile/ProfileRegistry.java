@@ -1,11 +1,14 @@
 package org.fastfed4j.profile;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  Lookup table for Profiles, keyed by the URN of the Profile.
  */
 public class ProfileRegistry {
+    private static final AtomicLong generation = new AtomicLong();
+
     private final Map<String, Profile> registry = new HashMap<>();
 
     /**
@@ -36,6 +39,16 @@ public class ProfileRegistry {
      */
     public void add(Profile profile) {
         registry.put(profile.getUrn(), profile);
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Gets a counter which is incremented whenever a profile is added to any registry. Used to discard cached
+     * results which depend upon the registered profiles, such as those held by CompatibilityCache.
+     * @return generation of the registered profiles
+     */
+    public static long getGeneration() {
+        return generation.get();
     }
 
     /**
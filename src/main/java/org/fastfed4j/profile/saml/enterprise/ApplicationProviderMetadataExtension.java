@@ -6,11 +6,14 @@ import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.constants.SchemaGrammar;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.core.metadata.DesiredAttributes;
 import org.fastfed4j.core.metadata.Metadata;
 import org.fastfed4j.core.metadata.UserAttribute;
 import org.fastfed4j.core.util.FormattingUtils;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Objects;
 import java.util.Set;
@@ -58,8 +61,10 @@ class ApplicationProviderMetadataExtension extends Metadata {
      */
     public ApplicationProviderMetadataExtension(ApplicationProviderMetadataExtension other) {
         super(other);
-        if (desiredAttributes != null)
-            this.desiredAttributes = new DesiredAttributes(other.getDesiredAttributes());
+        if (other.samlSubject != null)
+            this.samlSubject = new UserAttribute(other.samlSubject);
+        if (other.desiredAttributes != null)
+            this.desiredAttributes = new DesiredAttributes(other.desiredAttributes);
     }
 
     /**
@@ -73,6 +78,7 @@ class ApplicationProviderMetadataExtension extends Metadata {
      * @param userAttribute the attribute to use as the SAML Subject
      */
     public void setSamlSubject(UserAttribute userAttribute) {
+        markModified();
         this.samlSubject = userAttribute;
     }
 
@@ -87,9 +93,21 @@ class ApplicationProviderMetadataExtension extends Metadata {
      * @param desiredAttributes DesiredAttributes
      */
     public void setDesiredAttributes(DesiredAttributes desiredAttributes) {
+        markModified();
         this.desiredAttributes = desiredAttributes;
     }
 
+    @Override
+    public void freeze() {
+        freezeAll(samlSubject, desiredAttributes);
+        super.freeze();
+    }
+
+    @Override
+    protected long getModificationStamp() {
+        return latestModificationStamp(super.getModificationStamp(), samlSubject, desiredAttributes);
+    }
+
     @Override
     public JsonObject toJson() {
         JsonObject.Builder builder = new JsonObject.Builder(AuthenticationProfile.ENTERPRISE_SAML.getUrn());
@@ -101,6 +119,17 @@ class ApplicationProviderMetadataExtension extends Metadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(AuthenticationProfile.ENTERPRISE_SAML.getUrn());
+        super.writeJsonMembers(writer);
+        if (samlSubject != null)
+            writeChildJsonMembers(writer, samlSubject);
+        if (desiredAttributes != null)
+            writeChildJsonMembers(writer, desiredAttributes);
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         super.hydrateFromJson(json);
@@ -120,6 +149,33 @@ class ApplicationProviderMetadataExtension extends Metadata {
         }
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, null);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.SAML_SUBJECT:
+                if (reader.nextIsObject(memberName)) {
+                    UserAttribute samlSubject = new UserAttribute(getFastFedConfiguration(), JsonMember.SAML_SUBJECT);
+                    samlSubject.hydrateFromJson(reader);
+                    setSamlSubject(samlSubject);
+                }
+                return true;
+            case JsonMember.DESIRED_ATTRIBUTES:
+                if (reader.nextIsObject(memberName)) {
+                    DesiredAttributes desiredAttributes = new DesiredAttributes(getFastFedConfiguration());
+                    desiredAttributes.hydrateFromJson(reader);
+                    setDesiredAttributes(desiredAttributes);
+                }
+                return true;
+            default:
+                return super.hydrateMember(memberName, reader);
+        }
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         validateRequiredObject(errorAccumulator, JsonMember.SAML_SUBJECT, samlSubject);
@@ -5,9 +5,12 @@ import org.fastfed4j.core.constants.AuthenticationProfile;
 import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.core.metadata.DesiredAttributes;
 import org.fastfed4j.core.metadata.Metadata;
 
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -46,6 +49,7 @@ class RegistrationExtension extends Metadata {
      * @param samlMetadataUri saml metadata uri
      */
     public void setSamlMetadataUri(String samlMetadataUri) {
+        markModified();
         this.samlMetadataUri = samlMetadataUri;
     }
 
@@ -57,6 +61,14 @@ class RegistrationExtension extends Metadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(AuthenticationProfile.ENTERPRISE_SAML.getUrn());
+        super.writeJsonMembers(writer);
+        writer.member(JsonMember.SAML_METADATA_URI, samlMetadataUri);
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -64,6 +76,20 @@ class RegistrationExtension extends Metadata {
         setSamlMetadataUri(json.getString(JsonMember.SAML_METADATA_URI));
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, null);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        if (memberName.equals(JsonMember.SAML_METADATA_URI)) {
+            setSamlMetadataUri( reader.nextString(memberName));
+            return true;
+        }
+        return super.hydrateMember(memberName, reader);
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         validateRequiredUrl(errorAccumulator, JsonMember.SAML_METADATA_URI, getSamlMetadataUri());
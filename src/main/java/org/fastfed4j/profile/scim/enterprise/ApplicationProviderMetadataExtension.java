@@ -6,10 +6,13 @@ import org.fastfed4j.core.constants.ProvisioningProfile;
 import org.fastfed4j.core.constants.SchemaGrammar;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.core.metadata.DesiredAttributes;
 import org.fastfed4j.core.metadata.Metadata;
 import org.fastfed4j.core.util.FormattingUtils;
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -81,6 +84,7 @@ class ApplicationProviderMetadataExtension extends Metadata {
      * @param desiredAttributes DesiredAttributes
      */
     public void setDesiredAttributes(DesiredAttributes desiredAttributes) {
+        markModified();
         this.desiredAttributes = desiredAttributes;
     }
 
@@ -97,6 +101,7 @@ class ApplicationProviderMetadataExtension extends Metadata {
      * @param canSupportNestedGroups true if the Application Provider supports nested groups
      */
     public void setCanSupportNestedGroups(Boolean canSupportNestedGroups) {
+        markModified();
         Objects.requireNonNull(canSupportNestedGroups, "canSupportNestedGroups must not be null");
         this.canSupportNestedGroups = canSupportNestedGroups;
     }
@@ -114,10 +119,22 @@ class ApplicationProviderMetadataExtension extends Metadata {
      * @param maxGroupMembershipChanges max changes
      */
     public void setMaxGroupMembershipChanges(Integer maxGroupMembershipChanges) {
+        markModified();
         Objects.requireNonNull(maxGroupMembershipChanges, "maxGroupMembershipChanges must not be null");
         this.maxGroupMembershipChanges = maxGroupMembershipChanges;
     }
 
+    @Override
+    public void freeze() {
+        freezeAll(desiredAttributes);
+        super.freeze();
+    }
+
+    @Override
+    protected long getModificationStamp() {
+        return latestModificationStamp(super.getModificationStamp(), desiredAttributes);
+    }
+
     @Override
     public JsonObject toJson() {
         JsonObject.Builder builder = new JsonObject.Builder(ProvisioningProfile.ENTERPRISE_SCIM.getUrn());
@@ -129,6 +146,17 @@ class ApplicationProviderMetadataExtension extends Metadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(ProvisioningProfile.ENTERPRISE_SCIM.getUrn());
+        super.writeJsonMembers(writer);
+        writer.member(JsonMember.SCIM_CAN_SUPPORT_NESTED_GROUPS, canSupportNestedGroups);
+        writer.member(JsonMember.SCIM_MAX_GROUP_MEMBERSHIP_CHANGES, maxGroupMembershipChanges);
+        if (desiredAttributes != null)
+            writeChildJsonMembers(writer, desiredAttributes);
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         super.hydrateFromJson(json);
@@ -153,6 +181,44 @@ class ApplicationProviderMetadataExtension extends Metadata {
         setMaxGroupMembershipChanges(maxGroupMembershipChanges);
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, null);
+        if (canSupportNestedGroups == null) {
+            setCanSupportNestedGroups(getFastFedConfiguration().SCIM_DEFAULT_VALUE_OF_NESTED_GROUP_SUPPORT);
+        }
+        if (maxGroupMembershipChanges == null) {
+            setMaxGroupMembershipChanges(getFastFedConfiguration().SCIM_DEFAULT_VALUE_OF_MAX_GROUP_MEMBERSHIP_CHANGES);
+        }
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.DESIRED_ATTRIBUTES:
+                if (reader.nextIsObject(memberName)) {
+                    DesiredAttributes desiredAttributes = new DesiredAttributes(getFastFedConfiguration());
+                    desiredAttributes.hydrateFromJson(reader);
+                    setDesiredAttributes(desiredAttributes);
+                }
+                return true;
+            case JsonMember.SCIM_CAN_SUPPORT_NESTED_GROUPS:
+                Boolean canSupportNestedGroups = reader.nextBoolean(memberName);
+                if (canSupportNestedGroups != null) {
+                    setCanSupportNestedGroups(canSupportNestedGroups);
+                }
+                return true;
+            case JsonMember.SCIM_MAX_GROUP_MEMBERSHIP_CHANGES:
+                Integer maxGroupMembershipChanges = reader.nextInteger(memberName);
+                if (maxGroupMembershipChanges != null) {
+                    setMaxGroupMembershipChanges(maxGroupMembershipChanges);
+                }
+                return true;
+            default:
+                return super.hydrateMember(memberName, reader);
+        }
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         // Validate DesiredAttributes
@@ -5,10 +5,13 @@ import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.constants.ProviderAuthenticationProtocol;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.core.metadata.Metadata;
 import org.fastfed4j.core.metadata.Oauth2JwtClientMetadata;
 import org.fastfed4j.core.metadata.ProviderAuthenticationMetadata;
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -44,6 +47,7 @@ public class ProviderAuthenticationMethods extends Metadata {
      * @param metadata metadata for the provider authentication method
      */
     public void addProviderAuthenticationMethod(ProviderAuthenticationMetadata metadata) {
+        markModified();
         addMetadataExtension(metadata.getProviderAuthenticationProtocol().toString(), metadata);
     }
 
@@ -104,6 +108,13 @@ public class ProviderAuthenticationMethods extends Metadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(JsonMember.PROVIDER_AUTHENTICATION_METHODS);
+        super.writeJsonMembers(writer);
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -124,9 +135,27 @@ public class ProviderAuthenticationMethods extends Metadata {
         }
     }
 
+    @Override
+    public void hydrateFromJson(JsonReader reader) {
+        hydrateMembers(reader, JsonMember.PROVIDER_AUTHENTICATION_METHODS);
+    }
+
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        if (memberName.equals(ProviderAuthenticationProtocol.OAUTH2_JWT.toString())) {
+            Oauth2JwtClientMetadata metadataExtension = new Oauth2JwtClientMetadata(getFastFedConfiguration());
+            if (reader.nextIsObject(memberName)) {
+                metadataExtension.hydrateFromJson(reader);
+            }
+            addMetadataExtension(memberName, metadataExtension);
+            return true;
+        }
+        return super.hydrateMember(memberName, reader);
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
-        for (Metadata extendedMetadata : getAllMetadataExtensions().values()) {
+        for (Metadata extendedMetadata : getMetadataExtensionValues()) {
             extendedMetadata.validate(errorAccumulator);
         }
     }
@@ -5,10 +5,13 @@ import org.fastfed4j.core.constants.JsonMember;
 import org.fastfed4j.core.constants.ProvisioningProfile;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.core.json.Jwt;
 import org.fastfed4j.core.metadata.DesiredAttributes;
 import org.fastfed4j.core.metadata.ProviderContactInformation;
 
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -53,6 +56,7 @@ public class RegistrationRequestExtension extends Jwt {
      * @param providerContactInformation ProviderContactInformation
      */
     public void setProviderContactInformation(ProviderContactInformation providerContactInformation) {
+        markModified();
         this.providerContactInformation = providerContactInformation;
     }
 
@@ -69,9 +73,21 @@ public class RegistrationRequestExtension extends Jwt {
      * @param providerAuthenticationMethods ProviderAuthenticationMethods
      */
     public void setProviderAuthenticationMethods(ProviderAuthenticationMethods providerAuthenticationMethods) {
+        markModified();
         this.providerAuthenticationMethods = providerAuthenticationMethods;
     }
 
+    @Override
+    public void freeze() {
+        freezeAll(providerContactInformation, providerAuthenticationMethods);
+        super.freeze();
+    }
+
+    @Override
+    protected long getModificationStamp() {
+        return latestModificationStamp(super.getModificationStamp(), providerContactInformation, providerAuthenticationMethods);
+    }
+
     @Override
     public JsonObject toJson() {
         JsonObject.Builder builder = new JsonObject.Builder(ProvisioningProfile.ENTERPRISE_SCIM.getUrn());
@@ -83,6 +99,17 @@ public class RegistrationRequestExtension extends Jwt {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(ProvisioningProfile.ENTERPRISE_SCIM.getUrn());
+        super.writeJsonMembers(writer);
+        if (providerContactInformation != null)
+            writeChildJsonMembers(writer, providerContactInformation);
+        if (providerAuthenticationMethods != null)
+            writeChildJsonMembers(writer, providerAuthenticationMethods);
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
@@ -103,6 +130,28 @@ public class RegistrationRequestExtension extends Jwt {
         }
     }
 
+    @Override
+    protected boolean hydrateMember(String memberName, JsonReader reader) {
+        switch (memberName) {
+            case JsonMember.PROVIDER_CONTACT_INFORMATION:
+                if (reader.nextIsObject(memberName)) {
+                    ProviderContactInformation providerContactInformation = new ProviderContactInformation(getFastFedConfiguration());
+                    providerContactInformation.hydrateFromJson(reader);
+                    setProviderContactInformation(providerContactInformation);
+                }
+                return true;
+            case JsonMember.PROVIDER_AUTHENTICATION_METHODS:
+                if (reader.nextIsObject(memberName)) {
+                    ProviderAuthenticationMethods providerAuthenticationMethods = new ProviderAuthenticationMethods(getFastFedConfiguration());
+                    providerAuthenticationMethods.hydrateFromJson(reader);
+                    setProviderAuthenticationMethods(providerAuthenticationMethods);
+                }
+                return true;
+            default:
+                return super.hydrateMember(memberName, reader);
+        }
+    }
+
     @Override
     public void validate(ErrorAccumulator errorAccumulator) {
         validateRequiredObject(errorAccumulator, JsonMember.PROVIDER_CONTACT_INFORMATION, providerContactInformation);
@@ -6,11 +6,13 @@ import org.fastfed4j.core.constants.ProviderAuthenticationProtocol;
 import org.fastfed4j.core.constants.ProvisioningProfile;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonWriter;
 import org.fastfed4j.core.metadata.Metadata;
 import org.fastfed4j.core.metadata.Oauth2JwtServiceMetadata;
 import org.fastfed4j.core.metadata.ProviderAuthenticationMetadata;
 import org.fastfed4j.core.util.ReflectionUtils;
 
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -40,7 +42,7 @@ public class RegistrationResponseExtension extends Metadata {
         if (other.providerAuthenticationMetadata != null) {
             // ProviderAuthenticationMetadata is an abstract base class, so reflection is used to create
             // a copy of whatever concrete implementation is in use.
-            this.providerAuthenticationMetadata = (ProviderAuthenticationMetadata) ReflectionUtils.copy(other.providerAuthenticationMetadata);
+            this.providerAuthenticationMetadata = ReflectionUtils.copy(other.providerAuthenticationMetadata);
         }
     }
 
@@ -57,6 +59,7 @@ public class RegistrationResponseExtension extends Metadata {
      * @param scimServiceUri scim service uri
      */
     public void setScimServiceUri(String scimServiceUri) {
+        markModified();
         this.scimServiceUri = scimServiceUri;
     }
 
@@ -73,6 +76,7 @@ public class RegistrationResponseExtension extends Metadata {
      * @param providerAuthenticationProtocolUrn ProviderAuthenticationProtocol
      */
     public void setProviderAuthenticationProtocolUrn(ProviderAuthenticationProtocol providerAuthenticationProtocolUrn) {
+        markModified();
         this.providerAuthenticationProtocolUrn = providerAuthenticationProtocolUrn;
     }
 
@@ -87,9 +91,21 @@ public class RegistrationResponseExtension extends Metadata {
      * Set the extended metadata for the Provider Authentication Method
      */
     public void setProviderAuthenticationMethod(ProviderAuthenticationMetadata providerAuthenticationMetadata) {
+        markModified();
         this.providerAuthenticationMetadata = providerAuthenticationMetadata;
     }
 
+    @Override
+    public void freeze() {
+        freezeAll(providerAuthenticationMetadata);
+        super.freeze();
+    }
+
+    @Override
+    protected long getModificationStamp() {
+        return latestModificationStamp(super.getModificationStamp(), providerAuthenticationMetadata);
+    }
+
     @Override
     public JsonObject toJson() {
         JsonObject.Builder builder = new JsonObject.Builder(ProvisioningProfile.ENTERPRISE_SCIM.getUrn());
@@ -102,6 +118,18 @@ public class RegistrationResponseExtension extends Metadata {
         return builder.build();
     }
 
+    @Override
+    public void writeJsonMembers(JsonWriter writer) throws IOException {
+        writer.beginObject(ProvisioningProfile.ENTERPRISE_SCIM.getUrn());
+        super.writeJsonMembers(writer);
+        writer.member(JsonMember.SCIM_SERVICE_URI, scimServiceUri);
+        if (providerAuthenticationMetadata != null)
+            writeChildJsonMembers(writer, providerAuthenticationMetadata);
+        if (providerAuthenticationProtocolUrn != null)
+            writer.member(JsonMember.PROVIDER_AUTHENTICATION_METHOD, providerAuthenticationProtocolUrn.getUrn());
+        writer.endObject();
+    }
+
     @Override
     public void hydrateFromJson(JsonObject json) {
         if (json == null) return;
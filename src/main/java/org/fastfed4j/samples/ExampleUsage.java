@@ -6,10 +6,17 @@ import org.fastfed4j.core.contract.ContractChange;
 import org.fastfed4j.core.contract.ContractProposal;
 import org.fastfed4j.core.contract.ContractProposalStatus;
 import org.fastfed4j.core.exception.InvalidMetadataException;
+import org.fastfed4j.core.jws.JsonWebKeySet;
+import org.fastfed4j.core.jws.JwsSigner;
+import org.fastfed4j.core.jws.JwsVerifier;
+import org.fastfed4j.core.jws.ReplayCache;
 import org.fastfed4j.core.metadata.ApplicationProviderMetadata;
 import org.fastfed4j.core.metadata.IdentityProviderMetadata;
+import org.fastfed4j.core.metadata.RegistrationRequest;
 import org.fastfed4j.profile.saml.enterprise.EnterpriseSAML;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.HashSet;
@@ -72,7 +79,20 @@ public class ExampleUsage {
         /*
           EXAMPLE OF REGISTRATION REQUEST
          */
-        contract.validateAndOverlayRegistrationRequest( getSampleJsonForRegistrationRequest());
+        // The Identity Provider signs the Registration Request with the private key published at its jwks_uri
+        JwsSigner idpSigner = JwsSigner.fromJwk(getSamplePrivateJwkForIdp());
+        RegistrationRequest regRequest = RegistrationRequest.fromJson(config, getSampleJsonForRegistrationRequest());
+        regRequest.setIssuer(contract.getIdentityProvider().getEntityId());
+        regRequest.setAudience(contract.getApplicationProvider().getEntityId());
+        regRequest.setExpiration(Date.from(Instant.now().plus(Duration.ofMinutes(5))));
+        String regRequestJwt = regRequest.toCompactSerialization(idpSigner, contract.getSigningAlgorithms());
+
+        // The Application Provider verifies the signature with the public keys of the Identity Provider.
+        // Passing a JwksCache instead of a verifier would fetch them from the jwks_uri.
+        // The replay cache rejects the Registration Request if it is presented a second time.
+        JwsVerifier idpVerifier = new JwsVerifier(
+                JsonWebKeySet.fromJson(getSampleJwksForIdp()), contract.getSigningAlgorithms());
+        contract.validateAndOverlayRegistrationRequest(regRequestJwt, idpVerifier, new ReplayCache.Builder().build());
         System.out.println("\nContract overlaid with data from Registration Request\n---------------------");
         System.out.println("Enabled Profiles=(" + contract.getEnabledProfiles().toString() + ")");
         System.out.println("IdP Saml Metadata Uri=" + contract.getIdentityProvider().getEnterpriseSamlMetadataUri());
@@ -319,6 +339,32 @@ public class ExampleUsage {
                 " }";
     }
 
+    public static String getSamplePrivateJwkForIdp() {
+        return " {\n" +
+                "   \"kty\": \"EC\",\n" +
+                "   \"kid\": \"idp-signing-key\",\n" +
+                "   \"crv\": \"P-521\",\n" +
+                "   \"x\": \"AV1ldyP-vduyq5RHnF2z8H_7w0k7trGCkCKDSqqJRlobJ8WgA0SFuP-oLp9Vgb0KjEETCaP-n4X33oW4cQGEudEk\",\n" +
+                "   \"y\": \"AA5dsHmmqxq211ItGgQW7NV2Rsqai_p9zl_xqgOJ2lOAtBXbvH_gr36UloXU3H4fsEJwhkq7a1O6q3euF1P6-qQN\",\n" +
+                "   \"d\": \"AJIVYYA6N3kwF1Yv4dzSUm-9cCQ1FPILm0B10FK_7Slvb-6KQUJ7T8IL8FQAN2j-loK6OEmPVnI3o3vIrj96JdSM\"\n" +
+                " }";
+    }
+
+    public static String getSampleJwksForIdp() {
+        return " {\n" +
+                "   \"keys\": [\n" +
+                "     {\n" +
+                "       \"kty\": \"EC\",\n" +
+                "       \"kid\": \"idp-signing-key\",\n" +
+                "       \"use\": \"sig\",\n" +
+                "       \"crv\": \"P-521\",\n" +
+                "       \"x\": \"AV1ldyP-vduyq5RHnF2z8H_7w0k7trGCkCKDSqqJRlobJ8WgA0SFuP-oLp9Vgb0KjEETCaP-n4X33oW4cQGEudEk\",\n" +
+                "       \"y\": \"AA5dsHmmqxq211ItGgQW7NV2Rsqai_p9zl_xqgOJ2lOAtBXbvH_gr36UloXU3H4fsEJwhkq7a1O6q3euF1P6-qQN\"\n" +
+                "     }\n" +
+                "   ]\n" +
+                " }";
+    }
+
     public static String getSampleJsonForRegistrationResponse() {
         return " {  \n" +
                 "   \"fastfed_handshake_finalize_uri\": \"https://tenant-67890.app.example.com/fastfed/finalize\",\n" +
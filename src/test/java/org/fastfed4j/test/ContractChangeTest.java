@@ -4,11 +4,16 @@ import org.fastfed4j.core.configuration.FastFedConfiguration;
 import org.fastfed4j.core.contract.Contract;
 import org.fastfed4j.core.contract.ContractChange;
 import org.fastfed4j.core.contract.ContractChangeType;
+import org.fastfed4j.core.metadata.ApplicationProviderMetadata;
 import org.fastfed4j.core.metadata.DesiredAttributes;
+import org.fastfed4j.core.metadata.IdentityProviderMetadata;
+import org.fastfed4j.test.data.ApplicationProviderJson;
 import org.fastfed4j.test.data.ContractJson;
+import org.fastfed4j.test.data.IdentityProviderJson;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.HashSet;
 import java.util.Set;
 
 public class ContractChangeTest {
@@ -44,6 +49,83 @@ public class ContractChangeTest {
         }
     }
 
+    @Test
+    public void testBackgroundRefresh() {
+        String newLogoUri = "https://idp.example.com/images/new-logo.png";
+        IdentityProviderMetadata idpMetadata = IdentityProviderMetadata.fromJson(config, IdentityProviderJson.FULLY_POPULATED);
+        ApplicationProviderMetadata appMetadata = ApplicationProviderMetadata.fromJson(config, ApplicationProviderJson.FULLY_POPULATED);
+        idpMetadata.getDisplaySettings().setLogoUri(newLogoUri);
+
+        Contract mutableContract = Contract.fromJson(config, ContractJson.FULLY_POPULATED);
+        ContractChange mutableChange = ContractChange.backgroundRefresh(mutableContract, idpMetadata, appMetadata);
+        Assert.assertEquals(ContractChangeType.MetadataChange, mutableChange.getChangeType());
+        Assert.assertFalse(mutableChange.getNewContract().isFrozen());
+
+        // A frozen contract is refreshed into a new snapshot, with the same contents
+        Contract frozenContract = Contract.fromJson(config, ContractJson.FULLY_POPULATED).snapshot();
+        ContractChange frozenChange = ContractChange.backgroundRefresh(frozenContract, idpMetadata, appMetadata);
+        Contract refreshedContract = frozenChange.getNewContract();
+        Assert.assertEquals(ContractChangeType.MetadataChange, frozenChange.getChangeType());
+        Assert.assertTrue(refreshedContract.isFrozen());
+        Assert.assertEquals(mutableChange.getNewContract(), refreshedContract);
+        Assert.assertEquals(newLogoUri, refreshedContract.getIdentityProvider().getDisplaySettings().getLogoUri());
+
+        // The original snapshot is unchanged, and the parts of the contract that cannot change are shared
+        Assert.assertNotEquals(newLogoUri, frozenContract.getIdentityProvider().getDisplaySettings().getLogoUri());
+        Assert.assertSame(frozenContract.getEnabledProfiles(), refreshedContract.getEnabledProfiles());
+    }
+
+    @Test
+    public void testConsolidatedDesiredAttributesAreCached() {
+        Contract contract = Contract.fromJson(config, ContractJson.FULLY_POPULATED);
+        DesiredAttributes consolidated = contract.getConsolidatedDesiredAttributes();
+        Assert.assertTrue(consolidated.isFrozen());
+
+        // Reads and unrelated changes reuse the cached value
+        ContractChange change = new ContractChange(contract, Contract.fromJson(config, ContractJson.FULLY_POPULATED));
+        Assert.assertEquals(ContractChangeType.None, change.getChangeType());
+        contract.getIdentityProvider().getDisplaySettings().setLogoUri("https://idp.example.com/images/new-logo.png");
+        Assert.assertSame(consolidated, contract.getConsolidatedDesiredAttributes());
+
+        // Changes to the desired attributes discard it
+        contract.getApplicationProvider().getEnterpriseScimDesiredAttributes().getForSchemaGrammar(config.getPreferredSchemaGrammar())
+                .getRequiredUserAttributes().add("nickName");
+        DesiredAttributes updated = contract.getConsolidatedDesiredAttributes();
+        Assert.assertNotSame(consolidated, updated);
+        Assert.assertTrue(updated.getForSchemaGrammar(config.getPreferredSchemaGrammar()).getRequiredUserAttributes().contains("nickName"));
+
+        // As do changes to the enabled profiles
+        contract.getEnabledProfiles().getProvisioningProfiles().clear();
+        Assert.assertNotSame(updated, contract.getConsolidatedDesiredAttributes());
+    }
+
+    @Test
+    public void testChangeToCollectionPassedToSetter() {
+        Contract oldContract = Contract.fromJson(config, ContractJson.FULLY_POPULATED);
+        Contract newContract = Contract.fromJson(config, ContractJson.FULLY_POPULATED);
+        Set<String> provisioningProfiles = new HashSet<>(newContract.getEnabledProfiles().getProvisioningProfiles());
+        newContract.getEnabledProfiles().setProvisioningProfiles(provisioningProfiles);
+
+        // Compute and cache the fingerprints and the consolidated desired attributes
+        Assert.assertEquals(ContractChangeType.None, new ContractChange(oldContract, newContract).getChangeType());
+        DesiredAttributes consolidated = newContract.getConsolidatedDesiredAttributes();
+
+        // The contract holds its own copy of the collection, so the caller's copy can't change it behind its back
+        provisioningProfiles.clear();
+        Assert.assertEquals(oldContract, newContract);
+        Assert.assertEquals(ContractChangeType.None, new ContractChange(oldContract, newContract).getChangeType());
+
+        // Changing the collection held by the contract is reported, along with the change details
+        newContract.getEnabledProfiles().getProvisioningProfiles().clear();
+        ContractChange change = new ContractChange(oldContract, newContract);
+        Assert.assertEquals(ContractChangeType.ProfileChange, change.getChangeType());
+        Assert.assertEquals(NUMBER_OF_PROVISIONING_PROFILES_IN_TEST_DATA, change.getProvisioningProfilesRemoved().size());
+        Assert.assertEquals(NUMBER_OF_USER_ATTRIBUTES_UNIQUE_TO_SCIM_PROFILE, change.getUserAttributesRemoved().size());
+        Assert.assertEquals(NUMBER_OF_GROUP_ATTRIBUTES_IN_TEST_DATA, change.getGroupAttributesRemoved().size());
+        Assert.assertTrue(change.isDeactivatingGroupProvisioning());
+        Assert.assertNotSame(consolidated, newContract.getConsolidatedDesiredAttributes());
+    }
+
     @Test
     public void testCreation() {
         Contract oldContract = null;
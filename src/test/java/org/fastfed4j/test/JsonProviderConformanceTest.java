@@ -0,0 +1,173 @@
+package org.fastfed4j.test;
+
+import org.fastfed4j.core.configuration.FastFedConfiguration;
+import org.fastfed4j.core.contract.Contract;
+import org.fastfed4j.core.contract.ContractProposal;
+import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.exception.InvalidMetadataException;
+import org.fastfed4j.core.json.BuiltInJsonProvider;
+import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonParser;
+import org.fastfed4j.core.json.JsonProvider;
+import org.fastfed4j.core.json.JsonSimpleProvider;
+import org.fastfed4j.core.metadata.*;
+import org.fastfed4j.test.data.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Ensures that every JsonProvider produces the same results, and reports the same errors, for the same input.
+ */
+public class JsonProviderConformanceTest {
+
+    private static final FastFedConfiguration config = FastFedConfiguration.DEFAULT;
+    private static final JsonProvider reference = new JsonSimpleProvider();
+    private static final JsonProvider candidate = new BuiltInJsonProvider();
+
+    private static final List<String> MALFORMED_DOCUMENTS = Arrays.asList(
+            "",
+            "{",
+            "}",
+            "[\"a\", \"b\"]",
+            "\"string\"",
+            "123",
+            "null",
+            "{\"entity_id\": }",
+            "{\"entity_id\": \"unterminated}",
+            "{\"entity_id\": tru}",
+            "{\"entity_id\": \"a\"} extra",
+            "{entity_id: \"a\"}",
+            "{\"entity_id\": \"a\",, 5}"
+    );
+
+    @Test
+    public void testIdentityProviderMetadata() {
+        for (String json : IdentityProviderJson.ALL_VALID_VARIATIONS) {
+            assertConformance(() -> new IdentityProviderMetadata(config), json);
+        }
+        assertConformance(() -> new IdentityProviderMetadata(config), IdentityProviderJson.INVALID_TYPES);
+    }
+
+    @Test
+    public void testApplicationProviderMetadata() {
+        for (String json : ApplicationProviderJson.ALL_VALID_VARIATIONS) {
+            assertConformance(() -> new ApplicationProviderMetadata(config), json);
+        }
+        assertConformance(() -> new ApplicationProviderMetadata(config), ApplicationProviderJson.INVALID_TYPES);
+    }
+
+    @Test
+    public void testRegistrationRequest() {
+        for (String json : RegistrationRequestJson.ALL_VALID_VARIATIONS) {
+            assertConformance(() -> new RegistrationRequest(config), json);
+        }
+        assertConformance(() -> new RegistrationRequest(config), RegistrationRequestJson.INVALID_TYPES);
+    }
+
+    @Test
+    public void testContract() {
+        for (String json : ContractJson.ALL_VALID_VARIATIONS) {
+            assertConformance(() -> new Contract(config), json);
+        }
+        assertConformance(() -> new Contract(config), ContractJson.INVALID_TYPES);
+    }
+
+    @Test
+    public void testContractProposal() {
+        for (String json : ContractProposalJson.ALL_VALID_VARIATIONS) {
+            assertConformance(() -> new ContractProposal(config), json);
+        }
+        assertConformance(() -> new ContractProposal(config), ContractProposalJson.INVALID_TYPES);
+    }
+
+    @Test
+    public void testMalformedDocuments() {
+        for (String json : MALFORMED_DOCUMENTS) {
+            List<String> referenceErrors = parseErrors(reference, json);
+            List<String> candidateErrors = parseErrors(candidate, json);
+            Assert.assertEquals(json, 1, referenceErrors.size());
+            Assert.assertEquals(json, 1, candidateErrors.size());
+
+            // The description of a syntax error is specific to the provider
+            String referenceError = referenceErrors.get(0);
+            String candidateError = candidateErrors.get(0);
+            if (referenceError.startsWith("Malformed JSON:")) {
+                Assert.assertTrue(json + ": " + candidateError, candidateError.startsWith("Malformed JSON:"));
+            } else {
+                Assert.assertEquals(json, referenceError, candidateError);
+            }
+        }
+    }
+
+    @Test
+    public void testLenientSyntax() {
+        // JSON Simple treats the separators between members, array entries, and names and values as optional
+        String json = "{\"entity_id\" \"a\" ,, \"provider_domain\":: \"b\" \"list\": [\"c\" \"d\",]}";
+        Assert.assertEquals(
+                reference.parseObject(json, new ErrorAccumulator()),
+                candidate.parseObject(json, new ErrorAccumulator()));
+    }
+
+    @Test
+    public void testSerialization() {
+        List<String> documents = new ArrayList<>();
+        documents.addAll(ContractJson.ALL_VALID_VARIATIONS);
+        documents.addAll(ApplicationProviderJson.ALL_VALID_VARIATIONS);
+        documents.add("{\"escapes\": \"quote \\\" slash / backslash \\\\ tab \\t unicode \\u00e9 \\u2028\", " +
+                "\"numbers\": [0, -1, 9223372036854775807, 1.5, -2.5E-3], \"literals\": [true, false, null], " +
+                "\"nested\": {\"empty_object\": {}, \"empty_array\": []}}");
+
+        for (String json : documents) {
+            Map<String, Object> parsed = reference.parseObject(json, new ErrorAccumulator());
+            String referenceJson = reference.toJsonString(parsed);
+            String candidateJson = candidate.toJsonString(parsed);
+
+            // Member order is not significant, so compare after parsing
+            Assert.assertEquals(parsed, reference.parseObject(candidateJson, new ErrorAccumulator()));
+            Assert.assertEquals(parsed, candidate.parseObject(referenceJson, new ErrorAccumulator()));
+            Assert.assertEquals(parsed, candidate.parseObject(json, new ErrorAccumulator()));
+        }
+    }
+
+    private void assertConformance(Supplier<Metadata> factory, String json) {
+        ErrorAccumulator referenceErrors = new ErrorAccumulator();
+        Metadata fromReference = factory.get();
+        JsonObject referenceJson = JsonParser.parse(json, referenceErrors, reference);
+        fromReference.hydrateFromJson(referenceJson);
+
+        ErrorAccumulator candidateErrors = new ErrorAccumulator();
+        Metadata fromCandidate = factory.get();
+        JsonObject candidateJson = JsonParser.parse(json, candidateErrors, candidate);
+        fromCandidate.hydrateFromJson(candidateJson);
+
+        if (! referenceErrors.hasErrors()) {
+            Assert.assertEquals(fromReference, fromCandidate);
+        }
+
+        // Member order differs between providers, so compare the errors irrespective of order
+        Assert.assertEquals(sorted(referenceErrors.getErrors()), sorted(candidateErrors.getErrors()));
+        Assert.assertEquals(
+                reference.parseObject(referenceJson.toString(), new ErrorAccumulator()),
+                reference.parseObject(candidateJson.toString(), new ErrorAccumulator()));
+    }
+
+    private List<String> parseErrors(JsonProvider provider, String json) {
+        ErrorAccumulator errorAccumulator = new ErrorAccumulator();
+        try {
+            JsonParser.parse(json, errorAccumulator, provider);
+            Assert.fail("Expected an exception for malformed JSON: " + json);
+        } catch (InvalidMetadataException e) {
+            // Expected
+        }
+        return errorAccumulator.getErrors();
+    }
+
+    private List<String> sorted(List<String> list) {
+        List<String> result = new ArrayList<>(list);
+        Collections.sort(result);
+        return result;
+    }
+}
@@ -6,6 +6,7 @@ import org.fastfed4j.core.contract.Contract;
 import org.fastfed4j.core.contract.ContractProposal;
 import org.fastfed4j.core.contract.EnabledProfiles;
 import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.exception.InvalidMetadataException;
 import org.fastfed4j.core.json.JsonObject;
 import org.fastfed4j.core.json.JsonParser;
 import org.fastfed4j.core.metadata.*;
@@ -19,8 +20,14 @@ import org.fastfed4j.test.evaluator.metadata.IdentityProviderMetadataEvaluator;
 import org.fastfed4j.test.evaluator.metadata.RegistrationRequestEvaluator;
 import org.fastfed4j.test.evaluator.metadata.RegistrationResponseEvaluator;
 import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
 import org.junit.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 
 /**
  * The following tests evaluate each metadata object for the following actions:
@@ -150,6 +157,85 @@ public class JsonSerializationTest {
         }
     }
 
+    @Test
+    public void testStreamingSerialization() throws IOException {
+        for (String json : IdentityProviderJson.ALL_VALID_VARIATIONS) {
+            assertStreamingSerializationMatches(IdentityProviderMetadata.fromJson(config, json));
+        }
+        for (String json : ApplicationProviderJson.ALL_VALID_VARIATIONS) {
+            assertStreamingSerializationMatches(ApplicationProviderMetadata.fromJson(config, json));
+        }
+        for (String json : RegistrationRequestJson.ALL_VALID_VARIATIONS) {
+            assertStreamingSerializationMatches(RegistrationRequest.fromJson(config, json));
+        }
+        for (String json : ContractJson.ALL_VALID_VARIATIONS) {
+            assertStreamingSerializationMatches(Contract.fromJson(config, json));
+        }
+        for (String json : ContractProposalJson.ALL_VALID_VARIATIONS) {
+            assertStreamingSerializationMatches(ContractProposal.fromJson(config, json));
+        }
+        RegistrationResponse registrationResponse = new RegistrationResponse(config, new EnabledProfiles(config));
+        registrationResponse.hydrateFromJson( JsonParser.parse(RegistrationResponseJson.FULLY_POPULATED, new ErrorAccumulator()));
+        assertStreamingSerializationMatches(registrationResponse);
+    }
+
+    @Test
+    public void testStreamingSerializationToOutputStream() throws IOException {
+        Contract original = Contract.fromJson(config, ContractJson.FULLY_POPULATED);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        original.writeJson(out);
+        Assert.assertEquals(original, Contract.fromJson(config, out.toByteArray()));
+    }
+
+    @Test
+    public void testBinarySerialization() {
+        for (String json : ContractJson.ALL_VALID_VARIATIONS) {
+            Contract original = Contract.fromJson(config, json);
+            byte[] binary = original.toBinary();
+            Contract rehydrated = Contract.fromBinary(config, binary);
+            Assert.assertEquals(original, rehydrated);
+            Assert.assertEquals(original.toCanonicalJson(), rehydrated.toCanonicalJson());
+            Assert.assertTrue(binary.length < original.toString().getBytes(StandardCharsets.UTF_8).length);
+        }
+        for (String json : ContractProposalJson.ALL_VALID_VARIATIONS) {
+            ContractProposal original = ContractProposal.fromJson(config, json);
+            byte[] binary = original.toBinary();
+            ContractProposal rehydrated = ContractProposal.fromBinary(config, binary);
+            Assert.assertEquals(original, rehydrated);
+            Assert.assertEquals(original.toCanonicalJson(), rehydrated.toCanonicalJson());
+            Assert.assertTrue(binary.length < original.toString().getBytes(StandardCharsets.UTF_8).length);
+        }
+    }
+
+    @Test
+    public void testMalformedBinary() {
+        byte[] binary = Contract.fromJson(config, ContractJson.FULLY_POPULATED).toBinary();
+        byte[][] malformed = {
+                new byte[0],
+                "{\"contract\": {}}".getBytes(StandardCharsets.UTF_8),
+                Arrays.copyOf(binary, binary.length - 1),
+                Arrays.copyOf(binary, binary.length + 1)
+        };
+        for (byte[] data : malformed) {
+            try {
+                Contract.fromBinary(config, data);
+                Assert.fail("Expected an exception for malformed binary metadata");
+            } catch (InvalidMetadataException e) {
+                Assert.assertEquals(1, e.getErrorAccumulator().getErrors().size());
+            }
+        }
+    }
+
+    /**
+     * Member order is not significant, so the streamed output is compared to toJson() after parsing.
+     */
+    private void assertStreamingSerializationMatches(Metadata metadata) throws IOException {
+        StringBuilder streamed = new StringBuilder();
+        metadata.writeJson(streamed);
+        Assert.assertEquals(JSONValue.parse(metadata.toJson().toString()), JSONValue.parse(streamed.toString()));
+        Assert.assertEquals(streamed.toString(), metadata.toString());
+    }
+
     @Test
     public void testUnknownProfilesInApplicationMetadata() {
         String json = ApplicationProviderJson.UNKNOWN_PROFILES;
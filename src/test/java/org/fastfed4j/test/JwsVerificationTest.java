@@ -0,0 +1,629 @@
+package org.fastfed4j.test;
+
+import org.fastfed4j.core.configuration.FastFedConfiguration;
+import org.fastfed4j.core.contract.Contract;
+import org.fastfed4j.core.exception.FastFedSecurityException;
+import org.fastfed4j.core.exception.InvalidMetadataException;
+import org.fastfed4j.core.http.MetadataFetcher;
+import org.fastfed4j.core.jws.CompactJws;
+import org.fastfed4j.core.jws.JsonWebKey;
+import org.fastfed4j.core.jws.JsonWebKeySet;
+import org.fastfed4j.core.jws.JwksCache;
+import org.fastfed4j.core.jws.JwsAlgorithm;
+import org.fastfed4j.core.jws.JwsSigner;
+import org.fastfed4j.core.jws.JwsVerifier;
+import org.fastfed4j.core.jws.ReplayCache;
+import org.fastfed4j.core.metadata.Oauth2ClientAssertion;
+import org.fastfed4j.core.metadata.RegistrationRequest;
+import org.fastfed4j.test.data.ContractJson;
+import org.fastfed4j.test.data.RegistrationRequestJson;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tests the parsing of JWS compact serializations and JSON Web Key Sets, the verification of signed
+ * Registration Requests, the caching of remote key sets, the signing of Jwts, and replay detection.
+ */
+public class JwsVerificationTest {
+    private static final FastFedConfiguration config = FastFedConfiguration.DEFAULT;
+    private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private static final String IDP_ENTITY_ID = "https://tenant-12345.idp.example.com";
+    private static final String APP_ENTITY_ID = "https://tenant-67890.app.example.com";
+    private static final byte[] PAYLOAD = "{\"iss\":\"https://idp.example.com\"}".getBytes(StandardCharsets.UTF_8);
+
+    private static StubHttpsServer server;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new StubHttpsServer();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void testVerifySupportedAlgorithms() throws Exception {
+        KeyPair rsa = generateRsaKeyPair();
+        KeyPair p256 = generateEcKeyPair("secp256r1");
+        KeyPair p384 = generateEcKeyPair("secp384r1");
+        KeyPair p521 = generateEcKeyPair("secp521r1");
+        KeyPair ed25519 = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        JwsVerifier verifier = new JwsVerifier(
+                JsonWebKeySet.fromJson(keySet(toJwk("rsa", rsa.getPublic()), toJwk("p256", p256.getPublic()),
+                        toJwk("p384", p384.getPublic()), toJwk("p521", p521.getPublic()),
+                        toJwk("ed25519", ed25519.getPublic()))),
+                Set.of("RS256", "RS512", "PS256", "PS384", "ES256", "ES384", "ES512", "EdDSA"));
+
+        assertVerifies(verifier, sign(JwsAlgorithm.RS256, "rsa", rsa.getPrivate(), PAYLOAD));
+        assertVerifies(verifier, sign(JwsAlgorithm.RS512, "rsa", rsa.getPrivate(), PAYLOAD));
+        assertVerifies(verifier, sign(JwsAlgorithm.PS256, "rsa", rsa.getPrivate(), PAYLOAD));
+        assertVerifies(verifier, sign(JwsAlgorithm.PS384, "rsa", rsa.getPrivate(), PAYLOAD));
+        assertVerifies(verifier, sign(JwsAlgorithm.ES256, "p256", p256.getPrivate(), PAYLOAD));
+        assertVerifies(verifier, sign(JwsAlgorithm.ES384, "p384", p384.getPrivate(), PAYLOAD));
+        assertVerifies(verifier, sign(JwsAlgorithm.ES512, "p521", p521.getPrivate(), PAYLOAD));
+        assertVerifies(verifier, sign(JwsAlgorithm.EDDSA, "ed25519", ed25519.getPrivate(), PAYLOAD));
+
+        // Without a key ID, each candidate key is tried
+        assertVerifies(verifier, sign(JwsAlgorithm.ES256, null, p256.getPrivate(), PAYLOAD));
+
+        // The pooled Signature objects are reused across threads without interfering with each other
+        String jws = sign(JwsAlgorithm.ES256, "p256", p256.getPrivate(), PAYLOAD);
+        String tampered = jws.substring(0, jws.length() - 4) + (jws.endsWith("AAAA") ? "BBBB" : "AAAA");
+        IntStream.range(0, 200).parallel().forEach(i -> {
+            if (i % 2 == 0) {
+                assertVerifies(verifier, jws);
+            } else {
+                assertRejected(verifier, tampered);
+            }
+        });
+    }
+
+    @Test
+    public void testVerificationFailures() throws Exception {
+        KeyPair rsa = generateRsaKeyPair();
+        KeyPair p256 = generateEcKeyPair("secp256r1");
+        KeyPair other = generateEcKeyPair("secp256r1");
+        JwsVerifier verifier = new JwsVerifier(
+                JsonWebKeySet.fromJson(keySet(toJwk("rsa", rsa.getPublic()), toJwk("p256", p256.getPublic()))),
+                Set.of("ES256", "ES384", "RS256", "HS256"));
+
+        // Signed by a different key
+        assertRejected(verifier, sign(JwsAlgorithm.ES256, "p256", other.getPrivate(), PAYLOAD));
+
+        // Payload modified after signing
+        String jws = sign(JwsAlgorithm.ES256, "p256", p256.getPrivate(), PAYLOAD);
+        String[] parts = jws.split("\\.");
+        String modified = parts[0] + "." + encoder.encodeToString("{\"iss\":\"evil\"}".getBytes(StandardCharsets.UTF_8)) + "." + parts[2];
+        assertRejected(verifier, modified);
+
+        // Unknown key ID
+        assertRejected(verifier, sign(JwsAlgorithm.ES256, "unknown", p256.getPrivate(), PAYLOAD));
+
+        // Algorithm not accepted, or not matching the key type or curve
+        assertRejected(verifier, sign(JwsAlgorithm.PS256, "rsa", rsa.getPrivate(), PAYLOAD));
+        assertRejected(verifier, sign(JwsAlgorithm.ES384, "p256", p256.getPrivate(), PAYLOAD));
+        assertRejected(verifier, unsigned("none", "p256"));
+        assertRejected(verifier, unsigned("HS256", "p256"));
+        Assert.assertEquals(Set.of(JwsAlgorithm.ES256, JwsAlgorithm.ES384, JwsAlgorithm.RS256), verifier.getAlgorithms());
+
+        // Malformed serializations
+        assertMalformed(verifier, "");
+        assertMalformed(verifier, parts[0] + "." + parts[1]);
+        assertMalformed(verifier, jws + ".extra");
+        assertMalformed(verifier, parts[0] + "." + parts[1] + "." + parts[2] + "==");
+        assertMalformed(verifier, "e30." + parts[1] + "." + parts[2]);
+        String critical = encoder.encodeToString("{\"alg\":\"ES256\",\"crit\":[\"exp\"]}".getBytes(StandardCharsets.UTF_8));
+        assertMalformed(verifier, critical + "." + parts[1] + "." + parts[2]);
+    }
+
+    @Test
+    public void testKeySetParsing() throws Exception {
+        KeyPair rsa = generateRsaKeyPair();
+        KeyPair p256 = generateEcKeyPair("secp256r1");
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        KeyPair weak = generator.generateKeyPair();
+
+        JsonWebKeySet keySet = JsonWebKeySet.fromJson(keySet(
+                toJwk("rsa", rsa.getPublic()).replace("}", ",\"alg\":\"RS256\",\"use\":\"sig\"}"),
+                toJwk("enc", rsa.getPublic()).replace("}", ",\"use\":\"enc\"}"),
+                toJwk("weak", weak.getPublic()),
+                toJwk("p256", p256.getPublic()),
+                toJwk("mismatch", p256.getPublic()).replace("}", ",\"alg\":\"ES512\"}"),
+                "{\"kty\":\"oct\",\"kid\":\"hmac\",\"k\":\"c2VjcmV0\"}",
+                "{\"kty\":\"EC\",\"kid\":\"bad\",\"crv\":\"P-256\",\"x\":\"AA\",\"y\":\"AA\"}"));
+
+        Assert.assertEquals(2, keySet.getKeys().size());
+        JsonWebKey rsaKey = keySet.getKey("rsa");
+        Assert.assertEquals(JwsAlgorithm.RS256, rsaKey.getAlgorithm());
+        Assert.assertEquals(rsa.getPublic(), rsaKey.getPublicKey());
+        Assert.assertTrue(rsaKey.supports(JwsAlgorithm.RS256));
+        Assert.assertFalse(rsaKey.supports(JwsAlgorithm.PS256));
+        Assert.assertEquals(p256.getPublic(), keySet.getKey("p256").getPublicKey());
+        Assert.assertTrue(keySet.getKey("p256").supports(JwsAlgorithm.ES256));
+        Assert.assertFalse(keySet.getKey("p256").supports(JwsAlgorithm.ES512));
+        Assert.assertNull(keySet.getKey("enc"));
+        Assert.assertNull(keySet.getKey("weak"));
+
+        for (String json : Arrays.asList("", "{}", "{\"keys\":\"none\"}", "{\"keys\":[\"none\"]}")) {
+            try {
+                JsonWebKeySet.fromJson(json);
+                Assert.fail("Expected InvalidMetadataException for " + json);
+            } catch (InvalidMetadataException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testRegistrationRequestFromJwt() throws Exception {
+        KeyPair p256 = generateEcKeyPair("secp256r1");
+        JwsVerifier verifier = new JwsVerifier(
+                JsonWebKeySet.fromJson(keySet(toJwk("idp-key", p256.getPublic()))), Set.of("ES256"));
+        long expiration = System.currentTimeMillis() / 1000 + 300;
+        String claims = RegistrationRequestJson.FULLY_POPULATED.replace("1234567890", Long.toString(expiration));
+
+        String jwt = sign(JwsAlgorithm.ES256, "idp-key", p256.getPrivate(), claims.getBytes(StandardCharsets.UTF_8));
+        RegistrationRequest request = RegistrationRequest.fromJwt(config, jwt, verifier, IDP_ENTITY_ID, APP_ENTITY_ID);
+        Assert.assertEquals(RegistrationRequest.fromJson(config, claims), request);
+        Assert.assertEquals(expiration * 1000, request.getExpiration().getTime());
+        Assert.assertEquals("https://tenant-12345.idp.example.com", request.getIssuer());
+
+        // The expiration is serialized in seconds, as required for a Jwt
+        Assert.assertEquals(Long.valueOf(expiration), request.toJson().getLong("exp"));
+
+        String expired = sign(JwsAlgorithm.ES256, "idp-key", p256.getPrivate(),
+                RegistrationRequestJson.FULLY_POPULATED.getBytes(StandardCharsets.UTF_8));
+        try {
+            RegistrationRequest.fromJwt(config, expired, verifier, IDP_ENTITY_ID, APP_ENTITY_ID);
+            Assert.fail("Expected FastFedSecurityException");
+        } catch (FastFedSecurityException e) {
+            Assert.assertTrue(e.getMessage().contains("expired"));
+        }
+
+        // The expiration is checked against the configured clock, allowing for clock skew
+        TestClock clock = new TestClock();
+        FastFedConfiguration clockConfig = new FastFedConfiguration.Builder().setClock(clock).build();
+        clock.advance(330);
+        Assert.assertEquals(request, RegistrationRequest.fromJwt(clockConfig, jwt, verifier, IDP_ENTITY_ID, APP_ENTITY_ID));
+        clock.advance(FastFedConfiguration.DEFAULT_CLOCK_SKEW.getSeconds());
+        try {
+            RegistrationRequest.fromJwt(clockConfig, jwt, verifier, IDP_ENTITY_ID, APP_ENTITY_ID);
+            Assert.fail("Expected FastFedSecurityException");
+        } catch (FastFedSecurityException e) {
+            Assert.assertTrue(e.getMessage().contains("expired"));
+        }
+
+        try {
+            RegistrationRequest.fromJwt(config, sign(JwsAlgorithm.ES256, "idp-key", p256.getPrivate(),
+                    "{\"iss\":\"https://tenant-12345.idp.example.com\"}".getBytes(StandardCharsets.UTF_8)), verifier, IDP_ENTITY_ID, APP_ENTITY_ID);
+            Assert.fail("Expected InvalidMetadataException");
+        } catch (InvalidMetadataException e) {
+            // Expected
+        }
+
+        // The Jwt must be issued by the Identity Provider, for the Application Provider
+        try {
+            RegistrationRequest.fromJwt(config, jwt, verifier, "https://tenant-99999.idp.example.com", APP_ENTITY_ID);
+            Assert.fail("Expected FastFedSecurityException");
+        } catch (FastFedSecurityException e) {
+            Assert.assertTrue(e.getMessage().contains("issuer"));
+        }
+        try {
+            RegistrationRequest.fromJwt(config, jwt, verifier, IDP_ENTITY_ID, "https://tenant-99999.app.example.com");
+            Assert.fail("Expected FastFedSecurityException");
+        } catch (FastFedSecurityException e) {
+            Assert.assertTrue(e.getMessage().contains("audience"));
+        }
+
+        // The keys cannot be retrieved for a contract whose Identity Provider has no jwks_uri
+        Contract contract = Contract.fromJson(config, ContractJson.FULLY_POPULATED);
+        contract.getIdentityProvider().setJwksUri(null);
+        try {
+            contract.validateAndOverlayRegistrationRequest(jwt, new JwksCache.Builder().build(), new ReplayCache.Builder().build());
+            Assert.fail("Expected InvalidMetadataException");
+        } catch (InvalidMetadataException e) {
+            Assert.assertTrue(e.getMessage().contains("jwks_uri"));
+        }
+    }
+
+    @Test
+    public void testJwksCache() throws Exception {
+        KeyPair key1 = generateEcKeyPair("secp256r1");
+        KeyPair key2 = generateEcKeyPair("secp256r1");
+        server.setResponse("/jwks", keySet(toJwk("k1", key1.getPublic())));
+        TestClock clock = new TestClock();
+        JwksCache cache = new JwksCache.Builder()
+                .setFetcher(new MetadataFetcher.Builder().setSslContext(server.getClientSslContext()).build())
+                .setClock(clock)
+                .build();
+        String jwksUri = server.getUrl("/jwks");
+
+        // Concurrent lookups share a single request
+        server.setLatencyMillis(50);
+        try {
+            List<CompletableFuture<JsonWebKeySet>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(cache.getAsync(jwksUri));
+            }
+            for (CompletableFuture<JsonWebKeySet> future : futures) {
+                Assert.assertNotNull(future.join().getKey("k1"));
+            }
+        }
+        finally {
+            server.setLatencyMillis(0);
+        }
+        Assert.assertEquals(1, server.getRequestCount("/jwks"));
+
+        // Verification is answered from the cache
+        JwsVerifier verifier = cache.getVerifier(jwksUri, Set.of("ES256"));
+        for (int i = 0; i < 10; i++) {
+            assertVerifies(verifier, sign(JwsAlgorithm.ES256, "k1", key1.getPrivate(), PAYLOAD));
+        }
+        Assert.assertEquals(1, server.getRequestCount("/jwks"));
+        JsonWebKey cachedKey1 = cache.get(jwksUri).getKey("k1");
+
+        // The provider rotates in a new key. An unknown key ID only triggers a retrieval once the key set is older
+        // than the minimum refresh interval.
+        server.setResponse("/jwks", keySet(toJwk("k1", key1.getPublic()), toJwk("k2", key2.getPublic())));
+        String signedByKey2 = sign(JwsAlgorithm.ES256, "k2", key2.getPrivate(), PAYLOAD);
+        assertRejected(verifier, signedByKey2);
+        Assert.assertEquals(1, server.getRequestCount("/jwks"));
+
+        clock.advance(JwksCache.DEFAULT_MINIMUM_REFRESH_INTERVAL.getSeconds());
+        assertVerifies(verifier, signedByKey2);
+        Assert.assertEquals(2, server.getRequestCount("/jwks"));
+        Assert.assertEquals(1, cache.getUnknownKeyRefreshCount());
+        Assert.assertSame(cachedKey1, cache.get(jwksUri).getKey("k1"));
+
+        // Further unknown key IDs are rate-limited
+        String unknown = sign(JwsAlgorithm.ES256, "k3", key2.getPrivate(), PAYLOAD);
+        assertRejected(verifier, unknown);
+        clock.advance(JwksCache.DEFAULT_MINIMUM_REFRESH_INTERVAL.getSeconds() / 2);
+        assertRejected(verifier, unknown);
+        Assert.assertEquals(2, server.getRequestCount("/jwks"));
+        clock.advance(JwksCache.DEFAULT_MINIMUM_REFRESH_INTERVAL.getSeconds());
+        assertRejected(verifier, unknown);
+        Assert.assertEquals(3, server.getRequestCount("/jwks"));
+        Assert.assertEquals(2, cache.getUnknownKeyRefreshCount());
+
+        // Expired key sets are retrieved again
+        clock.advance(JwksCache.DEFAULT_TIME_TO_LIVE.getSeconds());
+        assertVerifies(verifier, signedByKey2);
+        Assert.assertEquals(4, server.getRequestCount("/jwks"));
+    }
+
+    @Test
+    public void testSignJwt() throws Exception {
+        KeyPair rsa = generateRsaKeyPair();
+        KeyPair p384 = generateEcKeyPair("secp384r1");
+        KeyPair ed25519 = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        JwsVerifier verifier = new JwsVerifier(
+                JsonWebKeySet.fromJson(keySet(toJwk("rsa", rsa.getPublic()), toJwk("p384", p384.getPublic()),
+                        toJwk("ed25519", ed25519.getPublic()))),
+                Set.of("RS256", "PS384", "ES384", "EdDSA"));
+
+        // The strongest algorithm which the key supports is selected
+        JwsSigner rsaSigner = new JwsSigner("rsa", rsa.getPrivate());
+        Assert.assertEquals(JwsAlgorithm.PS512, rsaSigner.getAlgorithms().get(0));
+        Assert.assertEquals(JwsAlgorithm.PS384, rsaSigner.selectAlgorithm(Set.of("RS256", "PS384", "ES512")));
+        Assert.assertEquals(List.of(JwsAlgorithm.ES384), new JwsSigner("p384", p384.getPrivate()).getAlgorithms());
+        Assert.assertEquals(JwsAlgorithm.EDDSA, new JwsSigner("ed25519", ed25519.getPrivate()).selectAlgorithm(Set.of("EdDSA")));
+        try {
+            rsaSigner.selectAlgorithm(Set.of("ES256", "HS256"));
+            Assert.fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        for (JwsSigner signer : Arrays.asList(rsaSigner, new JwsSigner("p384", p384.getPrivate()),
+                new JwsSigner("ed25519", ed25519.getPrivate()))) {
+            String jws = signer.sign(PAYLOAD, verifier.getAlgorithms().stream().map(JwsAlgorithm::getName).collect(Collectors.toSet()));
+            assertVerifies(verifier, jws);
+            Assert.assertEquals("JWT", CompactJws.parse(jws).getHeader().getString("typ"));
+            Assert.assertEquals(signer.getKeyId(), CompactJws.parse(jws).getKeyId());
+        }
+
+        // Private keys are parsed from their JWK representation
+        ECPrivateKey ecKey = (ECPrivateKey) p384.getPrivate();
+        String privateJwk = toJwk("p384", p384.getPublic()).replace("}", ",\"d\":\"" + encodeUnsigned(ecKey.getS(), 48) + "\"}");
+        assertVerifies(verifier, JwsSigner.fromJwk(privateJwk).sign(PAYLOAD, Set.of("ES384")));
+        try {
+            JwsSigner.fromJwk(toJwk("p384", p384.getPublic()));
+            Assert.fail("Expected InvalidMetadataException");
+        } catch (InvalidMetadataException e) {
+            // Expected
+        }
+
+        // RSA keys with malformed Chinese Remainder Theorem parameters are rejected
+        RSAPrivateCrtKey rsaKey = (RSAPrivateCrtKey) rsa.getPrivate();
+        String rsaJwk = toJwk("rsa", rsa.getPublic()).replace("}",
+                ",\"d\":\"" + encodeUnsigned(rsaKey.getPrivateExponent(), 0)
+                + "\",\"p\":\"" + encodeUnsigned(rsaKey.getPrimeP(), 0)
+                + "\",\"q\":\"" + encodeUnsigned(rsaKey.getPrimeQ(), 0)
+                + "\",\"dp\":\"" + encodeUnsigned(rsaKey.getPrimeExponentP(), 0)
+                + "\",\"dq\":\"" + encodeUnsigned(rsaKey.getPrimeExponentQ(), 0)
+                + "\",\"qi\":\"" + encodeUnsigned(rsaKey.getCrtCoefficient(), 0) + "\"}");
+        assertVerifies(verifier, JwsSigner.fromJwk(rsaJwk).sign(PAYLOAD, Set.of("RS256")));
+        try {
+            JwsSigner.fromJwk(rsaJwk.replace("\"dp\":\"", "\"dp\":\"!"));
+            Assert.fail("Expected InvalidMetadataException");
+        } catch (InvalidMetadataException e) {
+            Assert.assertTrue(e.getMessage().contains("dp"));
+        }
+
+        // A Registration Request survives a round trip through its compact serialization
+        long expiration = System.currentTimeMillis() / 1000 + 300;
+        String claims = RegistrationRequestJson.FULLY_POPULATED.replace("1234567890", Long.toString(expiration));
+        RegistrationRequest request = RegistrationRequest.fromJson(config, claims);
+        String jwt = request.toCompactSerialization(rsaSigner, Set.of("RS256", "PS384"));
+        Assert.assertEquals("PS384", CompactJws.parse(jwt).getAlgorithm());
+        Assert.assertEquals(request, RegistrationRequest.fromJwt(config, jwt, verifier, IDP_ENTITY_ID, APP_ENTITY_ID));
+
+        Oauth2ClientAssertion assertion = Oauth2ClientAssertion.create(config, "https://idp.example.com",
+                "https://app.example.com/token", Instant.now(), Duration.ofMinutes(5));
+        byte[] verified = verifier.verify(assertion.toCompactSerialization(rsaSigner, Set.of("RS256")));
+        Assert.assertEquals(assertion, Oauth2ClientAssertion.fromJson(config, new String(verified, StandardCharsets.UTF_8)));
+        try {
+            new RegistrationRequest(config).toCompactSerialization(rsaSigner, Set.of("RS256"));
+            Assert.fail("Expected InvalidMetadataException");
+        } catch (InvalidMetadataException e) {
+            // Expected
+        }
+
+        // Each thread signs with its own Signature objects
+        IntStream.range(0, 200).parallel().forEach(i -> {
+            byte[] payload = ("{\"i\":" + i + "}").getBytes(StandardCharsets.UTF_8);
+            Assert.assertArrayEquals(payload, verifier.verify(rsaSigner.sign(payload, (i % 2 == 0) ? JwsAlgorithm.RS256 : JwsAlgorithm.PS384)));
+        });
+    }
+
+    @Test
+    public void testReplayCache() throws Exception {
+        KeyPair p256 = generateEcKeyPair("secp256r1");
+        JwsSigner signer = new JwsSigner("idp-key", p256.getPrivate());
+        JwsVerifier verifier = new JwsVerifier(
+                JsonWebKeySet.fromJson(keySet(toJwk("idp-key", p256.getPublic()))), Set.of("ES256"));
+        TestClock clock = new TestClock();
+        ReplayCache cache = new ReplayCache.Builder()
+                .setClock(clock)
+                .setMaximumSize(3)
+                .setMaximumLifetime(Duration.ofHours(1))
+                .build();
+
+        // A Registration Request is accepted once
+        long expiration = clock.millis() / 1000 + 300;
+        RegistrationRequest request = RegistrationRequest.fromJson(config,
+                RegistrationRequestJson.FULLY_POPULATED.replace("1234567890", Long.toString(expiration)));
+        String jwt = request.toCompactSerialization(signer, Set.of("ES256"));
+        Assert.assertEquals(request, RegistrationRequest.fromJwt(config, jwt, verifier, IDP_ENTITY_ID, APP_ENTITY_ID, cache));
+        assertReplay(() -> RegistrationRequest.fromJwt(config, jwt, verifier, IDP_ENTITY_ID, APP_ENTITY_ID, cache));
+        Assert.assertEquals(1, cache.getReplayCount());
+
+        // A malleated ECDSA signature (r, n - s) still verifies, but signs the same content, so it is a replay
+        String[] parts = jwt.split("\\.");
+        byte[] signature = Base64.getUrlDecoder().decode(parts[2]);
+        BigInteger order = ((ECPublicKey) p256.getPublic()).getParams().getOrder();
+        BigInteger s = new BigInteger(1, Arrays.copyOfRange(signature, 32, 64));
+        System.arraycopy(Base64.getUrlDecoder().decode(encodeUnsigned(order.subtract(s), 32)), 0, signature, 32, 32);
+        String malleated = parts[0] + "." + parts[1] + "." + encoder.encodeToString(signature);
+        Assert.assertNotEquals(jwt, malleated);
+        assertVerifies(verifier, malleated);
+        assertReplay(() -> RegistrationRequest.fromJwt(config, malleated, verifier, IDP_ENTITY_ID, APP_ENTITY_ID, cache));
+
+        // Re-signing the same claims produces a new signature, which is also a replay
+        assertReplay(() -> RegistrationRequest.fromJwt(config, request.toCompactSerialization(signer, Set.of("ES256")), verifier, IDP_ENTITY_ID, APP_ENTITY_ID, cache));
+        Assert.assertEquals(3, cache.getReplayCount());
+
+        // A repeated jti is detected, scoped by the issuer
+        Date exp = new Date(expiration * 1000);
+        cache.checkAndRecord("https://idp.example.com", "jti-1", exp);
+        assertReplay(() -> cache.checkAndRecord("https://idp.example.com", "jti-1", exp));
+        cache.checkAndRecord("https://other.example.com", "jti-1", exp);
+        Assert.assertEquals(3, cache.size());
+
+        // When full, messages are rejected until the recorded messages expire
+        try {
+            cache.checkAndRecord("https://idp.example.com", "jti-2", exp);
+            Assert.fail("Expected FastFedSecurityException");
+        } catch (FastFedSecurityException e) {
+            Assert.assertTrue(e.getMessage().contains("full"));
+        }
+        Assert.assertEquals(1, cache.getRejectedCount());
+        clock.advance(300 + FastFedConfiguration.DEFAULT_CLOCK_SKEW.getSeconds() + ReplayCache.DEFAULT_BUCKET_DURATION.getSeconds());
+        cache.checkAndRecord("https://idp.example.com", "jti-2", new Date(clock.millis() + 60_000));
+        Assert.assertEquals(1, cache.size());
+
+        // Messages which have expired, or expire beyond the maximum lifetime, are rejected
+        for (Date invalid : Arrays.asList(new Date(clock.millis()), new Date(clock.millis() + Duration.ofHours(2).toMillis()))) {
+            try {
+                cache.checkAndRecord("https://idp.example.com", "jti-3", invalid);
+                Assert.fail("Expected FastFedSecurityException");
+            } catch (FastFedSecurityException e) {
+                // Expected
+            }
+        }
+
+        // Concurrent presentations of the same message are accepted exactly once
+        ReplayCache shared = new ReplayCache.Builder().setClock(clock).build();
+        Date later = new Date(clock.millis() + 600_000);
+        AtomicInteger accepted = new AtomicInteger();
+        IntStream.range(0, 2000).parallel().forEach(i -> {
+            try {
+                shared.checkAndRecord("https://idp.example.com", "jti-" + (i % 100), later);
+                accepted.incrementAndGet();
+            } catch (FastFedSecurityException e) {
+                // Replay
+            }
+        });
+        Assert.assertEquals(100, accepted.get());
+        Assert.assertEquals(100, shared.size());
+        Assert.assertEquals(1900, shared.getReplayCount());
+
+        // The expiration is checked against the clock of the replay cache, allowing for clock skew, and the Jwt is
+        // remembered for as long as it is accepted
+        long laterExpiration = clock.millis() / 1000 + 300;
+        RegistrationRequest laterRequest = new RegistrationRequest(request);
+        laterRequest.setExpiration(new Date(laterExpiration * 1000));
+        String laterJwt = laterRequest.toCompactSerialization(signer, Set.of("ES256"));
+        clock.advance(330);
+        RegistrationRequest.fromJwt(config, laterJwt, verifier, IDP_ENTITY_ID, APP_ENTITY_ID, shared);
+        assertReplay(() -> RegistrationRequest.fromJwt(config, laterJwt, verifier, IDP_ENTITY_ID, APP_ENTITY_ID, shared));
+        clock.advance(FastFedConfiguration.DEFAULT_CLOCK_SKEW.getSeconds());
+        try {
+            RegistrationRequest.fromJwt(config, laterJwt, verifier, IDP_ENTITY_ID, APP_ENTITY_ID, shared);
+            Assert.fail("Expected FastFedSecurityException");
+        } catch (FastFedSecurityException e) {
+            Assert.assertTrue(e.getMessage().contains("expired"));
+        }
+    }
+
+    private static void assertReplay(Runnable runnable) {
+        try {
+            runnable.run();
+            Assert.fail("Expected FastFedSecurityException");
+        } catch (FastFedSecurityException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("already been used"));
+        }
+    }
+
+    private static void assertVerifies(JwsVerifier verifier, String jws) {
+        CompactJws parsed = CompactJws.parse(jws);
+        Assert.assertArrayEquals(parsed.getPayload(), verifier.verify(jws));
+    }
+
+    private static void assertRejected(JwsVerifier verifier, String jws) {
+        try {
+            verifier.verify(jws);
+            Assert.fail("Expected FastFedSecurityException");
+        } catch (FastFedSecurityException e) {
+            // Expected
+        }
+    }
+
+    private static void assertMalformed(JwsVerifier verifier, String jws) {
+        try {
+            verifier.verify(jws);
+            Assert.fail("Expected InvalidMetadataException for " + jws);
+        } catch (InvalidMetadataException e) {
+            // Expected
+        }
+    }
+
+    private static KeyPair generateRsaKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static KeyPair generateEcKeyPair(String curve) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec(curve));
+        return generator.generateKeyPair();
+    }
+
+    static String keySet(String... jwks) {
+        return "{\"keys\":[" + String.join(",", jwks) + "]}";
+    }
+
+    static String toJwk(String kid, PublicKey publicKey) {
+        String kidMember = (kid == null) ? "" : "\"kid\":\"" + kid + "\",";
+        if (publicKey instanceof RSAPublicKey) {
+            RSAPublicKey rsa = (RSAPublicKey) publicKey;
+            return "{" + kidMember + "\"kty\":\"RSA\",\"n\":\"" + encodeUnsigned(rsa.getModulus(), 0)
+                    + "\",\"e\":\"" + encodeUnsigned(rsa.getPublicExponent(), 0) + "\"}";
+        }
+        if (publicKey instanceof ECPublicKey) {
+            ECPublicKey ec = (ECPublicKey) publicKey;
+            int bits = ec.getParams().getCurve().getField().getFieldSize();
+            int size = (bits + 7) / 8;
+            return "{" + kidMember + "\"kty\":\"EC\",\"crv\":\"P-" + bits + "\",\"x\":\""
+                    + encodeUnsigned(ec.getW().getAffineX(), size) + "\",\"y\":\""
+                    + encodeUnsigned(ec.getW().getAffineY(), size) + "\"}";
+        }
+        // Ed25519: the raw key follows the 12 byte prefix of the X.509 encoding
+        byte[] encoded = publicKey.getEncoded();
+        byte[] x = Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length);
+        return "{" + kidMember + "\"kty\":\"OKP\",\"crv\":\"Ed25519\",\"x\":\"" + encoder.encodeToString(x) + "\"}";
+    }
+
+    static String sign(JwsAlgorithm algorithm, String kid, PrivateKey privateKey, byte[] payload) throws Exception {
+        String header = "{\"alg\":\"" + algorithm.getName() + "\"" + (kid == null ? "" : ",\"kid\":\"" + kid + "\"") + "}";
+        String signingInput = encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload);
+        Signature signature;
+        switch (algorithm) {
+            case PS256:
+            case PS384:
+            case PS512:
+                MGF1ParameterSpec digest = new MGF1ParameterSpec("SHA-" + algorithm.getName().substring(2));
+                signature = Signature.getInstance("RSASSA-PSS");
+                signature.setParameter(new PSSParameterSpec(digest.getDigestAlgorithm(), "MGF1", digest,
+                        Integer.parseInt(algorithm.getName().substring(2)) / 8, 1));
+                break;
+            case ES256:
+            case ES384:
+            case ES512:
+                signature = Signature.getInstance("SHA" + algorithm.getName().substring(2) + "withECDSAinP1363Format");
+                break;
+            case EDDSA:
+                signature = Signature.getInstance("Ed25519");
+                break;
+            default:
+                signature = Signature.getInstance("SHA" + algorithm.getName().substring(2) + "withRSA");
+        }
+        signature.initSign(privateKey);
+        signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + "." + encoder.encodeToString(signature.sign());
+    }
+
+    private static String unsigned(String algorithm, String kid) {
+        String header = "{\"alg\":\"" + algorithm + "\",\"kid\":\"" + kid + "\"}";
+        return encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(PAYLOAD) + "." + encoder.encodeToString(new byte[32]);
+    }
+
+    private static String encodeUnsigned(BigInteger value, int size) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (bytes.length < size) {
+            byte[] padded = new byte[size];
+            System.arraycopy(bytes, 0, padded, size - bytes.length, bytes.length);
+            bytes = padded;
+        }
+        return encoder.encodeToString(bytes);
+    }
+}
@@ -7,6 +7,7 @@ import org.fastfed4j.core.contract.EnabledProfiles;
 import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.json.JsonParser;
 import org.fastfed4j.core.metadata.*;
+import org.fastfed4j.core.util.ReflectionUtils;
 import org.fastfed4j.test.data.*;
 import org.fastfed4j.test.evaluator.Operation;
 import org.fastfed4j.test.evaluator.contract.ContractEvaluator;
@@ -15,6 +16,7 @@ import org.fastfed4j.test.evaluator.metadata.ApplicationProviderMetadataEvaluato
 import org.fastfed4j.test.evaluator.metadata.MetadataEvaluator;
 import org.fastfed4j.test.evaluator.metadata.RegistrationRequestEvaluator;
 import org.fastfed4j.test.evaluator.metadata.RegistrationResponseEvaluator;
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -91,6 +93,65 @@ public class MetadataCopyConstructorTest {
         }
     }
 
+    @Test
+    public void testSnapshot() {
+        Contract original = Contract.fromJson(config, ContractJson.FULLY_POPULATED);
+        Contract snapshot = original.snapshot();
+        Assert.assertTrue(snapshot.isFrozen());
+        Assert.assertFalse(original.isFrozen());
+        Assert.assertSame(snapshot, snapshot.snapshot());
+        Assert.assertEquals(original, snapshot);
+
+        // Modifications are rejected throughout the tree
+        try {
+            snapshot.getIdentityProvider().getDisplaySettings().setLogoUri("https://example.com/other.png");
+            Assert.fail("Expected a frozen object to reject modification");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+        try {
+            snapshot.getEnabledProfiles().getAuthenticationProfiles().clear();
+            Assert.fail("Expected a frozen object to reject modification");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+
+        // The copy constructor produces a mutable copy
+        Contract copy = new Contract(snapshot);
+        Assert.assertFalse(copy.isFrozen());
+        copy.getIdentityProvider().getDisplaySettings().setLogoUri("https://example.com/other.png");
+        Assert.assertNotEquals(snapshot, copy);
+
+        // A "with" operation copies only the path to the change
+        DisplaySettings displaySettings = new DisplaySettings(snapshot.getIdentityProvider().getDisplaySettings());
+        displaySettings.setLogoUri("https://example.com/other.png");
+        Contract derived = snapshot.withIdentityProvider(
+                snapshot.getIdentityProvider().withDisplaySettings(displaySettings));
+        Assert.assertTrue(derived.isFrozen());
+        Assert.assertEquals(copy, derived);
+        Assert.assertSame(snapshot.getApplicationProvider(), derived.getApplicationProvider());
+        Assert.assertSame(snapshot.getEnabledProfiles(), derived.getEnabledProfiles());
+        Assert.assertSame(snapshot.getIdentityProvider().getProviderContactInformation(),
+                derived.getIdentityProvider().getProviderContactInformation());
+        Assert.assertNotEquals(snapshot.getFingerprint(), derived.getFingerprint());
+        Assert.assertEquals(original.getFingerprint(), snapshot.getFingerprint());
+    }
+
+    @Test
+    public void testReflectionUtilsCopy() {
+        ApplicationProviderMetadata original = ApplicationProviderMetadata.fromJson(config, ApplicationProviderJson.FULLY_POPULATED);
+        ApplicationProviderMetadata copy = ReflectionUtils.copy(original);
+        Assert.assertNotSame(original, copy);
+        Assert.assertEquals(original, copy);
+
+        try {
+            ReflectionUtils.copy(new StringBuilder());
+            Assert.fail("Expected an exception for a class without a copy constructor");
+        } catch (RuntimeException e) {
+            Assert.assertEquals("No copy constructor is defined for class java.lang.StringBuilder", e.getMessage());
+        }
+    }
+
     private void evaluate(MetadataEvaluator evaluator, Metadata original, Metadata copy) {
         evaluator.evaluate(Operation.AssertEquals, original, copy);
         evaluator.evaluate(Operation.ToggleAndAssertNotEquals, original, copy);
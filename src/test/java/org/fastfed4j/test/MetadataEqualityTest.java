@@ -1,6 +1,7 @@
 package org.fastfed4j.test;
 
 import org.fastfed4j.core.configuration.FastFedConfiguration;
+import org.fastfed4j.core.constants.SchemaGrammar;
 import org.fastfed4j.core.contract.Contract;
 import org.fastfed4j.core.contract.ContractProposal;
 import org.fastfed4j.core.contract.EnabledProfiles;
@@ -15,8 +16,12 @@ import org.fastfed4j.test.evaluator.metadata.ApplicationProviderMetadataEvaluato
 import org.fastfed4j.test.evaluator.metadata.MetadataEvaluator;
 import org.fastfed4j.test.evaluator.metadata.RegistrationRequestEvaluator;
 import org.fastfed4j.test.evaluator.metadata.RegistrationResponseEvaluator;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Tests the equals() method on all the Metadata implementations.
  */
@@ -94,6 +99,109 @@ public class MetadataEqualityTest {
         }
     }
 
+    @Test
+    public void testFingerprint() {
+        for (String json : ContractJson.ALL_VALID_VARIATIONS) {
+            Contract specimen1 = Contract.fromJson(config, json);
+            Contract specimen2 = Contract.fromJson(config, json);
+
+            // Equivalent contents produce the same fingerprint, which is cached after the first computation
+            Fingerprint fingerprint = specimen1.getFingerprint();
+            Assert.assertEquals(fingerprint, specimen2.getFingerprint());
+            Assert.assertSame(fingerprint, specimen1.getFingerprint());
+            Assert.assertEquals(specimen1, specimen2);
+
+            // The canonical JSON does not depend on the order of members or array entries
+            Contract roundTrip = Contract.fromJson(config, specimen1.toString());
+            Assert.assertEquals(specimen1.toCanonicalJson(), roundTrip.toCanonicalJson());
+            Assert.assertEquals(fingerprint, roundTrip.getFingerprint());
+        }
+    }
+
+    @Test
+    public void testFingerprintInvalidatedByNestedChanges() {
+        Contract specimen1 = Contract.fromJson(config, ContractJson.FULLY_POPULATED);
+        Contract specimen2 = Contract.fromJson(config, ContractJson.FULLY_POPULATED);
+        Fingerprint original = specimen1.getFingerprint();
+        specimen2.getFingerprint();
+
+        // Change made via a setter of a nested object
+        specimen2.getIdentityProvider().getProviderContactInformation().setEmail("changed@example.com");
+        Assert.assertNotEquals(original, specimen2.getFingerprint());
+        Assert.assertNotEquals(specimen1, specimen2);
+        specimen2.getIdentityProvider().getProviderContactInformation().setEmail(
+                specimen1.getIdentityProvider().getProviderContactInformation().getEmail());
+        Assert.assertEquals(original, specimen2.getFingerprint());
+        Assert.assertEquals(specimen1, specimen2);
+
+        // Change made via a collection returned by a getter
+        specimen2.getEnabledProfiles().getAuthenticationProfiles().clear();
+        Assert.assertNotEquals(original, specimen2.getFingerprint());
+        Assert.assertNotEquals(specimen1, specimen2);
+
+        // Change made to desired attributes within a profile extension
+        Contract specimen3 = Contract.fromJson(config, ContractJson.FULLY_POPULATED);
+        specimen3.getFingerprint();
+        DesiredAttributes desiredAttributes = specimen3.getApplicationProvider().getEnterpriseScimDesiredAttributes();
+        desiredAttributes.getRequiredUserAttributes().add("nickName");
+        Assert.assertNotEquals(original, specimen3.getFingerprint());
+        Assert.assertNotEquals(specimen1, specimen3);
+    }
+
+    @Test
+    public void testFingerprintNotInvalidatedByReads() {
+        Contract specimen = Contract.fromJson(config, ContractJson.FULLY_POPULATED);
+        Fingerprint original = specimen.getFingerprint();
+
+        // Reading the collections returned by the getters leaves the cached fingerprint intact
+        Assert.assertFalse(specimen.getSigningAlgorithms().isEmpty());
+        Set<String> authenticationProfiles = specimen.getEnabledProfiles().getAuthenticationProfiles();
+        Assert.assertFalse(authenticationProfiles.isEmpty());
+        DesiredAttributes desiredAttributes = specimen.getApplicationProvider().getEnterpriseScimDesiredAttributes();
+        for (SchemaGrammar schemaGrammar : desiredAttributes.getAllSchemaGrammars()) {
+            Assert.assertNotNull(desiredAttributes.getForSchemaGrammar(schemaGrammar).getRequiredUserAttributes().iterator().next());
+        }
+        Assert.assertSame(original, specimen.getFingerprint());
+
+        // A change made later, through a collection obtained earlier, is still detected
+        authenticationProfiles.clear();
+        Assert.assertNotEquals(original, specimen.getFingerprint());
+    }
+
+    @Test
+    public void testFingerprintNotAffectedByCollectionsPassedToSetters() {
+        Contract specimen1 = Contract.fromJson(config, ContractJson.FULLY_POPULATED);
+        Contract specimen2 = new Contract(specimen1);
+        Set<String> signingAlgorithms = new HashSet<>(specimen1.getSigningAlgorithms());
+        specimen2.setSigningAlgorithms(signingAlgorithms);
+        Fingerprint original = specimen1.getFingerprint();
+        Assert.assertEquals(original, specimen2.getFingerprint());
+
+        // The setter copies the collection, so later changes made by the caller don't reach the contract
+        signingAlgorithms.add("PS512");
+        Assert.assertFalse(specimen2.getSigningAlgorithms().contains("PS512"));
+        Assert.assertEquals(original, specimen2.getFingerprint());
+        Assert.assertEquals(specimen1, specimen2);
+        Assert.assertEquals(specimen1.hashCode(), specimen2.hashCode());
+
+        // Changes made through the contract are detected
+        specimen2.getSigningAlgorithms().add("PS512");
+        Assert.assertNotEquals(original, specimen2.getFingerprint());
+        Assert.assertNotEquals(specimen1, specimen2);
+    }
+
+    @Test
+    public void testFingerprintReusesUnchangedChildren() {
+        Contract specimen = Contract.fromJson(config, ContractJson.FULLY_POPULATED);
+        Fingerprint original = specimen.getFingerprint();
+        Fingerprint appProvider = specimen.getApplicationProvider().getFingerprint();
+
+        // Only the changed branch of the tree is recomputed
+        specimen.getIdentityProvider().getDisplaySettings().setLogoUri("https://idp.example.com/images/new-logo.png");
+        Assert.assertNotEquals(original, specimen.getFingerprint());
+        Assert.assertSame(appProvider, specimen.getApplicationProvider().getFingerprint());
+    }
+
     private void evaluate(MetadataEvaluator evaluator, Metadata original, Metadata copy) {
         evaluator.evaluate(Operation.AssertEquals, original, copy);
         evaluator.evaluate(Operation.ToggleAndAssertNotEquals, original, copy);
@@ -0,0 +1,195 @@
+package org.fastfed4j.test;
+
+import org.fastfed4j.core.configuration.FastFedConfiguration;
+import org.fastfed4j.core.http.MetadataFetcher;
+import org.fastfed4j.core.jws.JsonWebKeySet;
+import org.fastfed4j.core.jws.JwsSigner;
+import org.fastfed4j.core.jws.JwsVerifier;
+import org.fastfed4j.core.metadata.Oauth2ClientAssertion;
+import org.fastfed4j.core.oauth2.Oauth2AccessToken;
+import org.fastfed4j.core.oauth2.Oauth2TokenManager;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Tests obtaining OAuth2 access tokens with a Jwt client assertion, and their caching and refresh.
+ */
+public class Oauth2TokenManagerTest {
+    private static final FastFedConfiguration config = FastFedConfiguration.DEFAULT;
+    private static final String CLIENT_ID = "https://idp.example.com";
+    private static final String SCOPE = "scim";
+
+    private static StubHttpsServer server;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new StubHttpsServer();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void testTokenCaching() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keyPair = generator.generateKeyPair();
+        JwsSigner signer = new JwsSigner("idp-key", keyPair.getPrivate());
+        JwsVerifier verifier = new JwsVerifier(
+                JsonWebKeySet.fromJson(JwsVerificationTest.keySet(JwsVerificationTest.toJwk("idp-key", keyPair.getPublic()))),
+                Set.of("ES256"));
+
+        server.setResponse("/token", token("t1", 3600));
+        TestClock clock = new TestClock();
+        Oauth2TokenManager manager = new Oauth2TokenManager.Builder()
+                .setFetcher(new MetadataFetcher.Builder()
+                        .setSslContext(server.getClientSslContext())
+                        .setMaxAttempts(1)
+                        .build())
+                .setClock(clock)
+                .build();
+        String tokenEndpoint = server.getUrl("/token");
+
+        // Concurrent requests for the same token share a single request to the token endpoint
+        server.setLatencyMillis(50);
+        try {
+            List<CompletableFuture<Oauth2AccessToken>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(manager.getTokenAsync(tokenEndpoint, SCOPE, CLIENT_ID, signer, Set.of("ES256")));
+            }
+            for (CompletableFuture<Oauth2AccessToken> future : futures) {
+                Assert.assertEquals("Bearer t1", future.join().getAuthorizationHeader());
+            }
+        }
+        finally {
+            server.setLatencyMillis(0);
+        }
+        Assert.assertEquals(1, server.getRequestCount("/token"));
+
+        // The token is requested with a JWT bearer grant, whose assertion is signed by the client
+        Map<String, String> form = parseForm(server.getLastRequestBody("/token"));
+        Assert.assertEquals(Oauth2TokenManager.JWT_BEARER_GRANT_TYPE, form.get("grant_type"));
+        Assert.assertEquals(SCOPE, form.get("scope"));
+        Oauth2ClientAssertion assertion = Oauth2ClientAssertion.fromJson(config,
+                new String(verifier.verify(form.get("assertion")), StandardCharsets.UTF_8));
+        Assert.assertEquals(CLIENT_ID, assertion.getIssuer());
+        Assert.assertEquals(CLIENT_ID, assertion.getSubject());
+        Assert.assertEquals(tokenEndpoint, assertion.getAudience());
+
+        // Cached tokens are returned without waiting
+        Assert.assertTrue(manager.getTokenAsync(tokenEndpoint, SCOPE, CLIENT_ID, signer, Set.of("ES256")).isDone());
+        Assert.assertEquals(1, server.getRequestCount("/token"));
+        Assert.assertEquals("t1", manager.getCachedToken(tokenEndpoint, SCOPE, CLIENT_ID).getValue());
+        Assert.assertNull(manager.getCachedToken(tokenEndpoint, "other", CLIENT_ID));
+
+        // Once most of the lifetime has passed, the cached token is returned while a new one is obtained
+        server.setResponse("/token", token("t2", 3600));
+        clock.advance(3000);
+        CompletableFuture<Oauth2AccessToken> refreshing = manager.getTokenAsync(tokenEndpoint, SCOPE, CLIENT_ID, signer, Set.of("ES256"));
+        Assert.assertTrue(refreshing.isDone());
+        Assert.assertEquals("t1", refreshing.join().getValue());
+        Assert.assertEquals(1, manager.getRefreshAheadCount());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!"t2".equals(manager.getCachedToken(tokenEndpoint, SCOPE, CLIENT_ID).getValue())) {
+            Assert.assertTrue("Timed out waiting for the refresh", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(2, server.getRequestCount("/token"));
+
+        // Tokens are cached per scope, and an expired token must be obtained again
+        Assert.assertEquals("t2", manager.getToken(tokenEndpoint, "other", CLIENT_ID, signer, Set.of("ES256")).getValue());
+        Assert.assertEquals(2, manager.size());
+        clock.advance(3600);
+        server.injectFaults("/token", 1, 400);
+        try {
+            manager.getToken(tokenEndpoint, SCOPE, CLIENT_ID, signer, Set.of("ES256"));
+            Assert.fail("Expected UncheckedIOException");
+        } catch (UncheckedIOException e) {
+            // Expected
+        }
+        Assert.assertNull(manager.getCachedToken(tokenEndpoint, SCOPE, CLIENT_ID));
+
+        // Without expires_in, the default lifetime applies
+        server.setResponse("/token", "{\"access_token\":\"t3\",\"token_type\":\"bearer\"}");
+        Oauth2AccessToken token = manager.getToken(tokenEndpoint, SCOPE, CLIENT_ID, signer, Set.of("ES256"));
+        Assert.assertEquals("Bearer t3", token.getAuthorizationHeader());
+        Assert.assertEquals(clock.instant().plus(Oauth2TokenManager.DEFAULT_TOKEN_LIFETIME), token.getExpiresAt());
+        Assert.assertFalse(token.toString().contains("t3"));
+    }
+
+    @Test
+    public void testRetriesUseNewAssertion() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        JwsSigner signer = new JwsSigner("idp-key", generator.generateKeyPair().getPrivate());
+        MetadataFetcher fetcher = new MetadataFetcher.Builder()
+                .setSslContext(server.getClientSslContext())
+                .setMaxAttempts(3)
+                .setRetryDelay(Duration.ofMillis(1), Duration.ofMillis(1))
+                .build();
+        Oauth2TokenManager manager = new Oauth2TokenManager.Builder()
+                .setFetcher(fetcher)
+                .build();
+
+        // A fixed body is not resent, since the endpoint may already have acted upon it
+        server.setResponse("/fixed", token("t1", 3600));
+        server.injectFaults("/fixed", 1, 503);
+        try {
+            fetcher.post(server.getUrl("/fixed"), "application/x-www-form-urlencoded", new byte[0]).join();
+            Assert.fail("Expected an exception");
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof UncheckedIOException);
+        }
+        Assert.assertEquals(1, server.getRequestCount("/fixed"));
+
+        // A token request is retried with a new client assertion, whose jti differs
+        server.setResponse("/retry-token", token("t1", 3600));
+        server.injectFaults("/retry-token", 1, 503);
+        String tokenEndpoint = server.getUrl("/retry-token");
+        Assert.assertEquals("t1", manager.getToken(tokenEndpoint, SCOPE, CLIENT_ID, signer, Set.of("ES256")).getValue());
+        List<String> bodies = server.getRequestBodies("/retry-token");
+        Assert.assertEquals(2, bodies.size());
+        Set<String> jwtIds = new HashSet<>();
+        for (String body : bodies) {
+            String[] parts = parseForm(body).get("assertion").split("\\.");
+            String claims = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+            jwtIds.add(Oauth2ClientAssertion.fromJson(config, claims).getJwtId());
+        }
+        Assert.assertEquals(2, jwtIds.size());
+    }
+
+    private static String token(String value, long expiresIn) {
+        return "{\"access_token\":\"" + value + "\",\"token_type\":\"Bearer\",\"expires_in\":" + expiresIn + "}";
+    }
+
+    private static Map<String, String> parseForm(String body) {
+        Map<String, String> form = new HashMap<>();
+        for (String pair : body.split("&")) {
+            int separator = pair.indexOf('=');
+            form.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                     URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+        }
+        return form;
+    }
+}
@@ -1,18 +1,27 @@
 package org.fastfed4j.test;
 
 import org.fastfed4j.core.configuration.FastFedConfiguration;
+import org.fastfed4j.core.constants.AuthenticationProfile;
+import org.fastfed4j.core.constants.ProvisioningProfile;
 import org.fastfed4j.core.constants.SchemaGrammar;
+import org.fastfed4j.core.exception.ErrorAccumulator;
 import org.fastfed4j.core.exception.IncompatibleProvidersException;
 import org.fastfed4j.core.metadata.ApplicationProviderMetadata;
 import org.fastfed4j.core.metadata.Capabilities;
 import org.fastfed4j.core.metadata.IdentityProviderMetadata;
+import org.fastfed4j.core.util.CapabilityIndex;
+import org.fastfed4j.core.util.CompatibilityCache;
+import org.fastfed4j.core.util.CompatibilityMatrix;
 import org.fastfed4j.core.util.CompatibilityUtils;
+import org.fastfed4j.core.util.UrnSet;
+import org.fastfed4j.profile.KnownProfiles;
+import org.fastfed4j.profile.Profile;
+import org.fastfed4j.profile.ProfileRegistry;
 import org.fastfed4j.test.data.ApplicationProviderJson;
 import org.fastfed4j.test.data.IdentityProviderJson;
 import org.junit.*;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
 /**
  * The following tests evaluate the compatibility checks.
@@ -131,6 +140,214 @@ public class ProviderCompatibilityTest {
         testSchemasAndAlgorithms(Result.Incompatible, 0, appCapabilities, idpCapabilities);
     }
 
+    // COMPACT REPRESENTATION OF CAPABILITIES
+
+    @Test
+    public void testUrnSet() {
+        String saml = AuthenticationProfile.ENTERPRISE_SAML.getUrn();
+        String scim = ProvisioningProfile.ENTERPRISE_SCIM.getUrn();
+        UrnSet set1 = UrnSet.of(Set.of(saml, scim, "RS256", "unknown:1"));
+        UrnSet set2 = UrnSet.of(Set.of(scim, "RS256", "ES256", "unknown:1", "unknown:2"));
+
+        UrnSet shared = set1.intersect(set2);
+        Assert.assertEquals(Set.of(scim, "RS256", "unknown:1"), shared.toSet());
+        Assert.assertEquals(3, shared.size());
+        Assert.assertTrue(shared.contains("unknown:1"));
+        Assert.assertFalse(shared.contains(saml));
+        Assert.assertTrue(set1.containsAll(shared));
+        Assert.assertFalse(set1.containsAll(set2));
+        Assert.assertEquals(shared, UrnSet.of(shared.toSet()));
+        Assert.assertTrue(UrnSet.of(Set.of(saml)).intersect(UrnSet.of(Set.of(scim))).isEmpty());
+        Assert.assertEquals(UrnSet.EMPTY, UrnSet.of(Set.of(saml)).intersect(UrnSet.of(Set.of(scim))));
+    }
+
+    @Test
+    public void testCompactCapabilities() {
+        ApplicationProviderMetadata app = ApplicationProviderMetadata.fromJson(config, ApplicationProviderJson.FULLY_POPULATED);
+        Capabilities capabilities = app.getCapabilities();
+        Capabilities.Compact compact = capabilities.toCompact();
+        Assert.assertSame(compact, capabilities.toCompact());
+        Assert.assertEquals(capabilities, compact.toCapabilities(config));
+
+        // Reading a collection keeps the compact form, while modifying it replaces the compact form
+        Assert.assertTrue(capabilities.getSigningAlgorithms().contains("ES512"));
+        Assert.assertSame(compact, capabilities.toCompact());
+        capabilities.getSigningAlgorithms().add("ES384");
+        Assert.assertNotSame(compact, capabilities.toCompact());
+        Assert.assertTrue(capabilities.toCompact().getSigningAlgorithms().contains("ES384"));
+    }
+
+    @Test
+    public void testProfileRegisteredAfterCompactIsCached() {
+        String customProfile = "urn:example:fastfed:custom-profile";
+        UrnSet before = UrnSet.of(Set.of(customProfile));
+
+        // The Identity Provider's compact form is cached before the profile is registered
+        IdentityProviderMetadata idp = IdentityProviderMetadata.fromJson(config, IdentityProviderJson.FULLY_POPULATED);
+        idp.getCapabilities().setAuthenticationProfiles(Set.of(customProfile));
+        Capabilities.Compact idpCompact = idp.getCapabilities().toCompact();
+
+        new ProfileRegistry().add(new Profile() {
+            @Override
+            public String getUrn() {
+                return customProfile;
+            }
+        });
+
+        // Sets built before and after the registration represent the profile in the same way
+        UrnSet after = UrnSet.of(Set.of(customProfile));
+        Assert.assertEquals(before, after);
+        Assert.assertEquals(before.hashCode(), after.hashCode());
+        Assert.assertTrue(before.intersects(after));
+
+        // The Application Provider's compact form is built after the registration, and still matches
+        ApplicationProviderMetadata app = ApplicationProviderMetadata.fromJson(config, ApplicationProviderJson.FULLY_POPULATED);
+        app.getCapabilities().setAuthenticationProfiles(Set.of(customProfile));
+        Assert.assertSame(idpCompact, idp.getCapabilities().toCompact());
+        Assert.assertTrue(compatibilityUtils.isCompatible(idpCompact, app.getCapabilities().toCompact()));
+        Capabilities shared = compatibilityUtils.getSharedCapabilities(idp.getCapabilities(), app.getCapabilities());
+        Assert.assertEquals(Set.of(customProfile), shared.getAuthenticationProfiles());
+        CompatibilityMatrix matrix = CompatibilityMatrix.evaluate(List.of(idp), List.of(app));
+        Assert.assertArrayEquals(new int[] {0}, matrix.getCompatibleApplicationProviders(0));
+    }
+
+    @Test
+    public void testCompatibilityMatrix() {
+        List<Set<String>> variations = List.of(Set.of("A"), Set.of("B"), Set.of("A", "B"), new HashSet<>());
+        List<IdentityProviderMetadata> idps = new ArrayList<>();
+        List<ApplicationProviderMetadata> apps = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            IdentityProviderMetadata idp = IdentityProviderMetadata.fromJson(config, IdentityProviderJson.FULLY_POPULATED);
+            idp.getCapabilities().setProvisioningProfiles(variations.get(i % 4));
+            idp.getCapabilities().setSigningAlgorithms(variations.get((i / 4) % 4));
+            idps.add(idp);
+
+            ApplicationProviderMetadata app = ApplicationProviderMetadata.fromJson(config, ApplicationProviderJson.FULLY_POPULATED);
+            app.getCapabilities().setProvisioningProfiles(variations.get((i / 2) % 4));
+            app.getCapabilities().setSigningAlgorithms(variations.get((i / 3) % 4));
+            apps.add(app);
+        }
+
+        CompatibilityMatrix matrix = CompatibilityMatrix.evaluate(idps, apps);
+        for (int i = 0; i < idps.size(); i++) {
+            int[] compatibleApps = matrix.getCompatibleApplicationProviders(i);
+            int count = 0;
+            for (int j = 0; j < apps.size(); j++) {
+                boolean expected = compatibilityUtils.evaluateCompatibility(new ErrorAccumulator(), idps.get(i), apps.get(j)).isPresent();
+                Assert.assertEquals(expected, matrix.isCompatible(i, j));
+                if (expected) {
+                    Assert.assertEquals(j, compatibleApps[count++]);
+                    Assert.assertTrue(Arrays.binarySearch(matrix.getCompatibleIdentityProviders(j), i) >= 0);
+                }
+            }
+            Assert.assertEquals(count, compatibleApps.length);
+        }
+
+        // Error messages are produced on request
+        ErrorAccumulator errorAccumulator = new ErrorAccumulator();
+        Assert.assertFalse(matrix.isCompatible(0, 3));
+        Assert.assertFalse(matrix.explain(errorAccumulator, 0, 3).isPresent());
+        Assert.assertTrue(errorAccumulator.hasErrors());
+
+        // Explanations describe the capabilities the matrix was evaluated on, even if they have changed since
+        Assert.assertTrue(matrix.isCompatible(2, 2));
+        idps.get(2).getCapabilities().setSigningAlgorithms(new HashSet<>());
+        Assert.assertTrue(matrix.explain(new ErrorAccumulator(), 2, 2).isPresent());
+
+        // Providers without capabilities are explained rather than failing
+        IdentityProviderMetadata noCapabilities = IdentityProviderMetadata.fromJson(config, IdentityProviderJson.FULLY_POPULATED);
+        noCapabilities.setCapabilities(null);
+        CompatibilityMatrix sparse = CompatibilityMatrix.evaluate(List.of(noCapabilities), apps.subList(0, 1));
+        errorAccumulator = new ErrorAccumulator();
+        Assert.assertFalse(sparse.explain(errorAccumulator, 0, 0).isPresent());
+        Assert.assertTrue(errorAccumulator.hasErrors());
+    }
+
+    @Test
+    public void testCapabilityIndex() {
+        List<Set<String>> variations = List.of(Set.of("RS256"), Set.of("ES512"), Set.of("RS256", "ES512"), new HashSet<>());
+        CapabilityIndex<ApplicationProviderMetadata> index = new CapabilityIndex<>();
+        for (int i = 0; i < 40; i++) {
+            ApplicationProviderMetadata app = ApplicationProviderMetadata.fromJson(config, ApplicationProviderJson.FULLY_POPULATED);
+            app.getCapabilities().setSigningAlgorithms(variations.get(i % 4));
+            app.getCapabilities().setProvisioningProfiles(i % 3 == 0 ? new HashSet<>() : Set.of(ProvisioningProfile.ENTERPRISE_SCIM.getUrn()));
+            index.put("app" + i, app);
+        }
+        Assert.assertEquals(40, index.size());
+
+        // Matches the results of evaluating each entry in turn
+        IdentityProviderMetadata idp = IdentityProviderMetadata.fromJson(config, IdentityProviderJson.FULLY_POPULATED);
+        idp.getCapabilities().setSigningAlgorithms(Set.of("ES512"));
+        List<ApplicationProviderMetadata> expected = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            ApplicationProviderMetadata app = index.get("app" + i);
+            if (compatibilityUtils.evaluateCompatibility(new ErrorAccumulator(), idp, app).isPresent()) {
+                expected.add(app);
+            }
+        }
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected, index.findCompatibleWithIdentityProvider(idp.getCapabilities()));
+
+        // Apps offering Enterprise SCIM with ES512 and the SCIM grammar
+        List<ApplicationProviderMetadata> scimWithEs512 = index.query()
+                .requireProvisioningProfile(ProvisioningProfile.ENTERPRISE_SCIM.getUrn())
+                .requireSigningAlgorithm("ES512")
+                .requireSchemaGrammar(SchemaGrammar.SCIM.getUrn())
+                .find();
+        for (ApplicationProviderMetadata app : scimWithEs512) {
+            Assert.assertTrue(app.getCapabilities().getProvisioningProfiles().contains(ProvisioningProfile.ENTERPRISE_SCIM.getUrn()));
+            Assert.assertTrue(app.getCapabilities().getSigningAlgorithms().contains("ES512"));
+        }
+        Assert.assertEquals(14, scimWithEs512.size());
+        Assert.assertTrue(index.query().requireSigningAlgorithm("HS256").find().isEmpty());
+
+        // Incremental updates
+        ApplicationProviderMetadata app1 = index.get("app1");
+        Assert.assertTrue(index.remove("app1"));
+        Assert.assertFalse(index.remove("app1"));
+        Assert.assertFalse(index.query().requireSigningAlgorithm("ES512").find().stream().anyMatch(app -> app == app1));
+        app1.getCapabilities().setSigningAlgorithms(Set.of("RS256"));
+        index.put("app1", app1);
+        Assert.assertTrue(index.query().requireSigningAlgorithm("RS256").find().stream().anyMatch(app -> app == app1));
+        Assert.assertFalse(index.query().requireSigningAlgorithm("ES512").find().stream().anyMatch(app -> app == app1));
+        Assert.assertEquals(40, index.size());
+    }
+
+    @Test
+    public void testCompatibilityCache() {
+        CompatibilityCache cache = new CompatibilityCache(1);
+        CompatibilityUtils cachingUtils = new CompatibilityUtils(cache);
+        IdentityProviderMetadata idp = IdentityProviderMetadata.fromJson(config, IdentityProviderJson.FULLY_POPULATED);
+        ApplicationProviderMetadata app = ApplicationProviderMetadata.fromJson(config, ApplicationProviderJson.FULLY_POPULATED);
+        ApplicationProviderMetadata incompatibleApp = ApplicationProviderMetadata.fromJson(config, ApplicationProviderJson.FULLY_POPULATED);
+        incompatibleApp.getCapabilities().setSigningAlgorithms(Set.of("HS256"));
+
+        // Providers with identical capabilities share the decision
+        Capabilities shared = cachingUtils.assertCompatibility(idp, app);
+        Assert.assertEquals(shared, cachingUtils.assertCompatibility(
+                IdentityProviderMetadata.fromJson(config, IdentityProviderJson.FULLY_POPULATED),
+                ApplicationProviderMetadata.fromJson(config, ApplicationProviderJson.FULLY_POPULATED)));
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getHitCount());
+
+        // Error messages are replayed from the cache
+        ErrorAccumulator firstErrors = new ErrorAccumulator();
+        ErrorAccumulator secondErrors = new ErrorAccumulator();
+        Assert.assertFalse(cachingUtils.evaluateCompatibility(firstErrors, idp, incompatibleApp).isPresent());
+        Assert.assertFalse(cachingUtils.evaluateCompatibility(secondErrors, idp, incompatibleApp).isPresent());
+        Assert.assertTrue(firstErrors.hasErrors());
+        Assert.assertEquals(firstErrors.getErrors(), secondErrors.getErrors());
+        Assert.assertEquals(2, cache.getMissCount());
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertEquals(1, cache.size());
+
+        // Changes to a ProfileRegistry invalidate the cached decisions
+        new ProfileRegistry().add(KnownProfiles.ENTERPRISE_SAML);
+        cachingUtils.evaluateCompatibility(new ErrorAccumulator(), idp, incompatibleApp);
+        Assert.assertEquals(3, cache.getMissCount());
+    }
+
     private void testProfiles(Result expectedResult,
                               int expectedNumberOfSharedCapabilities,
                               Set<String> appCapabilities,
@@ -0,0 +1,357 @@
+package org.fastfed4j.test;
+
+import org.fastfed4j.core.configuration.FastFedConfiguration;
+import org.fastfed4j.core.exception.FastFedSecurityException;
+import org.fastfed4j.core.http.CircuitBreaker;
+import org.fastfed4j.core.http.FetchRejectedException;
+import org.fastfed4j.core.http.MetadataCache;
+import org.fastfed4j.core.http.MetadataFetcher;
+import org.fastfed4j.core.http.MetadataMirror;
+import org.fastfed4j.core.metadata.ApplicationProviderMetadata;
+import org.fastfed4j.core.metadata.IdentityProviderMetadata;
+import org.fastfed4j.test.data.ApplicationProviderJson;
+import org.fastfed4j.test.data.IdentityProviderJson;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Retrieves metadata from a stub HTTPS server running on the loopback interface.
+ */
+public class RemoteMetadataTest {
+
+    private static final FastFedConfiguration config = FastFedConfiguration.DEFAULT;
+
+    private static final String IDP_JSON = IdentityProviderJson.FULLY_POPULATED
+            .replace("\"provider_domain\": \"example.com\"", "\"provider_domain\": \"localhost\"");
+    private static final String APP_JSON = ApplicationProviderJson.FULLY_POPULATED
+            .replace("\"provider_domain\": \"app.example.com\"", "\"provider_domain\": \"localhost\"");
+
+    private static StubHttpsServer server;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new StubHttpsServer();
+        server.setResponse("/idp", IDP_JSON);
+        server.setResponse("/app", APP_JSON);
+        server.setResponse("/app-gzip", new StubHttpsServer.Response(200, APP_JSON, true));
+        server.setResponse("/wrong-domain", ApplicationProviderJson.FULLY_POPULATED);
+        server.setResponse("/error", new StubHttpsServer.Response(500, "{}", false));
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.close();
+    }
+
+    private static MetadataFetcher.Builder fetcherBuilder() {
+        return new MetadataFetcher.Builder().setSslContext(server.getClientSslContext());
+    }
+
+    @Test
+    public void testFetchMetadata() {
+        MetadataFetcher fetcher = fetcherBuilder().build();
+
+        IdentityProviderMetadata idp = IdentityProviderMetadata.fromRemoteEndpointAsync(
+                config, server.getUrl("/idp"), fetcher).join();
+        Assert.assertEquals(IdentityProviderMetadata.fromJson(config, IDP_JSON), idp);
+
+        ApplicationProviderMetadata app = ApplicationProviderMetadata.fromRemoteEndpointAsync(
+                config, server.getUrl("/app"), fetcher).join();
+        Assert.assertEquals(ApplicationProviderMetadata.fromJson(config, APP_JSON), app);
+
+        ApplicationProviderMetadata gzipped = ApplicationProviderMetadata.fromRemoteEndpointAsync(
+                config, server.getUrl("/app-gzip"), fetcher).join();
+        Assert.assertEquals(app, gzipped);
+    }
+
+    @Test
+    public void testFetchFailures() {
+        MetadataFetcher fetcher = fetcherBuilder().build();
+
+        // Provider domain doesn't match the host of the endpoint
+        assertFails(FastFedSecurityException.class, ApplicationProviderMetadata.fromRemoteEndpointAsync(
+                config, server.getUrl("/wrong-domain"), fetcher));
+
+        // Endpoints must be HTTPS. No request is sent.
+        int requestCount = server.getRequestCount("/app");
+        assertFails(FastFedSecurityException.class, ApplicationProviderMetadata.fromRemoteEndpointAsync(
+                config, server.getUrl("/app").replace("https:", "http:"), fetcher));
+        Assert.assertEquals(requestCount, server.getRequestCount("/app"));
+
+        assertFails(UncheckedIOException.class, ApplicationProviderMetadata.fromRemoteEndpointAsync(
+                config, server.getUrl("/error"), fetcher));
+        assertFails(UncheckedIOException.class, ApplicationProviderMetadata.fromRemoteEndpointAsync(
+                config, server.getUrl("/missing"), fetcher));
+
+        // Responses exceeding the maximum size are rejected, whether or not they are compressed
+        MetadataFetcher smallFetcher = fetcherBuilder().setMaxResponseSize(APP_JSON.length() - 1).build();
+        assertFails(UncheckedIOException.class, ApplicationProviderMetadata.fromRemoteEndpointAsync(
+                config, server.getUrl("/app"), smallFetcher));
+        assertFails(UncheckedIOException.class, ApplicationProviderMetadata.fromRemoteEndpointAsync(
+                config, server.getUrl("/app-gzip"), smallFetcher));
+
+        // The synchronous form rethrows the original exception
+        try {
+            MetadataFetcher.join(ApplicationProviderMetadata.fromRemoteEndpointAsync(
+                    config, server.getUrl("/wrong-domain"), fetcher));
+            Assert.fail("Expected FastFedSecurityException");
+        }
+        catch (FastFedSecurityException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testConcurrentRequestsPerHostAreLimited() {
+        MetadataFetcher fetcher = fetcherBuilder().setMaxConcurrentRequestsPerHost(2).build();
+        server.setLatencyMillis(50);
+        try {
+            List<CompletableFuture<ApplicationProviderMetadata>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(ApplicationProviderMetadata.fromRemoteEndpointAsync(config, server.getUrl("/app"), fetcher));
+            }
+            for (CompletableFuture<ApplicationProviderMetadata> future : futures) {
+                Assert.assertEquals("localhost", future.join().getProviderDomain());
+            }
+            Assert.assertTrue(server.getMaxInFlight("/app") <= 2);
+        }
+        finally {
+            server.setLatencyMillis(0);
+        }
+    }
+
+    @Test
+    public void testMetadataCache() {
+        String url = server.getUrl("/cached");
+        server.setResponse("/cached", new StubHttpsServer.Response(200, APP_JSON, false)
+                .withHeader("ETag", "\"v1\"")
+                .withHeader("Cache-Control", "max-age=100"));
+        TestClock clock = new TestClock();
+        MetadataCache<ApplicationProviderMetadata> cache = new MetadataCache.Builder()
+                .setFetcher(fetcherBuilder().build())
+                .setClock(clock)
+                .buildForApplicationProviders(config);
+
+        // Concurrent lookups share a single request
+        int requestCount = server.getRequestCount("/cached");
+        server.setLatencyMillis(100);
+        List<CompletableFuture<ApplicationProviderMetadata>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 5; i++) {
+                futures.add(cache.getAsync(url));
+            }
+            for (CompletableFuture<ApplicationProviderMetadata> future : futures) {
+                future.join();
+            }
+        }
+        finally {
+            server.setLatencyMillis(0);
+        }
+        Assert.assertEquals(requestCount + 1, server.getRequestCount("/cached"));
+        ApplicationProviderMetadata metadata = cache.get(url);
+        Assert.assertTrue(metadata.isFrozen());
+        for (CompletableFuture<ApplicationProviderMetadata> future : futures) {
+            Assert.assertSame(metadata, future.join());
+        }
+
+        // Fresh entries are served from the cache
+        clock.advance(50);
+        Assert.assertSame(metadata, cache.get(url));
+        Assert.assertEquals(requestCount + 1, server.getRequestCount("/cached"));
+
+        // Entries nearing expiry are revalidated in the background. Whether or not the revalidation has completed
+        // by the time the entry expires, exactly one conditional request is made, and the server responds with 304.
+        clock.advance(40);
+        Assert.assertSame(metadata, cache.get(url));
+        clock.advance(20);
+        Assert.assertSame(metadata, cache.get(url));
+        Assert.assertEquals(requestCount + 2, server.getRequestCount("/cached"));
+        Assert.assertEquals(1, cache.getNotModifiedCount());
+
+        // Changed content is parsed again
+        server.setResponse("/cached", new StubHttpsServer.Response(200, APP_JSON.replace("Example Inc.", "Example LLC"), false)
+                .withHeader("ETag", "\"v2\"")
+                .withHeader("Cache-Control", "max-age=100"));
+        clock.advance(200);
+        ApplicationProviderMetadata changed = cache.get(url);
+        Assert.assertNotSame(metadata, changed);
+        Assert.assertEquals("Example LLC", changed.getProviderContactInformation().getOrganization());
+    }
+
+    @Test
+    public void testMetadataCacheReusesIdenticalContent() {
+        String url = server.getUrl("/no-etag");
+        server.setResponse("/no-etag", new StubHttpsServer.Response(200, IDP_JSON, false)
+                .withHeader("Cache-Control", "no-cache"));
+        MetadataCache<IdentityProviderMetadata> cache = new MetadataCache.Builder()
+                .setFetcher(fetcherBuilder().build())
+                .buildForIdentityProviders(config);
+
+        int requestCount = server.getRequestCount("/no-etag");
+        IdentityProviderMetadata metadata = cache.get(url);
+        Assert.assertSame(metadata, cache.get(url));
+        Assert.assertEquals(requestCount + 2, server.getRequestCount("/no-etag"));
+        Assert.assertEquals(1, cache.getUnchangedCount());
+
+        // Responses which must not be stored are not cached
+        server.setResponse("/no-store", new StubHttpsServer.Response(200, IDP_JSON, false)
+                .withHeader("Cache-Control", "no-store"));
+        cache.get(server.getUrl("/no-store"));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testMetadataMirror() throws Exception {
+        String url = server.getUrl("/mirrored");
+        server.setResponse("/mirrored", new StubHttpsServer.Response(200, APP_JSON, false)
+                .withHeader("ETag", "\"v1\"")
+                .withHeader("Cache-Control", "max-age=100"));
+        Path directory = Files.createTempDirectory("fastfed4j-mirror");
+        try {
+            MetadataMirror mirror = new MetadataMirror(directory);
+            MetadataCache.Builder builder = new MetadataCache.Builder()
+                    .setFetcher(fetcherBuilder().build())
+                    .setMirror(mirror);
+            ApplicationProviderMetadata metadata = builder.buildForApplicationProviders(config).get(url);
+            Assert.assertTrue(mirror.contains(url));
+
+            // After a restart, the mirrored document is served even though the endpoint is failing
+            server.setResponse("/mirrored", new StubHttpsServer.Response(500, "{}", false));
+            MetadataCache<ApplicationProviderMetadata> restarted = builder.buildForApplicationProviders(config);
+            ApplicationProviderMetadata mirrored = restarted.get(url);
+            Assert.assertEquals(metadata, mirrored);
+            Assert.assertTrue(mirrored.isFrozen());
+            Assert.assertEquals(1, restarted.getMirrorLoadCount());
+
+            // Corrupted documents are discarded, and the metadata is retrieved from the endpoint
+            server.setResponse("/mirrored", new StubHttpsServer.Response(200, APP_JSON, false));
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    Files.write(file, new String(Files.readAllBytes(file), StandardCharsets.UTF_8)
+                            .replace("Example Inc.", "Evil Inc.").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            MetadataCache<ApplicationProviderMetadata> corrupted = builder.buildForApplicationProviders(config);
+            Assert.assertEquals(metadata, corrupted.get(url));
+            Assert.assertEquals(0, corrupted.getMirrorLoadCount());
+        }
+        finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testRetryAndCircuitBreaker() {
+        TestClock clock = new TestClock();
+        List<CircuitBreaker.State> transitions = new CopyOnWriteArrayList<>();
+        MetadataFetcher fetcher = fetcherBuilder()
+                .setMaxAttempts(3)
+                .setRetryDelay(Duration.ofMillis(10), Duration.ofMillis(40))
+                .setCircuitBreaker(3, Duration.ofSeconds(30))
+                .setCircuitBreakerListener((host, from, to) -> transitions.add(to))
+                .setClock(clock)
+                .build();
+        String url = server.getUrl("/app");
+        CircuitBreaker circuitBreaker = fetcher.getCircuitBreaker("localhost");
+
+        // Transient failures are retried
+        server.injectFaults("/app", 2, 503);
+        Assert.assertNotNull(fetcher.fetch(url).join());
+        Assert.assertEquals(2, fetcher.getMetrics().getRetryCount());
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        // Permanent failures are not retried, and don't count against the endpoint
+        int requestCount = server.getRequestCount("/missing");
+        assertFails(UncheckedIOException.class, fetcher.fetch(server.getUrl("/missing")));
+        Assert.assertEquals(requestCount + 1, server.getRequestCount("/missing"));
+        Assert.assertEquals(0, circuitBreaker.getConsecutiveFailures());
+
+        // Exhausting the retries opens the circuit breaker, after which requests fail without being sent
+        server.injectFaults("/app", 3, 503);
+        assertFails(UncheckedIOException.class, fetcher.fetch(url));
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        requestCount = server.getRequestCount("/app");
+        try {
+            MetadataFetcher.join(fetcher.fetch(url));
+            Assert.fail("Expected FetchRejectedException");
+        }
+        catch (UncheckedIOException e) {
+            Assert.assertEquals(FetchRejectedException.Reason.CIRCUIT_OPEN,
+                                ((FetchRejectedException) e.getCause()).getReason());
+        }
+        Assert.assertEquals(requestCount, server.getRequestCount("/app"));
+
+        // Once the open duration elapses, a successful trial request closes the circuit breaker
+        clock.advance(31);
+        Assert.assertNotNull(fetcher.fetch(url).join());
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        Assert.assertEquals(
+                Arrays.asList(CircuitBreaker.State.OPEN, CircuitBreaker.State.HALF_OPEN, CircuitBreaker.State.CLOSED),
+                transitions);
+        Assert.assertEquals(1, fetcher.getMetrics().getTransitionCount(CircuitBreaker.State.OPEN));
+        Assert.assertEquals(1, fetcher.getMetrics().getRejectionCount(FetchRejectedException.Reason.CIRCUIT_OPEN));
+    }
+
+    @Test
+    public void testDeadlineAndBulkhead() {
+        String url = server.getUrl("/app");
+        server.setLatencyMillis(300);
+        try {
+            MetadataFetcher fetcher = fetcherBuilder().setDeadline(Duration.ofMillis(100)).build();
+            assertRejected(FetchRejectedException.Reason.DEADLINE_EXCEEDED, fetcher.fetch(url));
+
+            // One request in flight, and one queued. The next is rejected immediately.
+            fetcher = fetcherBuilder().setMaxConcurrentRequestsPerHost(1).setMaxQueuedRequestsPerHost(1).build();
+            CompletableFuture<byte[]> first = fetcher.fetch(url);
+            CompletableFuture<byte[]> second = fetcher.fetch(url);
+            assertRejected(FetchRejectedException.Reason.BULKHEAD_FULL, fetcher.fetch(url));
+            Assert.assertNotNull(first.join());
+            Assert.assertNotNull(second.join());
+            Assert.assertEquals(1, fetcher.getMetrics().getRejectionCount(FetchRejectedException.Reason.BULKHEAD_FULL));
+        }
+        finally {
+            server.setLatencyMillis(0);
+        }
+    }
+
+    private static void assertFails(Class<? extends Throwable> expected, CompletableFuture<?> future) {
+        try {
+            future.join();
+            Assert.fail("Expected " + expected.getSimpleName());
+        }
+        catch (CompletionException e) {
+            Assert.assertTrue("Unexpected " + e.getCause(), expected.isInstance(e.getCause()));
+        }
+    }
+
+    private static void assertRejected(FetchRejectedException.Reason reason, CompletableFuture<?> future) {
+        try {
+            MetadataFetcher.join(future);
+            Assert.fail("Expected FetchRejectedException");
+        }
+        catch (UncheckedIOException e) {
+            Assert.assertTrue("Unexpected " + e.getCause(), e.getCause() instanceof FetchRejectedException);
+            Assert.assertEquals(reason, ((FetchRejectedException) e.getCause()).getReason());
+        }
+    }
+}
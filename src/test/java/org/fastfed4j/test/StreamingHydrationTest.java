@@ -0,0 +1,282 @@
+package org.fastfed4j.test;
+
+import org.fastfed4j.core.configuration.FastFedConfiguration;
+import org.fastfed4j.core.contract.Contract;
+import org.fastfed4j.core.contract.ContractProposal;
+import org.fastfed4j.core.exception.ErrorAccumulator;
+import org.fastfed4j.core.exception.InvalidMetadataException;
+import org.fastfed4j.core.json.BuiltInJsonProvider;
+import org.fastfed4j.core.json.JsonObject;
+import org.fastfed4j.core.json.JsonParser;
+import org.fastfed4j.core.json.JsonReader;
+import org.fastfed4j.core.metadata.*;
+import org.fastfed4j.test.data.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Ensures that hydrating from a streaming JsonReader produces the same objects, and reports the same errors,
+ * as hydrating from a JsonObject tree.
+ */
+public class StreamingHydrationTest {
+
+    private static final FastFedConfiguration config = FastFedConfiguration.DEFAULT;
+
+    @Test
+    public void testIdentityProviderMetadata() {
+        for (String json : IdentityProviderJson.ALL_VALID_VARIATIONS) {
+            assertEquivalent(() -> new IdentityProviderMetadata(config), json);
+        }
+        assertEquivalent(() -> new IdentityProviderMetadata(config), IdentityProviderJson.INVALID_TYPES);
+    }
+
+    @Test
+    public void testApplicationProviderMetadata() {
+        for (String json : ApplicationProviderJson.ALL_VALID_VARIATIONS) {
+            assertEquivalent(() -> new ApplicationProviderMetadata(config), json);
+        }
+        assertEquivalent(() -> new ApplicationProviderMetadata(config), ApplicationProviderJson.INVALID_TYPES);
+
+        // The wrapper is only unwrapped when it is the sole member; otherwise the object is read as it is
+        String withSibling = ApplicationProviderJson.FULLY_POPULATED.replaceFirst("\\{", "{\"extra\": 1, ");
+        String withTrailingSibling = ApplicationProviderJson.FULLY_POPULATED.replaceFirst("\\}\\s*$", ", \"extra\": 1}");
+        for (String json : Arrays.asList(withSibling, withTrailingSibling)) {
+            ApplicationProviderMetadata fromTree = new ApplicationProviderMetadata(config);
+            fromTree.hydrateFromJson(JsonParser.parse(json, new ErrorAccumulator()));
+            ApplicationProviderMetadata fromStream = new ApplicationProviderMetadata(config);
+            JsonReader reader = new JsonReader(json, new ErrorAccumulator());
+            fromStream.hydrateFromJson(reader);
+            reader.endDocument();
+            Assert.assertNull(fromTree.getEntityId());
+            Assert.assertNull(fromStream.getEntityId());
+            Assert.assertEquals(fromTree.toJson().toString(), fromStream.toJson().toString());
+        }
+    }
+
+    @Test
+    public void testRegistrationRequest() {
+        for (String json : RegistrationRequestJson.ALL_VALID_VARIATIONS) {
+            assertEquivalent(() -> new RegistrationRequest(config), json);
+        }
+        assertEquivalent(() -> new RegistrationRequest(config), RegistrationRequestJson.INVALID_TYPES);
+    }
+
+    @Test
+    public void testContract() {
+        for (String json : ContractJson.ALL_VALID_VARIATIONS) {
+            assertEquivalent(() -> new Contract(config), json);
+        }
+        assertEquivalent(() -> new Contract(config), ContractJson.INVALID_TYPES);
+    }
+
+    @Test
+    public void testContractProposal() {
+        for (String json : ContractProposalJson.ALL_VALID_VARIATIONS) {
+            assertEquivalent(() -> new ContractProposal(config), json);
+        }
+        assertEquivalent(() -> new ContractProposal(config), ContractProposalJson.INVALID_TYPES);
+    }
+
+    @Test
+    public void testMalformedJsonDiscardsTypeErrors() {
+        ErrorAccumulator errorAccumulator = new ErrorAccumulator();
+        JsonReader reader = new JsonReader("{\"entity_id\": 5, malformed", errorAccumulator);
+        try {
+            new IdentityProviderMetadata(config).hydrateFromJson(reader);
+            Assert.fail("Expected an exception for malformed JSON");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(1, errorAccumulator.getErrors().size());
+            Assert.assertTrue(errorAccumulator.getErrors().get(0).startsWith("Malformed JSON"));
+        }
+    }
+
+    @Test
+    public void testByteInput() {
+        for (String json : ContractJson.ALL_VALID_VARIATIONS) {
+            Contract expected = Contract.fromJson(config, json);
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+
+            Assert.assertEquals(expected, Contract.fromJson(config, bytes));
+            Assert.assertEquals(expected, Contract.fromJson(config, direct));
+            Assert.assertEquals(bytes.length, direct.remaining());
+            Assert.assertEquals(expected, Contract.fromJson(config, ByteBuffer.wrap(bytes)));
+            Assert.assertEquals(expected, Contract.fromJson(config, new ByteArrayInputStream(bytes)));
+        }
+        for (String json : ApplicationProviderJson.ALL_VALID_VARIATIONS) {
+            ApplicationProviderMetadata expected = ApplicationProviderMetadata.fromJson(config, json);
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(expected, ApplicationProviderMetadata.fromJson(config, bytes));
+            Assert.assertEquals(expected, ApplicationProviderMetadata.fromJson(config, new ByteArrayInputStream(bytes)));
+        }
+    }
+
+    @Test
+    public void testByteInputDecodesUtf8() {
+        String json = "{\"name\": \"Caf\u00e9 \u65e5\u672c \\u00e9 \ud83d\ude00\"}";
+        byte[] bytes = ("\uFEFF" + json).getBytes(StandardCharsets.UTF_8);
+
+        JsonObject expected = JsonParser.parse(json, new ErrorAccumulator());
+        Assert.assertEquals(expected.getString("name"), JsonParser.parse(bytes, new ErrorAccumulator()).getString("name"));
+
+        // A buffer whose position is not at the start of the backing array
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 10);
+        buffer.position(10);
+        buffer.put(bytes).flip().position(10);
+        ByteBuffer slice = buffer.slice();
+        Assert.assertEquals(expected.getString("name"), JsonParser.parse(slice, new ErrorAccumulator()).getString("name"));
+    }
+
+    @Test
+    public void testMalformedByteInput() {
+        ErrorAccumulator errorAccumulator = new ErrorAccumulator();
+        try {
+            JsonParser.parse("{\"name\": ".getBytes(StandardCharsets.UTF_8), errorAccumulator);
+            Assert.fail("Expected an exception for malformed JSON");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(1, errorAccumulator.getErrors().size());
+            Assert.assertTrue(errorAccumulator.getErrors().get(0).startsWith("Malformed JSON"));
+        }
+    }
+
+    @Test
+    public void testUnicodeEscapesRequireFourHexDigits() {
+        byte[] valid = "{\"name\": \"\\u0041\\u00E9\"}".getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals("A\u00e9", JsonParser.parse(valid, new ErrorAccumulator()).getString("name"));
+        for (String escape : Arrays.asList("\\u+041", "\\u-001", "\\u004g", "\\u 041", "\\u00")) {
+            String json = "{\"name\": \"" + escape + "\"}";
+            for (Runnable parse : Arrays.<Runnable>asList(
+                    () -> JsonParser.parse(json, new ErrorAccumulator(), new BuiltInJsonProvider()),
+                    () -> JsonParser.parse(json.getBytes(StandardCharsets.UTF_8), new ErrorAccumulator()))) {
+                try {
+                    parse.run();
+                    Assert.fail("Expected an exception for the escape sequence " + escape);
+                } catch (InvalidMetadataException e) {
+                    Assert.assertTrue(e.getErrorAccumulator().getErrors().get(0).startsWith("Malformed JSON"));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNestingDepthIsLimited() {
+        // Nesting up to the limit is accepted
+        String nested = "[".repeat(JsonReader.MAX_NESTING_DEPTH - 1) + "]".repeat(JsonReader.MAX_NESTING_DEPTH - 1);
+        Assert.assertEquals(1, JsonParser.parse("{\"a\": " + nested + "}", new ErrorAccumulator()).keySet().size());
+
+        // Deeper nesting is reported as malformed, rather than overflowing the stack
+        String tooDeep = "{\"a\": " + "[".repeat(100_000) + "}";
+        for (Runnable parse : Arrays.<Runnable>asList(
+                () -> JsonParser.parse(tooDeep, new ErrorAccumulator()),
+                () -> JsonParser.parse(tooDeep.getBytes(StandardCharsets.UTF_8), new ErrorAccumulator()),
+                () -> IdentityProviderMetadata.fromJson(config, tooDeep))) {
+            try {
+                parse.run();
+                Assert.fail("Expected an exception for malformed JSON");
+            } catch (InvalidMetadataException e) {
+                Assert.assertTrue(e.getErrorAccumulator().getErrors().get(0).startsWith("Malformed JSON"));
+            }
+        }
+    }
+
+    @Test
+    public void testLazyJsonObject() {
+        for (String json : ContractJson.ALL_VALID_VARIATIONS) {
+            assertLazyEquivalent(() -> new Contract(config), json);
+        }
+        assertLazyEquivalent(() -> new Contract(config), ContractJson.INVALID_TYPES);
+        for (String json : ApplicationProviderJson.ALL_VALID_VARIATIONS) {
+            assertLazyEquivalent(() -> new ApplicationProviderMetadata(config), json);
+        }
+        assertLazyEquivalent(() -> new ApplicationProviderMetadata(config), ApplicationProviderJson.INVALID_TYPES);
+
+        byte[] bytes = ContractJson.FULLY_POPULATED.getBytes(StandardCharsets.UTF_8);
+        JsonObject lazy = JsonParser.parse(bytes, new ErrorAccumulator());
+        JsonObject tree = JsonParser.parse(ContractJson.FULLY_POPULATED, new ErrorAccumulator());
+        Assert.assertEquals(tree.keySet(), lazy.keySet());
+        Assert.assertEquals(org.json.simple.JSONValue.parse(tree.toString()), org.json.simple.JSONValue.parse(lazy.toString()));
+    }
+
+    @Test
+    public void testLazyJsonObjectChecksSyntaxOfUnreadMembers() {
+        ErrorAccumulator errorAccumulator = new ErrorAccumulator();
+        try {
+            JsonParser.parse("{\"entity_id\": \"a\", \"unread\": {\"x\": [1, }}".getBytes(StandardCharsets.UTF_8), errorAccumulator);
+            Assert.fail("Expected an exception for malformed JSON");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(1, errorAccumulator.getErrors().size());
+            Assert.assertTrue(errorAccumulator.getErrors().get(0).startsWith("Malformed JSON"));
+        }
+    }
+
+    @Test
+    public void testCachedStringArrays() {
+        ErrorAccumulator errorAccumulator = new ErrorAccumulator();
+        JsonObject json = JsonParser.parse("{\"a\": [\"x\", \" \", \"y\"], \"b\": [1]}", errorAccumulator);
+
+        Assert.assertEquals(Arrays.asList("x", "y"), json.getStringList("a"));
+        Assert.assertSame(json.getStringList("a"), json.getStringList("a"));
+        Assert.assertSame(json.getStringSet("a"), json.getNonNullableStringSet("a"));
+        try {
+            json.getStringSet("a").add("z");
+            Assert.fail("Expected the cached set to be immutable");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+
+        // Type mismatches are reported on every read, as with the other accessors
+        Assert.assertNull(json.getStringList("b"));
+        Assert.assertTrue(json.getNonNullableStringSet("b").isEmpty());
+        Assert.assertEquals(2, errorAccumulator.getErrors().size());
+    }
+
+    private void assertLazyEquivalent(Supplier<Metadata> factory, String json) {
+        ErrorAccumulator treeErrors = new ErrorAccumulator();
+        Metadata fromTree = factory.get();
+        fromTree.hydrateFromJson(JsonParser.parse(json, treeErrors));
+
+        ErrorAccumulator lazyErrors = new ErrorAccumulator();
+        Metadata fromLazy = factory.get();
+        fromLazy.hydrateFromJson(JsonParser.parse(json.getBytes(StandardCharsets.UTF_8), lazyErrors));
+
+        if (! treeErrors.hasErrors()) {
+            Assert.assertEquals(fromTree, fromLazy);
+        }
+        Assert.assertEquals(treeErrors.getErrors(), lazyErrors.getErrors());
+    }
+
+    private void assertEquivalent(Supplier<Metadata> factory, String json) {
+        ErrorAccumulator treeErrors = new ErrorAccumulator();
+        Metadata fromTree = factory.get();
+        fromTree.hydrateFromJson(JsonParser.parse(json, treeErrors));
+
+        ErrorAccumulator streamErrors = new ErrorAccumulator();
+        Metadata fromStream = factory.get();
+        JsonReader reader = new JsonReader(json, streamErrors);
+        fromStream.hydrateFromJson(reader);
+        reader.endDocument();
+
+        if (! treeErrors.hasErrors()) {
+            Assert.assertEquals(fromTree, fromStream);
+        }
+
+        // Errors are reported in document order when streaming, so compare them irrespective of order
+        Assert.assertEquals(sorted(treeErrors.getErrors()), sorted(streamErrors.getErrors()));
+    }
+
+    private List<String> sorted(List<String> list) {
+        List<String> result = new ArrayList<>(list);
+        Collections.sort(result);
+        return result;
+    }
+}
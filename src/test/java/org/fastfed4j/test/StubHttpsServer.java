@@ -0,0 +1,266 @@
+package org.fastfed4j.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Minimal HTTPS server on the loopback interface, used to test the retrieval of remote metadata.
+ *
+ * <p>The server certificate is self-signed, and is issued for "localhost" when the server starts. Clients must
+ * use the SSLContext returned by getClientSslContext() to trust it.</p>
+ */
+public class StubHttpsServer implements AutoCloseable {
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    private final HttpsServer server;
+    private final ExecutorService executor;
+    private final SSLContext clientSslContext;
+    private final Map<String, Response> responses = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> maxInFlight = new ConcurrentHashMap<>();
+    private final Map<String, Response> faults = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> remainingFaults = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> requestBodies = new ConcurrentHashMap<>();
+    private volatile long latencyMillis;
+
+    /**
+     * A canned response.
+     */
+    public static class Response {
+        private final int status;
+        private final byte[] body;
+        private final boolean gzip;
+        private final Map<String, String> headers = new LinkedHashMap<>();
+
+        public Response(int status, String body, boolean gzip) {
+            this.status = status;
+            this.body = body.getBytes(StandardCharsets.UTF_8);
+            this.gzip = gzip;
+        }
+
+        /**
+         * Adds a response header. If an ETag is set, conditional requests with a matching If-None-Match header
+         * receive a 304 (Not Modified) response.
+         */
+        public Response withHeader(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+    }
+
+    public StubHttpsServer() throws Exception {
+        KeyStore keyStore = generateKeyStore();
+
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, PASSWORD);
+        SSLContext serverSslContext = SSLContext.getInstance("TLS");
+        serverSslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(keyStore);
+        clientSslContext = SSLContext.getInstance("TLS");
+        clientSslContext.init(null, trustManagerFactory.getTrustManagers(), null);
+
+        server = HttpsServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(serverSslContext));
+        server.createContext("/", new Handler());
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Generates a keystore containing a self-signed certificate for "localhost", using the keytool of the
+     * running JVM.
+     */
+    private static KeyStore generateKeyStore() throws Exception {
+        Path directory = Files.createTempDirectory("fastfed4j-stub");
+        File file = directory.resolve("keystore.p12").toFile();
+        String keytool = Paths.get(System.getProperty("java.home"), "bin", "keytool").toString();
+        Process process = new ProcessBuilder(
+                keytool, "-genkeypair",
+                "-alias", "localhost",
+                "-keyalg", "RSA",
+                "-keysize", "2048",
+                "-validity", "1",
+                "-dname", "CN=localhost",
+                "-ext", "san=dns:localhost,ip:127.0.0.1",
+                "-storetype", "PKCS12",
+                "-keystore", file.getPath(),
+                "-storepass", new String(PASSWORD),
+                "-keypass", new String(PASSWORD))
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (process.waitFor() != 0) {
+            throw new IOException("keytool failed: " + output);
+        }
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = new FileInputStream(file)) {
+            keyStore.load(in, PASSWORD);
+        }
+        file.delete();
+        directory.toFile().delete();
+        return keyStore;
+    }
+
+    public SSLContext getClientSslContext() {
+        return clientSslContext;
+    }
+
+    /**
+     * Gets the URL of a path on the server.
+     * @param path path, beginning with "/"
+     * @return https URL
+     */
+    public String getUrl(String path) {
+        return "https://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    public void setResponse(String path, Response response) {
+        responses.put(path, response);
+    }
+
+    public void setResponse(String path, String json) {
+        setResponse(path, new Response(200, json, false));
+    }
+
+    /**
+     * Delays every response, to allow concurrent requests to overlap.
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * Injects faults, by responding to the next requests for a path with an error status instead of the
+     * configured response.
+     * @param path path, beginning with "/"
+     * @param count number of requests to fail
+     * @param status HTTP status of the failed responses
+     */
+    public void injectFaults(String path, int count, int status) {
+        faults.put(path, new Response(status, "", false));
+        remainingFaults.put(path, new AtomicInteger(count));
+    }
+
+    /**
+     * Gets the number of requests received for a path.
+     */
+    public int getRequestCount(String path) {
+        return counter(requestCounts, path).get();
+    }
+
+    /**
+     * Gets the highest number of requests for a path which were handled concurrently.
+     */
+    public int getMaxInFlight(String path) {
+        return counter(maxInFlight, path).get();
+    }
+
+    /**
+     * Gets the body of the most recent request for a path.
+     * @return body, or null if no request has been received
+     */
+    public String getLastRequestBody(String path) {
+        List<String> bodies = getRequestBodies(path);
+        return bodies.isEmpty() ? null : bodies.get(bodies.size() - 1);
+    }
+
+    /**
+     * Gets the bodies of all the requests for a path, in the order they were received.
+     */
+    public List<String> getRequestBodies(String path) {
+        return requestBodies.computeIfAbsent(path, p -> new CopyOnWriteArrayList<>());
+    }
+
+    private static AtomicInteger counter(Map<String, AtomicInteger> counters, String path) {
+        return counters.computeIfAbsent(path, p -> new AtomicInteger());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private class Handler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            counter(requestCounts, path).incrementAndGet();
+            getRequestBodies(path).add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            int current = counter(inFlight, path).incrementAndGet();
+            counter(maxInFlight, path).accumulateAndGet(current, Math::max);
+            try {
+                if (latencyMillis > 0) {
+                    Thread.sleep(latencyMillis);
+                }
+                Response response = responses.get(path);
+                AtomicInteger remaining = remainingFaults.get(path);
+                if (remaining != null && remaining.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+                    response = faults.get(path);
+                }
+                if (response == null) {
+                    response = new Response(404, "", false);
+                }
+                response.headers.forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+                String eTag = response.headers.get("ETag");
+                if (eTag != null && eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+                byte[] body = response.body;
+                if (response.gzip) {
+                    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                        gzip.write(body);
+                    }
+                    body = buffer.toByteArray();
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(response.status, body.length == 0 ? -1 : body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finally {
+                counter(inFlight, path).decrementAndGet();
+                exchange.close();
+            }
+        }
+    }
+}